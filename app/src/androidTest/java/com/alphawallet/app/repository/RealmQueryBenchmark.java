@@ -0,0 +1,180 @@
+package com.alphawallet.app.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.alphawallet.app.BuildConfig;
+import com.alphawallet.app.repository.entity.RealmToken;
+import com.alphawallet.app.repository.entity.RealmTransaction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import io.realm.Case;
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+import io.realm.RealmResults;
+import io.realm.Sort;
+
+/**
+ * Seeds a wallet database with 10k tokens and 100k transactions and times the hot token and activity queries.
+ * Latencies are reported in logcat under the RealmBench tag; run on a device before and after schema changes.
+ *
+ * ./gradlew connectedNoAnalyticsDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.alphawallet.app.repository.RealmQueryBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class RealmQueryBenchmark
+{
+    private static final String TAG = "RealmBench";
+    private static final String WALLET = "0xa7e1e9b2a2a9d6ab0e53c7b7c3f4a4d1a7f0e0b1";
+    private static final int TOKEN_COUNT = 10_000;
+    private static final int TRANSACTION_COUNT = 100_000;
+    private static final Long[] CHAINS = {1L, 10L, 56L, 137L, 8453L, 42161L};
+    private static final Long[] FILTER = {1L, 137L};
+    private static final int RUNS = 25;
+    private static final long BUDGET_MS = 250; //generous ceiling; catches queries falling back to unindexed full scans
+
+    private Realm realm;
+
+    @Before
+    public void setUp()
+    {
+        Realm.init(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        RealmConfiguration config = new RealmConfiguration.Builder()
+                .name("query-benchmark.realm")
+                .inMemory()
+                .schemaVersion(BuildConfig.DB_VERSION)
+                .migration(new AWRealmMigration())
+                .build();
+        realm = Realm.getInstance(config);
+        seed();
+    }
+
+    @After
+    public void tearDown()
+    {
+        realm.close();
+    }
+
+    @Test
+    public void tokenQueries()
+    {
+        long tokensForUpdate = time("tokens for update", () -> realm.where(RealmToken.class).sort("addedTime", Sort.ASCENDING)
+                .in("chainId", FILTER)
+                .beginGroup().equalTo("isEnabled", true).or().equalTo("visibilityChanged", false)
+                .or().like("address", WALLET + "*", Case.INSENSITIVE).endGroup()
+                .findAll().size());
+
+        long enabledOnChain = time("enabled tokens on chain", () -> realm.where(RealmToken.class)
+                .equalTo("chainId", 137L).equalTo("isEnabled", true).findAll().size());
+
+        assertTrue(tokensForUpdate > 0 && enabledOnChain > 0);
+    }
+
+    @Test
+    public void transactionQueries()
+    {
+        long fetchTime = System.currentTimeMillis() / 1000 - 3600;
+        long page = time("activity page", () -> {
+            RealmResults<RealmTransaction> txs = realm.where(RealmTransaction.class)
+                    .sort("timeStamp", Sort.DESCENDING)
+                    .in("chainId", FILTER)
+                    .lessThan("timeStamp", fetchTime)
+                    .findAll();
+            int count = 0;
+            for (RealmTransaction tx : txs)
+            {
+                if (tx.getTimeStamp() < fetchTime && ++count == 100) break;
+            }
+            return count;
+        });
+
+        //same shape as the token activity query in ActivityHistoryList
+        String token = contractAddress(7);
+        long toContract = time("transactions to contract", () -> realm.where(RealmTransaction.class)
+                .sort("timeStamp", Sort.DESCENDING)
+                .beginGroup().not().equalTo("input", "0x").and()
+                .beginGroup().equalTo("to", token, Case.INSENSITIVE)
+                .or().equalTo("contractAddress", token, Case.INSENSITIVE).endGroup().endGroup()
+                .equalTo("chainId", 137L)
+                .limit(100)
+                .findAll().size());
+
+        assertThat(page, equalTo(100L));
+        assertTrue(toContract > 0);
+    }
+
+    private interface Query
+    {
+        long run();
+    }
+
+    /**
+     * @return result of the last run
+     */
+    private long time(String name, Query query)
+    {
+        long result = query.run(); //warm up
+        long[] timings = new long[RUNS];
+        for (int i = 0; i < RUNS; i++)
+        {
+            long start = System.nanoTime();
+            result = query.run();
+            timings[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(timings);
+        double median = timings[RUNS / 2] / 1e6;
+        double p95 = timings[(int) (RUNS * 0.95)] / 1e6;
+        Log.i(TAG, String.format(Locale.ROOT, "%s: median %.2fms p95 %.2fms (%d results)", name, median, p95, result));
+        assertTrue(name + " took " + median + "ms", median < BUDGET_MS);
+        return result;
+    }
+
+    private void seed()
+    {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis() / 1000;
+        realm.executeTransaction(r -> {
+            for (int i = 0; i < TOKEN_COUNT; i++)
+            {
+                long chainId = CHAINS[i % CHAINS.length];
+                RealmToken token = r.createObject(RealmToken.class, TokensRealmSource.databaseKey(chainId, contractAddress(i)));
+                token.setName("Token " + i);
+                token.setSymbol("TK" + i);
+                token.setChainId(chainId);
+                token.setBalance(random.nextInt(4) == 0 ? "0" : String.valueOf(random.nextInt(1_000_000)));
+                token.setEnabled(random.nextInt(3) == 0);
+                token.setVisibilityChanged(random.nextInt(10) == 0);
+            }
+
+            for (int i = 0; i < TRANSACTION_COUNT; i++)
+            {
+                RealmTransaction tx = r.createObject(RealmTransaction.class, String.format(Locale.ROOT, "0x%064x", i));
+                tx.setChainId(CHAINS[random.nextInt(CHAINS.length)]);
+                tx.setTimeStamp(now - random.nextInt(365 * 24 * 3600));
+                tx.setFrom(WALLET);
+                tx.setTo(contractAddress(random.nextInt(TOKEN_COUNT / 10)));
+                tx.setBlockNumber(String.valueOf(i));
+                tx.setInput(random.nextInt(4) == 0 ? "0x" : "0xa9059cbb");
+            }
+        });
+    }
+
+    private static String contractAddress(int i)
+    {
+        return String.format(Locale.ROOT, "0x%040x", i);
+    }
+}
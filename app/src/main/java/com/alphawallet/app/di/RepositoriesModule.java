@@ -207,9 +207,9 @@ public class RepositoriesModule
 
     @Singleton
     @Provides
-    IPFSServiceType provideIPFSService(OkHttpClient client)
+    IPFSServiceType provideIPFSService(OkHttpClient client, @ApplicationContext Context context)
     {
-        return new IPFSService(client);
+        return new IPFSService(client, context.getCacheDir());
     }
 
     @Singleton
@@ -0,0 +1,67 @@
+package com.alphawallet.app.entity;
+
+/**
+ * One page of the activity feed, read with a keyset cursor rather than an offset so the cost of a page doesn't
+ * depend on how far down the feed it is or how many transactions the wallet has.
+ *
+ * The feed is ordered by timestamp then hash, both descending.
+ */
+public class ActivityPage
+{
+    public final TransactionMeta[] metas;
+    public final Cursor next; //null once the stored transactions are exhausted
+
+    public ActivityPage(TransactionMeta[] metas, Cursor next)
+    {
+        this.metas = metas;
+        this.next = next;
+    }
+
+    public boolean isLast()
+    {
+        return next == null;
+    }
+
+    /**
+     * Position in the feed; the next page is every row after it
+     */
+    public static class Cursor
+    {
+        public final long timeStamp; //seconds
+        public final String hash; //null: none of the rows at this timestamp have been read yet
+
+        public Cursor(long timeStamp, String hash)
+        {
+            this.timeStamp = timeStamp;
+            this.hash = hash;
+        }
+
+        /**
+         * @return true if the row with this timestamp and hash comes after the cursor
+         */
+        public boolean isBefore(long rowTimeStamp, String rowHash)
+        {
+            return rowTimeStamp < timeStamp || (rowTimeStamp == timeStamp && (hash == null || rowHash.compareTo(hash) < 0));
+        }
+    }
+
+    /**
+     * A page read with a row limit may have cut the rows sharing its last timestamp short. Those rows are left for
+     * the next page, which reads all rows at that timestamp, so none are skipped whatever order the database gave them.
+     *
+     * @param timeStamps of the rows read, in feed order
+     * @return number of leading rows whose timestamp group is complete, or 0 if every row shares one timestamp
+     */
+    public static int completeGroups(long[] timeStamps)
+    {
+        if (timeStamps.length == 0) return 0;
+        long last = timeStamps[timeStamps.length - 1];
+        int count = timeStamps.length;
+        while (count > 0 && timeStamps[count - 1] == last)
+        {
+            count--;
+        }
+
+        return count;
+    }
+}
@@ -5,10 +5,12 @@ import static com.alphawallet.app.repository.TokenRepository.callSmartContractFu
 
 import android.text.TextUtils;
 
+import com.alphawallet.app.App;
 import com.alphawallet.app.C;
 import com.alphawallet.app.entity.nftassets.NFTAsset;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.service.IPFSService;
+import com.alphawallet.app.service.NFTMetadataCache;
 import com.alphawallet.app.util.Utils;
 
 import org.web3j.abi.TypeReference;
@@ -22,6 +24,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Completable;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 import okhttp3.OkHttpClient;
@@ -33,6 +36,7 @@ public class ContractInteract
 {
     private final Token token;
     protected static IPFSService client;
+    protected static NFTMetadataCache metadataCache;
 
     public ContractInteract(Token token)
     {
@@ -70,15 +74,9 @@ public class ContractInteract
 
     public NFTAsset fetchTokenMetadata(BigInteger tokenId)
     {
-        //1. get TokenURI (check for non-standard URI - check "tokenURI" and "uri")
-        String responseValue = callSmartContractFunction(token.tokenInfo.chainId, getTokenURI(tokenId), token.getAddress(), token.getWallet());
-        if (TextUtils.isEmpty(responseValue))
-        {
-            responseValue = callSmartContractFunction(token.tokenInfo.chainId, getTokenURI2(tokenId), token.getAddress(), token.getWallet());
-        }
-
-        responseValue = Utils.parseResponseValue(responseValue, tokenId); //ensure {id} is honoured as per ERC1155 rules
-        String metaData = loadMetaData(responseValue);
+        setupClient();
+        String metaData = metadataCache.getMetadata(token.tokenInfo.chainId, token.getAddress(), tokenId,
+                () -> fetchTokenURI(tokenId), client);
         if (!TextUtils.isEmpty(metaData))
         {
             return new NFTAsset(metaData);
@@ -89,6 +87,35 @@ public class ContractInteract
         }
     }
 
+    /**
+     * Warm the metadata cache for tokens which are about to be displayed
+     */
+    public Completable prefetchTokenMetadata(List<BigInteger> tokenIds)
+    {
+        return Completable.fromAction(() -> {
+            setupClient();
+            for (BigInteger tokenId : tokenIds)
+            {
+                if (!metadataCache.hasFreshEntry(token.tokenInfo.chainId, token.getAddress(), tokenId))
+                {
+                    fetchTokenMetadata(tokenId);
+                }
+            }
+        });
+    }
+
+    private String fetchTokenURI(BigInteger tokenId)
+    {
+        //get TokenURI (check for non-standard URI - check "tokenURI" and "uri")
+        String responseValue = callSmartContractFunction(token.tokenInfo.chainId, getTokenURI(tokenId), token.getAddress(), token.getWallet());
+        if (TextUtils.isEmpty(responseValue))
+        {
+            responseValue = callSmartContractFunction(token.tokenInfo.chainId, getTokenURI2(tokenId), token.getAddress(), token.getWallet());
+        }
+
+        return Utils.parseResponseValue(responseValue, tokenId); //ensure {id} is honoured as per ERC1155 rules
+    }
+
     private Function getTokenURI(BigInteger tokenId)
     {
         return new Function("tokenURI",
@@ -115,8 +142,9 @@ public class ContractInteract
                 Collections.singletonList(new TypeReference<Utf8String>() {}));
     }
 
-    private static void setupClient()
+    private static synchronized void setupClient()
     {
+        App app = App.getInstance();
         if (client == null)
         {
             client = new IPFSService(
@@ -125,7 +153,12 @@ public class ContractInteract
                     .readTimeout(C.READ_TIMEOUT*2, TimeUnit.SECONDS)
                     .writeTimeout(C.WRITE_TIMEOUT*2, TimeUnit.SECONDS)
                     .retryOnConnectionFailure(false)
-                    .build());
+                    .build(), app != null ? app.getCacheDir() : null);
+        }
+
+        if (metadataCache == null)
+        {
+            metadataCache = new NFTMetadataCache(app != null ? app.getCacheDir() : null);
         }
     }
 }
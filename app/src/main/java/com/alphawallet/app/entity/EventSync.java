@@ -51,6 +51,16 @@ public class EventSync
         this.token = token;
     }
 
+    static boolean isBatchProcessingDisabled(long chainId)
+    {
+        return batchProcessingError.contains(chainId);
+    }
+
+    static void disableBatchProcessing(long chainId)
+    {
+        batchProcessingError.add(chainId);
+    }
+
     //Log fetch strategy for NFT:
     //1. Try entire block range (1 -> LATEST). For most accounts, this will work correctly and will find all events (< 3500 for Polygon, < 10000 other chains)
     //1a.   If successful, record newest event block# and use that as the starting point for next scans as per step 7.
@@ -446,7 +456,7 @@ public class EventSync
     /***
      * Event Handling
      *
-     * TODO: batch up catch-up calls
+     * Catch-up reads (last read block -> LATEST) are combined with the other tokens on the chain by LogFetchEngine
      */
 
     public Pair<Integer, Pair<HashSet<BigInteger>, HashSet<BigInteger>>> processTransferEvents(Web3j web3j, Event transferEvent, DefaultBlockParameter startBlock,
@@ -454,10 +464,19 @@ public class EventSync
             throws IOException, LogOverflowException
     {
         HashSet<String> txHashes = new HashSet<>();
-        EthFilter receiveFilter = token.getReceiveBalanceFilter(transferEvent, startBlock, endBlock);
-        EthFilter sendFilter    = token.getSendBalanceFilter(transferEvent, startBlock, endBlock);
+        Pair<EthLog, EthLog> ethLogs = null;
+        if (LogFetchEngine.canCombine(startBlock, endBlock))
+        {
+            ethLogs = LogFetchEngine.forChain(token.tokenInfo.chainId)
+                    .getTxLogs(web3j, token, transferEvent, Numeric.toBigInt(startBlock.getValue()), realm);
+        }
 
-        Pair<EthLog, EthLog> ethLogs = getTxLogs(web3j, receiveFilter, sendFilter);
+        if (ethLogs == null)
+        {
+            EthFilter receiveFilter = token.getReceiveBalanceFilter(transferEvent, startBlock, endBlock);
+            EthFilter sendFilter    = token.getSendBalanceFilter(transferEvent, startBlock, endBlock);
+            ethLogs = getTxLogs(web3j, receiveFilter, sendFilter);
+        }
 
         EthLog receiveLogs = ethLogs.first;
         EthLog sendLogs = ethLogs.second;
@@ -0,0 +1,508 @@
+package com.alphawallet.app.entity;
+
+import android.util.Pair;
+
+import com.alphawallet.app.entity.tokens.Token;
+import com.alphawallet.app.repository.EthereumNetworkBase;
+import com.alphawallet.app.repository.TokensRealmSource;
+import com.alphawallet.app.repository.entity.RealmAuxData;
+import com.alphawallet.app.service.TransactionsService;
+
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.request.Filter;
+import org.web3j.protocol.core.methods.response.EthLog;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.realm.Realm;
+import timber.log.Timber;
+
+/**
+ * Combines the catch-up event reads of every token on a chain into one filter per wallet and event shape: the
+ * contract addresses are sent as an address array and the event signatures as a topic0 OR-set, with the send
+ * and receive filters issued together. The results are cached for the block range fetched and handed back to
+ * each token, so N tokens x 2 calls per window becomes roughly one request per chain.
+ *
+ * The block window is split in half when the node reports too many results, and doubled when results are
+ * sparse. The window chosen for each chain is persisted so the next session starts with a workable size.
+ *
+ * Only used for the steady state (last read block -> LATEST); initial and downward syncs stay per token.
+ * Groups of a wallet are dropped when the app moves to another wallet, see retainWallet.
+ */
+public class LogFetchEngine
+{
+    private static final int MAX_FILTER_ADDRESSES = 100;
+    private static final int SPARSE_LOG_COUNT = 200;
+    private static final long MIN_WINDOW = 16;
+    private static final long CACHE_LIFETIME = 5 * 60 * 1000L;
+    private static final String WINDOW_KEY = "event-log-window"; //aux record per chain; its result is the window in blocks
+
+    //node messages for a block range or result set that is too large; the range is split and retried
+    private static final String[] RANGE_ERRORS = {
+            "query returned more than",     //geth, Infura: more than 10000 results
+            "log response size exceeded",   //Alchemy
+            "block range is too wide",      //BSC and Polygon public nodes
+            "block range too large",        //Erigon
+            "maximum block range",          //"exceed maximum block range: 5000"
+            "max block range"               //"query exceeds max block range 100000"
+    };
+
+    private static final Map<Long, LogFetchEngine> engines = new ConcurrentHashMap<>();
+
+    private final long chainId;
+    private final Map<String, Group> groups = new HashMap<>();
+    private long window;
+    private long hits;
+
+    /**
+     * Tokens sharing a wallet and topic layout; only the contract address and event signature differ
+     */
+    private static class Group
+    {
+        final String wallet;
+        final List<String> receiveTopics;
+        final List<String> sendTopics;
+        final Map<String, Long> readStart = new HashMap<>(); //lower case address -> last requested start block
+        final Set<String> signatures = new LinkedHashSet<>();
+
+        Set<String> cachedAddresses = new HashSet<>();
+        Set<String> cachedSignatures = new HashSet<>();
+        long cachedFrom;
+        long cachedTo;
+        long cacheTime;
+        List<EthLog.LogObject> receiveLogs = new ArrayList<>();
+        List<EthLog.LogObject> sendLogs = new ArrayList<>();
+
+        Group(String wallet, List<String> receiveTopics, List<String> sendTopics)
+        {
+            this.wallet = wallet;
+            this.receiveTopics = receiveTopics;
+            this.sendTopics = sendTopics;
+        }
+
+        boolean covers(String address, String signature, long start, long currentBlock, long currentTime)
+        {
+            return cachedAddresses.contains(address) && cachedSignatures.contains(signature)
+                    && cachedFrom <= start && cachedTo >= currentBlock
+                    && currentTime < cacheTime + CACHE_LIFETIME;
+        }
+
+        boolean canExtend(String address, String signature, long start, long currentTime)
+        {
+            return cachedAddresses.containsAll(readStart.keySet()) && cachedSignatures.containsAll(signatures)
+                    && cachedAddresses.contains(address) && cachedSignatures.contains(signature)
+                    && cachedFrom <= start && currentTime < cacheTime + CACHE_LIFETIME;
+        }
+    }
+
+    public static LogFetchEngine forChain(long chainId)
+    {
+        LogFetchEngine engine = engines.get(chainId);
+        if (engine == null)
+        {
+            engine = new LogFetchEngine(chainId);
+            LogFetchEngine existing = engines.putIfAbsent(chainId, engine);
+            if (existing != null) engine = existing;
+        }
+
+        return engine;
+    }
+
+    /**
+     * Drop the cached reads of every wallet other than this one, on every chain
+     */
+    public static void retainWallet(String wallet)
+    {
+        for (LogFetchEngine engine : engines.values())
+        {
+            engine.removeOtherWallets(wallet);
+        }
+    }
+
+    /**
+     * @return true if this read is a catch-up from the last read point to LATEST and can be combined
+     */
+    public static boolean canCombine(DefaultBlockParameter startBlock, DefaultBlockParameter endBlock)
+    {
+        return endBlock == DefaultBlockParameterName.LATEST
+                && !(startBlock instanceof DefaultBlockParameterName)
+                && startBlock.getValue() != null
+                && !startBlock.getValue().equals(DefaultBlockParameter.valueOf(BigInteger.ONE).getValue());
+    }
+
+    LogFetchEngine(long chainId)
+    {
+        this.chainId = chainId;
+    }
+
+    /**
+     * Fetch the receive and send logs for this token from startBlock to LATEST, sharing the node request with
+     * every other token on the chain which reads the same event shape.
+     *
+     * @return receive and send logs for the token only, or null if the combined read failed and the caller should
+     * fall back to reading the token on its own
+     */
+    public Pair<EthLog, EthLog> getTxLogs(Web3j web3j, Token token, Event event, BigInteger startBlock, Realm realm)
+    {
+        BigInteger currentBlock = TransactionsService.getCurrentBlock(chainId);
+        if (currentBlock.signum() <= 0) return null;
+        EthLog[] logs = getTxLogs(web3j, token, event, startBlock.longValue(), currentBlock.longValue(), realm);
+        return logs != null ? new Pair<>(logs[0], logs[1]) : null;
+    }
+
+    /**
+     * @return receive and send logs for the token, or null on failure
+     */
+    synchronized EthLog[] getTxLogs(Web3j web3j, Token token, Event event, long start, long currentBlock, Realm realm)
+    {
+        EthFilter receiveTemplate = token.getReceiveBalanceFilter(event, DefaultBlockParameterName.LATEST, DefaultBlockParameterName.LATEST);
+        EthFilter sendTemplate = token.getSendBalanceFilter(event, DefaultBlockParameterName.LATEST, DefaultBlockParameterName.LATEST);
+        if (receiveTemplate == null || sendTemplate == null) return null;
+
+        List<String> receiveTopics = topicValues(receiveTemplate);
+        List<String> sendTopics = topicValues(sendTemplate);
+        String key = receiveTopics.subList(1, receiveTopics.size()) + "|" + sendTopics.subList(1, sendTopics.size());
+        Group group = groups.get(key);
+        if (group == null)
+        {
+            group = new Group(token.getWallet(), receiveTopics, sendTopics);
+            groups.put(key, group);
+        }
+
+        String address = token.getAddress().toLowerCase(Locale.ROOT);
+        String signature = EventEncoder.encode(event);
+        group.readStart.put(address, start);
+        group.signatures.add(signature);
+
+        long currentTime = System.currentTimeMillis();
+        try
+        {
+            if (group.covers(address, signature, start, currentBlock, currentTime))
+            {
+                hits++;
+            }
+            else if (group.canExtend(address, signature, start, currentTime))
+            {
+                //chain has moved on since the last combined read; only fetch the new blocks
+                fetchInto(web3j, group, new ArrayList<>(group.cachedAddresses), group.cachedTo + 1, currentBlock, realm);
+                group.cachedTo = currentBlock;
+            }
+            else
+            {
+                refresh(web3j, group, start, currentBlock, realm);
+            }
+        }
+        catch (IOException | LogOverflowException e)
+        {
+            Timber.w("Combined log fetch failed on %d: %s", chainId, e.getMessage());
+            group.cachedAddresses.clear();
+            return null;
+        }
+
+        return new EthLog[]{demux(group.receiveLogs, address, signature, start), demux(group.sendLogs, address, signature, start)};
+    }
+
+    private void refresh(Web3j web3j, Group group, long start, long currentBlock, Realm realm) throws IOException, LogOverflowException
+    {
+        //combine all tokens which are already caught up to within a window of the current block
+        long windowSize = getWindow(realm);
+        long from = start;
+        List<String> addresses = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : group.readStart.entrySet())
+        {
+            if (entry.getValue() == start || entry.getValue() >= currentBlock - windowSize)
+            {
+                addresses.add(entry.getKey());
+                from = Math.min(from, entry.getValue());
+            }
+        }
+
+        group.receiveLogs = new ArrayList<>();
+        group.sendLogs = new ArrayList<>();
+        group.cachedAddresses = new HashSet<>();
+        group.cachedSignatures = new HashSet<>(group.signatures);
+        fetchInto(web3j, group, addresses, from, currentBlock, realm);
+        group.cachedAddresses.addAll(addresses);
+        group.cachedFrom = from;
+        group.cachedTo = currentBlock;
+        group.cacheTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Walk the range in window sized steps, halving the window on overflow and doubling it while results are sparse
+     */
+    private void fetchInto(Web3j web3j, Group group, List<String> addresses, long from, long to, Realm realm) throws IOException, LogOverflowException
+    {
+        long windowSize = getWindow(realm);
+        long startWindow = windowSize;
+        long cursor = from;
+        while (cursor <= to)
+        {
+            long end = Math.min(to, cursor + windowSize - 1);
+            int logCount = 0;
+            boolean overflow = false;
+            List<EthLog.LogObject> receive = new ArrayList<>();
+            List<EthLog.LogObject> send = new ArrayList<>();
+
+            for (int i = 0; i < addresses.size() && !overflow; i += MAX_FILTER_ADDRESSES)
+            {
+                List<String> chunk = addresses.subList(i, Math.min(addresses.size(), i + MAX_FILTER_ADDRESSES));
+                EthLog[] logs = fetchWindow(web3j, group, chunk, cursor, end);
+                if (logs == null)
+                {
+                    overflow = true;
+                }
+                else
+                {
+                    logCount += addLogs(logs[0], receive) + addLogs(logs[1], send);
+                }
+            }
+
+            if (overflow)
+            {
+                if (end - cursor + 1 <= MIN_WINDOW)
+                {
+                    throw new IOException("Log overflow at minimum window, block " + cursor);
+                }
+
+                windowSize = Math.max(MIN_WINDOW, (end - cursor + 1) / 2);
+                continue; //retry the same start with half the range
+            }
+
+            group.receiveLogs.addAll(receive);
+            group.sendLogs.addAll(send);
+            if (logCount < SPARSE_LOG_COUNT && end - cursor + 1 == windowSize)
+            {
+                windowSize = Math.min(windowSize * 2, getMaxWindow());
+            }
+            cursor = end + 1;
+        }
+
+        if (windowSize != startWindow) storeWindow(realm, windowSize);
+    }
+
+    /**
+     * @return receive and send logs, or null if the node rejected the range as too large
+     */
+    private EthLog[] fetchWindow(Web3j web3j, Group group, List<String> addresses, long from, long to) throws IOException, LogOverflowException
+    {
+        EthFilter receiveFilter = buildFilter(group.receiveTopics, group.signatures, addresses, from, to);
+        EthFilter sendFilter = buildFilter(group.sendTopics, group.signatures, addresses, from, to);
+
+        EthLog receiveLogs = null;
+        EthLog sendLogs = null;
+        if (useBatchRequests())
+        {
+            BatchResponse rsp;
+            try
+            {
+                rsp = web3j.newBatch()
+                        .add(web3j.ethGetLogs(receiveFilter))
+                        .add(web3j.ethGetLogs(sendFilter))
+                        .send();
+            }
+            catch (ClassCastException e)
+            {
+                rsp = null;
+            }
+
+            if (rsp != null && rsp.getResponses().size() == 2)
+            {
+                receiveLogs = (EthLog) rsp.getResponses().get(0);
+                sendLogs = (EthLog) rsp.getResponses().get(1);
+            }
+            else
+            {
+                EventSync.disableBatchProcessing(chainId);
+            }
+        }
+
+        if (receiveLogs == null)
+        {
+            receiveLogs = web3j.ethGetLogs(receiveFilter).send();
+            if (!receiveLogs.hasError()) sendLogs = web3j.ethGetLogs(sendFilter).send();
+        }
+
+        if (isRangeError(receiveLogs) || isRangeError(sendLogs))
+        {
+            return null;
+        }
+        else if (receiveLogs.hasError())
+        {
+            throw new LogOverflowException(receiveLogs.getError());
+        }
+        else if (sendLogs.hasError())
+        {
+            throw new LogOverflowException(sendLogs.getError());
+        }
+
+        return new EthLog[]{receiveLogs, sendLogs};
+    }
+
+    private EthFilter buildFilter(List<String> topics, Set<String> signatures, List<String> addresses, long from, long to)
+    {
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(BigInteger.valueOf(from)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(to)), new ArrayList<>(addresses));
+
+        if (signatures.size() == 1)
+        {
+            filter.addSingleTopic(signatures.iterator().next());
+        }
+        else
+        {
+            filter.addOptionalTopics(signatures.toArray(new String[0]));
+        }
+
+        for (int i = 1; i < topics.size(); i++)
+        {
+            filter.addSingleTopic(topics.get(i));
+        }
+
+        return filter;
+    }
+
+    boolean useBatchRequests()
+    {
+        return EthereumNetworkBase.getBatchProcessingLimit(chainId) > 0 && !EventSync.isBatchProcessingDisabled(chainId);
+    }
+
+    public synchronized long getCacheHits()
+    {
+        return hits;
+    }
+
+    synchronized void removeOtherWallets(String wallet)
+    {
+        groups.values().removeIf(group -> !wallet.equalsIgnoreCase(group.wallet));
+    }
+
+    private static boolean isRangeError(EthLog logs)
+    {
+        if (logs == null || !logs.hasError() || logs.getError().getMessage() == null) return false;
+        String message = logs.getError().getMessage().toLowerCase(Locale.ROOT);
+        for (String rangeError : RANGE_ERRORS)
+        {
+            if (message.contains(rangeError)) return true;
+        }
+
+        return false;
+    }
+
+    private static int addLogs(EthLog ethLog, List<EthLog.LogObject> logs)
+    {
+        int count = 0;
+        if (ethLog.getLogs() == null) return count;
+        for (EthLog.LogResult<?> result : ethLog.getLogs())
+        {
+            if (result instanceof EthLog.LogObject)
+            {
+                logs.add((EthLog.LogObject) result);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static EthLog demux(List<EthLog.LogObject> logs, String address, String signature, long start)
+    {
+        List<EthLog.LogResult> tokenLogs = new ArrayList<>();
+        for (EthLog.LogObject log : logs)
+        {
+            if (!address.equalsIgnoreCase(log.getAddress())) continue;
+            if (log.getTopics() == null || log.getTopics().isEmpty() || !signature.equalsIgnoreCase(log.getTopics().get(0))) continue;
+            if (log.getBlockNumberRaw() != null && log.getBlockNumber().longValue() < start) continue;
+            tokenLogs.add(log);
+        }
+
+        EthLog ethLog = new EthLog();
+        ethLog.setResult(tokenLogs);
+        return ethLog;
+    }
+
+    private static List<String> topicValues(EthFilter filter)
+    {
+        List<String> values = new ArrayList<>();
+        for (Filter.FilterTopic<?> topic : filter.getTopics())
+        {
+            Object value = topic.getValue();
+            values.add(value instanceof String ? (String) value : null);
+        }
+
+        return values;
+    }
+
+    private long getMaxWindow()
+    {
+        long maxFetch = EthereumNetworkBase.getMaxEventFetch(chainId).longValue();
+        return EthereumNetworkBase.isEventBlockLimitEnforced(chainId) ? maxFetch : maxFetch * 10;
+    }
+
+    private long getWindow(Realm realm)
+    {
+        if (window > 0) return window;
+        window = EthereumNetworkBase.getMaxEventFetch(chainId).longValue();
+        if (realm != null)
+        {
+            RealmAuxData rd = realm.where(RealmAuxData.class)
+                    .equalTo("instanceKey", TokensRealmSource.databaseKey(chainId, WINDOW_KEY))
+                    .findFirst();
+
+            long stored = rd != null ? parseWindow(rd.getResult()) : 0;
+            if (stored >= MIN_WINDOW)
+            {
+                window = Math.min(stored, getMaxWindow());
+            }
+        }
+
+        return window;
+    }
+
+    private void storeWindow(Realm realm, long windowSize)
+    {
+        window = windowSize;
+        if (realm == null) return;
+        realm.executeTransaction(r -> {
+            String key = TokensRealmSource.databaseKey(chainId, WINDOW_KEY);
+            RealmAuxData rd = r.where(RealmAuxData.class)
+                    .equalTo("instanceKey", key)
+                    .findFirst();
+
+            if (rd == null)
+            {
+                rd = r.createObject(RealmAuxData.class, key);
+            }
+
+            rd.setResult(String.valueOf(windowSize));
+            r.insertOrUpdate(rd);
+        });
+    }
+
+    private static long parseWindow(String stored)
+    {
+        try
+        {
+            return stored != null ? Long.parseLong(stored) : 0;
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+    }
+}
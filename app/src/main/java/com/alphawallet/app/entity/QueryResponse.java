@@ -7,11 +7,18 @@ public class QueryResponse
 {
     public final int code;
     public final String body;
+    public final String etag;
 
     public QueryResponse(int code, String body)
+    {
+        this(code, body, null);
+    }
+
+    public QueryResponse(int code, String body, String etag)
     {
         this.code = code;
         this.body = body;
+        this.etag = etag;
     }
 
     public boolean isSuccessful()
@@ -1,6 +1,5 @@
 package com.alphawallet.app.entity;
 
-import static com.alphawallet.app.entity.TransactionDecoder.ReadState.ARGS;
 import static org.web3j.crypto.Keys.ADDRESS_LENGTH_IN_HEX;
 
 import com.alphawallet.app.web3.entity.Web3Transaction;
@@ -11,8 +10,11 @@ import org.web3j.utils.Numeric;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import timber.log.Timber;
@@ -20,24 +22,50 @@ import timber.log.Timber;
 /**
  * Created by James on 2/02/2018.
  *
- * TransactionDecoder currently only decode a transaction input in the
- * string format, which is strictly a string starting with "0x" and
- * with an even number of hex digits followed. (Probably should be
- * bytes but we work with string for now.) It is used only for one
- * thing at the moment: decodeInput(), which returns the decoded
- * input.
+ * TransactionDecoder decodes a transaction input, either as raw bytes or
+ * as a string starting with "0x" followed by hex digits; both are read
+ * word by word through the same cursor. Decoding keeps no state in the
+ * decoder, so a single instance (Transaction.decoder) is shared by every
+ * thread.
+ *
+ * Known functions are found by their 4 byte selector in a sorted int
+ * table. Inputs of mined transactions are memoized by tx hash, since the
+ * activity list decodes the same transactions on every refresh.
  */
 
 public class TransactionDecoder
 {
     public static final int FUNCTION_LENGTH = 10;
+    private static final int SELECTOR_LENGTH = 8; //in hex digits
+    private static final int WORD_LENGTH = 64;
+    private static final int MAX_DECODED = 512;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
     private final static List<String> endContractSignatures = new ArrayList<>();
 
-    private int parseIndex;
-    private Map<String, FunctionData> functionList;
+    static
+    {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 16; i++)
+        {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+            HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
+    //keyed by "0x" selector, for the bytecode heuristic in getContractType; guarded by itself
+    private final Map<String, FunctionData> functionList = new HashMap<>();
+    //same functions keyed by int selector; replaced as a whole on registration so decoding reads it without locking
+    private volatile SelectorTable selectors = new SelectorTable(new int[0], new FunctionData[0]);
 
-    private ReadState state = ARGS;
-    private int sigCount = 0;
+    private final Map<String, TransactionInput> decoded = new LinkedHashMap<String, TransactionInput>(64, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TransactionInput> eldest)
+        {
+            return size() > MAX_DECODED;
+        }
+    };
 
     private FunctionData getUnknownFunction()
     {
@@ -51,55 +79,72 @@ public class TransactionDecoder
 
     public TransactionInput decodeInput(String input)
     {
-        ParseStage parseState = ParseStage.PARSE_FUNCTION;
-        parseIndex = 0;
-        //1. check function
         TransactionInput thisData = new TransactionInput();
-        if (input == null || input.length() < 10)
+        if (input == null || input.length() < FUNCTION_LENGTH)
         {
             thisData.functionData = getUnknownFunction();
             return thisData;
         }
 
-        try
+        long selector = input.startsWith("0x") ? readSelector(input) : -1;
+        FunctionData function = selector >= 0 ? selectors.get((int) selector) : null;
+        if (function == null)
         {
-            while (parseIndex < input.length() && !(parseState == ParseStage.FINISH))
-            {
-                switch (parseState)
-                {
-                    case PARSE_FUNCTION: //get function
-                        parseState = setFunction(thisData, readBytes(input, FUNCTION_LENGTH), input.length());
-                        break;
-                    case PARSE_ARGS: //now get params
-                        parseState = getParams(thisData, input);
-                        break;
-                    case FINISH:
-                        break;
-                    case ERROR:
-                        //Perform any future error handling here
-                        parseState = ParseStage.FINISH;
-                        break;
-                }
-
-                if (parseIndex < 0) break; //error
-            }
+            thisData.functionData = getUnknownFunction();
+            thisData.functionData.functionRawHex = input.substring(0, FUNCTION_LENGTH);
         }
-        catch (Exception e)
+        else
         {
-            Timber.e(e);
+            decode(thisData, function, new HexReader(input));
         }
 
         thisData.setOperationType(null, null); //works for most cases; for magiclink requires tx and wallet data - but we don't see many of these now
         return thisData;
     }
 
-    public TransactionInput decodeInput(Transaction tx, String walletAddress)
+    public TransactionInput decodeInput(byte[] input)
     {
-        TransactionInput thisData = decodeInput(tx.input);
-        thisData.setOperationType(tx, walletAddress);
+        TransactionInput thisData = new TransactionInput();
+        if (input == null || input.length < SELECTOR_LENGTH / 2)
+        {
+            thisData.functionData = getUnknownFunction();
+            return thisData;
+        }
+
+        int selector = ((input[0] & 0xFF) << 24) | ((input[1] & 0xFF) << 16) | ((input[2] & 0xFF) << 8) | (input[3] & 0xFF);
+        FunctionData function = selectors.get(selector);
+        if (function == null)
+        {
+            thisData.functionData = getUnknownFunction();
+            thisData.functionData.functionRawHex = Numeric.toHexString(input, 0, SELECTOR_LENGTH / 2, true);
+        }
+        else
+        {
+            decode(thisData, function, new ByteReader(input));
+        }
+
+        thisData.setOperationType(null, null);
         return thisData;
     }
 
+    /**
+     * Mined transactions are decoded once per hash; each call gets its own copy of the memoized input
+     */
+    public TransactionInput decodeInput(Transaction tx, String walletAddress)
+    {
+        String key = tx.hash == null || tx.hash.isEmpty() || tx.isPending() ? null : decodedKey(tx, walletAddress);
+        TransactionInput thisData = key != null ? getDecoded(key) : null;
+        if (thisData == null)
+        {
+            thisData = decodeInput(tx.input);
+            thisData.setOperationType(tx, walletAddress);
+            if (key != null) putDecoded(key, new TransactionInput(thisData));
+            return thisData;
+        }
+
+        return new TransactionInput(thisData);
+    }
+
     public TransactionInput decodeInput(Web3Transaction web3Tx, long chainId, String walletAddress)
     {
         TransactionInput thisData = decodeInput(web3Tx.payload);
@@ -108,28 +153,17 @@ public class TransactionDecoder
         return thisData;
     }
 
-    private ParseStage setFunction(TransactionInput thisData, String input, int length)
+    private void decode(TransactionInput thisData, FunctionData function, ArgReader reader)
     {
-        //first get expected arg list:
-        FunctionData data = functionList.get(input);
-
-        if (data != null)
+        thisData.functionData = function;
+        try
         {
-            thisData.functionData = data;
-            thisData.arrayValues.clear();
-            thisData.addresses.clear();
-            thisData.sigData.clear();
-            thisData.miscData.clear();
-            thisData.functionData.functionRawHex = input;
+            if (reader.length > SELECTOR_LENGTH) getParams(thisData, reader);
         }
-        else
+        catch (Exception e)
         {
-            thisData.functionData = getUnknownFunction();
-            thisData.functionData.functionRawHex = input;
-            return ParseStage.ERROR;
+            Timber.e(e);
         }
-
-        return ParseStage.PARSE_ARGS;
     }
 
     enum ReadState
@@ -138,161 +172,141 @@ public class TransactionDecoder
         SIGNATURE
     }
 
-    private ParseStage getParams(TransactionInput thisData, String input)
+    private void getParams(TransactionInput thisData, ArgReader reader)
     {
-        state = ARGS;
-        BigInteger count;
-        StringBuilder sb = new StringBuilder();
-        if (thisData.functionData != null && thisData.functionData.args != null)
+        for (String type : thisData.functionData.args)
         {
-            for (String type : thisData.functionData.args)
+            int arg = reader.readWord();
+            if (arg < 0) break;
+            switch (type)
             {
-                String argData = read256bits(input);
-                if (argData.equals("0")) break;
-                switch (type)
-                {
-                    case "bytes":
-                        sb.setLength(0);
-                        argData = read256bits(input);
-                        BigInteger dataCount = Numeric.toBigInt(argData);
-                        String hexBytes = readBytes(input, dataCount.intValue());
-                        thisData.miscData.add(hexBytes);
-                        thisData.hexArgs.add(Numeric.prependHexPrefix(hexBytes));
-                        break;
-                    case "string":
-                        count = new BigInteger(argData, 16);
-                        sb.setLength(0);
-                        argData = read256bits(input);
-                        if (count.intValue() > argData.length())
-                            count = BigInteger.valueOf(argData.length());
-                        for (int index = 0; index < (count.intValue() * 2); index += 2)
-                        {
-                            int v = Integer.parseInt(argData.substring(index, index + 2), 16);
-                            char c = (char) v;
-                            sb.append(c);
-                        }
-                        thisData.miscData.add(Numeric.cleanHexPrefix(sb.toString()));
-
-                        //Should be ASCII, try to convert
-                        thisData.hexArgs.add(new String(Numeric.hexStringToByteArray(sb.toString())));
-                        break;
-                    case "address":
-                        if (argData.length() >= 64 - ADDRESS_LENGTH_IN_HEX)
-                        {
-                            String addr = Numeric.prependHexPrefix(argData.substring(64 - ADDRESS_LENGTH_IN_HEX));
-                            thisData.addresses.add(addr);
-                            thisData.hexArgs.add(addr);
-                        }
-                        break;
-                    case "bytes32":
-                        addArg(thisData, argData);
-                        break;
-                    case "bytes32[]":
-                    case "uint16[]":
-                    case "uint256[]":
-                        count = new BigInteger(argData, 16);
-                        for (int i = 0; i < count.intValue(); i++)
-                        {
-                            String inputData = read256bits(input);
-                            thisData.arrayValues.add(new BigInteger(inputData, 16));
-                            thisData.hexArgs.add(inputData);
-                            if (inputData.equals("0")) break;
-                        }
-                        break;
-                    case "uint256":
-                    case "uint":
-                        addArg(thisData, argData);
-                        break;
-                    case "uint8": //In our standards, we will put uint8 as the signature marker
-                        if (thisData.functionData.hasSig)
+                case "bytes":
+                    int dataWord = reader.readWord();
+                    String hexBytes = reader.readHex(dataWord < 0 ? 0 : reader.intValue(dataWord));
+                    thisData.miscData.add(hexBytes);
+                    thisData.hexArgs.add(Numeric.prependHexPrefix(hexBytes));
+                    break;
+                case "string":
+                    String text = reader.readText(reader.intValue(arg));
+                    thisData.miscData.add(Numeric.cleanHexPrefix(text));
+
+                    //Should be ASCII, try to convert
+                    thisData.hexArgs.add(new String(Numeric.hexStringToByteArray(text)));
+                    break;
+                case "address":
+                    String addr = Numeric.prependHexPrefix(reader.hex(arg + WORD_LENGTH - ADDRESS_LENGTH_IN_HEX, ADDRESS_LENGTH_IN_HEX));
+                    thisData.addresses.add(addr);
+                    thisData.hexArgs.add(addr);
+                    break;
+                case "bytes32":
+                    addArg(thisData, reader, reader.hex(arg, WORD_LENGTH));
+                    break;
+                case "bytes32[]":
+                case "uint16[]":
+                case "uint256[]":
+                    int count = reader.intValue(arg);
+                    for (int i = 0; i < count; i++)
+                    {
+                        int element = reader.readWord();
+                        if (element < 0)
                         {
-                            state = ReadState.SIGNATURE;
-                            sigCount = 0;
+                            thisData.arrayValues.add(BigInteger.ZERO);
+                            thisData.hexArgs.add("0");
+                            break;
                         }
-                        addArg(thisData, argData);
-                        break;
-                    case "nodata":
-                        //no need to store this data - eg placeholder to indicate presence of a vararg
-                        break;
-                    case "bool":
-                        //zero or one?
-                        BigInteger val = new BigInteger(argData, 16);
-                        thisData.hexArgs.add(val.longValue() == 0 ? "false" : "true");
-                        break;
-                    default:
-                        break;
-                }
+                        thisData.arrayValues.add(reader.bigIntValue(element));
+                        thisData.hexArgs.add(reader.hex(element, WORD_LENGTH));
+                    }
+                    break;
+                case "uint256":
+                case "uint":
+                    addArg(thisData, reader, reader.hex(arg, WORD_LENGTH));
+                    break;
+                case "uint8": //In our standards, we will put uint8 as the signature marker
+                    if (thisData.functionData.hasSig)
+                    {
+                        reader.state = ReadState.SIGNATURE;
+                        reader.sigCount = 0;
+                    }
+                    addArg(thisData, reader, reader.hex(arg, WORD_LENGTH));
+                    break;
+                case "nodata":
+                    //no need to store this data - eg placeholder to indicate presence of a vararg
+                    break;
+                case "bool":
+                    //zero or one? (only the low 64 bits are considered)
+                    thisData.hexArgs.add(reader.isZero(arg + WORD_LENGTH - 16, 16) ? "false" : "true");
+                    break;
+                default:
+                    break;
             }
         }
-        else
-        {
-            return ParseStage.FINISH; //skip to end of read if there are no args in the spec
-        }
-
-        return ParseStage.FINISH;
     }
 
-    private void addArg(TransactionInput thisData, String input)
+    private void addArg(TransactionInput thisData, ArgReader reader, String input)
     {
-        switch (state)
+        switch (reader.state)
         {
             case ARGS:
-                thisData.miscData.add(Numeric.cleanHexPrefix(input));
+                thisData.miscData.add(input);
                 break;
             case SIGNATURE:
                 thisData.sigData.add(input);
-                if (++sigCount == 3) state = ARGS;
+                if (++reader.sigCount == 3) reader.state = ReadState.ARGS;
                 break;
         }
         thisData.hexArgs.add(input);
     }
 
-    private String readBytes(String input, int bytes)
+    /**
+     * @return the selector following "0x", or -1 if it is not all hex digits
+     */
+    private static long readSelector(String input)
     {
-        if ((parseIndex + bytes) <= input.length())
-        {
-            String value = input.substring(parseIndex, parseIndex + bytes);
-            parseIndex += bytes;
-            return value;
-        }
-        else
+        int selector = 0;
+        for (int i = 2; i < FUNCTION_LENGTH; i++)
         {
-            return "0";
+            int digit = hexValue(input.charAt(i));
+            if (digit < 0) return -1;
+            selector = (selector << 4) | digit;
         }
+
+        return selector & 0xFFFFFFFFL;
+    }
+
+    private static int hexValue(char c)
+    {
+        return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+    }
+
+    private String decodedKey(Transaction tx, String walletAddress)
+    {
+        return tx.hash + "-" + walletAddress.toLowerCase(Locale.ROOT) + (tx.isConstructor ? "-c" : "");
     }
 
-    private String read256bits(String input)
+    private TransactionInput getDecoded(String key)
     {
-        if ((parseIndex + 64) <= input.length())
+        synchronized (decoded)
         {
-            String value = input.substring(parseIndex, parseIndex + 64);
-            parseIndex += 64;
-            return value;
+            return decoded.get(key);
         }
-        else
+    }
+
+    private void putDecoded(String key, TransactionInput thisData)
+    {
+        synchronized (decoded)
         {
-            return "0";
+            decoded.put(key, thisData);
         }
     }
 
     private void addFunction(String method, ContractType type, boolean hasSig)
     {
-        String methodId = buildMethodId(method);
-        FunctionData data = functionList.get(methodId);
-        if (data != null)
-        {
-            data.addType(type);
-        }
-        else
-        {
-            data = new FunctionData(method, type, hasSig);
-            functionList.put(buildMethodId(method), data);
-        }
+        addFunctionImmediate(method, buildMethodId(method), type, hasSig);
     }
 
     private void setupKnownFunctions()
     {
-        functionList = new HashMap<>();
         addFunction("transferFrom(address,address,uint16[])", ContractType.ERC875_LEGACY, false);
         addFunction("transfer(address,uint16[])", ContractType.ERC875_LEGACY, false);
         addFunction("trade(uint256,uint16[],uint8,bytes32,bytes32)", ContractType.ERC875_LEGACY, true);
@@ -357,15 +371,20 @@ public class TransactionDecoder
 
     private void addFunctionImmediate(String functionBody, String functionHash, ContractType type, boolean hasSig)
     {
-        FunctionData data = functionList.get(functionHash);
-        if (data != null)
+        synchronized (functionList)
         {
-            data.addType(type);
-        }
-        else
-        {
-            data = new FunctionData(functionBody, type, hasSig);
-            functionList.put(functionHash, data);
+            FunctionData data = functionList.get(functionHash);
+            if (data != null)
+            {
+                data.addType(type);
+            }
+            else
+            {
+                data = new FunctionData(functionBody, type, hasSig);
+                data.functionRawHex = functionHash;
+                functionList.put(functionHash, data);
+                selectors = selectors.with((int) Long.parseLong(Numeric.cleanHexPrefix(functionHash), 16), data);
+            }
         }
     }
 
@@ -409,23 +428,25 @@ public class TransactionDecoder
 
         //ERC721/x or ERC20
 
-        for (String signature : functionList.keySet())
+        synchronized (functionList)
         {
-            String cleanSig = Numeric.cleanHexPrefix(signature);
-            int index = input.indexOf(cleanSig);
-            if (index >= 0)
+            for (Map.Entry<String, FunctionData> entry : functionList.entrySet())
             {
-                FunctionData data = functionList.get(signature);
-                for (ContractType type : data.contractType)
+                String cleanSig = Numeric.cleanHexPrefix(entry.getKey());
+                int index = input.indexOf(cleanSig);
+                if (index >= 0)
                 {
-                    int count = 0;
-                    if (functionCount.containsKey(type)) count = functionCount.get(type);
-                    count++;
-                    functionCount.put(type, count);
-                    if (count > highestCount)
+                    for (ContractType type : entry.getValue().contractType)
                     {
-                        highestCount = count;
-                        highestType = type;
+                        int count = 0;
+                        if (functionCount.containsKey(type)) count = functionCount.get(type);
+                        count++;
+                        functionCount.put(type, count);
+                        if (count > highestCount)
+                        {
+                            highestCount = count;
+                            highestType = type;
+                        }
                     }
                 }
             }
@@ -443,11 +464,6 @@ public class TransactionDecoder
         return highestType;
     }
 
-    enum ParseStage
-    {
-        PARSE_FUNCTION, PARSE_ARGS, FINISH, ERROR
-    }
-
     public Sign.SignatureData getSignatureData(TransactionInput data)
     {
         Sign.SignatureData sigData = null;
@@ -514,5 +530,201 @@ public class TransactionDecoder
         endContractSignatures.add(buildMethodId("selfdestruct()"));
         endContractSignatures.add(buildMethodId("kill()"));
     }
-}
 
+    /**
+     * Cursor over the argument words of one input. Positions are in hex digits from the start of the
+     * input, as a length prefixed "bytes" argument may leave the following words on an odd digit.
+     */
+    private abstract static class ArgReader
+    {
+        final int length;
+        private int position = SELECTOR_LENGTH;
+        ReadState state = ReadState.ARGS;
+        int sigCount = 0;
+
+        ArgReader(int length)
+        {
+            this.length = length;
+        }
+
+        abstract int digit(int index);
+
+        /**
+         * @return position of the next 32 byte word, or -1 if the input ends before it
+         */
+        int readWord()
+        {
+            if (position + WORD_LENGTH > length) return -1;
+            int word = position;
+            position += WORD_LENGTH;
+            return word;
+        }
+
+        /**
+         * @return the next count hex digits, or "0" if the input ends before them
+         */
+        String readHex(int count)
+        {
+            if (count < 0) throw new IllegalArgumentException("Negative length " + count);
+            if ((long) position + count > length) return "0";
+            String value = hex(position, count);
+            position += count;
+            return value;
+        }
+
+        /**
+         * @return the next word as text of at most 32 characters, one per byte; longer values are malformed
+         */
+        String readText(int count)
+        {
+            int word = readWord();
+            if (count <= 0) return "";
+            if (word < 0 || count > WORD_LENGTH / 2) throw new IllegalArgumentException("String length " + count + " exceeds its data");
+            char[] text = new char[count];
+            for (int i = 0; i < count; i++)
+            {
+                text[i] = (char) ((digit(word + i * 2) << 4) | digit(word + i * 2 + 1));
+            }
+
+            return new String(text);
+        }
+
+        String hex(int start, int count)
+        {
+            char[] hex = new char[count];
+            for (int i = 0; i < count; i++)
+            {
+                hex[i] = HEX_DIGITS[digit(start + i)];
+            }
+
+            return new String(hex);
+        }
+
+        /**
+         * @return low 32 bits of the word, as BigInteger.intValue() would
+         */
+        int intValue(int word)
+        {
+            int value = 0;
+            for (int i = WORD_LENGTH - 8; i < WORD_LENGTH; i++)
+            {
+                value = (value << 4) | digit(word + i);
+            }
+
+            return value;
+        }
+
+        BigInteger bigIntValue(int word)
+        {
+            return new BigInteger(hex(word, WORD_LENGTH), 16);
+        }
+
+        boolean isZero(int start, int count)
+        {
+            for (int i = start; i < start + count; i++)
+            {
+                if (digit(i) != 0) return false;
+            }
+
+            return true;
+        }
+    }
+
+    private static class ByteReader extends ArgReader
+    {
+        private final byte[] data;
+
+        ByteReader(byte[] data)
+        {
+            super(data.length * 2);
+            this.data = data;
+        }
+
+        @Override
+        int digit(int index)
+        {
+            int b = data[index >> 1];
+            return ((index & 1) == 0 ? b >> 4 : b) & 0xF;
+        }
+
+        @Override
+        BigInteger bigIntValue(int word)
+        {
+            if ((word & 1) != 0) return super.bigIntValue(word);
+            return new BigInteger(1, Arrays.copyOfRange(data, word / 2, word / 2 + WORD_LENGTH / 2));
+        }
+    }
+
+    /**
+     * Reads a "0x" hex string in place; converting it to bytes first costs more than decoding when
+     * only the leading words of a long input are used
+     */
+    private static class HexReader extends ArgReader
+    {
+        private final String input;
+
+        HexReader(String input)
+        {
+            super(input.length() - 2);
+            this.input = input;
+        }
+
+        @Override
+        int digit(int index)
+        {
+            char c = input.charAt(index + 2);
+            int digit = hexValue(c);
+            if (digit < 0) throw new NumberFormatException("Not a hex digit: " + c);
+            return digit;
+        }
+
+        @Override
+        String hex(int start, int count)
+        {
+            return input.substring(start + 2, start + 2 + count);
+        }
+    }
+
+    /**
+     * Immutable map from 4 byte selector to function, as sorted parallel arrays searched by bisection
+     */
+    private static class SelectorTable
+    {
+        private final int[] keys;
+        private final FunctionData[] functions;
+
+        SelectorTable(int[] keys, FunctionData[] functions)
+        {
+            this.keys = keys;
+            this.functions = functions;
+        }
+
+        FunctionData get(int selector)
+        {
+            int index = Arrays.binarySearch(keys, selector);
+            return index >= 0 ? functions[index] : null;
+        }
+
+        SelectorTable with(int selector, FunctionData function)
+        {
+            int index = Arrays.binarySearch(keys, selector);
+            if (index >= 0)
+            {
+                FunctionData[] newFunctions = functions.clone();
+                newFunctions[index] = function;
+                return new SelectorTable(keys, newFunctions);
+            }
+
+            int insert = -index - 1;
+            int[] newKeys = new int[keys.length + 1];
+            FunctionData[] newFunctions = new FunctionData[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(functions, 0, newFunctions, 0, insert);
+            newKeys[insert] = selector;
+            newFunctions[insert] = function;
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(functions, insert, newFunctions, insert + 1, keys.length - insert);
+            return new SelectorTable(newKeys, newFunctions);
+        }
+    }
+}
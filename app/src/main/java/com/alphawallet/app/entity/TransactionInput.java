@@ -62,6 +62,19 @@ public class TransactionInput
         hexArgs = new ArrayList<>();
     }
 
+    //copies the decoded args; functionData is the decoder's shared definition and is not copied
+    public TransactionInput(TransactionInput other)
+    {
+        functionData = other.functionData;
+        arrayValues = new ArrayList<>(other.arrayValues);
+        addresses = new ArrayList<>(other.addresses);
+        sigData = new ArrayList<>(other.sigData);
+        miscData = new ArrayList<>(other.miscData);
+        hexArgs = new ArrayList<>(other.hexArgs);
+        tradeAddress = other.tradeAddress;
+        type = other.type;
+    }
+
     //Addresses are in 256bit format
     public boolean containsAddress(String address)
     {
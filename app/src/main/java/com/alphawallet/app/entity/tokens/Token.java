@@ -55,6 +55,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import io.reactivex.Completable;
 import io.reactivex.Single;
 import io.realm.Realm;
 
@@ -1036,6 +1037,11 @@ public class Token
         return contractInteract.fetchTokenMetadata(tokenId);
     }
 
+    public Completable prefetchTokenMetadata(List<BigInteger> tokenIds)
+    {
+        return contractInteract.prefetchTokenMetadata(tokenIds);
+    }
+
     public boolean checkInfoRequiresUpdate(RealmToken realmToken)
     {
         if (TextUtils.isEmpty(realmToken.getName()) || (!TextUtils.isEmpty(tokenInfo.name) && !tokenInfo.name.equals(realmToken.getName()))) { return true; }
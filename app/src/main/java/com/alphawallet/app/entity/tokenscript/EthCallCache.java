@@ -0,0 +1,237 @@
+package com.alphawallet.app.entity.tokenscript;
+
+import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
+
+import com.alphawallet.app.repository.MulticallBalanceEngine;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Cache of eth_call results for TokenScript attribute resolution.
+ *
+ * Calls are made at the block tip of their chain, as last read, and the result is stored against that block and only
+ * served while it is still the tip. The tip is re-read at most once every few seconds per chain, so rendering a large
+ * token list resolves every attribute against one block.
+ *
+ * Calls for many tokenIds can be pre-fetched in one go through Multicall3 with {@link #prefetch}.
+ */
+public class EthCallCache
+{
+    private static final int MAX_ENTRIES = 4096;
+    private static final long TIP_REFRESH_MS = 4000;
+
+    private static final EthCallCache instance = new EthCallCache(TIP_REFRESH_MS);
+
+    private final long tipRefresh;
+    private final Map<Long, long[]> blockTips = new ConcurrentHashMap<>(); //chainId -> {block, time read}
+    private final Map<String, Entry> results = new LinkedHashMap<String, Entry>(256, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong multicallFetches = new AtomicLong();
+
+    private static class Entry
+    {
+        final long block;
+        final String value;
+
+        Entry(long block, String value)
+        {
+            this.block = block;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Contract address and encoded call data of one read
+     */
+    public static class Call
+    {
+        public final String to;
+        public final String data;
+
+        public Call(String to, String data)
+        {
+            this.to = to;
+            this.data = data;
+        }
+    }
+
+    public static EthCallCache getInstance()
+    {
+        return instance;
+    }
+
+    EthCallCache(long tipRefresh)
+    {
+        this.tipRefresh = tipRefresh;
+    }
+
+    /**
+     * eth_call at the current block tip, served from the cache if the same call was already made at that block
+     *
+     * @return call result, or null on a connection error
+     */
+    public String call(Web3j web3j, long chainId, String from, String to, String data) throws IOException
+    {
+        long tip = getBlockTip(web3j, chainId);
+        String key = key(chainId, from, to, data);
+        Entry entry = get(key);
+        if (entry != null && tip >= 0 && entry.block == tip)
+        {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+
+        misses.incrementAndGet();
+        EthCall response = web3j.ethCall(createEthCallTransaction(from, to, data), blockParameter(tip)).send();
+        if (!response.hasError() && tip >= 0)
+        {
+            put(key, new Entry(tip, response.getValue()));
+        }
+
+        return response.getValue();
+    }
+
+    /**
+     * Fetch any of the calls not already cached at the current block tip in batched Multicall3 requests.
+     * Chains without Multicall3 are skipped; the calls are then made singly as the attributes are resolved.
+     *
+     * Multicall3 becomes msg.sender of the batched calls, so only calls without a sender are batched. Calls from a
+     * wallet are left to the single call path, as a view may depend on msg.sender.
+     */
+    public void prefetch(Web3j web3j, long chainId, String from, List<Call> calls)
+    {
+        if (calls.size() < 2 || !canPrefetch(from) || !MulticallBalanceEngine.isSupported(chainId)) return;
+
+        long tip = getBlockTip(web3j, chainId);
+        if (tip < 0) return;
+
+        List<Call> required = new ArrayList<>();
+        List<MulticallBalanceEngine.Call3> call3s = new ArrayList<>();
+        for (Call call : calls)
+        {
+            Entry entry = get(key(chainId, from, call.to, call.data));
+            if (entry == null || entry.block != tip)
+            {
+                required.add(call);
+                call3s.add(new MulticallBalanceEngine.Call3(call.to, call.data));
+            }
+        }
+
+        if (call3s.size() < 2) return;
+
+        String[] values = MulticallBalanceEngine.aggregate(web3j, chainId, from, call3s, blockParameter(tip));
+        if (values == null) return;
+
+        multicallFetches.incrementAndGet();
+        for (int i = 0; i < values.length; i++)
+        {
+            //failed calls are left for the single call path, which reports the error in the usual way
+            if (values[i] != null)
+            {
+                Call call = required.get(i);
+                put(key(chainId, from, call.to, call.data), new Entry(tip, values[i]));
+            }
+        }
+    }
+
+    /**
+     * @return true if calls from this sender can be batched through Multicall3: none or the zero address
+     */
+    public static boolean canPrefetch(String from)
+    {
+        return from == null || Numeric.cleanHexPrefix(from).replace("0", "").isEmpty();
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getMulticallFetches()
+    {
+        return multicallFetches.get();
+    }
+
+    private long getBlockTip(Web3j web3j, long chainId)
+    {
+        long[] tip = blockTips.get(chainId);
+        long currentTime = System.currentTimeMillis();
+        if (tip != null && (currentTime - tip[1]) < tipRefresh)
+        {
+            return tip[0];
+        }
+
+        try
+        {
+            EthBlockNumber blockNumber = web3j.ethBlockNumber().send();
+            if (!blockNumber.hasError())
+            {
+                long block = blockNumber.getBlockNumber().longValue();
+                blockTips.put(chainId, new long[]{block, currentTime});
+                return block;
+            }
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+        }
+
+        return -1; //tip unknown; don't serve or store cached results
+    }
+
+    private static DefaultBlockParameter blockParameter(long tip)
+    {
+        return tip >= 0 ? DefaultBlockParameter.valueOf(BigInteger.valueOf(tip)) : DefaultBlockParameterName.LATEST;
+    }
+
+    private Entry get(String key)
+    {
+        synchronized (results)
+        {
+            return results.get(key);
+        }
+    }
+
+    private void put(String key, Entry entry)
+    {
+        synchronized (results)
+        {
+            results.put(key, entry);
+        }
+    }
+
+    private static String key(long chainId, String from, String to, String data)
+    {
+        return chainId + "-" + (from != null ? from.toLowerCase() : "") + "-" + to.toLowerCase() + "-" + data;
+    }
+}
@@ -1,13 +1,11 @@
 package com.alphawallet.app.entity.tokenscript;
 
 import static com.alphawallet.app.repository.TokenRepository.getWeb3jService;
-import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
 
 import android.text.TextUtils;
 
 import com.alphawallet.app.entity.UpdateType;
 import com.alphawallet.app.entity.tokens.Token;
-import com.alphawallet.app.repository.TokenRepository;
 import com.alphawallet.app.util.BalanceUtils;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.token.entity.As;
@@ -129,9 +127,7 @@ import org.web3j.abi.datatypes.generated.Uint80;
 import org.web3j.abi.datatypes.generated.Uint88;
 import org.web3j.abi.datatypes.generated.Uint96;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.EthFilter;
-import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.utils.Bytes;
@@ -790,7 +786,7 @@ public abstract class TokenscriptFunction
             else
             {
                 //now push the transaction
-                result = callSmartContractFunction(TokenRepository.getWeb3jService(contractAddress.chainId), transaction, contractAddress.address, token.getWallet());
+                result = callSmartContractFunction(contractAddress.chainId, transaction, contractAddress.address, callSender(token, attr.function));
             }
 
             transactionResult.result = handleTransactionResult(transactionResult, transaction, result, attr, System.currentTimeMillis());
@@ -800,21 +796,71 @@ public abstract class TokenscriptFunction
 
     public String callSmartContract(long chainId, String contractAddress, Function function)
     {
-        return callSmartContractFunction(TokenRepository.getWeb3jService(chainId), function, contractAddress, ZERO_ADDRESS);
+        return callSmartContractFunction(chainId, function, contractAddress, ZERO_ADDRESS);
     }
 
-    private String callSmartContractFunction(Web3j web3j,
+    /**
+     * Sender of an attribute's eth_call. A view taking only tokenIds and fixed values reads the token's own state, so
+     * it is called without a sender: the result is then shared across wallets and can be batched through Multicall3.
+     * Any argument resolved from a reference (eg ownerAddress or another attribute) keeps the wallet as the sender.
+     */
+    static String callSender(Token token, FunctionDefinition function)
+    {
+        return isSenderIndependent(function) ? null : token.getWallet();
+    }
+
+    static boolean isSenderIndependent(FunctionDefinition function)
+    {
+        if (function == null || function.tx != null || function.parameters == null || function.parameters.isEmpty()) return false;
+        for (MethodArg arg : function.parameters)
+        {
+            if (arg.element == null) return false;
+            if (!arg.isTokenId() && (arg.element.ref != null || arg.element.localRef != null || arg.element.value == null)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Fetch the function results of a dynamic attribute for many tokenIds in one go, so the attribute resolves
+     * from the call cache for each tokenId. Only the calls fetchAttrResult would make are fetched, and only when
+     * they are made without a sender; calls from the wallet can't go through Multicall3 (see EthCallCache.prefetch).
+     */
+    public void prefetchAttrResults(Token token, Attribute attr, List<BigInteger> tokenIds, TokenDefinition td,
+                                    AttributeInterface attrIf, UpdateType update)
+    {
+        if (attr == null || attr.function == null || attr.event != null || !attr.usesTokenId() || tokenIds.size() < 2) return;
+        String sender = callSender(token, attr.function);
+        if (!EthCallCache.canPrefetch(sender)) return;
+
+        ContractAddress useAddress = new ContractAddress(attr.function);
+        long lastTxUpdate = attrIf.getLastTokenUpdate(useAddress.chainId, useAddress.address);
+        List<EthCallCache.Call> calls = new ArrayList<>();
+        for (BigInteger tokenId : tokenIds)
+        {
+            if (token.getAttributeResult(attr.name, tokenId) != null) continue;
+            TransactionResult cachedResult = attrIf.getFunctionResult(useAddress, attr, tokenId);
+            if (checkUpdateRequired(attrIf, attr, cachedResult, update, false, lastTxUpdate, useAddress)) continue;
+
+            Function transaction = generateTransactionFunction(token, tokenId, td, attr.function, attrIf);
+            if (transaction.getInputParameters() != null)
+            {
+                calls.add(new EthCallCache.Call(useAddress.address, FunctionEncoder.encode(transaction)));
+            }
+        }
+
+        EthCallCache.getInstance().prefetch(getWeb3jService(useAddress.chainId), useAddress.chainId, sender, calls);
+    }
+
+    private String callSmartContractFunction(long chainId,
                                              Function function, String contractAddress, String walletAddr)
     {
         String encodedFunction = FunctionEncoder.encode(function);
 
         try
         {
-            org.web3j.protocol.core.methods.request.Transaction transaction
-                    = createEthCallTransaction(walletAddr, contractAddress, encodedFunction);
-            EthCall response = web3j.ethCall(transaction, DefaultBlockParameterName.LATEST).send();
-
-            return response.getValue();
+            //identical calls within the same block are served from the cache
+            return EthCallCache.getInstance().call(getWeb3jService(chainId), chainId, walletAddr, contractAddress, encodedFunction);
         }
         catch (IOException e)
         {
@@ -1,6 +1,7 @@
 package com.alphawallet.app.interact;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.ContractType;
 import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.entity.Transaction;
@@ -36,6 +37,14 @@ public class FetchTransactionsInteract {
                 .observeOn(AndroidSchedulers.mainThread());
     }
 
+    public Single<ActivityPage> fetchActivityPage(Wallet wallet, List<Long> networkFilters, ActivityPage.Cursor cursor, int pageSize)
+    {
+        return transactionRepository
+                .fetchActivityPage(wallet, networkFilters, cursor, pageSize)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
     public Single<ActivityMeta[]> fetchEventMetas(Wallet wallet, List<Long> networkFilters)
     {
         return transactionRepository.fetchEventMetas(wallet, networkFilters);
@@ -520,6 +520,35 @@ public class AWRealmMigration implements RealmMigration
             }
             oldVersion = 55;
         }
+
+        // Version 56: index the fields filtered on by the hot token and transaction queries
+        // (to/contractAddress are matched case-insensitively, which Realm can't answer from an index)
+        if (oldVersion == 55)
+        {
+            RealmObjectSchema realmToken = schema.get("RealmToken");
+            if (realmToken != null)
+            {
+                addIndex(realmToken, "chainId");
+                addIndex(realmToken, "isEnabled");
+                addIndex(realmToken, "visibilityChanged");
+            }
+
+            RealmObjectSchema realmTransaction = schema.get("RealmTransaction");
+            if (realmTransaction != null)
+            {
+                addIndex(realmTransaction, "chainId");
+                addIndex(realmTransaction, "timeStamp");
+            }
+            oldVersion = 56;
+        }
+    }
+
+    private static void addIndex(RealmObjectSchema objectSchema, String field)
+    {
+        if (objectSchema.hasField(field) && !objectSchema.hasIndex(field))
+        {
+            objectSchema.addIndex(field);
+        }
     }
 
     @Override
@@ -68,6 +68,7 @@ import com.alphawallet.app.entity.NetworkInfo;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenInfo;
+import com.alphawallet.app.service.TransportRegistry;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.token.entity.ChainSpec;
 import com.google.gson.Gson;
@@ -1593,11 +1594,14 @@ public abstract class EthereumNetworkBase implements EthereumNetworkRepositoryTy
         }
         NetworkInfo info = new NetworkInfo(networkName, symbol, networks, blockExplorerUrl, chainId, explorerApiUrl, isCustom);
         customNetworks.save(info, isTestnet, oldChainId);
+        TransportRegistry.invalidate(chainId);
+        if (oldChainId != null) TransportRegistry.invalidate(oldChainId);
     }
 
     public void removeCustomRPCNetwork(long chainId)
     {
         customNetworks.remove(chainId);
+        TransportRegistry.invalidate(chainId);
     }
 
     public static NetworkInfo getNetworkInfo(long chainId)
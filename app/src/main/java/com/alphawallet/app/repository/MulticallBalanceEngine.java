@@ -0,0 +1,349 @@
+package com.alphawallet.app.repository;
+
+import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
+
+import android.text.TextUtils;
+
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.DynamicBytes;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import timber.log.Timber;
+
+/**
+ * Fetches balances for many tokens on a single chain using one Multicall3 aggregate3 call per batch.
+ *
+ * Results are keyed by lower case contract address; the native balance is keyed by the wallet address.
+ * Balance values follow the TokenRepository convention: -1 indicates a node or call failure, -2 indicates
+ * the contract returned no data (possibly self-destructed).
+ *
+ * Chains where Multicall3 is not deployed are detected on first use and reported via {@link #isSupported(long)}
+ * so the caller can fall back to individual calls. Addresses in a batch whose aggregate call failed outright are left
+ * out of the result for the same reason.
+ */
+public class MulticallBalanceEngine
+{
+    private static final String TAG = "MULTICALL";
+
+    // Multicall3 is deployed at the same address on almost all EVM chains
+    public static final String MULTICALL3_ADDRESS = "0xcA11bde05977b3631167028862bE2a173976CA11";
+    private static final int MAX_CALLS_PER_BATCH = 100;
+
+    private static final BigDecimal NODE_COMMS_ERROR = BigDecimal.valueOf(-1);
+    private static final BigDecimal CONTRACT_BALANCE_NULL = BigDecimal.valueOf(-2);
+
+    private static final Set<Long> unsupportedChains = ConcurrentHashMap.newKeySet();
+
+    public static boolean isSupported(long chainId)
+    {
+        return !unsupportedChains.contains(chainId);
+    }
+
+    public static void setUnsupported(long chainId)
+    {
+        unsupportedChains.add(chainId);
+    }
+
+    /**
+     * Fetch balances for the wallet across the supplied token contracts on one chain
+     *
+     * @param web3j node service for the chain
+     * @param chainId chain being queried
+     * @param walletAddress wallet to check
+     * @param tokenAddresses ERC20/721 contract addresses which support balanceOf(address)
+     * @param includeNative also fetch the native chain balance via Multicall3.getEthBalance
+     * @return map of address to balance, without the addresses of any failed batch; or null if Multicall3 could not be used
+     */
+    public static Map<String, BigDecimal> fetchBalances(Web3j web3j, long chainId, String walletAddress,
+                                                        List<String> tokenAddresses, boolean includeNative)
+    {
+        if (!isSupported(chainId)) return null;
+
+        List<String> targets = new ArrayList<>(tokenAddresses.size() + 1);
+        List<Call3> calls = new ArrayList<>(tokenAddresses.size() + 1);
+        String balanceOfData = FunctionEncoder.encode(TokenRepository.balanceOf(walletAddress));
+
+        if (includeNative)
+        {
+            targets.add(walletAddress.toLowerCase());
+            calls.add(new Call3(MULTICALL3_ADDRESS, getEthBalanceData(walletAddress)));
+        }
+
+        for (String address : tokenAddresses)
+        {
+            targets.add(address.toLowerCase());
+            calls.add(new Call3(address, balanceOfData));
+        }
+
+        Map<String, BigDecimal> balances = new HashMap<>();
+
+        for (int start = 0; start < calls.size(); start += MAX_CALLS_PER_BATCH)
+        {
+            int end = Math.min(start + MAX_CALLS_PER_BATCH, calls.size());
+            List<CallResult> results = callAggregate3(web3j, chainId, walletAddress, calls.subList(start, end));
+
+            if (results == null && !isSupported(chainId))
+            {
+                return null; //no Multicall3 on this chain; caller should use single calls
+            }
+            else if (results == null || results.size() != (end - start))
+            {
+                continue; //aggregate failed, so nothing is known about these balances; caller should use single calls
+            }
+
+            for (int i = start; i < end; i++)
+            {
+                balances.put(targets.get(i), decodeBalance(results.get(i - start)));
+            }
+        }
+
+        return balances.isEmpty() ? null : balances;
+    }
+
+    /**
+     * Fetch the native chain balance of many wallets on one chain via Multicall3.getEthBalance
+     *
+     * @param walletAddresses wallets to check
+     * @return map of lower case wallet address to balance, without the wallets of any failed batch; or null if Multicall3 could not be used
+     */
+    public static Map<String, BigDecimal> fetchNativeBalances(Web3j web3j, long chainId, List<String> walletAddresses)
+    {
+        if (!isSupported(chainId) || walletAddresses.isEmpty()) return null;
+
+        List<Call3> calls = new ArrayList<>(walletAddresses.size());
+        for (String address : walletAddresses)
+        {
+            calls.add(new Call3(MULTICALL3_ADDRESS, getEthBalanceData(address)));
+        }
+
+        Map<String, BigDecimal> balances = new HashMap<>();
+
+        for (int start = 0; start < calls.size(); start += MAX_CALLS_PER_BATCH)
+        {
+            int end = Math.min(start + MAX_CALLS_PER_BATCH, calls.size());
+            List<CallResult> results = callAggregate3(web3j, chainId, walletAddresses.get(0), calls.subList(start, end));
+
+            if (results == null && !isSupported(chainId))
+            {
+                return null;
+            }
+            else if (results == null || results.size() != (end - start))
+            {
+                continue;
+            }
+
+            for (int i = start; i < end; i++)
+            {
+                balances.put(walletAddresses.get(i).toLowerCase(), decodeBalance(results.get(i - start)));
+            }
+        }
+
+        return balances.isEmpty() ? null : balances;
+    }
+
+    /**
+     * Run arbitrary read calls on one chain through Multicall3, in batches
+     *
+     * @param calls contract address and hex call data for each call
+     * @return hex return data for each call in order, null where the call failed; or null if Multicall3 could not be used on this chain
+     */
+    public static String[] aggregate(Web3j web3j, long chainId, String fromAddress, List<Call3> calls)
+    {
+        return aggregate(web3j, chainId, fromAddress, calls, DefaultBlockParameterName.LATEST);
+    }
+
+    /**
+     * @param block block to run the calls at
+     */
+    public static String[] aggregate(Web3j web3j, long chainId, String fromAddress, List<Call3> calls, DefaultBlockParameter block)
+    {
+        if (!isSupported(chainId)) return null;
+
+        String[] values = new String[calls.size()];
+        for (int start = 0; start < calls.size(); start += MAX_CALLS_PER_BATCH)
+        {
+            int end = Math.min(start + MAX_CALLS_PER_BATCH, calls.size());
+            List<CallResult> results = callAggregate3(web3j, chainId, fromAddress, calls.subList(start, end), block);
+
+            if (results == null && !isSupported(chainId))
+            {
+                return null;
+            }
+            else if (results == null || results.size() != (end - start))
+            {
+                continue;
+            }
+
+            for (int i = start; i < end; i++)
+            {
+                CallResult result = results.get(i - start);
+                values[i] = result.success ? Numeric.toHexString(result.returnData) : null;
+            }
+        }
+
+        return values;
+    }
+
+    private static List<CallResult> callAggregate3(Web3j web3j, long chainId, String walletAddress, List<Call3> calls)
+    {
+        return callAggregate3(web3j, chainId, walletAddress, calls, DefaultBlockParameterName.LATEST);
+    }
+
+    private static List<CallResult> callAggregate3(Web3j web3j, long chainId, String walletAddress, List<Call3> calls,
+                                                   DefaultBlockParameter block)
+    {
+        try
+        {
+            String encodedFunction = FunctionEncoder.encode(aggregate3(calls));
+            EthCall response = web3j.ethCall(createEthCallTransaction(walletAddress, MULTICALL3_ADDRESS, encodedFunction),
+                    block).send();
+
+            String value = response.getValue();
+            if (response.hasError() || TextUtils.isEmpty(value))
+            {
+                return null;
+            }
+            else if (value.equals("0x"))
+            {
+                //no contract at the Multicall3 address
+                Timber.tag(TAG).d("Multicall3 not available on chain: %s", chainId);
+                setUnsupported(chainId);
+                return null;
+            }
+
+            return decodeAggregate3(value);
+        }
+        catch (Exception e)
+        {
+            Timber.tag(TAG).w(e);
+            return null;
+        }
+    }
+
+    private static BigDecimal decodeBalance(CallResult result)
+    {
+        if (result == null || !result.success)
+        {
+            return NODE_COMMS_ERROR;
+        }
+        else if (result.returnData.length == 0)
+        {
+            return CONTRACT_BALANCE_NULL;
+        }
+        else if (result.returnData.length < 32)
+        {
+            return NODE_COMMS_ERROR;
+        }
+        else
+        {
+            return new BigDecimal(new BigInteger(1, Arrays.copyOfRange(result.returnData, 0, 32)));
+        }
+    }
+
+    private static Function aggregate3(List<Call3> calls)
+    {
+        return new Function("aggregate3",
+                Collections.singletonList(new DynamicArray<>(Call3.class, calls)),
+                Collections.emptyList());
+    }
+
+    private static String getEthBalanceData(String walletAddress)
+    {
+        return FunctionEncoder.encode(new Function("getEthBalance",
+                Collections.singletonList(new Address(walletAddress)),
+                Collections.singletonList(new TypeReference<Uint256>() {})));
+    }
+
+    /**
+     * Decode the (bool success, bytes returnData)[] output of Multicall3.aggregate3.
+     * This is done by hand in a single pass over the return bytes rather than through reflective struct decoding.
+     *
+     * @param hexValue raw eth_call return value
+     * @return list of call results in call order
+     */
+    static List<CallResult> decodeAggregate3(String hexValue)
+    {
+        byte[] data = Numeric.hexStringToByteArray(hexValue);
+        int arrayStart = readWordAsInt(data, 0);
+        int count = readWordAsInt(data, arrayStart);
+        int elementsStart = arrayStart + 32;
+
+        List<CallResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            int structStart = elementsStart + readWordAsInt(data, elementsStart + i * 32);
+            boolean success = readWordAsInt(data, structStart) != 0;
+            int bytesStart = structStart + readWordAsInt(data, structStart + 32);
+            int length = readWordAsInt(data, bytesStart);
+
+            byte[] returnData = new byte[length];
+            System.arraycopy(data, bytesStart + 32, returnData, 0, length);
+            results.add(new CallResult(success, returnData));
+        }
+
+        return results;
+    }
+
+    private static int readWordAsInt(byte[] data, int offset)
+    {
+        if (offset < 0 || offset + 32 > data.length)
+        {
+            throw new IllegalArgumentException("Multicall return data truncated");
+        }
+
+        BigInteger value = new BigInteger(1, Arrays.copyOfRange(data, offset, offset + 32));
+        if (value.bitLength() > 31)
+        {
+            throw new IllegalArgumentException("Multicall return offset out of range");
+        }
+
+        return value.intValue();
+    }
+
+    static class CallResult
+    {
+        final boolean success;
+        final byte[] returnData;
+
+        CallResult(boolean success, byte[] returnData)
+        {
+            this.success = success;
+            this.returnData = returnData;
+        }
+    }
+
+    public static class Call3 extends DynamicStruct
+    {
+        public Call3(String target, String callData)
+        {
+            super(new Address(target), new Bool(true), new DynamicBytes(Numeric.hexStringToByteArray(callData)));
+        }
+
+        public Call3(Address target, Bool allowFailure, DynamicBytes callData)
+        {
+            super(target, allowFailure, callData);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.alphawallet.app.repository;
+
+import com.alphawallet.app.service.RealmManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.realm.Realm;
+import timber.log.Timber;
+
+/**
+ * Write-behind queue for one Realm database.
+ *
+ * Small writes (balances, tickers, image URLs, NFT assets) are held against the primary key of the row they change
+ * and committed together in a single transaction once {@link #MAX_PENDING} keys are waiting or {@link #FLUSH_DELAY_MS}
+ * after the first of them was queued. This replaces hundreds of tiny transactions, each with its own fsync, during a
+ * cold sync with a few larger ones.
+ *
+ * Writes must re-read the rows they change from the Realm they are given, as they run later on the flush thread.
+ * Callers that read a row and then write back a value derived from it should call {@link #flushIfPending} first.
+ * Commits always run on the flush thread, one at a time, whichever thread asks for them.
+ */
+public class RealmWriteQueue
+{
+    public interface Write
+    {
+        void apply(Realm realm);
+    }
+
+    interface Committer
+    {
+        void commit(List<Write> writes);
+    }
+
+    private static final int MAX_PENDING = 64;
+    private static final long FLUSH_DELAY_MS = 250;
+
+    private static final Map<String, RealmWriteQueue> queues = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Boolean> onFlushThread = new ThreadLocal<>();
+    private static final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "RealmWriteQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Committer committer;
+    private final int maxPending;
+    private final long flushDelay;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Write> pending = new LinkedHashMap<>();
+    private final Object commitLock = new Object();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedWrites = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    /**
+     * @param realmName name as passed to {@link RealmManager#getRealmInstance(String)}, eg the wallet address
+     * @return the write queue of this database
+     */
+    public static RealmWriteQueue forRealm(RealmManager realmManager, String realmName)
+    {
+        String key = realmName.toLowerCase();
+        RealmWriteQueue queue = queues.get(key);
+        if (queue == null)
+        {
+            queue = new RealmWriteQueue(writes -> commitToRealm(realmManager, key, writes), MAX_PENDING, FLUSH_DELAY_MS, flushExecutor);
+            RealmWriteQueue existing = queues.putIfAbsent(key, queue);
+            if (existing != null) queue = existing;
+        }
+
+        return queue;
+    }
+
+    /**
+     * Commit everything queued, eg as the app goes into the background. Runs on the flush thread.
+     */
+    public static void flushAll()
+    {
+        for (RealmWriteQueue queue : queues.values())
+        {
+            queue.flushAsync();
+        }
+    }
+
+    RealmWriteQueue(Committer committer, int maxPending, long flushDelay, ScheduledExecutorService executor)
+    {
+        this.committer = committer;
+        this.maxPending = maxPending;
+        this.flushDelay = flushDelay;
+        this.executor = executor;
+    }
+
+    /**
+     * Queue a write which sets the full state of the row, superseding any write still pending for the same key
+     */
+    public void enqueue(String key, Write write)
+    {
+        add(key, write, true);
+    }
+
+    /**
+     * Queue a write which changes part of the row; it runs after any write still pending for the same key
+     */
+    public void append(String key, Write write)
+    {
+        add(key, write, false);
+    }
+
+    /**
+     * Commit the queue now if a write is pending for this key, waiting for the commit
+     */
+    public void flushIfPending(String key)
+    {
+        boolean isPending;
+        synchronized (pending)
+        {
+            isPending = pending.containsKey(key);
+        }
+
+        if (isPending) flush();
+    }
+
+    /**
+     * Commit all pending writes on the flush thread, waiting for the commit
+     */
+    public void flush()
+    {
+        if (Boolean.TRUE.equals(onFlushThread.get()))
+        {
+            commitPending(); //already on the flush thread, eg from an afterCommit action
+            return;
+        }
+
+        try
+        {
+            executor.submit(this::commitPending).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            Timber.w(e);
+        }
+    }
+
+    /**
+     * Run the action on the flush thread once every write queued so far has been committed
+     */
+    public void afterCommit(Runnable action)
+    {
+        executor.execute(() -> {
+            commitPending();
+            try
+            {
+                action.run();
+            }
+            catch (Exception e)
+            {
+                Timber.w(e);
+            }
+        });
+    }
+
+    private void commitPending()
+    {
+        onFlushThread.set(true);
+        synchronized (commitLock) //keep commits in queue order
+        {
+            List<Write> writes;
+            synchronized (pending)
+            {
+                if (scheduledFlush != null)
+                {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                if (pending.isEmpty()) return;
+                writes = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            long start = System.nanoTime();
+            try
+            {
+                committer.commit(writes);
+                committedWrites.addAndGet(writes.size());
+            }
+            catch (Exception e)
+            {
+                failures.incrementAndGet();
+                Timber.w(e);
+            }
+
+            long elapsed = System.nanoTime() - start;
+            commits.incrementAndGet();
+            commitNanos.addAndGet(elapsed);
+            if (elapsed > maxCommitNanos.get()) maxCommitNanos.set(elapsed);
+        }
+    }
+
+    public int getPendingCount()
+    {
+        synchronized (pending)
+        {
+            return pending.size();
+        }
+    }
+
+    public long getCommits()
+    {
+        return commits.get();
+    }
+
+    public long getCommittedWrites()
+    {
+        return committedWrites.get();
+    }
+
+    /**
+     * @return writes absorbed into a write already pending for the same key
+     */
+    public long getMergedWrites()
+    {
+        return merged.get();
+    }
+
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    public long getAverageCommitMillis()
+    {
+        long count = commits.get();
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(commitNanos.get() / count) : 0;
+    }
+
+    public long getMaxCommitMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxCommitNanos.get());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "queued=" + queued.get() + " merged=" + getMergedWrites() + " commits=" + getCommits()
+                + " written=" + getCommittedWrites() + " failed=" + getFailures() + " pending=" + getPendingCount()
+                + " avgCommit=" + getAverageCommitMillis() + "ms maxCommit=" + getMaxCommitMillis() + "ms";
+    }
+
+    private void add(String key, Write write, boolean supersede)
+    {
+        queued.incrementAndGet();
+        boolean flushNow;
+        synchronized (pending)
+        {
+            Write existing = pending.get(key);
+            if (existing != null)
+            {
+                merged.incrementAndGet();
+                if (!supersede)
+                {
+                    Write first = existing;
+                    Write next = write;
+                    write = realm -> {
+                        first.apply(realm);
+                        next.apply(realm);
+                    };
+                }
+            }
+
+            pending.put(key, write);
+            flushNow = pending.size() >= maxPending;
+            if (!flushNow && scheduledFlush == null)
+            {
+                scheduledFlush = executor.schedule(this::commitPending, flushDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow) flushAsync();
+    }
+
+    private void flushAsync()
+    {
+        executor.execute(this::commitPending);
+    }
+
+    private static void commitToRealm(RealmManager realmManager, String realmName, List<Write> writes)
+    {
+        try (Realm realm = realmManager.getRealmInstance(realmName))
+        {
+            realm.executeTransaction(r -> {
+                for (Write write : writes)
+                {
+                    try
+                    {
+                        write.apply(r);
+                    }
+                    catch (Exception e)
+                    {
+                        //don't lose the rest of the batch to one bad row
+                        Timber.w(e);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -13,6 +13,7 @@ import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenCardMeta;
 import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.service.AssetDefinitionService;
+import com.alphawallet.app.service.PortfolioAggregator;
 import com.alphawallet.token.entity.ContractAddress;
 
 import java.math.BigDecimal;
@@ -20,6 +21,7 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.realm.Realm;
 
@@ -81,6 +83,10 @@ public interface TokenLocalSource
 
     Single<Pair<Double, Double>> getTotalValue(String currentAddress, List<Long> networkFilters);
 
+    Single<List<PortfolioAggregator.Holding>> fetchFiatHoldings(String currentAddress, List<Long> networkFilters);
+
+    Observable<Map<String, TokenTicker>> tickerUpdates();
+
     Map<String, Long> getTickerTimeMap(long chainId, List<TokenCardMeta> erc20Tokens);
 
     void deleteTickers();
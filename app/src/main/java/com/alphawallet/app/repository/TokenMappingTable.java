@@ -0,0 +1,212 @@
+package com.alphawallet.app.repository;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import com.alphawallet.app.entity.tokendata.TokenGroup;
+import com.alphawallet.token.entity.ContractAddress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import timber.log.Timber;
+
+/**
+ * Token group and base token mapping, read from the binary table compiled from tokens.json at build time
+ * (see the compileTokenMappings task in app/build.gradle).
+ *
+ * The table is memory mapped from the APK and binary searched in place, so there is nothing to parse at startup
+ * and lookups don't allocate. Layout, big endian:
+ *
+ *   int magic ("TKM1"), int record count
+ *   records sorted by address bytes then chainId, each:
+ *     20 bytes address, long chainId, byte TokenGroup ordinal, int index of the base token record or -1
+ */
+public class TokenMappingTable
+{
+    static final int MAGIC = 0x544B4D31;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 33;
+    private static final int ADDRESS_SIZE = 20;
+    private static final int CHAIN_OFFSET = ADDRESS_SIZE;
+    private static final int GROUP_OFFSET = CHAIN_OFFSET + 8;
+    private static final int BASE_OFFSET = GROUP_OFFSET + 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final TokenGroup[] GROUPS = TokenGroup.values();
+
+    private final ByteBuffer table;
+    private final int count;
+
+    public static TokenMappingTable load(Context context, String assetName)
+    {
+        try
+        {
+            return new TokenMappingTable(mapAsset(context, assetName));
+        }
+        catch (IOException e)
+        {
+            Timber.w(e, "Unable to load token mapping");
+            return new TokenMappingTable();
+        }
+    }
+
+    TokenMappingTable(ByteBuffer table) throws IOException
+    {
+        if (table.limit() < HEADER_SIZE || table.getInt(0) != MAGIC)
+        {
+            throw new IOException("Not a token mapping table");
+        }
+
+        this.table = table;
+        this.count = table.getInt(4);
+        if (table.limit() < HEADER_SIZE + (long) count * RECORD_SIZE)
+        {
+            throw new IOException("Token mapping table truncated");
+        }
+    }
+
+    private TokenMappingTable()
+    {
+        this.table = null;
+        this.count = 0;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * @return group of the token, or null if it isn't in the mapping
+     */
+    public TokenGroup getGroup(long chainId, String address)
+    {
+        int record = find(chainId, address);
+        if (record < 0) return null;
+
+        int group = table.get(offset(record) + GROUP_OFFSET);
+        return group >= 0 && group < GROUPS.length ? GROUPS[group] : TokenGroup.ASSET;
+    }
+
+    /**
+     * @return the token this one mirrors, or null if it isn't mapped to another token
+     */
+    public ContractAddress getBase(long chainId, String address)
+    {
+        int record = find(chainId, address);
+        if (record < 0) return null;
+
+        int base = table.getInt(offset(record) + BASE_OFFSET);
+        if (base < 0 || base >= count) return null;
+
+        int baseOffset = offset(base);
+        return new ContractAddress(table.getLong(baseOffset + CHAIN_OFFSET), readAddress(baseOffset));
+    }
+
+    private int find(long chainId, String address)
+    {
+        int start = hexStart(address);
+        if (start < 0 || count == 0) return -1;
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, address, start, chainId);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+
+        return -1;
+    }
+
+    private int compare(int record, String address, int start, long chainId)
+    {
+        int offset = offset(record);
+        for (int i = 0; i < ADDRESS_SIZE; i++)
+        {
+            int stored = table.get(offset + i) & 0xFF;
+            int key = (hexValue(address.charAt(start + i * 2)) << 4) | hexValue(address.charAt(start + i * 2 + 1));
+            if (stored != key) return stored < key ? -1 : 1;
+        }
+
+        return Long.compare(table.getLong(offset + CHAIN_OFFSET), chainId);
+    }
+
+    private String readAddress(int offset)
+    {
+        char[] address = new char[2 + ADDRESS_SIZE * 2];
+        address[0] = '0';
+        address[1] = 'x';
+        for (int i = 0; i < ADDRESS_SIZE; i++)
+        {
+            int b = table.get(offset + i) & 0xFF;
+            address[2 + i * 2] = HEX[b >>> 4];
+            address[3 + i * 2] = HEX[b & 0x0F];
+        }
+
+        return new String(address);
+    }
+
+    private static int offset(int record)
+    {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    /**
+     * @return index of the first hex digit if the address is 40 hex digits with an optional 0x prefix, otherwise -1
+     */
+    private static int hexStart(String address)
+    {
+        if (address == null) return -1;
+        int start = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+        if (address.length() - start != ADDRESS_SIZE * 2) return -1;
+
+        for (int i = start; i < address.length(); i++)
+        {
+            if (hexValue(address.charAt(i)) < 0) return -1;
+        }
+
+        return start;
+    }
+
+    private static int hexValue(char c)
+    {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static ByteBuffer mapAsset(Context context, String assetName) throws IOException
+    {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(assetName);
+             FileInputStream in = fd.createInputStream())
+        {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        }
+        catch (IOException e)
+        {
+            //asset was compressed into the APK, so can't be mapped; read it instead
+            try (InputStream in = context.getAssets().open(assetName))
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                {
+                    out.write(buffer, 0, read);
+                }
+
+                return ByteBuffer.wrap(out.toByteArray());
+            }
+        }
+    }
+}
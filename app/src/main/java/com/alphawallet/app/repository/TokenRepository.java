@@ -12,7 +12,6 @@ import android.util.Pair;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.alphawallet.app.C;
 import com.alphawallet.app.entity.ContractLocator;
 import com.alphawallet.app.entity.ContractType;
 import com.alphawallet.app.entity.ImageEntry;
@@ -31,7 +30,9 @@ import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.service.AWHttpServiceWaterfall;
 import com.alphawallet.app.service.AssetDefinitionService;
 import com.alphawallet.app.service.OkLinkService;
+import com.alphawallet.app.service.PortfolioAggregator;
 import com.alphawallet.app.service.TickerService;
+import com.alphawallet.app.service.TransportRegistry;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.app.util.ens.AWEnsResolver;
 import com.alphawallet.token.entity.ContractAddress;
@@ -55,6 +56,7 @@ import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthBlockNumber;
 import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
 import org.web3j.utils.Numeric;
 
 import java.io.IOException;
@@ -66,8 +68,10 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -90,6 +94,7 @@ public class TokenRepository implements TokenRepositoryType {
     public static final String INVALID_CONTRACT = "<invalid>";
 
     private static final boolean LOG_CONTRACT_EXCEPTION_EVENTS = false;
+    private static final long NATIVE_BALANCE_TIMEOUT_SECONDS = 30;
 
     public static final BigInteger INTERFACE_CRYPTOKITTIES = new BigInteger ("9a20483d", 16);
     public static final BigInteger INTERFACE_OFFICIAL_ERC721 = new BigInteger ("80ac58cd", 16);
@@ -122,12 +127,7 @@ public class TokenRepository implements TokenRepositoryType {
         web3jNodeServers = new ConcurrentHashMap<>();
         currentAddress = ethereumNetworkRepository.getCurrentWalletAddress();
 
-        okClient = new OkHttpClient.Builder()
-                .connectTimeout(C.CONNECT_TIMEOUT * 4, TimeUnit.SECONDS) //events can take longer to render
-                .connectTimeout(C.READ_TIMEOUT * 4, TimeUnit.SECONDS)
-                .writeTimeout(C.LONG_WRITE_TIMEOUT, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true)
-                .build();
+        okClient = TransportRegistry.getClient(TransportRegistry.Profile.LONG); //events can take longer to render
     }
 
     private void buildWeb3jClient(NetworkInfo networkInfo)
@@ -220,6 +220,18 @@ public class TokenRepository implements TokenRepositoryType {
         return localSource.getTotalValue(currentAddress, networkFilters);
     }
 
+    @Override
+    public Single<List<PortfolioAggregator.Holding>> fetchFiatHoldings(String currentAddress, List<Long> networkFilters)
+    {
+        return localSource.fetchFiatHoldings(currentAddress, networkFilters);
+    }
+
+    @Override
+    public Observable<Map<String, TokenTicker>> tickerUpdates()
+    {
+        return localSource.tickerUpdates();
+    }
+
     @Override
     public Single<List<String>> getTickerUpdateList(List<Long> networkFilter)
     {
@@ -525,6 +537,146 @@ public class TokenRepository implements TokenRepositoryType {
             });
     }
 
+    /**
+     * Refresh the balances of the base chain token and ERC20 tokens on one chain in a single Multicall3 request.
+     * Falls back to individual calls if the chain has no Multicall3 deployment or the aggregate call fails.
+     *
+     * @param wallet wallet to update
+     * @param chainId chain all the tokens are on
+     * @param tokens base token and/or ERC20 tokens on the chain
+     * @return map of lower case token address to the new balance
+     */
+    @Override
+    public Single<Map<String, BigDecimal>> updateChainBalances(Wallet wallet, long chainId, List<Token> tokens)
+    {
+        return Single.fromCallable(() -> {
+            List<String> addresses = new ArrayList<>();
+            boolean includeNative = false;
+            for (Token t : tokens)
+            {
+                if (t.isEthereum()) includeNative = true;
+                else addresses.add(t.getAddress());
+            }
+
+            Map<String, BigDecimal> balances = MulticallBalanceEngine.fetchBalances(getService(chainId), chainId,
+                    wallet.address, addresses, includeNative);
+
+            Map<String, BigDecimal> updated = new HashMap<>();
+            for (Token t : tokens)
+            {
+                BigDecimal balance = balances != null ? balances.get(t.getAddress().toLowerCase()) : null;
+                if (balance == null)
+                {
+                    //fall back to single call
+                    balance = t.isEthereum() ? getEthBalance(wallet, chainId) : checkUint256Balance(wallet, chainId, t.getAddress());
+                }
+
+                updated.put(t.getAddress().toLowerCase(), storeBatchBalance(wallet, t, balance));
+            }
+
+            return updated;
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Refresh the base chain token balance of several wallets on one chain in a single request: one Multicall3 call,
+     * or where Multicall3 isn't deployed, concurrent eth_getBalance calls which the node transport sends as one batch.
+     *
+     * @param chainId chain to check
+     * @param walletAddresses wallets to update
+     * @return map of lower case wallet address to the new balance, for each wallet whose balance could be read
+     */
+    @Override
+    public Single<Map<String, BigDecimal>> updateNativeBalances(long chainId, List<String> walletAddresses)
+    {
+        return Single.fromCallable(() -> {
+            Map<String, BigDecimal> balances = MulticallBalanceEngine.fetchNativeBalances(getService(chainId), chainId, walletAddresses);
+            if (balances == null) balances = new HashMap<>();
+
+            List<String> missing = new ArrayList<>();
+            for (String address : walletAddresses)
+            {
+                if (!balances.containsKey(address.toLowerCase())) missing.add(address);
+            }
+            if (!missing.isEmpty()) balances.putAll(fetchEthBalances(chainId, missing)); //Multicall3 unavailable or its call failed
+
+            Map<String, BigDecimal> updated = new HashMap<>();
+            for (String address : walletAddresses)
+            {
+                BigDecimal balance = balances.get(address.toLowerCase());
+                //-1 is a failed read and -2 can't apply to a chain balance: keep what is stored rather than writing a placeholder
+                if (balance == null || balance.signum() < 0) continue;
+
+                Wallet wallet = new Wallet(address);
+                Token baseToken = fetchToken(chainId, address, address);
+                if (baseToken == null)
+                {
+                    baseToken = ethereumNetworkRepository.getBlankOverrideToken(ethereumNetworkRepository.getNetworkByChain(chainId));
+                }
+                baseToken.setTokenWallet(address);
+
+                updated.put(address.toLowerCase(), storeBatchBalance(wallet, baseToken, balance));
+            }
+
+            return updated;
+        }).subscribeOn(Schedulers.io());
+    }
+
+    private Map<String, BigDecimal> fetchEthBalances(long chainId, List<String> walletAddresses)
+    {
+        Web3j web3j = getService(chainId);
+        Map<String, CompletableFuture<EthGetBalance>> requests = new HashMap<>();
+        for (String address : walletAddresses)
+        {
+            requests.put(address.toLowerCase(), web3j.ethGetBalance(address, DefaultBlockParameterName.LATEST).sendAsync());
+        }
+
+        Map<String, BigDecimal> balances = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<EthGetBalance>> request : requests.entrySet())
+        {
+            try
+            {
+                EthGetBalance response = request.getValue().get(NATIVE_BALANCE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                balances.put(request.getKey(), response.hasError() ? BigDecimal.valueOf(-1) : new BigDecimal(response.getBalance()));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (Exception e)
+            {
+                if (LOG_CONTRACT_EXCEPTION_EVENTS) e.printStackTrace();
+                balances.put(request.getKey(), BigDecimal.valueOf(-1));
+            }
+        }
+
+        return balances;
+    }
+
+    private BigDecimal storeBatchBalance(Wallet wallet, Token token, BigDecimal balance)
+    {
+        if (token.isEthereum() && token.getBalanceRaw().equals(BigDecimal.ZERO) && balance.equals(BigDecimal.valueOf(-1)))
+        {
+            balance = BigDecimal.ZERO; //protect against network loss
+        }
+
+        if (balance.equals(BigDecimal.valueOf(-2)))
+        {
+            checkDestroyedToken(wallet, token);
+        }
+        else if (!balance.equals(BigDecimal.valueOf(-1)))
+        {
+            localSource.updateTokenBalance(wallet, token, balance, null);
+        }
+        else
+        {
+            balance = token.balance;
+        }
+
+        return balance;
+    }
+
     private void checkDestroyedToken(Wallet wallet, Token token)
     {
         try
@@ -1304,32 +1456,12 @@ public class TokenRepository implements TokenRepositoryType {
 
     public static Web3j getWeb3jServiceForEvents(long chainId)
     {
-        OkHttpClient okClient = new OkHttpClient.Builder()
-                .connectTimeout(C.CONNECT_TIMEOUT * 3, TimeUnit.SECONDS) //events can take longer to render
-                .connectTimeout(C.READ_TIMEOUT * 3, TimeUnit.SECONDS)
-                .writeTimeout(C.LONG_WRITE_TIMEOUT, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true)
-                .build();
-
-        String[] rpcUrls = EthereumNetworkBase.getNetwork(chainId).rpcUrls;
-
-        AWHttpServiceWaterfall publicNodeService = new AWHttpServiceWaterfall(rpcUrls, chainId, okClient, KeyProviderFactory.get().getInfuraKey(),
-                KeyProviderFactory.get().getInfuraSecret(), KeyProviderFactory.get().getKlaytnKey(), false);
-        return Web3j.build(publicNodeService);
+        return TransportRegistry.getWeb3j(chainId, TransportRegistry.Profile.EVENTS);
     }
 
     public static Web3j getWeb3jService(long chainId)
     {
-        OkHttpClient okClient = new OkHttpClient.Builder()
-                .connectTimeout(C.CONNECT_TIMEOUT, TimeUnit.SECONDS)
-                .connectTimeout(C.READ_TIMEOUT * 3, TimeUnit.SECONDS)
-                .writeTimeout(C.LONG_WRITE_TIMEOUT, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true)
-                .build();
-
-        AWHttpServiceWaterfall publicNodeService = new AWHttpServiceWaterfall(EthereumNetworkBase.getNetwork(chainId).rpcUrls, chainId, okClient, KeyProviderFactory.get().getInfuraKey(),
-                KeyProviderFactory.get().getInfuraSecret(), KeyProviderFactory.get().getKlaytnKey(), false);
-        return Web3j.build(publicNodeService);
+        return TransportRegistry.getWeb3j(chainId, TransportRegistry.Profile.STANDARD);
     }
 
     public static String callSmartContractFunction(long chainId,
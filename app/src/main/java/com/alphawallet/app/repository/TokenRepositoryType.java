@@ -15,11 +15,13 @@ import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenCardMeta;
 import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.service.AssetDefinitionService;
+import com.alphawallet.app.service.PortfolioAggregator;
 import com.alphawallet.token.entity.ContractAddress;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Map;
 
 import io.reactivex.Observable;
 import io.reactivex.Single;
@@ -31,6 +33,10 @@ public interface TokenRepositoryType
 
     Single<BigDecimal> updateTokenBalance(String walletAddress, Token token);
 
+    Single<Map<String, BigDecimal>> updateChainBalances(Wallet wallet, long chainId, List<Token> tokens);
+
+    Single<Map<String, BigDecimal>> updateNativeBalances(long chainId, List<String> walletAddresses);
+
     Single<ContractLocator> getTokenResponse(String address, long chainId, String method);
 
     Single<Token> checkInterface(Token tokens, Wallet wallet);
@@ -97,6 +103,10 @@ public interface TokenRepositoryType
 
     Single<Pair<Double, Double>> getTotalValue(String currentAddress, List<Long> networkFilters);
 
+    Single<List<PortfolioAggregator.Holding>> fetchFiatHoldings(String currentAddress, List<Long> networkFilters);
+
+    Observable<Map<String, TokenTicker>> tickerUpdates();
+
     Single<List<String>> getTickerUpdateList(List<Long> networkFilter);
 
     TokenGroup getTokenGroup(long chainId, String address, ContractType type);
@@ -0,0 +1,213 @@
+package com.alphawallet.app.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory search index over the tokens of one wallet, used by the token management search instead of running
+ * wildcard queries against the database on every keystroke.
+ *
+ * Each token's name, symbol, aux data and address are broken into trigrams; a search intersects the posting lists
+ * of the term's trigrams, then verifies and ranks the candidates. Terms shorter than a trigram are matched by scanning
+ * the (small) set of tokens. If nothing matches exactly, tokens sharing most of the term's trigrams are returned as
+ * fuzzy matches, which picks up simple typos.
+ *
+ * The index is keyed by token database key and is safe to update from any thread.
+ */
+public class TokenSearchIndex
+{
+    private static final int GRAM = 3;
+    private static final double FUZZY_THRESHOLD = 0.5;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    private static class Entry
+    {
+        final String key;
+        final long chainId;
+        final String symbol;
+        final String name;
+        final String aux;
+        final Set<String> grams = new HashSet<>();
+
+        Entry(String key, long chainId, String name, String symbol, String aux)
+        {
+            this.key = key;
+            this.chainId = chainId;
+            this.symbol = normalise(symbol);
+            this.name = normalise(name);
+            this.aux = normalise(aux);
+            addGrams(grams, this.symbol);
+            addGrams(grams, this.name);
+            addGrams(grams, this.aux);
+            addGrams(grams, key);
+        }
+    }
+
+    private static class Match implements Comparable<Match>
+    {
+        final Entry entry;
+        final double rank;
+
+        Match(Entry entry, double rank)
+        {
+            this.entry = entry;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(Match other)
+        {
+            int compare = Double.compare(rank, other.rank);
+            if (compare == 0) compare = Integer.compare(entry.symbol.length(), other.entry.symbol.length());
+            return compare != 0 ? compare : entry.key.compareTo(other.entry.key);
+        }
+    }
+
+    /**
+     * Add or update a token
+     *
+     * @param key token database key, see TokensRealmSource.databaseKey
+     */
+    public synchronized void put(String key, long chainId, String name, String symbol, String auxData)
+    {
+        key = key.toLowerCase(Locale.ROOT);
+        remove(key);
+        Entry entry = new Entry(key, chainId, name, symbol, auxData);
+        entries.put(key, entry);
+        for (String gram : entry.grams)
+        {
+            Set<String> keys = postings.get(gram);
+            if (keys == null)
+            {
+                keys = new HashSet<>();
+                postings.put(gram, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    public synchronized void remove(String key)
+    {
+        Entry entry = entries.remove(key.toLowerCase(Locale.ROOT));
+        if (entry == null) return;
+        for (String gram : entry.grams)
+        {
+            Set<String> keys = postings.get(gram);
+            if (keys != null && keys.remove(entry.key) && keys.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @param networkFilters chains to include, or empty for all chains
+     * @return database keys of the matching tokens, best match first
+     */
+    public synchronized List<String> search(String term, List<Long> networkFilters)
+    {
+        String search = normalise(term);
+        List<Match> matches = new ArrayList<>();
+        if (search.isEmpty()) return Collections.emptyList();
+
+        if (search.length() < GRAM)
+        {
+            for (Entry entry : entries.values())
+            {
+                addIfMatches(matches, entry, search, networkFilters);
+            }
+        }
+        else
+        {
+            Set<String> termGrams = new HashSet<>();
+            addGrams(termGrams, search);
+            Map<String, Integer> candidates = new HashMap<>(); //key -> number of the term's grams it contains
+            for (String gram : termGrams)
+            {
+                Set<String> keys = postings.get(gram);
+                if (keys == null) continue;
+                for (String key : keys)
+                {
+                    Integer count = candidates.get(key);
+                    candidates.put(key, count == null ? 1 : count + 1);
+                }
+            }
+
+            for (Map.Entry<String, Integer> candidate : candidates.entrySet())
+            {
+                if (candidate.getValue() == termGrams.size())
+                {
+                    addIfMatches(matches, entries.get(candidate.getKey()), search, networkFilters);
+                }
+            }
+
+            if (matches.isEmpty())
+            {
+                //no exact match; fall back to tokens which share most of the term's trigrams
+                for (Map.Entry<String, Integer> candidate : candidates.entrySet())
+                {
+                    double similarity = (double) candidate.getValue() / termGrams.size();
+                    Entry entry = entries.get(candidate.getKey());
+                    if (similarity >= FUZZY_THRESHOLD && inNetworks(entry, networkFilters))
+                    {
+                        matches.add(new Match(entry, 10 - similarity));
+                    }
+                }
+            }
+        }
+
+        Collections.sort(matches);
+        List<String> keys = new ArrayList<>(matches.size());
+        for (Match match : matches) keys.add(match.entry.key);
+        return keys;
+    }
+
+    private static void addIfMatches(List<Match> matches, Entry entry, String search, List<Long> networkFilters)
+    {
+        if (!inNetworks(entry, networkFilters)) return;
+        int rank = rank(entry, search);
+        if (rank >= 0) matches.add(new Match(entry, rank));
+    }
+
+    /**
+     * @return rank of the match, lower is better, or -1 if the token doesn't contain the term
+     */
+    private static int rank(Entry entry, String search)
+    {
+        if (entry.symbol.equals(search)) return 0;
+        else if (entry.symbol.startsWith(search)) return 1;
+        else if (entry.name.startsWith(search)) return 2;
+        else if (entry.name.contains(" " + search)) return 3; //start of a word in the name
+        else if (entry.symbol.contains(search) || entry.name.contains(search)) return 4;
+        else if (entry.aux.contains(search) || entry.key.contains(search)) return 5;
+        else return -1;
+    }
+
+    private static boolean inNetworks(Entry entry, List<Long> networkFilters)
+    {
+        return networkFilters == null || networkFilters.isEmpty() || networkFilters.contains(entry.chainId);
+    }
+
+    private static void addGrams(Set<String> grams, String text)
+    {
+        for (int i = 0; i + GRAM <= text.length(); i++)
+        {
+            grams.add(text.substring(i, i + GRAM));
+        }
+    }
+
+    private static String normalise(String text)
+    {
+        return text != null ? text.trim().toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -3,22 +3,14 @@ package com.alphawallet.app.repository;
 import android.content.Context;
 
 import com.alphawallet.app.entity.ContractType;
-import com.alphawallet.app.entity.TokensMapping;
 import com.alphawallet.app.entity.tokendata.TokenGroup;
-import com.alphawallet.app.util.Utils;
 import com.alphawallet.token.entity.ContractAddress;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
-import java.util.HashMap;
-import java.util.Map;
 
 public class TokensMappingRepository implements TokensMappingRepositoryType
 {
-    private static final String TOKENS_JSON_FILENAME = "tokens.json";
+    private static final String TOKENS_MAPPING_FILENAME = "tokens.bin"; //compiled from src/main/tokenmapping/tokens.json
     private final Context context;
-    private Map<String, TokenGroup> tokenMap;
-    private Map<String, ContractAddress> contractMappings;
+    private TokenMappingTable mappingTable;
 
     public TokensMappingRepository(Context context)
     {
@@ -29,49 +21,20 @@ public class TokensMappingRepository implements TokensMappingRepositoryType
 
     private void init()
     {
-        if (tokenMap == null || contractMappings == null)
-        {
-            createMap(Utils.loadJSONFromAsset(context, TOKENS_JSON_FILENAME));
-        }
-    }
-
-    private void createMap(String mapping)
-    {
-        tokenMap = new HashMap<>();
-        contractMappings = new HashMap<>();
-        TokensMapping[] tokensMapping = new Gson().fromJson(mapping, new TypeToken<TokensMapping[]>()
-        {
-        }.getType());
-
-        if (tokensMapping != null)
+        if (mappingTable == null)
         {
-            for (TokensMapping entry : tokensMapping)
-            {
-                ContractAddress baseAddress = null;
-                for (ContractAddress address : entry.getContracts())
-                {
-                    tokenMap.putIfAbsent(address.getAddressKey(), entry.getGroup());
-                    if (baseAddress == null)
-                    {
-                        baseAddress = address;
-                    }
-                    else
-                    {
-                        contractMappings.putIfAbsent(address.getAddressKey(), baseAddress); // make a note of contracts that mirror base addresses - this should be used in the
-                    }
-                }
-            }
+            mappingTable = TokenMappingTable.load(context, TOKENS_MAPPING_FILENAME);
         }
     }
 
     @Override
     public TokenGroup getTokenGroup(long chainId, String address, ContractType type)
     {
-        if (tokenMap == null) init();
+        if (mappingTable == null) init();
 
         TokenGroup result = TokenGroup.ASSET;
 
-        TokenGroup g = tokenMap.get(ContractAddress.toAddressKey(chainId, address));
+        TokenGroup g = mappingTable.getGroup(chainId, address);
         if (g != null)
         {
             result = g;
@@ -115,6 +78,7 @@ public class TokensMappingRepository implements TokensMappingRepositoryType
     @Override
     public ContractAddress getBaseToken(long chainId, String address)
     {
-        return contractMappings.getOrDefault(ContractAddress.toAddressKey(chainId, address), new ContractAddress(chainId, address));
+        ContractAddress base = mappingTable.getBase(chainId, address);
+        return base != null ? base : new ContractAddress(chainId, address);
     }
 }
@@ -28,6 +28,7 @@ import com.alphawallet.app.repository.entity.RealmNFTAsset;
 import com.alphawallet.app.repository.entity.RealmToken;
 import com.alphawallet.app.repository.entity.RealmTokenTicker;
 import com.alphawallet.app.service.AssetDefinitionService;
+import com.alphawallet.app.service.PortfolioAggregator;
 import com.alphawallet.app.service.RealmManager;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.token.entity.ContractAddress;
@@ -36,16 +37,20 @@ import com.google.gson.JsonSyntaxException;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import io.realm.Case;
 import io.realm.Realm;
+import io.realm.RealmQuery;
 import io.realm.RealmResults;
 import io.realm.Sort;
 import io.realm.exceptions.RealmException;
@@ -64,6 +69,8 @@ public class TokensRealmSource implements TokenLocalSource
     private final RealmManager realmManager;
     private final EthereumNetworkRepositoryType ethereumNetworkRepository;
     private final TokensMappingRepositoryType tokensMappingRepository;
+    private final Subject<Map<String, TokenTicker>> tickerUpdates = PublishSubject.<Map<String, TokenTicker>>create().toSerialized();
+    private final Map<String, TokenSearchIndex> searchIndexes = new ConcurrentHashMap<>(); //wallet address -> token search index
 
     public TokensRealmSource(RealmManager realmManager, EthereumNetworkRepositoryType ethereumNetworkRepository, TokensMappingRepositoryType tokensMappingRepository)
     {
@@ -200,6 +207,9 @@ public class TokensRealmSource implements TokenLocalSource
                     {
                         realmToken.deleteFromRealm();
                     }
+
+                    TokenSearchIndex index = searchIndexes.get(wallet.address.toLowerCase());
+                    if (index != null) index.remove(dbKey);
                 }
             });
         }
@@ -449,19 +459,12 @@ public class TokensRealmSource implements TokenLocalSource
     @Override
     public void updateNFTAssets(String wallet, Token token, List<BigInteger> additions, List<BigInteger> removals)
     {
-        try (Realm realm = realmManager.getRealmInstance(wallet))
-        {
-            realm.executeTransaction(r -> {
-                RealmToken realmToken = createTokenIfRequired(r, token);
-                deleteAssets(r, token, removals);
-                populateNFTAssets(r, realmToken, token, additions);
-                setTokenUpdateTime(realmToken, token);
-            });
-        }
-        catch (Exception e)
-        {
-            Timber.e(e);
-        }
+        getWriteQueue(wallet).append(databaseKey(token), r -> {
+            RealmToken realmToken = createTokenIfRequired(r, token);
+            deleteAssets(r, token, removals);
+            populateNFTAssets(r, realmToken, token, additions);
+            setTokenUpdateTime(realmToken, token);
+        });
     }
 
     private RealmToken createTokenIfRequired(Realm realm, Token token)
@@ -581,69 +584,22 @@ public class TokensRealmSource implements TokenLocalSource
             token.setTokenWallet(wallet.address);
         }
 
+        RealmWriteQueue writeQueue = getWriteQueue(wallet.address);
+        writeQueue.flushIfPending(key); //the decision below must see any write still queued for this token
+
         try (Realm realm = realmManager.getRealmInstance(wallet))
         {
             RealmToken realmToken = realm.where(RealmToken.class).equalTo("address", key).findFirst();
 
             if (realmToken != null)
             {
-                final String currentBalance = realmToken.getBalance();
                 final String newBalance = (balanceArray == null || balanceArray.size() == 0) ? balance.toString() : Utils.bigIntListToString(balanceArray, true);
 
-                //does the token need updating?
-                if (token.checkInfoRequiresUpdate(realmToken))
-                {
-                    realm.executeTransaction(r -> {
-                        realmToken.setName(token.tokenInfo.name);
-                        realmToken.setSymbol(token.tokenInfo.symbol);
-                        realmToken.setDecimals(token.tokenInfo.decimals);
-                        realmToken.setInterfaceSpec(token.getInterfaceSpec().ordinal());
-                    });
-                }
-
-                validateTokenName(realm, realmToken, token, balance);
-
-                if ((token.isERC721()) && balance.equals(BigDecimal.ZERO) && !currentBalance.equals("0"))
-                {
-                    //only used for determining if balance is now zero
-                    realm.executeTransaction(r -> {
-                        realmToken.setBalance(newBalance);
-                        deleteAllAssets(r, key);
-                    });
-                    Timber.tag(TAG).d("Zero out ERC721 balance: %s :%s", realmToken.getName(), token.getAddress());
-                    balanceChanged = true;
-                }
-                else if (!TextUtils.isEmpty(newBalance) && (!newBalance.equals(currentBalance) || !checkEthToken(realm, token)))
-                {
-                    realm.executeTransaction(r -> {
-                        realmToken.setBalance(newBalance);
-                        if (token.isEthereum())
-                        {
-                            updateEthToken(r, token, newBalance);
-                        }
-                        if (currentBalance.equals("0") && !realmToken.isVisibilityChanged())
-                        {
-                            realmToken.setEnabled(true);
-                            realmToken.setUpdateTime(System.currentTimeMillis());
-                        }
-                    });
-                    Timber.tag(TAG).d("Update Token Balance: %s :%s", realmToken.getName(), token.getAddress());
-                    balanceChanged = true;
-                }
-
-                if (!realmToken.isVisibilityChanged() && realmToken.isEnabled() && newBalance != null && newBalance.equals("0") && !(token.isEthereum() && CustomViewSettings.alwaysShow(token.tokenInfo.chainId)))
-                {
-                    realm.executeTransaction(r -> {
-                        realmToken.setEnabled(false);
-                        realmToken.setBalance("0");
-                    });
-                }
-                else if (token.group != TokenGroup.SPAM && (!realmToken.isVisibilityChanged() && !realmToken.isEnabled()) && (token.balance.compareTo(BigDecimal.ZERO) > 0 || (token.isEthereum() && CustomViewSettings.alwaysShow(token.tokenInfo.chainId) && !realmToken.isEnabled()))) // enable if base token should be showing
+                balanceChanged = isZeroingNFTBalance(realmToken, token, balance) || isBalanceUpdate(realm, realmToken, token, newBalance);
+                if (balanceChanged || token.checkInfoRequiresUpdate(realmToken) || requiresName(token, balance)
+                        || requiresDisable(realmToken, token, newBalance) || requiresEnable(realmToken, token))
                 {
-                    realm.executeTransaction(r -> {
-                        realmToken.setEnabled(true);
-                        realmToken.setUpdateTime(System.currentTimeMillis());
-                    });
+                    writeQueue.append(key, r -> writeTokenBalance(r, key, token, balance, newBalance));
                 }
             }
             else
@@ -666,14 +622,86 @@ public class TokensRealmSource implements TokenLocalSource
         return balanceChanged;
     }
 
-    private void validateTokenName(Realm realm, RealmToken realmToken, Token token, BigDecimal balance)
+    private void writeTokenBalance(Realm r, String key, Token token, BigDecimal balance, String newBalance)
     {
-        if (TextUtils.isEmpty(token.tokenInfo.name) && TextUtils.isEmpty(token.tokenInfo.symbol) && balance.compareTo(BigDecimal.ZERO) > 0)
+        RealmToken realmToken = r.where(RealmToken.class).equalTo("address", key).findFirst();
+        if (realmToken == null) return;
+        final String currentBalance = realmToken.getBalance();
+
+        //does the token need updating?
+        if (token.checkInfoRequiresUpdate(realmToken))
         {
-            realm.executeTransaction(r -> {
-                realmToken.setName(Utils.formatAddress(token.tokenInfo.address));
-            });
+            realmToken.setName(token.tokenInfo.name);
+            realmToken.setSymbol(token.tokenInfo.symbol);
+            realmToken.setDecimals(token.tokenInfo.decimals);
+            realmToken.setInterfaceSpec(token.getInterfaceSpec().ordinal());
         }
+
+        if (requiresName(token, balance))
+        {
+            realmToken.setName(Utils.formatAddress(token.tokenInfo.address));
+        }
+
+        if (isZeroingNFTBalance(realmToken, token, balance))
+        {
+            //only used for determining if balance is now zero
+            realmToken.setBalance(newBalance);
+            deleteAllAssets(r, key);
+            Timber.tag(TAG).d("Zero out ERC721 balance: %s :%s", realmToken.getName(), token.getAddress());
+        }
+        else if (isBalanceUpdate(r, realmToken, token, newBalance))
+        {
+            realmToken.setBalance(newBalance);
+            if (token.isEthereum())
+            {
+                updateEthToken(r, token, newBalance);
+            }
+            if (currentBalance.equals("0") && !realmToken.isVisibilityChanged())
+            {
+                realmToken.setEnabled(true);
+                realmToken.setUpdateTime(System.currentTimeMillis());
+            }
+            Timber.tag(TAG).d("Update Token Balance: %s :%s", realmToken.getName(), token.getAddress());
+        }
+
+        if (requiresDisable(realmToken, token, newBalance))
+        {
+            realmToken.setEnabled(false);
+            realmToken.setBalance("0");
+        }
+        else if (requiresEnable(realmToken, token))
+        {
+            realmToken.setEnabled(true);
+            realmToken.setUpdateTime(System.currentTimeMillis());
+        }
+    }
+
+    private boolean requiresName(Token token, BigDecimal balance)
+    {
+        return TextUtils.isEmpty(token.tokenInfo.name) && TextUtils.isEmpty(token.tokenInfo.symbol) && balance.compareTo(BigDecimal.ZERO) > 0;
+    }
+
+    private boolean isZeroingNFTBalance(RealmToken realmToken, Token token, BigDecimal balance)
+    {
+        return token.isERC721() && balance.equals(BigDecimal.ZERO) && !realmToken.getBalance().equals("0");
+    }
+
+    private boolean isBalanceUpdate(Realm realm, RealmToken realmToken, Token token, String newBalance)
+    {
+        return !TextUtils.isEmpty(newBalance) && (!newBalance.equals(realmToken.getBalance()) || !checkEthToken(realm, token));
+    }
+
+    private boolean requiresDisable(RealmToken realmToken, Token token, String newBalance)
+    {
+        return !realmToken.isVisibilityChanged() && realmToken.isEnabled() && newBalance != null && newBalance.equals("0")
+                && !(token.isEthereum() && CustomViewSettings.alwaysShow(token.tokenInfo.chainId));
+    }
+
+    private boolean requiresEnable(RealmToken realmToken, Token token)
+    {
+        // enable if base token should be showing
+        return token.group != TokenGroup.SPAM && (!realmToken.isVisibilityChanged() && !realmToken.isEnabled())
+                && (token.balance.compareTo(BigDecimal.ZERO) > 0 || (token.isEthereum() && CustomViewSettings.alwaysShow(token.tokenInfo.chainId)));
     }
 
     private boolean checkEthToken(Realm realm, Token token)
@@ -721,25 +749,23 @@ public class TokensRealmSource implements TokenLocalSource
     @Override
     public void storeTokenUrl(List<ImageEntry> entries)
     {
-        try (Realm realm = realmManager.getRealmInstance(IMAGES_DB))
+        RealmWriteQueue writeQueue = getWriteQueue(IMAGES_DB);
+        for (ImageEntry thisEntry : entries)
         {
-            realm.executeTransaction(r -> {
-                for (ImageEntry thisEntry : entries)
-                {
-                    final String instanceKey = thisEntry.address.toLowerCase() + "-" + thisEntry.chainId;
-                    RealmAuxData instance = r.where(RealmAuxData.class).equalTo("instanceKey", instanceKey).findFirst();
+            final String instanceKey = thisEntry.address.toLowerCase() + "-" + thisEntry.chainId;
+            writeQueue.enqueue(instanceKey, r -> {
+                RealmAuxData instance = r.where(RealmAuxData.class).equalTo("instanceKey", instanceKey).findFirst();
 
-                    if (instance == null || !instance.getResult().equals(thisEntry.imageUrl))
+                if (instance == null || !instance.getResult().equals(thisEntry.imageUrl))
+                {
+                    if (instance == null)
                     {
-                        if (instance == null)
-                        {
-                            instance = r.createObject(RealmAuxData.class, instanceKey);
-                        }
-
-                        instance.setResult(thisEntry.imageUrl);
-                        instance.setResultTime(System.currentTimeMillis());
-                        r.insertOrUpdate(instance);
+                        instance = r.createObject(RealmAuxData.class, instanceKey);
                     }
+
+                    instance.setResult(thisEntry.imageUrl);
+                    instance.setResultTime(System.currentTimeMillis());
+                    r.insertOrUpdate(instance);
                 }
             });
         }
@@ -809,6 +835,7 @@ public class TokensRealmSource implements TokenLocalSource
             realmToken.setEnabled(false);
         }
 
+        updateSearchIndex(token.getWallet(), realmToken);
         return realmToken;
     }
 
@@ -953,7 +980,9 @@ public class TokensRealmSource implements TokenLocalSource
         List<Long> rootChainTokenCards = new ArrayList<>(networkFilters);
         try (Realm realm = realmManager.getRealmInstance(wallet))
         {
-            RealmResults<RealmToken> realmItems = realm.where(RealmToken.class).sort("addedTime", Sort.ASCENDING).beginGroup().equalTo("isEnabled", true).or().equalTo("visibilityChanged", false).or().like("address", wallet.address + "*", Case.INSENSITIVE).endGroup().findAll();
+            RealmQuery<RealmToken> query = realm.where(RealmToken.class).sort("addedTime", Sort.ASCENDING);
+            if (networkFilters.size() > 0) query = query.in("chainId", networkFilters.toArray(new Long[0])); //indexed
+            RealmResults<RealmToken> realmItems = query.beginGroup().equalTo("isEnabled", true).or().equalTo("visibilityChanged", false).or().like("address", wallet.address + "*", Case.INSENSITIVE).endGroup().findAll();
 
             for (RealmToken t : realmItems)
             {
@@ -1103,35 +1132,69 @@ public class TokensRealmSource implements TokenLocalSource
     public Single<Pair<Double, Double>> getTotalValue(String currentAddress, List<Long> networkFilters)
     {
         final Wallet wallet = new Wallet(currentAddress);
-        return calculateWalletValue(fetchTokenMetasForUpdate(wallet, networkFilters), wallet);
+        return Single.fromCallable(() -> {
+            getWriteQueue(wallet.address).flush(); //include balances still waiting to be written
+            return new PortfolioAggregator().reset(wallet.address, buildFiatHoldings(fetchTokenMetasForUpdate(wallet, networkFilters), wallet));
+        });
     }
 
-    private Single<Pair<Double, Double>> calculateWalletValue(TokenCardMeta[] metas, Wallet wallet)
+    @Override
+    public Single<List<PortfolioAggregator.Holding>> fetchFiatHoldings(String currentAddress, List<Long> networkFilters)
     {
-        return Single.fromCallable(() -> {
-            //fetch all token tickers
-            Map<Long, Map<String, TokenTicker>> tickerMap = fetchAllTokenTickers();
-            BigDecimal historicalBalance = BigDecimal.ZERO;
-            BigDecimal newBalance = BigDecimal.ZERO;
-            BigDecimal hundred = BigDecimal.valueOf(100);
+        final Wallet wallet = new Wallet(currentAddress);
+        return Single.fromCallable(() -> buildFiatHoldings(fetchTokenMetasForUpdate(wallet, networkFilters), wallet));
+    }
+
+    /**
+     * Corrected balance and current ticker of each token which contributes to the wallet value.
+     * Balances are corrected using the stored decimals rather than building a full Token for each entry.
+     */
+    private List<PortfolioAggregator.Holding> buildFiatHoldings(TokenCardMeta[] metas, Wallet wallet)
+    {
+        Map<Long, Map<String, TokenTicker>> tickerMap = fetchAllTokenTickers();
+        List<PortfolioAggregator.Holding> holdings = new ArrayList<>();
+        try (Realm realm = realmManager.getRealmInstance(wallet))
+        {
             for (TokenCardMeta meta : metas)
             {
+                //Currently we don't add NFT value. TODO: potentially get value from OpenSea
+                if (!meta.hasPositiveBalance() || meta.isNFT() || meta.group == TokenGroup.SPAM) continue;
+
                 long chainId = meta.getChain();
                 String address = meta.isEthereum() ? "eth" : meta.getAddress();
                 Map<String, TokenTicker> localTickers = tickerMap.get(chainId);
                 TokenTicker ticker = localTickers != null ? localTickers.get(address) : null;
-                if (ticker != null && meta.hasPositiveBalance() && !meta.isNFT() && meta.group != TokenGroup.SPAM) //Currently we don't add NFT value. TODO: potentially get value from OpenSea
+
+                RealmToken realmToken = realm.where(RealmToken.class)
+                        .equalTo("address", databaseKey(chainId, meta.getAddress()))
+                        .findFirst();
+                int decimals = realmToken != null ? realmToken.getDecimals() : 18;
+
+                BigDecimal balance;
+                try
                 {
-                    Token t = fetchToken(chainId, wallet, meta.getAddress());
-                    BigDecimal correctedBalance = t.getCorrectedBalance(18);
-                    BigDecimal fiatValue = correctedBalance.multiply(new BigDecimal(ticker.price)).setScale(18, RoundingMode.DOWN);
-                    historicalBalance = historicalBalance.add(fiatValue.add(fiatValue.multiply((new BigDecimal(ticker.percentChange24h).divide(hundred)).negate())));
-                    newBalance = newBalance.add(fiatValue);
+                    balance = new BigDecimal(meta.balance);
+                }
+                catch (NumberFormatException e)
+                {
+                    continue;
                 }
+
+                holdings.add(new PortfolioAggregator.Holding(databaseKey(chainId, address.toLowerCase()),
+                        correctBalance(balance, decimals), ticker));
             }
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+        }
 
-            return new Pair<>(newBalance.doubleValue(), historicalBalance.doubleValue());
-        });
+        return holdings;
+    }
+
+    public static BigDecimal correctBalance(BigDecimal balance, int decimals)
+    {
+        return decimals > 0 ? balance.movePointLeft(decimals) : balance;
     }
 
     private Map<Long, Map<String, TokenTicker>> fetchAllTokenTickers()
@@ -1224,17 +1287,34 @@ public class TokensRealmSource implements TokenLocalSource
         return Single.fromCallable(() -> {
             try (Realm realm = realmManager.getRealmInstance(wallet))
             {
+                if (!TextUtils.isEmpty(searchTerm))
+                {
+                    //search the in-memory index, then read just the matching tokens by primary key, keeping the ranking
+                    List<String> keys = getSearchIndex(realm, wallet).search(searchTerm, networkFilters);
+                    if (keys.isEmpty()) return new TokenCardMeta[0];
+
+                    Map<String, RealmToken> matches = new HashMap<>();
+                    for (RealmToken t : realm.where(RealmToken.class).in("address", keys.toArray(new String[0])).findAll())
+                    {
+                        matches.put(databaseKey(t.getChainId(), t.getTokenAddress()), t);
+                    }
+
+                    for (String key : keys)
+                    {
+                        RealmToken t = matches.get(key);
+                        if (t != null) tokenMetas.add(createSearchMeta(t));
+                    }
+
+                    return tokenMetas.toArray(new TokenCardMeta[0]);
+                }
+
                 RealmResults<RealmToken> realmItems = realm.where(RealmToken.class).beginGroup().like("auxData", "*" + searchTerm + "*", Case.INSENSITIVE).or().like("symbol", "*" + searchTerm + "*", Case.INSENSITIVE).or().like("name", "*" + searchTerm + "*", Case.INSENSITIVE).or().like("address", "*" + searchTerm + "*", Case.INSENSITIVE).endGroup().like("address", ADDRESS_FORMAT).findAll();
 
                 for (RealmToken t : realmItems)
                 {
                     if (networkFilters.size() > 0 && !networkFilters.contains(t.getChainId()))
                         continue;
-                    String balance = convertStringBalance(t.getBalance(), t.getContractType());
-                    TokenCardMeta meta = new TokenCardMeta(t.getChainId(), t.getTokenAddress(), balance, t.getUpdateTime(), null, t.getAuxData(), t.getSymbol(), t.getContractType(), getTokenGroup(t.getChainId(), t.getTokenAddress(), t.getContractType()));
-                    meta.lastTxUpdate = t.getLastTxTime();
-                    meta.isEnabled = t.isEnabled();
-                    tokenMetas.add(meta);
+                    tokenMetas.add(createSearchMeta(t));
                 }
             }
 
@@ -1242,6 +1322,45 @@ public class TokensRealmSource implements TokenLocalSource
         });
     }
 
+    private TokenCardMeta createSearchMeta(RealmToken t)
+    {
+        String balance = convertStringBalance(t.getBalance(), t.getContractType());
+        TokenCardMeta meta = new TokenCardMeta(t.getChainId(), t.getTokenAddress(), balance, t.getUpdateTime(), null, t.getAuxData(), t.getSymbol(), t.getContractType(), getTokenGroup(t.getChainId(), t.getTokenAddress(), t.getContractType()));
+        meta.lastTxUpdate = t.getLastTxTime();
+        meta.isEnabled = t.isEnabled();
+        return meta;
+    }
+
+    /**
+     * Search index for the wallet's tokens; built from the database on first use, then kept up to date as tokens are saved
+     */
+    private TokenSearchIndex getSearchIndex(Realm realm, Wallet wallet)
+    {
+        String walletKey = wallet.address.toLowerCase();
+        TokenSearchIndex index = searchIndexes.get(walletKey);
+        if (index == null)
+        {
+            index = new TokenSearchIndex();
+            searchIndexes.put(walletKey, index); //register first so tokens saved during the build are picked up
+            for (RealmToken t : realm.where(RealmToken.class).like("address", ADDRESS_FORMAT).findAll())
+            {
+                index.put(databaseKey(t.getChainId(), t.getTokenAddress()), t.getChainId(), t.getName(), t.getSymbol(), t.getAuxData());
+            }
+        }
+
+        return index;
+    }
+
+    private void updateSearchIndex(String walletAddress, RealmToken realmToken)
+    {
+        TokenSearchIndex index = walletAddress != null ? searchIndexes.get(walletAddress.toLowerCase()) : null;
+        if (index != null)
+        {
+            index.put(databaseKey(realmToken.getChainId(), realmToken.getTokenAddress()), realmToken.getChainId(),
+                    realmToken.getName(), realmToken.getSymbol(), realmToken.getAuxData());
+        }
+    }
+
     @Override
     public Single<Token[]> fetchAllTokensWithNameIssue(String walletAddress, List<Long> networkFilters) {
         List<Token> tokens = new ArrayList<>();
@@ -1296,25 +1415,36 @@ public class TokensRealmSource implements TokenLocalSource
     public void updateEthTickers(Map<Long, TokenTicker> ethTickers)
     {
         List<ContractAddress> tickerUpdates = new ArrayList<>();
-        try (Realm realm = realmManager.getRealmInstance(TICKER_DB))
+        Map<String, TokenTicker> written = new HashMap<>();
+        for (long chainId : ethTickers.keySet())
         {
-            realm.executeTransaction(r -> {
-                for (long chainId : ethTickers.keySet())
-                {
-                    if (writeTickerToRealm(r, ethTickers.get(chainId), chainId, "eth"))
-                    {
-                        tickerUpdates.add(new ContractAddress(chainId, "eth"));
-                    }
-                }
-            });
-        }
-        catch (Exception e)
-        {
-            Timber.w(e);
+            if (queueTicker(ethTickers.get(chainId), chainId, "eth"))
+            {
+                tickerUpdates.add(new ContractAddress(chainId, "eth"));
+                written.put(databaseKey(chainId, "eth"), ethTickers.get(chainId));
+            }
         }
 
-        //This will trigger an update of the holder
-        updateWalletTokens(tickerUpdates);
+        publishAfterCommit(tickerUpdates, written);
+    }
+
+    @Override
+    public Observable<Map<String, TokenTicker>> tickerUpdates()
+    {
+        return tickerUpdates;
+    }
+
+    /**
+     * Once the queued tickers are committed, touch the holding tokens (which triggers an update of the holder) and
+     * tell subscribers; both run on the write queue's thread so readers always see the new prices.
+     */
+    private void publishAfterCommit(List<ContractAddress> updatedTokens, Map<String, TokenTicker> written)
+    {
+        if (written.isEmpty()) return;
+        getWriteQueue(TICKER_DB).afterCommit(() -> {
+            updateWalletTokens(updatedTokens);
+            tickerUpdates.onNext(written);
+        });
     }
 
     private void updateWalletTokens(final List<ContractAddress> tickerUpdates)
@@ -1322,27 +1452,22 @@ public class TokensRealmSource implements TokenLocalSource
         final String currentWallet = ethereumNetworkRepository.getCurrentWalletAddress();
         if (TextUtils.isEmpty(currentWallet)) return;
 
-        try (Realm realm = realmManager.getRealmInstance(currentWallet))
+        RealmWriteQueue writeQueue = getWriteQueue(currentWallet);
+        for (ContractAddress contract : tickerUpdates)
         {
-            realm.executeTransaction(r -> {
-                for (ContractAddress contract : tickerUpdates)
-                {
-                    String contractAddress = contract.address.equals("eth") ? currentWallet : contract.address;
-                    RealmToken realmToken = r.where(RealmToken.class)
-                            .equalTo("address", databaseKey(contract.chainId, contractAddress))
-                            .findFirst();
+            String contractAddress = contract.address.equals("eth") ? currentWallet : contract.address;
+            String key = databaseKey(contract.chainId, contractAddress);
+            writeQueue.append(key, r -> {
+                RealmToken realmToken = r.where(RealmToken.class)
+                        .equalTo("address", key)
+                        .findFirst();
 
-                    if (realmToken != null && realmToken.isEnabled())
-                    {
-                        realmToken.setUpdateTime(System.currentTimeMillis());
-                    }
+                if (realmToken != null && realmToken.isEnabled())
+                {
+                    realmToken.setUpdateTime(System.currentTimeMillis());
                 }
             });
         }
-        catch (Exception e)
-        {
-            //
-        }
     }
 
     @Override
@@ -1354,39 +1479,23 @@ public class TokensRealmSource implements TokenLocalSource
         }
 
         List<ContractAddress> tickerUpdates = new ArrayList<>();
-        try (Realm realm = realmManager.getRealmInstance(TICKER_DB))
+        Map<String, TokenTicker> written = new HashMap<>();
+        for (String tokenAddress : erc20Tickers.keySet())
         {
-            realm.executeTransaction(r -> {
-                for (String tokenAddress : erc20Tickers.keySet())
-                {
-                    if (writeTickerToRealm(r, erc20Tickers.get(tokenAddress), chainId, tokenAddress))
-                    {
-                        tickerUpdates.add(new ContractAddress(chainId, tokenAddress));
-                    }
-                }
-            });
-        }
-        catch (Exception e)
-        {
-            //
+            if (queueTicker(erc20Tickers.get(tokenAddress), chainId, tokenAddress))
+            {
+                tickerUpdates.add(new ContractAddress(chainId, tokenAddress));
+                written.put(databaseKey(chainId, tokenAddress.toLowerCase()), erc20Tickers.get(tokenAddress));
+            }
         }
 
-        updateWalletTokens(tickerUpdates);
+        publishAfterCommit(tickerUpdates, written);
     }
 
     @Override
     public void updateTicker(long chainId, String address, TokenTicker ticker)
     {
-        try (Realm realm = realmManager.getRealmInstance(TICKER_DB))
-        {
-            realm.executeTransaction(r -> {
-                writeTickerToRealm(r, ticker, chainId, address);
-            });
-        }
-        catch (Exception e)
-        {
-            //
-        }
+        queueTicker(ticker, chainId, address);
     }
 
     @Override
@@ -1454,6 +1563,7 @@ public class TokensRealmSource implements TokenLocalSource
     @Override
     public void deleteTickers()
     {
+        getWriteQueue(TICKER_DB).flush(); //don't let queued tickers land after the delete
         try (Realm realm = realmManager.getRealmInstance(TICKER_DB))
         {
             realm.executeTransaction(r -> {
@@ -1511,9 +1621,18 @@ public class TokensRealmSource implements TokenLocalSource
         }
     }
 
-    private boolean writeTickerToRealm(Realm realm, final TokenTicker ticker, long chainId, String tokenAddress)
+    /**
+     * Queue the ticker write; a newer ticker for the same token replaces one still waiting to be written
+     */
+    private boolean queueTicker(final TokenTicker ticker, long chainId, String tokenAddress)
     {
         if (ticker == null) return false;
+        getWriteQueue(TICKER_DB).enqueue(databaseKey(chainId, tokenAddress.toLowerCase()), r -> writeTickerToRealm(r, ticker, chainId, tokenAddress));
+        return true;
+    }
+
+    private void writeTickerToRealm(Realm realm, final TokenTicker ticker, long chainId, String tokenAddress)
+    {
         String databaseKey = databaseKey(chainId, tokenAddress.toLowerCase());
         RealmTokenTicker realmItem = realm.where(RealmTokenTicker.class)
                 .equalTo("contract", databaseKey)
@@ -1533,7 +1652,11 @@ public class TokensRealmSource implements TokenLocalSource
         realmItem.setUpdatedTime(ticker.updateTime);
         realmItem.setCurrencySymbol(ticker.priceSymbol);
         realm.insertOrUpdate(realmItem);
-        return true;
+    }
+
+    private RealmWriteQueue getWriteQueue(String realmName)
+    {
+        return RealmWriteQueue.forRealm(realmManager, realmName);
     }
 
     private Token convertSingle(RealmToken realmItem, Realm realm, TokenFactory tf, Wallet wallet)
@@ -1,6 +1,7 @@
 package com.alphawallet.app.repository;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.repository.entity.RealmAuxData;
@@ -18,6 +19,7 @@ public interface TransactionLocalSource {
 	Single<ActivityMeta[]> fetchActivityMetas(Wallet wallet, List<Long> networkFilters, long fetchTime, int fetchLimit);
 	Single<ActivityMeta[]> fetchActivityMetas(Wallet wallet, long chainId, String tokenAddress, int historyCount);
 	Single<ActivityMeta[]> fetchEventMetas(Wallet wallet, List<Long> networkFilters);
+	Single<ActivityPage> fetchActivityPage(Wallet wallet, List<Long> networkFilters, ActivityPage.Cursor cursor, int pageSize);
 
 	void markTransactionBlock(String walletAddress, String hash, long blockValue);
 	Transaction[] fetchPendingTransactions(String currentAddress);
@@ -6,6 +6,7 @@ import android.text.TextUtils;
 import android.util.Pair;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.repository.entity.RealmAuxData;
@@ -213,6 +214,12 @@ public class TransactionRepository implements TransactionRepositoryType
         return inDiskCache.fetchEventMetas(wallet, networkFilters);
     }
 
+    @Override
+    public Single<ActivityPage> fetchActivityPage(Wallet wallet, List<Long> networkFilters, ActivityPage.Cursor cursor, int pageSize)
+    {
+        return inDiskCache.fetchActivityPage(wallet, networkFilters, cursor, pageSize);
+    }
+
     @Override
     public Realm getRealmInstance(Wallet wallet)
     {
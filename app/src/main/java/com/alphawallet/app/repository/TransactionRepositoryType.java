@@ -3,6 +3,7 @@ package com.alphawallet.app.repository;
 import android.util.Pair;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.repository.entity.RealmAuxData;
@@ -36,6 +37,8 @@ public interface TransactionRepositoryType
 
     Single<ActivityMeta[]> fetchEventMetas(Wallet wallet, List<Long> networkFilters);
 
+    Single<ActivityPage> fetchActivityPage(Wallet wallet, List<Long> networkFilters, ActivityPage.Cursor cursor, int pageSize);
+
     Realm getRealmInstance(Wallet wallet);
 
     RealmAuxData fetchCachedEvent(String walletAddress, String eventKey);
@@ -6,6 +6,7 @@ import static com.alphawallet.app.repository.TokensRealmSource.TICKER_DB;
 import android.util.LongSparseArray;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.EventMeta;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.TransactionMeta;
@@ -151,9 +152,10 @@ public class TransactionsRealmCache implements TransactionLocalSource {
             List<ActivityMeta> metas = new ArrayList<>();
             try (Realm instance = realmManager.getRealmInstance(wallet.address))
             {
-                RealmResults<RealmAuxData> evs = instance.where(RealmAuxData.class)
-                        .endsWith("instanceKey", EVENT_CARDS)
-                        .findAll();
+                RealmQuery<RealmAuxData> query = instance.where(RealmAuxData.class)
+                        .endsWith("instanceKey", EVENT_CARDS);
+                if (!networkFilters.isEmpty()) query = query.in("chainId", networkFilters.toArray(new Long[0]));
+                RealmResults<RealmAuxData> evs = query.findAll();
                 Timber.tag("TRC").d( "Found %s TX Results", evs.size());
                 for (RealmAuxData item : evs)
                 {
@@ -180,7 +182,7 @@ public class TransactionsRealmCache implements TransactionLocalSource {
             LongSparseArray<Integer> elementCount = new LongSparseArray<>();
             try (Realm instance = realmManager.getRealmInstance(wallet))
             {
-                final RealmResults<RealmTransaction> txs = generateRealmQuery(instance, fetchTime).findAll();
+                final RealmResults<RealmTransaction> txs = generateRealmQuery(instance, networkFilters, fetchTime).findAll();
                 Timber.tag("TRC").d( "Found %s TX Results", txs.size());
 
                 for (RealmTransaction item : txs)
@@ -203,19 +205,109 @@ public class TransactionsRealmCache implements TransactionLocalSource {
         });
     }
 
-    private RealmQuery<RealmTransaction> generateRealmQuery(Realm instance, long fetchTime)
+    @Override
+    public Single<ActivityPage> fetchActivityPage(Wallet wallet, List<Long> networkFilters, ActivityPage.Cursor cursor, int pageSize)
     {
-        if (fetchTime > 0)
+        return Single.fromCallable(() -> {
+            List<TransactionMeta> metas = new ArrayList<>(pageSize);
+            ActivityPage.Cursor next = null;
+            try (Realm instance = realmManager.getRealmInstance(wallet))
+            {
+                if (cursor != null)
+                {
+                    //finish the rows sharing the cursor's timestamp
+                    for (RealmTransaction item : readTimestampGroup(instance, networkFilters, cursor.timeStamp))
+                    {
+                        if (metas.size() == pageSize) break;
+                        if (cursor.isBefore(item.getTimeStamp(), item.getHash())) metas.add(toMeta(item));
+                    }
+
+                    if (metas.size() == pageSize)
+                    {
+                        return new ActivityPage(metas.toArray(new TransactionMeta[0]), new ActivityPage.Cursor(cursor.timeStamp, metas.get(pageSize - 1).hash));
+                    }
+                }
+
+                int required = pageSize - metas.size();
+                RealmQuery<RealmTransaction> query = chainQuery(instance, networkFilters);
+                if (cursor != null) query = query.lessThan("timeStamp", cursor.timeStamp);
+                RealmResults<RealmTransaction> txs = query.sort("timeStamp", Sort.DESCENDING).limit(required).findAll();
+
+                if (txs.size() < required)
+                {
+                    for (RealmTransaction item : txs) metas.add(toMeta(item));
+                }
+                else
+                {
+                    long[] timeStamps = new long[txs.size()];
+                    for (int i = 0; i < txs.size(); i++) timeStamps[i] = txs.get(i).getTimeStamp();
+                    int complete = ActivityPage.completeGroups(timeStamps);
+                    for (int i = 0; i < complete; i++) metas.add(toMeta(txs.get(i)));
+
+                    if (complete > 0 || !metas.isEmpty())
+                    {
+                        next = new ActivityPage.Cursor(timeStamps[complete], null);
+                    }
+                    else
+                    {
+                        //a single timestamp holds more rows than a page; page through it by hash
+                        for (RealmTransaction item : readTimestampGroup(instance, networkFilters, timeStamps[0]))
+                        {
+                            if (metas.size() == pageSize) break;
+                            metas.add(toMeta(item));
+                        }
+                        next = new ActivityPage.Cursor(timeStamps[0], metas.get(metas.size() - 1).hash);
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                Timber.w(e);
+            }
+
+            return new ActivityPage(metas.toArray(new TransactionMeta[0]), next);
+        });
+    }
+
+    /**
+     * @return all transactions at this timestamp, by descending hash
+     */
+    private List<RealmTransaction> readTimestampGroup(Realm instance, List<Long> networkFilters, long timeStamp)
+    {
+        List<RealmTransaction> group = new ArrayList<>(chainQuery(instance, networkFilters).equalTo("timeStamp", timeStamp).findAll());
+        group.sort((t1, t2) -> t2.getHash().compareTo(t1.getHash()));
+        return group;
+    }
+
+    private static TransactionMeta toMeta(RealmTransaction item)
+    {
+        return new TransactionMeta(item.getHash(), item.getTimeStamp(), item.getTo(), item.getChainId(), item.getBlockNumber());
+    }
+
+    private RealmQuery<RealmTransaction> chainQuery(Realm instance, List<Long> networkFilters)
+    {
+        RealmQuery<RealmTransaction> query = instance.where(RealmTransaction.class);
+
+        //filter on the indexed chainId in the query rather than reading every transaction and skipping in Java
+        if (!networkFilters.isEmpty())
         {
-            return instance.where(RealmTransaction.class)
-                    .sort("timeStamp", Sort.DESCENDING)
-                    .lessThan("timeStamp", fetchTime);
+            query = query.in("chainId", networkFilters.toArray(new Long[0]));
         }
-        else
+
+        return query;
+    }
+
+    private RealmQuery<RealmTransaction> generateRealmQuery(Realm instance, List<Long> networkFilters, long fetchTime)
+    {
+        RealmQuery<RealmTransaction> query = chainQuery(instance, networkFilters)
+                .sort("timeStamp", Sort.DESCENDING);
+
+        if (fetchTime > 0)
         {
-            return instance.where(RealmTransaction.class)
-                    .sort("timeStamp", Sort.DESCENDING);
+            query = query.lessThan("timeStamp", fetchTime);
         }
+
+        return query;
     }
 
     @Override
@@ -8,6 +8,7 @@ import com.alphawallet.app.entity.tokens.TokenInfo;
 import java.math.BigInteger;
 
 import io.realm.RealmObject;
+import io.realm.annotations.Index;
 import io.realm.annotations.PrimaryKey;
 
 public class RealmToken extends RealmObject
@@ -21,13 +22,16 @@ public class RealmToken extends RealmObject
     private long updatedTime;
     private long lastTxTime;
     private String balance;
+    @Index
     private boolean isEnabled;
     private int tokenId;
     private int interfaceSpec;
     private String auxData;
     private long lastBlockRead;
+    @Index
     private long chainId;
     private long earliestTxBlock;
+    @Index
     private boolean visibilityChanged;
     private String erc1155BlockRead;
 
@@ -1,12 +1,14 @@
 package com.alphawallet.app.repository.entity;
 
 import io.realm.RealmObject;
+import io.realm.annotations.Index;
 import io.realm.annotations.PrimaryKey;
 
 public class RealmTransaction extends RealmObject {
     @PrimaryKey
     private String hash;
     private String blockNumber;
+    @Index
     private long timeStamp;
     private int nonce;
     private String from;
@@ -19,6 +21,7 @@ public class RealmTransaction extends RealmObject {
     private String error;
     private String maxFeePerGas;
     private String maxPriorityFee;
+    @Index
     private long chainId;
     private long expectedCompletion;
     private String contractAddress; // this is so we can efficiently lookup transactions relating to contracts,
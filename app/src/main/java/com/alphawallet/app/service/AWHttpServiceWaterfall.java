@@ -1,5 +1,6 @@
 package com.alphawallet.app.service;
 
+import static com.alphawallet.app.service.JsonValidator.peekValidateAndGetStream;
 import static com.alphawallet.app.service.JsonValidator.validateAndGetStream;
 import static com.alphawallet.ethereum.EthereumNetworkBase.KLAYTN_BAOBAB_ID;
 import static com.alphawallet.ethereum.EthereumNetworkBase.KLAYTN_ID;
@@ -7,6 +8,9 @@ import static okhttp3.ConnectionSpec.CLEARTEXT;
 
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+
+import com.alphawallet.app.repository.EthereumNetworkBase;
 import com.google.gson.JsonParseException;
 
 import org.slf4j.Logger;
@@ -17,13 +21,21 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.CipherSuite;
 import okhttp3.ConnectionSpec;
 import okhttp3.Headers;
@@ -104,9 +116,14 @@ public class AWHttpServiceWaterfall extends HttpService
     private final String infuraKey;
     private final String klaytnKey;
     private final long chainId;
-    private final Random random = new Random();
+    private boolean streamResponses = true;
+    private RpcCoalescer coalescer;
+
+    private final Map<String, String> headers = new ConcurrentHashMap<>(); //shared by every request on this chain
 
-    private final HashMap<String, String> headers = new HashMap<>();
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final Pattern METHOD_PATTERN = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern READ_METHODS = Pattern.compile("^(eth_(call|get\\w+|blockNumber|chainId|gasPrice|estimateGas|feeHistory|maxPriorityFeePerGas)|net_version|web3_clientVersion)$");
 
     public AWHttpServiceWaterfall(String[] urls, long chainId, OkHttpClient httpClient, String infuraKey, String infuraSecret, String klaytnKey, boolean includeRawResponses)
     {
@@ -123,26 +140,56 @@ public class AWHttpServiceWaterfall extends HttpService
     @Override
     protected InputStream performIO(String request) throws IOException
     {
-        // Start at a random point within the URLs
-        int startIndex = random.nextInt(urls.length);
+        // Identical reads in flight are joined, and small reads close together are sent as one batch
+        return getCoalescer().execute(request);
+    }
 
-        // Round-robin try all URLs
-        for (int count = 0; count < urls.length; count++)
+    private synchronized RpcCoalescer getCoalescer()
+    {
+        if (coalescer == null)
         {
-            String url = urls[(startIndex + count) % urls.length];
+            coalescer = new RpcCoalescer(chainId, EthereumNetworkBase.getBatchProcessingLimit(chainId), new RpcCoalescer.Transport()
+            {
+                @Override
+                public InputStream send(String payload) throws IOException
+                {
+                    return performNodeIO(payload);
+                }
+
+                @Override
+                public String endpoint()
+                {
+                    return RpcEndpointRouter.orderEndpoints(chainId, urls).get(0); //the node tried first
+                }
+            });
+        }
+
+        return coalescer;
+    }
+
+    private InputStream performNodeIO(String request) throws IOException
+    {
+        // Try the healthiest node first, falling back through the rest
+        List<String> orderedUrls = RpcEndpointRouter.orderEndpoints(chainId, urls);
+        boolean canHedge = orderedUrls.size() > 1 && isReadRequest(request);
+
+        for (int count = 0; count < orderedUrls.size(); count++)
+        {
+            String url = orderedUrls.get(count);
+            long hedgeDelay = (count == 0 && canHedge) ? RpcEndpointRouter.getHedgeDelay(chainId, url) : 0;
 
             try
             {
-                okhttp3.Response response = performSingleIO(url, request);
-
-                // Check if the response is valid (2xx status code)
-                if (response.isSuccessful())
+                if (hedgeDelay > 0)
                 {
-                    return processResponse(response);
+                    count++; //the hedged call covers the next node as well
+                    InputStream result = performHedgedIO(url, orderedUrls.get(count), request, hedgeDelay);
+                    if (result != null) return result;
                 }
                 else
                 {
-                    Timber.d("Response was %s, retrying...", response.code());
+                    InputStream result = performTrackedIO(url, request);
+                    if (result != null) return result;
                 }
             }
             catch (IOException e)
@@ -155,7 +202,196 @@ public class AWHttpServiceWaterfall extends HttpService
         throw new IOException("All requests failed!");
     }
 
-    private okhttp3.Response performSingleIO(String url, String request) throws IOException
+    /**
+     * Perform a request on one node, recording the outcome in the endpoint health model
+     * @return response stream, or null if the node returned an unsuccessful HTTP code
+     */
+    private InputStream performTrackedIO(String url, String request) throws IOException
+    {
+        long startTime = System.currentTimeMillis();
+        try
+        {
+            okhttp3.Response response = httpClient.newCall(buildRequest(url, request)).execute();
+            return handleTrackedResponse(url, response, startTime);
+        }
+        catch (IOException e)
+        {
+            RpcEndpointRouter.recordFailure(chainId, url, System.currentTimeMillis() - startTime, false);
+            throw e;
+        }
+    }
+
+    private InputStream handleTrackedResponse(String url, okhttp3.Response response, long startTime) throws IOException
+    {
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        // Check if the response is valid (2xx status code)
+        if (response.isSuccessful())
+        {
+            InputStream result = processResponse(response); //throws if the body is an error envelope
+            RpcEndpointRouter.recordSuccess(chainId, url, elapsed);
+            return result;
+        }
+        else
+        {
+            Timber.d("Response was %s, retrying...", response.code());
+            RpcEndpointRouter.recordFailure(chainId, url, elapsed, response.code() == HTTP_TOO_MANY_REQUESTS);
+            response.close();
+            return null;
+        }
+    }
+
+    /**
+     * Send a read request to the primary node; if it hasn't responded within hedgeDelay send it to the secondary
+     * node as well and use whichever successful response arrives first, cancelling the other call.
+     * @return response stream, or null if neither node returned a usable response
+     */
+    private InputStream performHedgedIO(String primaryUrl, String secondaryUrl, String request, long hedgeDelay) throws IOException
+    {
+        HedgedCall hedge = new HedgedCall();
+        hedge.start(primaryUrl, request);
+
+        try
+        {
+            HedgeResult result = hedge.results.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+            if (result != null)
+            {
+                //primary responded inside the hedge window; no need to hedge
+                InputStream stream = handleHedgeResult(result);
+                hedge.finish(result.url);
+                return stream != null ? stream : performTrackedIO(secondaryUrl, request);
+            }
+
+            Timber.d("Hedging request on chain %s to %s", chainId, secondaryUrl);
+            hedge.start(secondaryUrl, request);
+
+            for (int received = 0; received < 2; received++)
+            {
+                result = hedge.results.take();
+                InputStream stream = handleHedgeResult(result);
+                if (stream != null)
+                {
+                    hedge.finish(result.url);
+                    return stream;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            hedge.finish(null);
+            throw new InterruptedIOException("Hedged request interrupted");
+        }
+
+        hedge.finish(null);
+        return null;
+    }
+
+    private InputStream handleHedgeResult(HedgeResult result)
+    {
+        long elapsed = System.currentTimeMillis() - result.startTime;
+        if (result.response == null)
+        {
+            RpcEndpointRouter.recordFailure(chainId, result.url, elapsed, false);
+            return null;
+        }
+
+        try
+        {
+            return handleTrackedResponse(result.url, result.response, result.startTime);
+        }
+        catch (IOException e)
+        {
+            RpcEndpointRouter.recordFailure(chainId, result.url, elapsed, false);
+            return null;
+        }
+    }
+
+    private static class HedgeResult
+    {
+        final String url;
+        final long startTime;
+        final okhttp3.Response response;
+
+        HedgeResult(String url, long startTime, okhttp3.Response response)
+        {
+            this.url = url;
+            this.startTime = startTime;
+            this.response = response;
+        }
+    }
+
+    private class HedgedCall
+    {
+        final BlockingQueue<HedgeResult> results = new LinkedBlockingQueue<>();
+        final Map<String, Call> calls = new HashMap<>();
+        private boolean done = false;
+
+        void start(String url, String request)
+        {
+            final long startTime = System.currentTimeMillis();
+            Call call = httpClient.newCall(buildRequest(url, request));
+            calls.put(url, call);
+            call.enqueue(new Callback()
+            {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e)
+                {
+                    deliver(new HedgeResult(url, startTime, null));
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull okhttp3.Response response)
+                {
+                    deliver(new HedgeResult(url, startTime, response));
+                }
+            });
+        }
+
+        private synchronized void deliver(HedgeResult result)
+        {
+            if (done)
+            {
+                if (result.response != null) result.response.close(); //loser of the race
+            }
+            else
+            {
+                results.add(result);
+            }
+        }
+
+        synchronized void finish(String winningUrl)
+        {
+            done = true;
+            for (Map.Entry<String, Call> entry : calls.entrySet())
+            {
+                if (!entry.getKey().equals(winningUrl)) entry.getValue().cancel();
+            }
+
+            HedgeResult leftover;
+            while ((leftover = results.poll()) != null)
+            {
+                if (leftover.response != null) leftover.response.close();
+            }
+        }
+    }
+
+    /**
+     * Only idempotent reads are hedged; anything that changes state must only be sent once
+     */
+    private static boolean isReadRequest(String request)
+    {
+        Matcher matcher = METHOD_PATTERN.matcher(request);
+        boolean found = false;
+        while (matcher.find())
+        {
+            found = true;
+            if (!READ_METHODS.matcher(matcher.group(1)).matches()) return false;
+        }
+
+        return found;
+    }
+
+    private Request buildRequest(String url, String request)
     {
         RequestBody requestBody;
         try
@@ -167,35 +403,41 @@ public class AWHttpServiceWaterfall extends HttpService
             requestBody = RequestBody.create("", MEDIA_TYPE_TEXT);
         }
 
-        addRequiredSecrets(url);
-
-        Request httpRequest = new Request.Builder()
+        return new Request.Builder()
                 .url(url)
-                .headers(buildHeaders())
+                .headers(buildHeaders(url))
                 .post(requestBody)
                 .build();
-
-        return httpClient.newCall(httpRequest).execute();
     }
 
     private InputStream processResponse(Response response) throws IOException
     {
-        processHeaders(response.headers());
-
-        if (response.isSuccessful())
+        try
         {
-            if (response.body() != null)
+            processHeaders(response.headers());
+
+            if (response.isSuccessful())
             {
-                return buildInputStream(response);
+                if (response.body() != null)
+                {
+                    return buildInputStream(response);
+                }
+                else
+                {
+                    response.close();
+                    return buildNullInputStream();
+                }
             }
             else
             {
-                return buildNullInputStream();
+                throw new IOException("Unsuccessful response: " + response.code());
             }
         }
-        else
+        catch (IOException | RuntimeException e)
         {
-            throw new IOException("Unsuccessful response: " + response.code());
+            //the stream is only handed on if the response is usable; otherwise release the connection here
+            response.close();
+            throw e;
         }
     }
 
@@ -214,8 +456,8 @@ public class AWHttpServiceWaterfall extends HttpService
     private InputStream buildInputStream(Response response) throws IOException
     {
         ResponseBody responseBody = response.body();
-        InputStream inputStream = validateAndGetStream(responseBody);
-        //InputStream inputStream = responseBody.byteStream();
+        // streaming mode only inspects the head of the body and passes the source straight to the parser
+        InputStream inputStream = streamResponses ? peekValidateAndGetStream(responseBody) : validateAndGetStream(responseBody);
 
         if (includeRawResponse)
         {
@@ -247,22 +489,34 @@ public class AWHttpServiceWaterfall extends HttpService
         }
     }
 
-    private void addRequiredSecrets(String url)
+    /**
+     * @param stream true to validate only the head of each response and stream the body to the parser,
+     *               false to buffer and fully validate each response before parsing
+     */
+    public void setStreamResponses(boolean stream)
+    {
+        streamResponses = stream;
+    }
+
+    private void addRequiredSecrets(String url, Map<String, String> requestHeaders)
     {
         if (!TextUtils.isEmpty(infuraKey) && url.endsWith(infuraKey) && !TextUtils.isEmpty(infuraSecret)) //primary InfuraKey has secret
         {
-            addHeader("Authorization", "Basic " + infuraSecret);
+            requestHeaders.put("Authorization", "Basic " + infuraSecret);
         }
         else if (!TextUtils.isEmpty(klaytnKey) && (chainId == KLAYTN_BAOBAB_ID || chainId == KLAYTN_ID))
         {
-            addHeader("x-chain-id", Long.toString(chainId));
-            addHeader("Authorization", "Basic " + klaytnKey);
+            requestHeaders.put("x-chain-id", Long.toString(chainId));
+            requestHeaders.put("Authorization", "Basic " + klaytnKey);
         }
     }
 
-    private Headers buildHeaders()
+    //headers are built per request: the service is shared across threads and secrets depend on the endpoint
+    private Headers buildHeaders(String url)
     {
-        return Headers.of(headers);
+        Map<String, String> requestHeaders = new HashMap<>(headers);
+        addRequiredSecrets(url, requestHeaders);
+        return Headers.of(requestHeaders);
     }
 
     public void addHeader(String key, String value)
@@ -275,7 +529,7 @@ public class AWHttpServiceWaterfall extends HttpService
         headers.putAll(headersToAdd);
     }
 
-    public HashMap<String, String> getHeaders()
+    public Map<String, String> getHeaders()
     {
         return headers;
     }
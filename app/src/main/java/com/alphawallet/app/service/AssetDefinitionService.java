@@ -127,6 +127,8 @@ import io.realm.RealmResults;
 import io.realm.Sort;
 import io.realm.exceptions.RealmException;
 import io.realm.exceptions.RealmPrimaryKeyConstraintException;
+import okio.BufferedSource;
+import okio.Okio;
 import timber.log.Timber;
 import wallet.core.jni.Hash;
 
@@ -146,6 +148,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
     private static final long CHECK_TX_LOGS_INTERVAL = 20;
     private static final String EIP5169_ISSUER = "EIP5169-IPFS";
     private static final String TS_EXTENSION = ".tsml";
+    private static final String SCRIPT_SUMMARY_DIR = "tokenscript-summaries";
     private final Context context;
     private final IPFSServiceType ipfsService;
     private final Map<String, Long> assetChecked;                //Mapping of contract address to when they were last fetched from server
@@ -154,7 +157,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
     private final TokensService tokensService;
     private final TokenLocalSource tokenLocalSource;
     private final AlphaWalletService alphaWalletService;
-    private TokenDefinition cachedDefinition = null;
+    private final TokenDefinitionCache definitionCache;
     private final ConcurrentHashMap<String, EventDefinition> eventList = new ConcurrentHashMap<>(); //List of events built during file load
     private final Semaphore assetLoadingLock;  // used to block if someone calls getAssetDefinitionASync() while loading
     private Disposable eventListener;           // timer thread that periodically checks event logs for scripts that require events
@@ -185,6 +188,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         {
         }; //no overridden functions
         tokenLocalSource = trs;
+        definitionCache = new TokenDefinitionCache(new File(ctx.getCacheDir(), SCRIPT_SUMMARY_DIR));
         assetLoadingLock = new Semaphore(1);
         eventConnection = new Semaphore(1);
         //deleteAllEventData();
@@ -248,6 +252,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                 if (!tsf.exists() || tsf.fileChanged(entry.getFileHash()))
                 {
                     deleteTokenScriptFromRealm(realm, entry.getFileHash());
+                    definitionCache.remove(entry.getFileHash());
 
                     if (tsf.exists())
                     {
@@ -266,7 +271,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                 else if (entry.hasEvents())
                 {
                     //populate events
-                    TokenDefinition td = parseFile(tsf.getInputStream());
+                    TokenDefinition td = loadDefinition(tsf, entry.getFileHash());
                     addToEventList(td);
                 }
             }
@@ -810,9 +815,10 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         String address = elements[0];
         long chainId = Long.parseLong(elements[1]);
 
-        if (checkCachedDefinition(chainId, address) != null)
+        TokenDefinition cached = definitionCache.findByHoldingContract(chainId, address, getLocale());
+        if (cached != null)
         {
-            return cachedDefinition;
+            return cached;
         }
 
         try (Realm realm = realmManager.getRealmInstance(ASSET_DEFINITION_DB))
@@ -825,14 +831,13 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
             {
                 if (tsData.getFileHash().equals(BUNDLED_SCRIPT)) //handle bundled scripts
                 {
-                    cachedDefinition = getBundledDefinition(tsData.getFilePath());
+                    result = getBundledDefinition(tsData.getFilePath());
                 }
                 else
                 {
                     TokenScriptFile tf = new TokenScriptFile(context, tsData.getFilePath());
-                    cachedDefinition = parseFile(tf.getInputStream());
+                    result = loadDefinition(tf, tsData.getFileHash());
                 }
-                result = cachedDefinition;
             }
         }
         catch (Exception e)
@@ -843,24 +848,6 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         return result;
     }
 
-    private TokenDefinition checkCachedDefinition(long chainId, String address)
-    {
-        if (cachedDefinition != null)
-        {
-            //only match holding token
-            ContractInfo holdingContracts = cachedDefinition.contracts.get(cachedDefinition.holdingToken);
-            if (holdingContracts != null && holdingContracts.addresses.containsKey(chainId))
-            {
-                for (String addr : holdingContracts.addresses.get(chainId))
-                {
-                    if (addr.equalsIgnoreCase(address.toLowerCase())) return cachedDefinition;
-                }
-            }
-        }
-
-        return null;
-    }
-
     public TokenScriptFile getTokenScriptFile(long chainId, String address)
     {
         //pull from database
@@ -1046,16 +1033,16 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
             return null;
         }
 
-        if (checkCachedDefinition(token.tokenInfo.chainId, token.getAddress()) != null)
+        TokenDefinition cached = definitionCache.findByHoldingContract(token.tokenInfo.chainId, token.getAddress(), getLocale());
+        if (cached != null)
         {
-            return cachedDefinition;
+            return cached;
         }
 
         try
         {
             TokenScriptFile tsf = getTokenScriptFile(token);
-            cachedDefinition = parseFile(tsf.getInputStream());
-            return cachedDefinition;
+            return loadDefinition(tsf, tsf.calcMD5());
         }
         catch (Exception e)
         {
@@ -1201,10 +1188,30 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
 
     private TokenDefinition parseFile(InputStream xmlInputStream) throws Exception
     {
-        Locale locale = context.getResources().getConfiguration().getLocales().get(0);
-
         return new TokenDefinition(
-                xmlInputStream, locale, this);
+                xmlInputStream, getLocale(), this);
+    }
+
+    /**
+     * Fetch the parsed definition for a script file from the definition cache, parsing only on a miss
+     */
+    private TokenDefinition loadDefinition(TokenScriptFile tsf, String fileHash) throws Exception
+    {
+        Locale locale = getLocale();
+        TokenDefinition td = definitionCache.get(fileHash, locale);
+        if (td == null)
+        {
+            td = parseFile(tsf.getInputStream());
+            definitionCache.put(fileHash, locale, td);
+            definitionCache.writeSummary(fileHash, td);
+        }
+
+        return td;
+    }
+
+    private Locale getLocale()
+    {
+        return context.getResources().getConfiguration().getLocales().get(0);
     }
 
     private Single<TokenDefinition> handleNewTSFile(File newFile)
@@ -1237,8 +1244,10 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         return Single.fromCallable(() -> {
                 boolean isDebugOverride = tsf.isDebug();
                 //remove all old definitions & certificates
-                updateScriptEntriesInRealm(originContracts, isDebugOverride, tsf.calcMD5(), schemaUID);
-                cachedDefinition = td;
+                String fileHash = tsf.calcMD5();
+                updateScriptEntriesInRealm(originContracts, isDebugOverride, fileHash, schemaUID);
+                definitionCache.put(fileHash, getLocale(), td);
+                definitionCache.writeSummary(fileHash, td);
                 return tsf;
         }).flatMap(tt -> cacheSignature(tsf, td))
           .map(a -> fileLoadComplete(originContracts, tsf, td));
@@ -1559,6 +1568,12 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                     break;
                 case HttpURLConnection.HTTP_OK:
                     return new Pair<>(response.body, isIPFS);
+                case IPFSService.HTTP_TOO_LARGE:
+                    //too large for performIO; a TokenScript is parsed as a whole, so read it from the cache file
+                    try (BufferedSource source = Okio.buffer(Okio.source(ipfsService.openStream(Uri))))
+                    {
+                        return new Pair<>(source.readUtf8(), isIPFS);
+                    }
             }
         }
         catch (Exception e)
@@ -1661,10 +1676,13 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
 
     private TokenDefinition getBundledDefinition(String asset)
     {
-        TokenDefinition td = null;
+        TokenDefinition td = definitionCache.get(asset, getLocale()); //bundled scripts are keyed by asset name
+        if (td != null) return td;
+
         try (InputStream input = context.getResources().getAssets().open(asset))
         {
             td = parseFile(input);
+            definitionCache.put(asset, getLocale(), td);
         }
         catch (Exception e)
         {
@@ -2464,6 +2482,12 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                                                                                                   TokenDefinition td, Token token, UpdateType update)
     {
         Map<BigInteger, Map<String, TokenScriptResult.Attribute>> resultSet = new HashMap<>();
+        //fetch each contract call attribute for all the tokenIds at once
+        for (String attrName : requiredAttrNames)
+        {
+            tokenscriptUtility.prefetchAttrResults(token, td.attributes.get(attrName), tokenIds, td, this, update);
+        }
+
         for (BigInteger tokenId : tokenIds)
         {
             for (String attrName : requiredAttrNames)
@@ -3080,7 +3104,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
      */
     public void clearCache()
     {
-        cachedDefinition = null;
+        definitionCache.clear();
     }
 
     public ContractLocator getHoldingContract(String importFileName)
@@ -3144,12 +3168,23 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                     .blockingForEach(file -> {
                         try
                         {
-                            FileInputStream input = new FileInputStream(file);
-                            TokenDefinition tokenDef = parseFile(input);
+                            TokenScriptFile tsf = new TokenScriptFile(context, file.getAbsolutePath());
+                            String fileHash = tsf.calcMD5();
+                            TokenDefinitionCache.Summary summary = definitionCache.readSummary(fileHash);
+                            if (summary != null) //no need to parse the script just to list it
+                            {
+                                ContractInfo origins = summary.getHoldingContracts();
+                                if (origins.addresses.size() > 0)
+                                {
+                                    tokenLocators.add(new TokenLocator(summary.getTokenName(), origins, tsf));
+                                }
+                                return;
+                            }
+
+                            TokenDefinition tokenDef = loadDefinition(tsf, fileHash);
                             ContractInfo origins = tokenDef.contracts.get(tokenDef.holdingToken);
                             if (origins.addresses.size() > 0)
                             {
-                                TokenScriptFile tsf = new TokenScriptFile(context, file.getAbsolutePath());
                                 tokenLocators.add(new TokenLocator(tokenDef.getTokenName(1), origins, tsf));
                             }
                         } // TODO: Catch specific tokenscript parse errors to report tokenscript errors.
@@ -3182,16 +3217,8 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         {
             try
             {
-                TokenDefinition td;
-                if (checkCachedDefinition(token.tokenInfo.chainId, token.getAddress()) != null)
-                {
-                    td = cachedDefinition;
-                }
-                else
-                {
-                    td = parseFile(tf.getInputStream());
-                    cachedDefinition = td;
-                }
+                TokenDefinition cached = definitionCache.findByHoldingContract(token.tokenInfo.chainId, token.getAddress(), getLocale());
+                final TokenDefinition td = cached != null ? cached : loadDefinition(tf, tf.calcMD5());
 
                 return Single.fromCallable(() -> td);
             }
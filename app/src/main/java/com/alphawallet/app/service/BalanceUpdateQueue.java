@@ -0,0 +1,292 @@
+package com.alphawallet.app.service;
+
+import static com.alphawallet.app.repository.TokensRealmSource.databaseKey;
+
+import android.text.format.DateUtils;
+
+import com.alphawallet.app.entity.ContractType;
+import com.alphawallet.app.entity.tokens.TokenCardMeta;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory priority queue of tokens awaiting a balance check.
+ *
+ * Tokens are held in a heap ordered by the time they next become eligible for an update, so each update tick
+ * only examines tokens which are due, rather than re-reading and scanning every token in the wallet.
+ * The token list is reloaded from the database only when invalidated (filter, wallet or token list change)
+ * or after RELOAD_INTERVAL as a safety net for changes made elsewhere.
+ *
+ * The actual heuristic (update interval and weighting) is supplied by TokensService.
+ */
+public class BalanceUpdateQueue
+{
+    public interface Weighting
+    {
+        /**
+         * @return minimum time between balance checks for this token
+         */
+        long updateInterval(TokenCardMeta meta, long currentTime);
+
+        /**
+         * @return relative importance of checking this token now, zero or less if it should be skipped for now
+         */
+        float updateFactor(TokenCardMeta meta, long currentTime);
+    }
+
+    private static final long RELOAD_INTERVAL = 30 * DateUtils.SECOND_IN_MILLIS;
+    private static final long SKIP_RECHECK_INTERVAL = 5 * DateUtils.SECOND_IN_MILLIS;
+
+    private final Weighting weighting;
+    private final Map<String, TokenCardMeta> metas = new HashMap<>();
+    private final Map<String, Long> checkTimes = new HashMap<>();
+    private final Map<String, Long> scheduled = new HashMap<>(); //key -> due time of the live heap entry
+    private final PriorityQueue<QueueEntry> dueQueue = new PriorityQueue<>();
+    private boolean stale = true;
+    private long lastLoad = 0;
+
+    public BalanceUpdateQueue(Weighting weighting)
+    {
+        this.weighting = weighting;
+    }
+
+    public synchronized boolean needsReload(long currentTime)
+    {
+        return stale || currentTime > (lastLoad + RELOAD_INTERVAL);
+    }
+
+    /**
+     * Flag that the token list has changed and must be re-read before the next selection
+     */
+    public synchronized void invalidate()
+    {
+        stale = true;
+    }
+
+    /**
+     * Replace the token set, keeping the check times already recorded in this session
+     */
+    public synchronized void load(TokenCardMeta[] tokenList, long currentTime)
+    {
+        metas.clear();
+        scheduled.clear();
+        dueQueue.clear();
+
+        for (TokenCardMeta meta : tokenList)
+        {
+            String key = databaseKey(meta.getChain(), meta.getAddress());
+            meta.lastTxUpdate = meta.lastUpdate;
+            Long lastCheck = checkTimes.get(key);
+            if (lastCheck == null)
+            {
+                checkTimes.put(key, meta.lastUpdate);
+            }
+            else if (meta.lastUpdate <= lastCheck)
+            {
+                meta.lastUpdate = lastCheck;
+            }
+
+            metas.put(key, meta);
+            schedule(key, meta, currentTime);
+        }
+
+        stale = false;
+        lastLoad = currentTime;
+    }
+
+    /**
+     * Recalculate all due times; used when the weighting inputs change (focus token, pending chain, app focus)
+     */
+    public synchronized void reschedule(long currentTime)
+    {
+        scheduled.clear();
+        dueQueue.clear();
+        for (Map.Entry<String, TokenCardMeta> entry : metas.entrySet())
+        {
+            schedule(entry.getKey(), entry.getValue(), currentTime);
+        }
+    }
+
+    /**
+     * Remove the highest priority due token, together with other due tokens on the same chain
+     *
+     * @param currentTime time now
+     * @param maxBatch maximum number of tokens to return
+     * @return tokens to update, highest priority first. Empty if nothing is due.
+     */
+    public synchronized List<TokenCardMeta> pollDue(long currentTime, int maxBatch)
+    {
+        List<TokenCardMeta> due = new ArrayList<>();
+        List<Float> factors = new ArrayList<>();
+        List<TokenCardMeta> skipped = new ArrayList<>();
+
+        while (!dueQueue.isEmpty() && dueQueue.peek().dueTime <= currentTime)
+        {
+            QueueEntry entry = dueQueue.poll();
+            Long live = scheduled.get(entry.key);
+            TokenCardMeta meta = metas.get(entry.key);
+            if (live == null || live != entry.dueTime || meta == null) continue; //superseded entry
+
+            scheduled.remove(entry.key);
+            float factor = weighting.updateFactor(meta, currentTime);
+            if (factor > 0)
+            {
+                due.add(meta);
+                factors.add(factor);
+            }
+            else
+            {
+                skipped.add(meta);
+            }
+        }
+
+        for (TokenCardMeta meta : skipped)
+        {
+            addEntry(key(meta), currentTime + SKIP_RECHECK_INTERVAL);
+        }
+
+        if (due.isEmpty()) return due;
+
+        int best = 0;
+        for (int i = 1; i < due.size(); i++)
+        {
+            if (factors.get(i) > factors.get(best)) best = i;
+        }
+
+        TokenCardMeta bestMeta = due.get(best);
+        List<TokenCardMeta> batch = new ArrayList<>();
+        batch.add(bestMeta);
+
+        for (int i = 0; i < due.size(); i++)
+        {
+            TokenCardMeta meta = due.get(i);
+            if (i != best && batch.size() < maxBatch && meta.getChain() == bestMeta.getChain())
+            {
+                batch.add(meta);
+            }
+            else if (i != best)
+            {
+                schedule(key(meta), meta, currentTime); //still due, will be considered on the next tick
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * Record a balance check and schedule the next one
+     */
+    public synchronized void markChecked(String key, long checkTime)
+    {
+        checkTimes.put(key, checkTime);
+        TokenCardMeta meta = metas.get(key);
+        if (meta != null)
+        {
+            meta.lastUpdate = checkTime;
+            schedule(key, meta, checkTime);
+        }
+    }
+
+    /**
+     * Return a token taken from pollDue which was not dispatched
+     */
+    public synchronized void requeue(TokenCardMeta meta, long currentTime)
+    {
+        String key = key(meta);
+        if (metas.containsKey(key)) schedule(key, meta, currentTime);
+    }
+
+    public synchronized void remove(String key)
+    {
+        metas.remove(key);
+        scheduled.remove(key);
+        checkTimes.remove(key);
+    }
+
+    public synchronized void clear()
+    {
+        metas.clear();
+        scheduled.clear();
+        checkTimes.clear();
+        dueQueue.clear();
+        stale = true;
+    }
+
+    /**
+     * @return time the next token becomes due, or Long.MAX_VALUE if the queue is empty
+     */
+    public synchronized long nextDueTime()
+    {
+        while (!dueQueue.isEmpty())
+        {
+            QueueEntry entry = dueQueue.peek();
+            Long live = scheduled.get(entry.key);
+            if (live != null && live == entry.dueTime) return entry.dueTime;
+            dueQueue.poll();
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return number of enabled chain and ERC20 tokens not yet checked since the sync started
+     */
+    public synchronized int countUnsynced(long syncStart)
+    {
+        int unSynced = 0;
+        for (TokenCardMeta meta : metas.values())
+        {
+            if ((meta.type == ContractType.ERC20 || meta.type == ContractType.ETHEREUM)
+                    && meta.lastUpdate < syncStart && meta.isEnabled && meta.hasValidName())
+            {
+                unSynced++;
+            }
+        }
+
+        return unSynced;
+    }
+
+    public synchronized TokenCardMeta[] getTokenList()
+    {
+        return metas.values().toArray(new TokenCardMeta[0]);
+    }
+
+    private void schedule(String key, TokenCardMeta meta, long currentTime)
+    {
+        long dueTime = meta.lastUpdate + weighting.updateInterval(meta, currentTime) + 1;
+        addEntry(key, dueTime);
+    }
+
+    private void addEntry(String key, long dueTime)
+    {
+        scheduled.put(key, dueTime);
+        dueQueue.add(new QueueEntry(key, dueTime));
+    }
+
+    private static String key(TokenCardMeta meta)
+    {
+        return databaseKey(meta.getChain(), meta.getAddress());
+    }
+
+    private static class QueueEntry implements Comparable<QueueEntry>
+    {
+        final String key;
+        final long dueTime;
+
+        QueueEntry(String key, long dueTime)
+        {
+            this.key = key;
+            this.dueTime = dueTime;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other)
+        {
+            return Long.compare(dueTime, other.dueTime);
+        }
+    }
+}
@@ -6,24 +6,103 @@ import com.alphawallet.app.entity.QueryResponse;
 import com.alphawallet.app.entity.tokenscript.TestScript;
 import com.alphawallet.app.util.Utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.SocketTimeoutException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
 import timber.log.Timber;
 
 /**
  * Created by JB on 3/11/2022.
+ *
+ * IPFS content is fetched by racing the two healthiest gateways of the pool; the first good response wins and the
+ * other call is cancelled. Because IPFS content is immutable, responses are streamed into a disk cache keyed by
+ * CID (and path within the CID) which never expires.
+ *
+ * performIO reads content into memory only up to MAX_IN_MEMORY, which covers metadata and TokenScript; anything
+ * larger is reported as HTTP 413 and is read with openStream, straight from the cache file.
  */
 public class IPFSService implements IPFSServiceType
 {
+    public static final List<String> DEFAULT_GATEWAYS = Collections.unmodifiableList(Arrays.asList(
+            Utils.IPFS_INFURA_RESOLVER,
+            "https://ipfs.io",
+            "https://dweb.link"));
+
+    private static final int RACE_WIDTH = 2;
+    private static final long MIN_BACKOFF = 10 * 1000L;
+    private static final long MAX_BACKOFF = 10 * 60 * 1000L;
+    private static final String CACHE_DIR = "ipfs";
+    private static final String IPFS_DESIGNATOR = "/ipfs/";
+    private static final long MAX_IN_MEMORY = 1024 * 1024;
+    public static final int HTTP_TOO_LARGE = 413;
+
     private final OkHttpClient client;
+    private final File cacheDir;
+    private final List<Gateway> gateways = new ArrayList<>();
+
+    private static class Gateway
+    {
+        final String url;
+        int failures;
+        long backoffUntil;
+
+        Gateway(String url)
+        {
+            this.url = url;
+        }
+
+        boolean isHealthy(long currentTime)
+        {
+            return currentTime >= backoffUntil;
+        }
+    }
 
     public IPFSService(OkHttpClient okHttpClient)
+    {
+        this(okHttpClient, null);
+    }
+
+    /**
+     * @param cacheRoot base directory for the content cache, or null to disable it
+     */
+    public IPFSService(OkHttpClient okHttpClient, File cacheRoot)
     {
         this.client = okHttpClient;
+        File dir = cacheRoot != null ? new File(cacheRoot, CACHE_DIR) : null;
+        if (dir != null && !dir.exists() && !dir.mkdirs()) dir = null;
+        this.cacheDir = dir;
+        setGateways(DEFAULT_GATEWAYS);
+    }
+
+    /**
+     * Replace the gateway pool. Gateways are used in order of preference, skipping any which have recently failed
+     */
+    public void setGateways(List<String> gatewayUrls)
+    {
+        synchronized (gateways)
+        {
+            gateways.clear();
+            for (String url : gatewayUrls)
+            {
+                gateways.add(new Gateway(url.endsWith("/") ? url.substring(0, url.length() - 1) : url));
+            }
+        }
     }
 
     public String getContent(String url)
@@ -66,6 +145,36 @@ public class IPFSService implements IPFSServiceType
         }
     }
 
+    /**
+     * Stream the content at the url. IPFS content is streamed from its cache file, so the body is never held in memory
+     */
+    public InputStream openStream(String url) throws IOException
+    {
+        url = url.trim();
+        if (!Utils.isValidUrl(url))
+        {
+            throw new IOException("URL not valid");
+        }
+
+        if (!Utils.isIPFS(url))
+        {
+            Response response = client.newCall(new Request.Builder().url(url).get().build()).execute();
+            if (!response.isSuccessful() || response.body() == null)
+            {
+                response.close();
+                throw new IOException("Request returned " + response.code());
+            }
+            return response.body().byteStream(); //closing the stream releases the response
+        }
+        else if (isTestCode(url))
+        {
+            return new ByteArrayInputStream(TestScript.testScriptXXLF.getBytes(StandardCharsets.UTF_8));
+        }
+
+        File content = fetchToFile(ipfsPath(url));
+        return cacheDir != null ? new FileInputStream(content) : new TempFileStream(content);
+    }
+
     private QueryResponse get(String url, String[] headers) throws IOException
     {
         Request.Builder bld = new Request.Builder()
@@ -74,30 +183,286 @@ public class IPFSService implements IPFSServiceType
 
         if (headers != null) addHeaders(bld, headers);
 
-        Response response = client.newCall(bld.build()).execute();
-        return new QueryResponse(response.code(), response.body().string());
+        try (Response response = client.newCall(bld.build()).execute())
+        {
+            return new QueryResponse(response.code(), response.body().string(), response.header("ETag"));
+        }
     }
 
     private QueryResponse getFromIPFS(String url) throws IOException
     {
         if (isTestCode(url)) return loadTestCode();
 
-        //try Infura first
-        String tryIPFS = Utils.resolveIPFS(url, Utils.IPFS_INFURA_RESOLVER);
-        //attempt to load content
-        QueryResponse r;
+        File content = fetchToFile(ipfsPath(url));
+        try
+        {
+            if (content.length() > MAX_IN_MEMORY) return new QueryResponse(HTTP_TOO_LARGE, null);
+            return new QueryResponse(200, readFile(content));
+        }
+        finally
+        {
+            if (cacheDir == null) content.delete();
+        }
+    }
+
+    /**
+     * @return file holding the content: its cache file, or a temporary file the caller deletes if there is no cache
+     */
+    private File fetchToFile(String path) throws IOException
+    {
+        File target;
+        if (cacheDir != null)
+        {
+            target = cacheFile(path);
+            if (target.exists()) return target;
+        }
+        else
+        {
+            target = File.createTempFile("ipfs", null);
+            target.delete(); //only the name is wanted; the download is moved into place when complete
+        }
+
         try
         {
-            r = get(tryIPFS, null);
+            raceGateways(path, target);
+        }
+        catch (IOException e)
+        {
+            if (cacheDir == null) target.delete();
+            throw e;
+        }
+
+        return target;
+    }
+
+    /**
+     * Request the content from the first RACE_WIDTH healthy gateways at once, keeping whichever returns a good
+     * response first. The winning body is streamed to target.
+     */
+    private void raceGateways(String path, File target) throws IOException
+    {
+        List<Gateway> racers = pickGateways();
+        if (racers.isEmpty()) throw new IOException("No IPFS gateways configured");
+        Race race = new Race(racers.size());
+        List<Call> calls = new ArrayList<>();
+        for (Gateway gateway : racers)
+        {
+            Call call = client.newCall(new Request.Builder().url(gateway.url + path).get().build());
+            calls.add(call);
+        }
+
+        for (int i = 0; i < calls.size(); i++)
+        {
+            Gateway gateway = racers.get(i);
+            calls.get(i).enqueue(new Callback()
+            {
+                @Override
+                public void onFailure(Call call, IOException e)
+                {
+                    if (!call.isCanceled()) recordResult(gateway, false);
+                    race.lose(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response)
+                {
+                    try (Response r = response)
+                    {
+                        if (!r.isSuccessful() || r.body() == null)
+                        {
+                            recordResult(gateway, false);
+                            race.lose(new IOException("IPFS gateway " + gateway.url + " returned " + r.code()));
+                        }
+                        else if (race.claim())
+                        {
+                            for (Call other : calls)
+                            {
+                                if (other != call) other.cancel();
+                            }
+                            recordResult(gateway, true);
+                            race.win(writeToCache(r.body(), target));
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        recordResult(gateway, false);
+                        race.fail(e); //winner failed part way through the body; the others are already cancelled
+                    }
+                }
+            });
+        }
+
+        race.await();
+    }
+
+    private List<Gateway> pickGateways()
+    {
+        long currentTime = System.currentTimeMillis();
+        synchronized (gateways)
+        {
+            List<Gateway> picked = new ArrayList<>();
+            for (Gateway gateway : gateways)
+            {
+                if (gateway.isHealthy(currentTime)) picked.add(gateway);
+                if (picked.size() == RACE_WIDTH) return picked;
+            }
+
+            //not enough healthy gateways; fill up with those closest to coming out of backoff
+            List<Gateway> waiting = new ArrayList<>(gateways);
+            waiting.removeAll(picked);
+            Collections.sort(waiting, (a, b) -> Long.compare(a.backoffUntil, b.backoffUntil));
+            for (int i = 0; i < waiting.size() && picked.size() < RACE_WIDTH; i++)
+            {
+                picked.add(waiting.get(i));
+            }
+
+            return picked;
+        }
+    }
+
+    private void recordResult(Gateway gateway, boolean success)
+    {
+        synchronized (gateways)
+        {
+            if (success)
+            {
+                gateway.failures = 0;
+                gateway.backoffUntil = 0;
+            }
+            else
+            {
+                gateway.failures++;
+                long backoff = Math.min(MIN_BACKOFF << Math.min(gateway.failures - 1, 16), MAX_BACKOFF);
+                gateway.backoffUntil = System.currentTimeMillis() + backoff;
+            }
+        }
+    }
+
+    private File writeToCache(ResponseBody body, File target) throws IOException
+    {
+        //write to a temporary file first so a partial download is never served as cached content
+        File partial = new File(target.getParentFile(), target.getName() + ".part" + Thread.currentThread().getId());
+        try (BufferedSink sink = Okio.buffer(Okio.sink(partial)))
+        {
+            sink.writeAll(body.source());
+        }
+
+        if (!partial.renameTo(target))
+        {
+            partial.delete();
+            if (!target.exists()) throw new IOException("Unable to cache IPFS content " + target.getName());
+        }
+
+        return target;
+    }
+
+    private String readFile(File file) throws IOException
+    {
+        try (InputStream in = new FileInputStream(file))
+        {
+            return Okio.buffer(Okio.source(in)).readString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private File cacheFile(String path)
+    {
+        String key = path.substring(IPFS_DESIGNATOR.length());
+        if (key.endsWith("/")) key = key.substring(0, key.length() - 1);
+        return new File(cacheDir, key.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    /**
+     * @return gateway-relative path of the content, eg /ipfs/Qm.../1.json
+     */
+    private static String ipfsPath(String url)
+    {
+        return Utils.resolveIPFS(url, "");
+    }
+
+    private static class Race
+    {
+        private int remaining;
+        private boolean claimed;
+        private boolean finished;
+        private File result;
+        private IOException error;
+
+        Race(int racers)
+        {
+            this.remaining = racers;
         }
-        catch (SocketTimeoutException e)
+
+        synchronized boolean claim()
         {
-            //timeout, try second node. Any other failure simply throw back to calling function
-            tryIPFS = Utils.resolveIPFS(url, Utils.IPFS_INFURA_RESOLVER);
-            r = get(tryIPFS, null); //if this throws it will be picked up by calling function
+            if (claimed) return false;
+            claimed = true;
+            return true;
+        }
+
+        synchronized void win(File value)
+        {
+            result = value;
+            finished = true;
+            notifyAll();
+        }
+
+        synchronized void lose(IOException e)
+        {
+            if (finished || claimed) return; //cancelled or beaten after another gateway already won
+            error = e;
+            if (--remaining <= 0)
+            {
+                finished = true;
+                notifyAll();
+            }
         }
 
-        return r;
+        synchronized void fail(IOException e)
+        {
+            error = e;
+            finished = true;
+            notifyAll();
+        }
+
+        synchronized File await() throws IOException
+        {
+            while (!finished)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for IPFS content");
+                }
+            }
+
+            if (result == null) throw error != null ? error : new IOException("No IPFS gateway available");
+            return result;
+        }
+    }
+
+    /**
+     * Content fetched without a cache, deleted once read
+     */
+    private static class TempFileStream extends FileInputStream
+    {
+        private final File file;
+
+        TempFileStream(File file) throws IOException
+        {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            super.close();
+            file.delete();
+        }
     }
 
     private void addHeaders(Request.Builder bld, String[] headers) throws IOException
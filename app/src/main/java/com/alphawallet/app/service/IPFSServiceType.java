@@ -3,6 +3,7 @@ package com.alphawallet.app.service;
 import com.alphawallet.app.entity.QueryResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Created by JB on 4/11/2022.
@@ -11,4 +12,5 @@ public interface IPFSServiceType
 {
     String getContent(String url);
     QueryResponse performIO(String url, String[] headers) throws IOException;
+    InputStream openStream(String url) throws IOException;
 }
@@ -1,5 +1,6 @@
 package com.alphawallet.app.service;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -12,6 +13,7 @@ import java.io.InputStream;
 import java.io.SequenceInputStream;
 
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import timber.log.Timber;
 
 public class JsonValidator
@@ -20,6 +22,7 @@ public class JsonValidator
     static final String INTERNAL_ERROR = "internal error";
     static final String LIMIT_EXCEEDED = "limit exceeded";
     static final String JSON_ERROR = "error";
+    static final long PEEK_LIMIT = 4096;
 
     static class CustomTeeInputStream extends FilterInputStream
     {
@@ -80,6 +83,101 @@ public class JsonValidator
         }
     }
 
+    /**
+     * Streaming variant of validateAndGetStream: only the head of the response is inspected for an error envelope,
+     * then the underlying source is handed straight to the JSON parser without copying the body.
+     * Small responses which fit in the peek window get the same full validation as validateAndGetStream.
+     *
+     * @param responseBody RPC response body
+     * @return stream reading directly from the response source
+     * @throws IOException if the response is an error envelope or is not JSON; the body is closed in that case
+     */
+    public static InputStream peekValidateAndGetStream(ResponseBody responseBody) throws IOException
+    {
+        boolean isValid = false;
+        try
+        {
+            BufferedSource source = responseBody.source();
+            boolean largeBody = source.request(PEEK_LIMIT + 1);
+            long headSize = Math.min(source.getBuffer().size(), PEEK_LIMIT);
+            String head = source.peek().readUtf8(headSize);
+
+            isValid = largeBody ? isValidHead(head) : isValidJson(head);
+            if (isValid)
+            {
+                return source.inputStream();
+            }
+            else
+            {
+                throw new IOException("Invalid JSON format");
+            }
+        }
+        finally
+        {
+            //the caller closes the stream it is given; a rejected body is closed here
+            if (!isValid) responseBody.close();
+        }
+    }
+
+    /**
+     * Check the start of a large response. Error envelopes are small, so a large body only needs
+     * to be checked for being JSON and not starting with an error
+     */
+    static boolean isValidHead(String head)
+    {
+        String trimmed = head.trim();
+        if (trimmed.isEmpty() || (trimmed.charAt(0) != '{' && trimmed.charAt(0) != '[')) return false;
+
+        String lowerHead = trimmed.toLowerCase();
+        if (lowerHead.contains(LIMIT_EXCEEDED)) return false;
+
+        int errorIndex = lowerHead.indexOf("\"" + JSON_ERROR + "\"");
+        if (errorIndex >= 0)
+        {
+            String error = lowerHead.substring(errorIndex);
+            return !error.contains(UNAUTHORIZED_ERROR) && !error.contains(INTERNAL_ERROR);
+        }
+
+        return true;
+    }
+
+    private static boolean isValidJson(String content)
+    {
+        try
+        {
+            String trimmed = content.trim();
+            if (trimmed.startsWith("["))
+            {
+                //batch response: every entry must pass the single response check
+                JSONArray batch = new JSONArray(trimmed);
+                for (int i = 0; i < batch.length(); i++)
+                {
+                    Object entry = batch.get(i);
+                    if (!(entry instanceof JSONObject) || !isValidResponse((JSONObject) entry)) return false;
+                }
+            }
+            else if (!isValidResponse(new JSONObject(content)))
+            {
+                return false;
+            }
+            return !content.toLowerCase().contains(LIMIT_EXCEEDED);
+        }
+        catch (JSONException e)
+        {
+            return false;
+        }
+    }
+
+    private static boolean isValidResponse(JSONObject thisObj) throws JSONException
+    {
+        if (thisObj.has(JSON_ERROR))
+        {
+            String error = thisObj.getString(JSON_ERROR);
+            return !error.toLowerCase().contains(UNAUTHORIZED_ERROR) && !error.toLowerCase().contains(INTERNAL_ERROR);
+        }
+        return true;
+    }
+
     private static boolean isValidJson(InputStream inputStream)
     {
         try (BufferedReader reader = new BufferedReader(new java.io.InputStreamReader(inputStream)))
@@ -91,18 +189,9 @@ public class JsonValidator
                 content.append(line);
             }
 
-            JSONObject thisObj = new JSONObject(content.toString());
-            if (thisObj.has(JSON_ERROR))
-            {
-                String error = thisObj.getString(JSON_ERROR);
-                if (error.toLowerCase().contains(UNAUTHORIZED_ERROR) || error.toLowerCase().contains(INTERNAL_ERROR))
-                {
-                    return false;
-                }
-            }
-            return !content.toString().toLowerCase().contains(LIMIT_EXCEEDED);
+            return isValidJson(content.toString());
         }
-        catch (JSONException | IOException e)
+        catch (IOException e)
         {
             return false;
         }
@@ -0,0 +1,274 @@
+package com.alphawallet.app.service;
+
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+
+import com.alphawallet.app.entity.QueryResponse;
+import com.alphawallet.app.util.Utils;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import timber.log.Timber;
+
+/**
+ * Two tier (memory LRU + disk) cache of NFT metadata, keyed by (chainId, contract, tokenId).
+ *
+ * Fresh entries are returned without any network access. Once an entry's TTL has expired the tokenURI is re-read and,
+ * if unchanged, the metadata is revalidated with If-None-Match when the server supplied an ETag.
+ * Content addressed (IPFS) metadata is immutable so it is given a much longer TTL.
+ * Concurrent requests for the same token share a single fetch.
+ */
+public class NFTMetadataCache
+{
+    public interface TokenURILoader
+    {
+        /**
+         * @return token URI, or direct JSON metadata for tokens which return it from tokenURI
+         */
+        String fetchTokenURI();
+    }
+
+    private static final int MAX_MEMORY_ENTRIES = 256;
+    private static final int MAX_DISK_ENTRIES = 4000;
+    private static final int TRIM_CHECK_INTERVAL = 100;
+    private static final long METADATA_TTL = DateUtils.DAY_IN_MILLIS;
+    private static final long IMMUTABLE_TTL = 30 * DateUtils.DAY_IN_MILLIS;
+    private static final String CACHE_DIR = "nft_metadata";
+
+    private final LinkedHashMap<String, Entry> memoryCache = new LinkedHashMap<>(64, 0.75f, true);
+    private final ConcurrentHashMap<String, FutureTask<String>> inFlight = new ConcurrentHashMap<>();
+    private final File diskDir;
+    private final Gson gson = new Gson();
+    private int writeCount;
+
+    private static class Entry
+    {
+        String tokenUri;
+        String metadata;
+        String etag;
+        long fetchTime;
+
+        Entry(String tokenUri, String metadata, String etag, long fetchTime)
+        {
+            this.tokenUri = tokenUri;
+            this.metadata = metadata;
+            this.etag = etag;
+            this.fetchTime = fetchTime;
+        }
+
+        boolean isFresh(long currentTime)
+        {
+            long ttl = (tokenUri != null && Utils.isIPFS(tokenUri)) ? IMMUTABLE_TTL : METADATA_TTL;
+            return currentTime < fetchTime + ttl;
+        }
+    }
+
+    /**
+     * @param cacheRoot base directory for the disk tier, or null for memory only
+     */
+    public NFTMetadataCache(File cacheRoot)
+    {
+        File dir = cacheRoot != null ? new File(cacheRoot, CACHE_DIR) : null;
+        if (dir != null && !dir.exists() && !dir.mkdirs()) dir = null;
+        diskDir = dir;
+    }
+
+    /**
+     * @return metadata JSON for the token, or empty string if it couldn't be fetched
+     */
+    public String getMetadata(long chainId, String address, BigInteger tokenId, TokenURILoader uriLoader, IPFSServiceType client)
+    {
+        String key = cacheKey(chainId, address, tokenId);
+        Entry cached = getEntry(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis()))
+        {
+            return cached.metadata;
+        }
+
+        FutureTask<String> task = new FutureTask<>(() -> load(key, uriLoader, client));
+        FutureTask<String> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null)
+        {
+            task = existing; //another caller is already fetching this token
+        }
+        else
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                inFlight.remove(key, task);
+            }
+        }
+
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            Timber.w(e);
+            return cached != null ? cached.metadata : "";
+        }
+    }
+
+    public boolean hasFreshEntry(long chainId, String address, BigInteger tokenId)
+    {
+        Entry cached = getEntry(cacheKey(chainId, address, tokenId));
+        return cached != null && cached.isFresh(System.currentTimeMillis());
+    }
+
+    private String load(String key, TokenURILoader uriLoader, IPFSServiceType client)
+    {
+        Entry cached = getEntry(key);
+        long currentTime = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(currentTime)) return cached.metadata; //refreshed while we waited
+
+        String tokenUri = uriLoader.fetchTokenURI();
+        if (TextUtils.isEmpty(tokenUri))
+        {
+            return cached != null ? cached.metadata : ""; //node failure; serve stale data rather than nothing
+        }
+        else if (Utils.isJson(tokenUri))
+        {
+            putEntry(key, new Entry(null, tokenUri, null, currentTime));
+            return tokenUri;
+        }
+
+        String[] headers = null;
+        if (cached != null && cached.etag != null && tokenUri.equals(cached.tokenUri))
+        {
+            headers = new String[]{"If-None-Match", cached.etag};
+        }
+
+        try
+        {
+            QueryResponse response = client.performIO(tokenUri, headers);
+            if (response.code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null)
+            {
+                cached.fetchTime = currentTime;
+                putEntry(key, cached);
+                return cached.metadata;
+            }
+            else if (response.isSuccessful() && !TextUtils.isEmpty(response.body))
+            {
+                putEntry(key, new Entry(tokenUri, response.body, response.etag, currentTime));
+                return response.body;
+            }
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+        }
+
+        return cached != null ? cached.metadata : "";
+    }
+
+    private Entry getEntry(String key)
+    {
+        synchronized (memoryCache)
+        {
+            Entry entry = memoryCache.get(key);
+            if (entry != null) return entry;
+        }
+
+        Entry entry = readFromDisk(key);
+        if (entry != null) putInMemory(key, entry);
+        return entry;
+    }
+
+    private void putEntry(String key, Entry entry)
+    {
+        putInMemory(key, entry);
+        writeToDisk(key, entry);
+    }
+
+    private void putInMemory(String key, Entry entry)
+    {
+        synchronized (memoryCache)
+        {
+            memoryCache.put(key, entry);
+            if (memoryCache.size() > MAX_MEMORY_ENTRIES)
+            {
+                Iterator<String> eldest = memoryCache.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private Entry readFromDisk(String key)
+    {
+        if (diskDir == null) return null;
+        File file = new File(diskDir, key);
+        if (!file.exists()) return null;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))
+        {
+            Entry entry = gson.fromJson(reader, Entry.class);
+            return (entry != null && !TextUtils.isEmpty(entry.metadata)) ? entry : null;
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry)
+    {
+        if (diskDir == null) return;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(diskDir, key)), StandardCharsets.UTF_8))
+        {
+            gson.toJson(entry, writer);
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+        }
+
+        trimDiskIfRequired();
+    }
+
+    private void trimDiskIfRequired()
+    {
+        synchronized (this)
+        {
+            if (++writeCount % TRIM_CHECK_INTERVAL != 0) return;
+        }
+
+        File[] files = diskDir.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES) return;
+
+        //trim back to three quarters of the limit, oldest first
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - (MAX_DISK_ENTRIES * 3 / 4); i++)
+        {
+            if (!files[i].delete()) Timber.w("Unable to remove cached metadata %s", files[i].getName());
+        }
+    }
+
+    private static String cacheKey(long chainId, String address, BigInteger tokenId)
+    {
+        return chainId + "-" + address.toLowerCase(Locale.ROOT) + "-" + tokenId.toString(16);
+    }
+}
@@ -0,0 +1,212 @@
+package com.alphawallet.app.service;
+
+import android.util.Pair;
+
+import com.alphawallet.app.entity.tokendata.TokenTicker;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.BehaviorSubject;
+
+/**
+ * Keeps the fiat contribution of each priced token in the current wallet in memory, so the wallet total and
+ * 24h change can be updated by applying the delta of a single balance or ticker change instead of re-reading
+ * every token and ticker from the database.
+ *
+ * Holdings are keyed by ticker key: databaseKey(chainId, "eth") for chain tokens, databaseKey(chainId, address) otherwise.
+ */
+public class PortfolioAggregator
+{
+    private static final int RESUM_INTERVAL = 256; //re-add from scratch periodically so floating point drift can't accumulate
+
+    private final Map<String, Holding> holdings = new HashMap<>();
+    //a fresh subject per wallet, so a new subscriber is never replayed the previous wallet's total
+    private final BehaviorSubject<BehaviorSubject<Pair<Double, Double>>> walletValues = BehaviorSubject.createDefault(BehaviorSubject.create());
+    private BehaviorSubject<Pair<Double, Double>> values = walletValues.getValue();
+    private String walletAddress;
+    private double total;
+    private double historical;
+    private int deltaCount;
+
+    public static class Holding
+    {
+        public final String key;
+        double balance;
+        double price;
+        double change24h;
+
+        public Holding(String key, BigDecimal correctedBalance, TokenTicker ticker)
+        {
+            this.key = key;
+            this.balance = correctedBalance.doubleValue();
+            setTicker(ticker);
+        }
+
+        void setTicker(TokenTicker ticker)
+        {
+            price = ticker != null ? parse(ticker.price) : 0.0;
+            change24h = ticker != null ? parse(ticker.percentChange24h) : 0.0;
+        }
+
+        double value()
+        {
+            return balance * price;
+        }
+
+        double historicalValue()
+        {
+            return value() * (1.0 - change24h / 100.0);
+        }
+    }
+
+    /**
+     * Replace all holdings with a freshly computed set for this wallet and publish the new total
+     */
+    public synchronized Pair<Double, Double> reset(String wallet, List<Holding> seed)
+    {
+        walletAddress = wallet;
+        holdings.clear();
+        for (Holding h : seed)
+        {
+            holdings.put(h.key, h);
+        }
+
+        return resum();
+    }
+
+    public synchronized void invalidate()
+    {
+        walletAddress = null;
+        holdings.clear();
+        total = 0.0;
+        historical = 0.0;
+        values = BehaviorSubject.create();
+        walletValues.onNext(values);
+    }
+
+    public synchronized boolean isCurrent(String wallet)
+    {
+        return wallet != null && wallet.equalsIgnoreCase(walletAddress);
+    }
+
+    public synchronized Pair<Double, Double> getValue()
+    {
+        return new Pair<>(total, historical);
+    }
+
+    /**
+     * @return total value and 24h-ago value of the wallet, emitted each time either changes
+     */
+    public Observable<Pair<Double, Double>> valueUpdates()
+    {
+        return walletValues.switchMap(v -> v).distinctUntilChanged();
+    }
+
+    public synchronized boolean isTracked(String key)
+    {
+        return holdings.containsKey(key);
+    }
+
+    /**
+     * @param ticker price for a token not seen before (the seed only holds tokens with a balance); ignored otherwise
+     */
+    public synchronized void onBalanceChange(String wallet, String key, BigDecimal correctedBalance, TokenTicker ticker)
+    {
+        if (!isCurrent(wallet)) return;
+        Holding h = holdings.get(key);
+        if (h == null)
+        {
+            if (correctedBalance.signum() == 0) return;
+            h = new Holding(key, BigDecimal.ZERO, ticker);
+            holdings.put(key, h);
+        }
+
+        removeContribution(h);
+        h.balance = correctedBalance.doubleValue();
+        addContribution(h);
+        publish();
+    }
+
+    public synchronized void onTickerUpdate(Map<String, TokenTicker> tickers)
+    {
+        if (walletAddress == null) return;
+        boolean changed = false;
+        for (Map.Entry<String, TokenTicker> entry : tickers.entrySet())
+        {
+            Holding h = holdings.get(entry.getKey());
+            if (h == null) continue; //not held; a token gaining a balance brings its ticker with it
+
+            removeContribution(h);
+            h.setTicker(entry.getValue());
+            addContribution(h);
+            changed = true;
+        }
+
+        if (changed) publish();
+    }
+
+    public synchronized void remove(String key)
+    {
+        Holding h = holdings.remove(key);
+        if (h != null)
+        {
+            removeContribution(h);
+            publish();
+        }
+    }
+
+    private void addContribution(Holding h)
+    {
+        total += h.value();
+        historical += h.historicalValue();
+    }
+
+    private void removeContribution(Holding h)
+    {
+        total -= h.value();
+        historical -= h.historicalValue();
+    }
+
+    private void publish()
+    {
+        if (++deltaCount >= RESUM_INTERVAL)
+        {
+            resum();
+        }
+        else
+        {
+            values.onNext(new Pair<>(Math.max(total, 0.0), Math.max(historical, 0.0)));
+        }
+    }
+
+    private Pair<Double, Double> resum()
+    {
+        total = 0.0;
+        historical = 0.0;
+        for (Holding h : holdings.values())
+        {
+            addContribution(h);
+        }
+
+        deltaCount = 0;
+        Pair<Double, Double> value = new Pair<>(total, historical);
+        values.onNext(value);
+        return value;
+    }
+
+    private static double parse(String value)
+    {
+        try
+        {
+            return value != null ? Double.parseDouble(value) : 0.0;
+        }
+        catch (NumberFormatException e)
+        {
+            return 0.0;
+        }
+    }
+}
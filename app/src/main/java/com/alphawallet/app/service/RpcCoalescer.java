@@ -0,0 +1,424 @@
+package com.alphawallet.app.service;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import okio.Okio;
+import timber.log.Timber;
+
+/**
+ * Sits between Web3j and the node transport of one chain.
+ *
+ * Small idempotent reads (eth_call, eth_getBalance, eth_blockNumber etc) are:
+ * 1. De-duplicated: an identical request already in flight is joined rather than re-sent (single-flight).
+ * 2. Micro-batched: requests arriving within a few milliseconds of each other are sent as one JSON-RPC batch
+ *    array and the responses fanned back out to each caller by id.
+ *
+ * A node which answers a batch with an explicit "batch not supported" style error has batching switched off for a
+ * while; other batch failures (timeouts, transient errors) only fall back to single requests for that batch.
+ * A request arriving while no other read is in flight is sent at once rather than waiting for a batch to form.
+ * Everything else (writes, large reads such as eth_getLogs, caller built batches) passes straight through.
+ */
+public class RpcCoalescer
+{
+    public interface Transport
+    {
+        InputStream send(String payload) throws IOException;
+
+        /**
+         * @return the node requests are currently sent to; batch support is tracked per node
+         */
+        default String endpoint()
+        {
+            return "";
+        }
+    }
+
+    private static final Pattern COALESCE_METHODS = Pattern.compile("^(eth_(call|getBalance|blockNumber|chainId|gasPrice|getTransactionCount|getCode)|net_version)$");
+    private static final long BATCH_WINDOW_MS = 5; //how long the first request of a batch waits for others to join
+
+    private static final long BATCH_REJECT_MS = 30 * 60 * 1000; //when to try batching again on a node which refused it
+
+    private static final Map<String, Long> batchRejected = new ConcurrentHashMap<>(); //chain and node -> retry time
+
+    private final long chainId;
+    private final int maxBatch;
+    private final long batchWindow;
+    private final Transport transport;
+    private final ConcurrentHashMap<String, Pending> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger(); //coalescable reads currently being executed
+    private final Object batchLock = new Object();
+    private Batch openBatch;
+
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong batchedRequests = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+
+    private static class Pending
+    {
+        final String request;
+        final JSONObject json;
+        final CountDownLatch done = new CountDownLatch(1);
+        byte[] response;
+        IOException error;
+
+        Pending(String request, JSONObject json)
+        {
+            this.request = request;
+            this.json = json;
+        }
+
+        void complete(byte[] result, IOException e)
+        {
+            response = result;
+            error = e;
+            done.countDown();
+        }
+
+        byte[] await() throws IOException
+        {
+            try
+            {
+                done.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for coalesced request");
+            }
+
+            if (error != null) throw error;
+            return response;
+        }
+    }
+
+    private static class Batch
+    {
+        final List<Pending> requests = new ArrayList<>();
+    }
+
+    /**
+     * @param maxBatch largest batch to send, or 0 to de-duplicate only
+     */
+    public RpcCoalescer(long chainId, int maxBatch, Transport transport)
+    {
+        this(chainId, maxBatch, BATCH_WINDOW_MS, transport);
+    }
+
+    RpcCoalescer(long chainId, int maxBatch, long batchWindow, Transport transport)
+    {
+        this.chainId = chainId;
+        this.maxBatch = maxBatch;
+        this.batchWindow = batchWindow;
+        this.transport = transport;
+    }
+
+    public InputStream execute(String request) throws IOException
+    {
+        JSONObject json = parseCoalescable(request);
+        if (json == null) return transport.send(request);
+
+        active.incrementAndGet();
+        try
+        {
+            return coalesce(json, request);
+        }
+        finally
+        {
+            active.decrementAndGet();
+        }
+    }
+
+    private InputStream coalesce(JSONObject json, String request) throws IOException
+    {
+        Object id = json.opt("id");
+        String key = json.optString("method") + json.opt("params");
+        Pending pending = new Pending(request, json);
+        Pending existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null)
+        {
+            coalesced.incrementAndGet();
+            return new ByteArrayInputStream(withId(existing.await(), id));
+        }
+
+        try
+        {
+            dispatch(pending);
+            return new ByteArrayInputStream(pending.await());
+        }
+        finally
+        {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    public static boolean isBatchRejected(long chainId, String endpoint)
+    {
+        Long retryTime = batchRejected.get(rejectKey(chainId, endpoint));
+        if (retryTime == null) return false;
+        if (retryTime > System.currentTimeMillis()) return true;
+
+        batchRejected.remove(rejectKey(chainId, endpoint), retryTime);
+        return false;
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    public long getBatchedCount()
+    {
+        return batchedRequests.get();
+    }
+
+    public int getActiveCount()
+    {
+        return active.get();
+    }
+
+    public long getBatchesSent()
+    {
+        return batchesSent.get();
+    }
+
+    private void dispatch(Pending pending)
+    {
+        String endpoint = transport.endpoint();
+        if (maxBatch < 2 || isBatchRejected(chainId, endpoint))
+        {
+            sendSingle(pending);
+            return;
+        }
+
+        Batch batch;
+        boolean leader = false;
+        synchronized (batchLock)
+        {
+            if (openBatch == null)
+            {
+                openBatch = new Batch();
+                leader = true;
+            }
+
+            batch = openBatch;
+            batch.requests.add(pending);
+            if (batch.requests.size() >= maxBatch)
+            {
+                openBatch = null; //full; the next request starts a new batch
+                batchLock.notifyAll();
+            }
+        }
+
+        if (!leader) return; //leader sends the batch, result arrives via pending
+
+        synchronized (batchLock)
+        {
+            //nothing else in flight: no batch will form, so don't hold this request back
+            long closeTime = active.get() > 1 ? System.currentTimeMillis() + batchWindow : 0;
+            long remaining;
+            while (openBatch == batch && (remaining = closeTime - System.currentTimeMillis()) > 0)
+            {
+                try
+                {
+                    batchLock.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            if (openBatch == batch) openBatch = null;
+        }
+
+        sendBatch(batch.requests, endpoint);
+    }
+
+    private void sendSingle(Pending pending)
+    {
+        try
+        {
+            pending.complete(readAll(transport.send(pending.request)), null);
+        }
+        catch (IOException e)
+        {
+            pending.complete(null, e);
+        }
+    }
+
+    private void sendBatch(List<Pending> requests, String endpoint)
+    {
+        if (requests.size() == 1)
+        {
+            sendSingle(requests.get(0));
+            return;
+        }
+
+        StringBuilder payload = new StringBuilder("[");
+        try
+        {
+            for (int i = 0; i < requests.size(); i++)
+            {
+                JSONObject item = new JSONObject(requests.get(i).json.toString());
+                item.put("id", i); //ids only need to be unique within the batch
+                if (i > 0) payload.append(',');
+                payload.append(item);
+            }
+        }
+        catch (JSONException e)
+        {
+            sendIndividually(requests);
+            return;
+        }
+        payload.append(']');
+
+        byte[][] results = null;
+        try
+        {
+            byte[] response = readAll(transport.send(payload.toString()));
+            results = splitBatchResponse(response, requests.size());
+            if (results == null && isBatchRejection(response))
+            {
+                Timber.w("Node on chain %d rejected a JSON-RPC batch; sending singly for %d minutes", chainId, BATCH_REJECT_MS / 60000);
+                batchRejected.put(rejectKey(chainId, endpoint), System.currentTimeMillis() + BATCH_REJECT_MS);
+            }
+        }
+        catch (IOException e)
+        {
+            Timber.d("Batch of %d failed on chain %d: %s", requests.size(), chainId, e.getMessage());
+        }
+
+        if (results == null)
+        {
+            sendIndividually(requests);
+            return;
+        }
+
+        batchesSent.incrementAndGet();
+        batchedRequests.addAndGet(requests.size());
+        for (int i = 0; i < requests.size(); i++)
+        {
+            Pending p = requests.get(i);
+            try
+            {
+                p.complete(withId(results[i], p.json.opt("id")), null);
+            }
+            catch (IOException e)
+            {
+                p.complete(null, e);
+            }
+        }
+    }
+
+    private void sendIndividually(List<Pending> requests)
+    {
+        for (Pending p : requests)
+        {
+            sendSingle(p);
+        }
+    }
+
+    /**
+     * @return true if the node answered a batch with a single error saying it doesn't take batches
+     */
+    static boolean isBatchRejection(byte[] response)
+    {
+        try
+        {
+            JSONObject json = new JSONObject(new String(response, StandardCharsets.UTF_8));
+            JSONObject error = json.optJSONObject("error");
+            String message = error != null ? error.optString("message") : json.optString("error");
+            return message.toLowerCase().contains("batch");
+        }
+        catch (JSONException e)
+        {
+            return false;
+        }
+    }
+
+    private static String rejectKey(long chainId, String endpoint)
+    {
+        return chainId + "|" + endpoint;
+    }
+
+    /**
+     * @return response for each request, in batch order, or null if this isn't a complete batch response
+     */
+    static byte[][] splitBatchResponse(byte[] response, int count)
+    {
+        try
+        {
+            JSONArray array = new JSONArray(new String(response, StandardCharsets.UTF_8));
+            if (array.length() != count) return null;
+
+            byte[][] results = new byte[count][];
+            for (int i = 0; i < array.length(); i++)
+            {
+                JSONObject item = array.getJSONObject(i);
+                int index = item.optInt("id", -1);
+                if (index < 0 || index >= count || results[index] != null) return null;
+                results[index] = item.toString().getBytes(StandardCharsets.UTF_8);
+            }
+
+            return results;
+        }
+        catch (JSONException e)
+        {
+            return null;
+        }
+    }
+
+    private static JSONObject parseCoalescable(String request)
+    {
+        String trimmed = request.trim();
+        if (!trimmed.startsWith("{")) return null; //caller built batch or unknown payload
+        try
+        {
+            JSONObject json = new JSONObject(trimmed);
+            return COALESCE_METHODS.matcher(json.optString("method")).matches() ? json : null;
+        }
+        catch (JSONException e)
+        {
+            return null;
+        }
+    }
+
+    private static byte[] withId(byte[] response, Object id) throws IOException
+    {
+        try
+        {
+            JSONObject json = new JSONObject(new String(response, StandardCharsets.UTF_8));
+            json.put("id", id != null ? id : JSONObject.NULL);
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        catch (JSONException e)
+        {
+            throw new IOException("Invalid JSON-RPC response", e);
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException
+    {
+        try (InputStream in = stream)
+        {
+            return Okio.buffer(Okio.source(in)).readByteArray();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.alphawallet.app.service;
+
+import android.text.format.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-chain RPC endpoint health model used by AWHttpServiceWaterfall to route requests.
+ *
+ * Each endpoint tracks an EWMA of latency, error rate and rate-limit (HTTP 429) rate. Repeated failures open a
+ * circuit for a cooldown period, during which the endpoint is only used as a last resort.
+ * Endpoints are ordered best first by expected cost; endpoints with no history are tried in random order so load
+ * is still spread across public nodes.
+ */
+public class RpcEndpointRouter
+{
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int FAILURES_TO_OPEN_CIRCUIT = 3;
+    private static final long BASE_COOLDOWN = 30 * DateUtils.SECOND_IN_MILLIS;
+    private static final long MAX_COOLDOWN = 5 * DateUtils.MINUTE_IN_MILLIS;
+    private static final int LATENCY_SAMPLES = 32;
+    private static final int MIN_SAMPLES_FOR_HEDGE = 8;
+    private static final long MIN_HEDGE_DELAY = 250;
+    private static final long UNKNOWN_LATENCY = 1000;
+
+    private static final Map<Long, Map<String, EndpointHealth>> chainEndpoints = new ConcurrentHashMap<>();
+    private static final Random random = new Random();
+    private static volatile boolean hedgeReads = true;
+
+    public static void setHedgeReads(boolean hedge)
+    {
+        hedgeReads = hedge;
+    }
+
+    /**
+     * Order the endpoints for a chain, best first. Endpoints with an open circuit are placed last.
+     */
+    public static List<String> orderEndpoints(long chainId, String[] urls)
+    {
+        List<String> shuffled = new ArrayList<>(Arrays.asList(urls));
+        Collections.shuffle(shuffled, random); //random tie-break for untested nodes
+        long currentTime = System.currentTimeMillis();
+
+        List<String> ordered = new ArrayList<>(shuffled.size());
+        List<String> circuitOpen = new ArrayList<>();
+        Map<String, Double> costs = new HashMap<>();
+        for (String url : shuffled)
+        {
+            EndpointHealth health = getHealth(chainId, url);
+            if (health.isCircuitOpen(currentTime))
+            {
+                circuitOpen.add(url);
+            }
+            else
+            {
+                costs.put(url, health.cost()); //take a stable copy, stats may change while sorting
+                ordered.add(url);
+            }
+        }
+
+        Collections.sort(ordered, (a, b) -> Double.compare(costs.get(a), costs.get(b)));
+        ordered.addAll(circuitOpen);
+        return ordered;
+    }
+
+    /**
+     * @return time to wait for the endpoint before hedging the request to a second node, or 0 for no hedging
+     */
+    public static long getHedgeDelay(long chainId, String url)
+    {
+        if (!hedgeReads) return 0;
+        EndpointHealth health = getHealth(chainId, url);
+        long p95 = health.getP95Latency();
+        return p95 > 0 ? Math.max(MIN_HEDGE_DELAY, p95) : 0;
+    }
+
+    public static void recordSuccess(long chainId, String url, long latency)
+    {
+        getHealth(chainId, url).onSuccess(latency);
+    }
+
+    public static void recordFailure(long chainId, String url, long latency, boolean rateLimited)
+    {
+        getHealth(chainId, url).onFailure(latency, rateLimited, System.currentTimeMillis());
+    }
+
+    /**
+     * Snapshot of the endpoint statistics for a chain, best endpoint first
+     */
+    public static List<EndpointStats> getChainStats(long chainId)
+    {
+        List<EndpointStats> stats = new ArrayList<>();
+        Map<String, EndpointHealth> endpoints = chainEndpoints.get(chainId);
+        if (endpoints == null) return stats;
+
+        long currentTime = System.currentTimeMillis();
+        for (Map.Entry<String, EndpointHealth> entry : endpoints.entrySet())
+        {
+            stats.add(entry.getValue().snapshot(entry.getKey(), currentTime));
+        }
+
+        Collections.sort(stats, (a, b) -> {
+            if (a.circuitOpen != b.circuitOpen) return a.circuitOpen ? 1 : -1;
+            return Double.compare(a.latency, b.latency);
+        });
+
+        return stats;
+    }
+
+    private static EndpointHealth getHealth(long chainId, String url)
+    {
+        return chainEndpoints.computeIfAbsent(chainId, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(url, k -> new EndpointHealth());
+    }
+
+    public static class EndpointStats
+    {
+        public final String url;
+        public final double latency;
+        public final long p95Latency;
+        public final double errorRate;
+        public final double rateLimitRate;
+        public final long requestCount;
+        public final boolean circuitOpen;
+
+        EndpointStats(String url, double latency, long p95Latency, double errorRate, double rateLimitRate, long requestCount, boolean circuitOpen)
+        {
+            this.url = url;
+            this.latency = latency;
+            this.p95Latency = p95Latency;
+            this.errorRate = errorRate;
+            this.rateLimitRate = rateLimitRate;
+            this.requestCount = requestCount;
+            this.circuitOpen = circuitOpen;
+        }
+
+        public boolean hasData()
+        {
+            return requestCount > 0;
+        }
+    }
+
+    private static class EndpointHealth
+    {
+        private double latency = -1;
+        private double errorRate = 0;
+        private double rateLimitRate = 0;
+        private long requestCount = 0;
+        private int consecutiveFailures = 0;
+        private int circuitOpenCount = 0;
+        private long circuitOpenUntil = 0;
+        private final long[] latencySamples = new long[LATENCY_SAMPLES];
+        private int sampleIndex = 0;
+        private int sampleCount = 0;
+
+        synchronized void onSuccess(long elapsed)
+        {
+            requestCount++;
+            latency = latency < 0 ? elapsed : ewma(latency, elapsed);
+            errorRate = ewma(errorRate, 0);
+            rateLimitRate = ewma(rateLimitRate, 0);
+            consecutiveFailures = 0;
+            circuitOpenCount = 0;
+            circuitOpenUntil = 0;
+            addSample(elapsed);
+        }
+
+        synchronized void onFailure(long elapsed, boolean rateLimited, long currentTime)
+        {
+            requestCount++;
+            errorRate = ewma(errorRate, 1);
+            rateLimitRate = ewma(rateLimitRate, rateLimited ? 1 : 0);
+            consecutiveFailures++;
+
+            if (rateLimited || consecutiveFailures >= FAILURES_TO_OPEN_CIRCUIT)
+            {
+                //back off further each time the circuit re-opens without an intervening success
+                long cooldown = Math.min(MAX_COOLDOWN, BASE_COOLDOWN << Math.min(circuitOpenCount, 4));
+                circuitOpenUntil = currentTime + cooldown;
+                circuitOpenCount++;
+                consecutiveFailures = 0;
+            }
+            else if (latency >= 0)
+            {
+                latency = ewma(latency, elapsed);
+            }
+        }
+
+        synchronized boolean isCircuitOpen(long currentTime)
+        {
+            return currentTime < circuitOpenUntil;
+        }
+
+        /**
+         * Expected cost of using this endpoint: latency inflated by the chance of having to retry elsewhere
+         */
+        synchronized double cost()
+        {
+            double expectedLatency = latency < 0 ? UNKNOWN_LATENCY : latency;
+            return expectedLatency * (1.0 + 4.0 * errorRate + 8.0 * rateLimitRate);
+        }
+
+        synchronized long getP95Latency()
+        {
+            if (sampleCount < MIN_SAMPLES_FOR_HEDGE) return 0;
+            long[] sorted = Arrays.copyOf(latencySamples, sampleCount);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.95 * sampleCount) - 1];
+        }
+
+        synchronized EndpointStats snapshot(String url, long currentTime)
+        {
+            return new EndpointStats(url, Math.max(latency, 0), getP95Latency(), errorRate, rateLimitRate,
+                    requestCount, isCircuitOpen(currentTime));
+        }
+
+        private void addSample(long elapsed)
+        {
+            latencySamples[sampleIndex] = elapsed;
+            sampleIndex = (sampleIndex + 1) % LATENCY_SAMPLES;
+            if (sampleCount < LATENCY_SAMPLES) sampleCount++;
+        }
+
+        private static double ewma(double current, double sample)
+        {
+            return EWMA_ALPHA * sample + (1.0 - EWMA_ALPHA) * current;
+        }
+    }
+}
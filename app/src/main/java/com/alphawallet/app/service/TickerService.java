@@ -65,6 +65,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -119,6 +120,22 @@ public class TickerService
     private static long lastTickerUpdate;
     private static int keyCycle = 0;
 
+    //CoinGecko calls share one budget, kept below the demo key limit; a 429 rotates to the other key in addAPIHeader
+    private static final int COINGECKO_CALLS_PER_MINUTE = 20;
+    private static final long MIN_TICKER_CHECK_INTERVAL = DateUtils.SECOND_IN_MILLIS;
+    private static final long MAX_TICKER_CHECK_INTERVAL = 2 * DateUtils.MINUTE_IN_MILLIS;
+    private static final int DISCOVERY_MAX_FETCH = 2; //token discovery API is still one call per token
+    private static final Map<String, Boolean> coinGeckoUnpriced = new ConcurrentHashMap<>(); //tokenIds CoinGecko returned no price for
+    private final ArrayDeque<Long> coinGeckoCallTimes = new ArrayDeque<>();
+    private long tickerCheckInterval = MIN_TICKER_CHECK_INTERVAL;
+
+    enum BatchResult
+    {
+        COMPLETE,
+        RATE_LIMITED,
+        FAILED
+    }
+
     @Nullable
     private Disposable tickerUpdateTimer;
 
@@ -234,12 +251,13 @@ public class TickerService
     {
         return Single.fromCallable(() -> {
             int tickers = 0;
-            Request request = new Request.Builder()
+            Request.Builder buildRequest = new Request.Builder()
                     .url(getCoinGeckoChainCall())
-                    .get()
-                    .build();
-            try (Response response = httpClient.newCall(request).execute())
+                    .get();
+            addAPIHeader(buildRequest);
+            try (Response response = httpClient.newCall(buildRequest.build()).execute())
             {
+                recordCoinGeckoCall(response.code());
                 if (response.code() / 200 == 1)
                 {
                     String result = response.body()
@@ -383,13 +401,176 @@ public class TickerService
     {
         if (!tokenCheckQueue.isEmpty() && (erc20TickerCheck == null || erc20TickerCheck.isDisposed()))
         {
-            erc20TickerCheck = Observable.interval(2, 2, TimeUnit.SECONDS)
-                    .doOnNext(l -> checkTokenDiscoveryTickers()).subscribe();
+            tickerCheckInterval = MIN_TICKER_CHECK_INTERVAL;
+            scheduleTickerCheck(0);
         }
 
         return tokenCheckQueue.size();
     }
 
+    private void scheduleTickerCheck(long delay)
+    {
+        erc20TickerCheck = Single.timer(delay, TimeUnit.MILLISECONDS)
+                .map(l -> checkTickerBatch())
+                .subscribeOn(Schedulers.io())
+                .observeOn(Schedulers.io())
+                .subscribe(this::onTickerBatchComplete, e -> onTickerBatchComplete(BatchResult.FAILED));
+    }
+
+    /**
+     * Schedule the next batch: back off while CoinGecko is failing or rate limiting, and never exceed the call budget
+     */
+    private void onTickerBatchComplete(BatchResult result)
+    {
+        if (tokenCheckQueue.isEmpty())
+        {
+            erc20TickerCheck = null;
+            return;
+        }
+
+        if (result == BatchResult.COMPLETE)
+        {
+            tickerCheckInterval = MIN_TICKER_CHECK_INTERVAL;
+        }
+        else
+        {
+            tickerCheckInterval = Math.min(MAX_TICKER_CHECK_INTERVAL, tickerCheckInterval * 2);
+        }
+
+        scheduleTickerCheck(Math.max(tickerCheckInterval, coinGeckoWaitTime()));
+    }
+
+    /**
+     * Price the next set of queued tokens from one chain with a single multi-address CoinGecko call.
+     * Tokens CoinGecko doesn't price (or chains it doesn't list) fall back to the token discovery API.
+     */
+    BatchResult checkTickerBatch()
+    {
+        List<TokenCardMeta> batch = nextTickerSet(COINGECKO_MAX_FETCH);
+        if (batch.isEmpty()) return BatchResult.COMPLETE;
+
+        long chainId = batch.get(0).getChain();
+        Map<String, TokenTicker> tickers = new HashMap<>();
+        BatchResult result = BatchResult.COMPLETE;
+        List<TokenCardMeta> geckoBatch = new ArrayList<>();
+        for (TokenCardMeta tcm : batch)
+        {
+            if (!coinGeckoUnpriced.containsKey(tcm.tokenId)) geckoBatch.add(tcm);
+        }
+
+        if (coinGeckoChainIdToAPIName.containsKey(chainId) && !geckoBatch.isEmpty())
+        {
+            if (coinGeckoWaitTime() > 0)
+            {
+                result = BatchResult.RATE_LIMITED;
+            }
+            else
+            {
+                result = fetchCoinGeckoTickers(chainId, geckoBatch, tickers);
+            }
+
+            if (result == BatchResult.RATE_LIMITED)
+            {
+                //try again once the budget allows
+                for (int i = batch.size() - 1; i >= 0; i--) tokenCheckQueue.addFirst(batch.get(i));
+                return result;
+            }
+        }
+
+        int discoveryCalls = 0;
+        for (TokenCardMeta tcm : batch)
+        {
+            if (tickers.containsKey(tcm.getAddress().toLowerCase())) continue;
+            if (result == BatchResult.COMPLETE) coinGeckoUnpriced.put(tcm.tokenId, true);
+            if (discoveryCalls++ < DISCOVERY_MAX_FETCH)
+            {
+                tickers.putAll(fetchTickers(tcm).blockingGet());
+            }
+            else
+            {
+                tokenCheckQueue.addLast(tcm); //will go straight to token discovery next time
+            }
+        }
+
+        if (!tickers.isEmpty())
+        {
+            localSource.updateERC20Tickers(chainId, tickers);
+        }
+
+        return result;
+    }
+
+    private BatchResult fetchCoinGeckoTickers(long chainId, List<TokenCardMeta> batch, Map<String, TokenTicker> tickers)
+    {
+        StringBuilder addresses = new StringBuilder();
+        for (TokenCardMeta tcm : batch)
+        {
+            if (addresses.length() > 0) addresses.append(",");
+            addresses.append(tcm.getAddress().toLowerCase());
+        }
+
+        Request.Builder buildRequest = new Request.Builder()
+                .url(COINGECKO_API.replace(CHAIN_IDS, coinGeckoChainIdToAPIName.get(chainId))
+                        .replace(CONTRACT_ADDR, addresses.toString())
+                        .replace(CURRENCY_TOKEN, currentCurrencySymbolTxt.toLowerCase()))
+                .get();
+        addAPIHeader(buildRequest);
+
+        try (Response response = httpClient.newCall(buildRequest.build()).execute())
+        {
+            recordCoinGeckoCall(response.code());
+            if (response.code() == 429)
+            {
+                return BatchResult.RATE_LIMITED;
+            }
+            else if (response.code() / 100 != 2 || response.body() == null)
+            {
+                return BatchResult.FAILED;
+            }
+
+            for (CoinGeckoTicker ticker : CoinGeckoTicker.buildTickerList(response.body().string(), currentCurrencySymbolTxt, currentConversionRate))
+            {
+                tickers.put(ticker.address.toLowerCase(), ticker.toTokenTicker(currentCurrencySymbolTxt));
+            }
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+            return BatchResult.FAILED;
+        }
+
+        return BatchResult.COMPLETE;
+    }
+
+    /**
+     * @return time until another CoinGecko call fits in the shared budget, zero if one can be made now
+     */
+    private long coinGeckoWaitTime()
+    {
+        synchronized (coinGeckoCallTimes)
+        {
+            long windowStart = System.currentTimeMillis() - DateUtils.MINUTE_IN_MILLIS;
+            while (!coinGeckoCallTimes.isEmpty() && coinGeckoCallTimes.peekFirst() < windowStart)
+            {
+                coinGeckoCallTimes.removeFirst();
+            }
+
+            return coinGeckoCallTimes.size() < COINGECKO_CALLS_PER_MINUTE ? 0 : coinGeckoCallTimes.peekFirst() - windowStart;
+        }
+    }
+
+    private void recordCoinGeckoCall(int responseCode)
+    {
+        synchronized (coinGeckoCallTimes)
+        {
+            coinGeckoCallTimes.addLast(System.currentTimeMillis());
+            if (responseCode == 429)
+            {
+                keyCycle++; //switch API key for the next call
+            }
+        }
+    }
+
     private void stopTickerCheck()
     {
         if (erc20TickerCheck != null && !erc20TickerCheck.isDisposed())
@@ -442,29 +623,6 @@ public class TickerService
         });
     }
 
-    private void checkTokenDiscoveryTickers()
-    {
-        TokenCardMeta thisTCM = tokenCheckQueue.pollFirst();
-        if (thisTCM == null)
-        {
-            //terminate the check cycle
-            if (erc20TickerCheck != null && !erc20TickerCheck.isDisposed()) erc20TickerCheck.dispose();
-            return;
-        }
-
-        fetchTickers(thisTCM)
-                .subscribeOn(Schedulers.io())
-                .observeOn(Schedulers.io())
-                .subscribe(tickers -> {
-                    //process ticker
-                    if (!tickers.isEmpty())
-                    {
-                        // update all the received tickers, tickers is an array of TokenTicker, how to convert this to a map?
-                        localSource.updateERC20Tickers(thisTCM.getChain(), tickers);
-                    }
-                }).isDisposed();
-    }
-
     private void checkPeggedTickers(long chainId, TokenTicker ticker)
     {
         if (chainId == MAINNET_ID)
@@ -719,6 +877,7 @@ public class TickerService
         //canUpdate.clear();
         ethTickers.clear();
         tokenCheckQueue.clear();
+        coinGeckoUnpriced.clear();
         dexGuruQuery.clear();
     }
 
@@ -0,0 +1,217 @@
+package com.alphawallet.app.service;
+
+import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.tools.TokenDefinition;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Size-bounded LRU of parsed TokenDefinitions, keyed by script file hash and locale.
+ *
+ * Also reads and writes a compact summary of each parsed script (name and holding contracts) in a small
+ * file named by the script's hash in the app's private cache, so listing and lookup paths can avoid building
+ * the DOM on a cold start. The full definition still requires a parse because its views and attribute origins
+ * are live DOM elements.
+ */
+public class TokenDefinitionCache
+{
+    private static final int MAX_DEFINITIONS = 8;
+    private static final String SUMMARY_EXTENSION = ".tsc";
+
+    private final LinkedHashMap<String, TokenDefinition> definitions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Gson gson = new Gson();
+    private final File summaryDir;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param summaryDir private directory for the script summaries; null to keep no summaries
+     */
+    public TokenDefinitionCache(File summaryDir)
+    {
+        this.summaryDir = summaryDir;
+    }
+
+    public synchronized TokenDefinition get(String fileHash, Locale locale)
+    {
+        TokenDefinition td = definitions.get(cacheKey(fileHash, locale));
+        if (td != null) hits++;
+        else misses++;
+        return td;
+    }
+
+    public synchronized void put(String fileHash, Locale locale, TokenDefinition td)
+    {
+        if (fileHash == null || fileHash.isEmpty() || td == null) return;
+        definitions.put(cacheKey(fileHash, locale), td);
+        if (definitions.size() > MAX_DEFINITIONS)
+        {
+            Iterator<String> eldest = definitions.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Find a resident definition whose holding token covers this contract
+     */
+    public synchronized TokenDefinition findByHoldingContract(long chainId, String address, Locale locale)
+    {
+        String localeSuffix = "-" + locale.toLanguageTag();
+        for (Map.Entry<String, TokenDefinition> entry : definitions.entrySet())
+        {
+            if (!entry.getKey().endsWith(localeSuffix)) continue;
+            TokenDefinition td = entry.getValue();
+            ContractInfo holdingContracts = td.contracts.get(td.holdingToken);
+            if (holdingContracts != null && holdingContracts.addresses.containsKey(chainId))
+            {
+                for (String addr : holdingContracts.addresses.get(chainId))
+                {
+                    if (addr.equalsIgnoreCase(address))
+                    {
+                        definitions.get(entry.getKey()); //refresh LRU position
+                        hits++;
+                        return td;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    public synchronized void remove(String fileHash)
+    {
+        definitions.keySet().removeIf(key -> key.startsWith(fileHash + "-"));
+        File summaryFile = summaryFile(fileHash);
+        if (summaryFile != null && summaryFile.exists() && !summaryFile.delete())
+        {
+            Timber.w("Unable to delete script summary %s", summaryFile.getName());
+        }
+    }
+
+    public synchronized void clear()
+    {
+        definitions.clear();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Write the summary of a parsed script, keyed by the script file's hash
+     */
+    public void writeSummary(String fileHash, TokenDefinition td)
+    {
+        File summaryFile = summaryFile(fileHash);
+        if (summaryFile == null || td == null || td.holdingToken == null) return;
+
+        Summary summary = new Summary(fileHash, td);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(summaryFile), StandardCharsets.UTF_8))
+        {
+            gson.toJson(summary, writer);
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+        }
+    }
+
+    /**
+     * @return the stored summary for this script, or null if absent or written for a different version of the file
+     */
+    public Summary readSummary(String fileHash)
+    {
+        File summaryFile = summaryFile(fileHash);
+        if (summaryFile == null || !summaryFile.exists()) return null;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(summaryFile), StandardCharsets.UTF_8))
+        {
+            Summary summary = gson.fromJson(reader, Summary.class);
+            if (summary != null && fileHash.equals(summary.fileHash) && summary.version == Summary.VERSION)
+            {
+                return summary;
+            }
+        }
+        catch (Exception e)
+        {
+            Timber.w(e);
+        }
+
+        return null;
+    }
+
+    private File summaryFile(String fileHash)
+    {
+        if (summaryDir == null || fileHash == null || fileHash.isEmpty()) return null;
+        if (!summaryDir.exists() && !summaryDir.mkdirs()) return null;
+        return new File(summaryDir, fileHash + SUMMARY_EXTENSION);
+    }
+
+    private static String cacheKey(String fileHash, Locale locale)
+    {
+        return fileHash + "-" + locale.toLanguageTag();
+    }
+
+    public static class Summary
+    {
+        static final int VERSION = 1;
+
+        int version = VERSION;
+        final String fileHash;
+        final String tokenName;
+        final String holdingToken;
+        final String contractInterface;
+        final Map<Long, List<String>> holdingAddresses = new HashMap<>();
+
+        Summary(String fileHash, TokenDefinition td)
+        {
+            this.fileHash = fileHash;
+            this.tokenName = td.getTokenName(1);
+            this.holdingToken = td.holdingToken;
+            ContractInfo holdingContracts = td.contracts.get(td.holdingToken);
+            this.contractInterface = holdingContracts != null ? holdingContracts.contractInterface : null;
+            if (holdingContracts != null)
+            {
+                for (Map.Entry<Long, List<String>> entry : holdingContracts.addresses.entrySet())
+                {
+                    holdingAddresses.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                }
+            }
+        }
+
+        public String getTokenName()
+        {
+            return tokenName;
+        }
+
+        public ContractInfo getHoldingContracts()
+        {
+            return new ContractInfo(contractInterface, holdingAddresses);
+        }
+    }
+}
@@ -34,7 +34,9 @@ import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.repository.EthereumNetworkBase;
 import com.alphawallet.app.repository.EthereumNetworkRepository;
 import com.alphawallet.app.repository.EthereumNetworkRepositoryType;
+import com.alphawallet.app.repository.MulticallBalanceEngine;
 import com.alphawallet.app.repository.TokenRepositoryType;
+import com.alphawallet.app.repository.TokensRealmSource;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.token.entity.ContractAddress;
 
@@ -46,19 +48,25 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import io.realm.Realm;
 import okhttp3.OkHttpClient;
 import timber.log.Timber;
@@ -72,7 +80,10 @@ public class TokensService
 
     private static final Map<Long, Long> pendingChainMap = new ConcurrentHashMap<>();
     private final ConcurrentLinkedDeque<Token> tokenStoreList = new ConcurrentLinkedDeque<>(); //used to hold tokens that will be stored
-    private final Map<String, Long> pendingTokenMap = new ConcurrentHashMap<>(); //used to determine which token to update next
+    private final BalanceUpdateQueue balanceUpdateQueue = new BalanceUpdateQueue(new UpdateWeighting()); //used to determine which tokens to update next
+    private final Subject<Long> balanceCheckTrigger = PublishSubject.<Long>create().toSerialized();
+    private final PortfolioAggregator portfolio = new PortfolioAggregator(); //running fiat value of the current wallet
+    private final Map<String, Double> tokenFiatValues = new ConcurrentHashMap<>(); //per token fiat value for the wallet view
     private String currentAddress = null;
     private final EthereumNetworkRepositoryType ethereumNetworkRepository;
     private final TokenRepositoryType tokenRepository;
@@ -105,6 +116,8 @@ public class TokensService
     @Nullable
     private Disposable balanceCheckDisposable;
     @Nullable
+    private Disposable chainBalanceDisposable;
+    @Nullable
     private Disposable erc20CheckDisposable;
     @Nullable
     private Disposable tokenStoreDisposable;
@@ -114,9 +127,16 @@ public class TokensService
     private Disposable imageWriter;
     @Nullable
     private Disposable okDisposable;
+    @Nullable
+    private Disposable tickerUpdateDisposable;
 
     private static boolean done = false;
 
+    private static final long MIN_BALANCE_CHECK_INTERVAL = 500;
+    private static final long MAX_BALANCE_CHECK_INTERVAL = 5 * DateUtils.SECOND_IN_MILLIS;
+    private static final int MAX_BALANCE_BATCH = 100;
+    private static final int MAX_PARALLEL_CHAIN_SYNC = 4;
+
     public TokensService(EthereumNetworkRepositoryType ethereumNetworkRepository,
                          TokenRepositoryType tokenRepository,
                          TickerService tickerService,
@@ -140,6 +160,8 @@ public class TokensService
         appHasFocus = true;
         transferCheckChain = 0;
         completionCallback = null;
+        tickerUpdateDisposable = tokenRepository.tickerUpdates()
+                .subscribe(portfolio::onTickerUpdate, this::onError);
     }
 
     private void checkUnknownTokens()
@@ -177,6 +199,7 @@ public class TokensService
     private void finishAddToken(BigDecimal balance)
     {
         queryUnknownTokensDisposable = null;
+        balanceUpdateQueue.invalidate();
     }
 
     public Token getToken(long chainId, String addr)
@@ -191,7 +214,14 @@ public class TokensService
         tokenStoreDisposable = tokenRepository.checkInterface(token, new Wallet(token.getWallet()))
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(tokenStoreList::add, this::onERC20Error);
+                .subscribe(this::addToStoreList, this::onERC20Error);
+    }
+
+    private void addToStoreList(Token token)
+    {
+        tokenStoreList.add(token);
+        balanceUpdateQueue.invalidate();
+        wakeBalanceCheck();
     }
 
     public TokenTicker getTokenTicker(Token token)
@@ -221,6 +251,8 @@ public class TokensService
         if (newWalletAddr != null && (currentAddress == null || !currentAddress.equalsIgnoreCase(newWalletAddr)))
         {
             currentAddress = newWalletAddr.toLowerCase();
+            portfolio.invalidate();
+            tokenFiatValues.clear();
             stopUpdateCycle();
             addLockedTokens();
             if (openseaService != null) openseaService.resetOffsetRead(networkFilter);
@@ -234,9 +266,11 @@ public class TokensService
         syncStart = System.currentTimeMillis();
         syncTimer = syncStart + 5*DateUtils.SECOND_IN_MILLIS;
 
-        eventTimer = Observable.interval(1, 500, TimeUnit.MILLISECONDS)
+        //each check schedules the next one for when a token is due; wakeBalanceCheck() brings it forward
+        eventTimer = balanceCheckTrigger.startWith(1L)
+                .switchMap(delay -> Observable.timer(delay, TimeUnit.MILLISECONDS))
                 .doOnNext(l -> checkTokensBalance())
-                .observeOn(Schedulers.newThread()).subscribe();
+                .observeOn(Schedulers.newThread()).subscribe(l -> { }, this::onError);
     }
 
     private long lastStartCycleTime = 0;
@@ -282,7 +316,7 @@ public class TokensService
         eventTimer = Single.fromCallable(() -> {
             startupPass();
             checkIssueTokens();
-            pendingTokenMap.clear();
+            balanceUpdateQueue.clear();
             checkTokensOnOKx();
             return true;
         }).subscribeOn(Schedulers.io())
@@ -290,33 +324,19 @@ public class TokensService
                 .subscribe(this::updateCycle, this::onError);
     }
 
-    // Constructs a map of tokens requiring update
-    private TokenCardMeta[] buildUpdateMap()
+    // Refreshes the in-memory update queue from the database if the token list has changed
+    private void refreshUpdateQueue(long currentTime)
     {
-        int unSynced = 0;
-        TokenCardMeta[] tokenList = tokenRepository.fetchTokenMetasForUpdate(new Wallet(currentAddress), networkFilter);
-        for (TokenCardMeta meta : tokenList)
+        if (balanceUpdateQueue.needsReload(currentTime))
         {
-            meta.lastTxUpdate = meta.lastUpdate;
-            String key = databaseKey(meta.getChain(), meta.getAddress());
-            if (!pendingTokenMap.containsKey(key))
-            {
-                if (meta.type == ContractType.ERC20 || meta.type == ContractType.ETHEREUM) unSynced++;
-                pendingTokenMap.put(key, meta.lastUpdate);
-            }
-            else if (meta.lastUpdate <= pendingTokenMap.get(key))
-            {
-                meta.lastUpdate = pendingTokenMap.get(key);
-                if ((meta.type == ContractType.ERC20 || meta.type == ContractType.ETHEREUM)
-                        && meta.lastUpdate < syncStart && meta.isEnabled && meta.hasValidName()) { unSynced++; }
-            }
-            else if ((meta.type == ContractType.ERC20 || meta.type == ContractType.ETHEREUM)
-                    && meta.lastUpdate < syncStart && meta.isEnabled && meta.hasValidName()) { unSynced++; }
+            TokenCardMeta[] tokenList = tokenRepository.fetchTokenMetasForUpdate(new Wallet(currentAddress), networkFilter);
+            balanceUpdateQueue.load(tokenList, currentTime);
         }
 
-        checkSyncStatus(unSynced, tokenList);
-
-        return tokenList;
+        if (syncTimer > 0 && currentTime > syncTimer)
+        {
+            checkSyncStatus(balanceUpdateQueue.countUnsynced(syncStart), balanceUpdateQueue.getTokenList());
+        }
     }
 
     private void checkSyncStatus(int unSynced, TokenCardMeta[] tokenList)
@@ -400,6 +420,7 @@ public class TokensService
         {
             networkFilter.add(chainId);
             ethereumNetworkRepository.setFilterNetworkList(networkFilter.toArray(new Long[0]));
+            balanceUpdateQueue.invalidate();
         }
 
         return tokenRepository.storeTokens(new Wallet(currentAddress), tok);
@@ -414,6 +435,7 @@ public class TokensService
         }
 
         if (balanceCheckDisposable != null && !balanceCheckDisposable.isDisposed()) { balanceCheckDisposable.dispose(); }
+        if (chainBalanceDisposable != null && !chainBalanceDisposable.isDisposed()) { chainBalanceDisposable.dispose(); }
         if (erc20CheckDisposable != null && !erc20CheckDisposable.isDisposed()) { erc20CheckDisposable.dispose(); }
         if (tokenStoreDisposable != null && !tokenStoreDisposable.isDisposed()) { tokenStoreDisposable.dispose(); }
         if (openSeaQueryDisposable != null && !openSeaQueryDisposable.isDisposed()) { openSeaQueryDisposable.dispose(); }
@@ -425,7 +447,7 @@ public class TokensService
         pendingChainMap.clear();
         tokenStoreList.clear();
         baseTokenCheck.clear();
-        pendingTokenMap.clear();
+        balanceUpdateQueue.clear();
         unknownTokens.clear();
         chainCheckList.clear();
     }
@@ -447,21 +469,31 @@ public class TokensService
         }
 
         if (userUpdated) ethereumNetworkRepository.setHasSetNetworkFilters();
+        balanceUpdateQueue.invalidate();
     }
 
     public void setFocusToken(@NotNull Token token)
     {
         focusToken = new ContractLocator(token.getAddress(), token.tokenInfo.chainId);
+        onUpdateWeightingChanged();
     }
 
     public void clearFocusToken()
     {
         focusToken = null;
+        onUpdateWeightingChanged();
+    }
+
+    private void onUpdateWeightingChanged()
+    {
+        balanceUpdateQueue.reschedule(System.currentTimeMillis());
+        wakeBalanceCheck();
     }
 
     public void onWalletRefreshSwipe()
     {
         openseaService.resetOffsetRead(networkFilter);
+        portfolio.invalidate(); //pick up hidden or re-grouped tokens on the next total
     }
 
     private boolean isFocusToken(Token t)
@@ -663,18 +695,138 @@ public class TokensService
 
     private void checkTokensBalance()
     {
-        final Token t = getNextInBalanceUpdateQueue();
+        long currentTime = System.currentTimeMillis();
+        refreshUpdateQueue(currentTime);
+        final Token t = getNextPriorityCheck();
 
         if (t != null)
         {
-            Timber.tag(TAG).d("Updating: " + t.tokenInfo.chainId + (t.isEthereum() ? " (Base Chain) ":"") + " : " + t.getAddress() + " : " + t.getFullName());
-            balanceCheckDisposable = tokenRepository.updateTokenBalance(currentAddress, t)
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(newBalance -> onBalanceChange(newBalance, t), this::onError);
+            updateTokenBalance(t);
+        }
+        else
+        {
+            dispatchBalanceUpdates(currentTime);
         }
 
         checkPendingChains();
+        scheduleNextBalanceCheck(currentTime);
+    }
+
+    private void dispatchBalanceUpdates(long currentTime)
+    {
+        List<TokenCardMeta> dueList = balanceUpdateQueue.pollDue(currentTime, MAX_BALANCE_BATCH);
+        if (dueList.isEmpty()) return;
+
+        TokenCardMeta first = dueList.get(0);
+        if (canBatchChainBalances(first))
+        {
+            //send all due chain and ERC20 balance checks on this chain in one request
+            updateChainBalances(first.getChain(), () -> resolveBatch(dueList, currentTime));
+        }
+        else
+        {
+            balanceUpdateQueue.markChecked(databaseKey(first.getChain(), first.getAddress()), currentTime);
+            for (int i = 1; i < dueList.size(); i++) { balanceUpdateQueue.requeue(dueList.get(i), currentTime); }
+            updateTokenBalance(first.getChain(), first.getAddress());
+        }
+    }
+
+    //Reads each Token from the database, so must be run on a worker thread rather than the balance check timer
+    private List<Token> resolveBatch(List<TokenCardMeta> dueList, long currentTime)
+    {
+        List<Token> batch = new ArrayList<>();
+        for (TokenCardMeta meta : dueList)
+        {
+            Token t = (meta.isEthereum() || meta.type == ContractType.ERC20) ? getToken(meta.getChain(), meta.getAddress()) : null;
+            if (t != null)
+            {
+                balanceUpdateQueue.markChecked(databaseKey(meta.getChain(), meta.getAddress()), currentTime);
+                batch.add(t);
+            }
+            else
+            {
+                balanceUpdateQueue.requeue(meta, currentTime);
+            }
+        }
+
+        return batch;
+    }
+
+    private void updateTokenBalance(long chainId, String address)
+    {
+        balanceCheckDisposable = Maybe.fromCallable(() -> getToken(chainId, address))
+                .subscribeOn(Schedulers.io())
+                .subscribe(this::updateTokenBalance, this::onError);
+    }
+
+    private void updateTokenBalance(final Token t)
+    {
+        Timber.tag(TAG).d("Updating: " + t.tokenInfo.chainId + (t.isEthereum() ? " (Base Chain) ":"") + " : " + t.getAddress() + " : " + t.getFullName());
+        balanceCheckDisposable = tokenRepository.updateTokenBalance(currentAddress, t)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(newBalance -> onBalanceChange(newBalance, t), this::onError);
+    }
+
+    private void scheduleNextBalanceCheck(long currentTime)
+    {
+        long delay;
+        if (!tokenStoreList.isEmpty() || !baseTokenCheck.isEmpty())
+        {
+            delay = MIN_BALANCE_CHECK_INTERVAL;
+        }
+        else
+        {
+            long nextDue = balanceUpdateQueue.nextDueTime();
+            delay = nextDue == Long.MAX_VALUE ? MAX_BALANCE_CHECK_INTERVAL : nextDue - currentTime;
+        }
+
+        delay = Math.max(MIN_BALANCE_CHECK_INTERVAL, Math.min(MAX_BALANCE_CHECK_INTERVAL, delay));
+        balanceCheckTrigger.onNext(delay);
+    }
+
+    /**
+     * Bring the next balance check forward, eg when a token is added or the focus token changes
+     */
+    private void wakeBalanceCheck()
+    {
+        if (eventTimer != null && !eventTimer.isDisposed())
+        {
+            balanceCheckTrigger.onNext(0L);
+        }
+    }
+
+    private boolean canBatchChainBalances(TokenCardMeta meta)
+    {
+        return (meta.isEthereum() || meta.type == ContractType.ERC20)
+                && MulticallBalanceEngine.isSupported(meta.getChain())
+                && (chainBalanceDisposable == null || chainBalanceDisposable.isDisposed());
+    }
+
+    /**
+     * @param resolveTokens supplies the tokens to refresh; called on the io thread as it reads the database
+     */
+    private void updateChainBalances(long chainId, Callable<List<Token>> resolveTokens)
+    {
+        final Wallet wallet = new Wallet(currentAddress);
+        chainBalanceDisposable = Single.fromCallable(resolveTokens)
+                .flatMap(chainTokens -> {
+                    Timber.tag(TAG).d("Updating chain: %s (%s tokens)", chainId, chainTokens.size());
+                    return tokenRepository.updateChainBalances(wallet, chainId, chainTokens)
+                            .map(balances -> new Pair<>(chainTokens, balances));
+                })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(result -> onChainBalances(result.second, result.first), this::onError);
+    }
+
+    private void onChainBalances(Map<String, BigDecimal> balances, List<Token> chainTokens)
+    {
+        for (Token t : chainTokens)
+        {
+            BigDecimal newBalance = balances.get(t.getAddress().toLowerCase());
+            if (newBalance != null) onBalanceChange(newBalance, t);
+        }
     }
 
     public Single<BigDecimal> getChainBalance(String walletAddress, long chainId)
@@ -734,6 +886,23 @@ public class TokensService
         });
     }
 
+    /**
+     * Refresh the base chain balance of a set of wallets. Each chain is one batched request covering all the wallets,
+     * with up to MAX_PARALLEL_CHAIN_SYNC chains in flight at once, so the time taken no longer grows with the number of wallets.
+     *
+     * @param walletAddresses wallets to update
+     * @param chains chains to check
+     * @return one emission per chain as it completes, mapping lower case wallet address to its new balance
+     */
+    public Observable<Map<String, BigDecimal>> syncWalletBalances(List<String> walletAddresses, List<Long> chains)
+    {
+        if (walletAddresses.isEmpty()) return Observable.empty();
+        return Observable.fromIterable(new ArrayList<>(chains))
+                .flatMap(chainId -> tokenRepository.updateNativeBalances(chainId, walletAddresses)
+                        .onErrorReturnItem(Collections.emptyMap())
+                        .toObservable(), MAX_PARALLEL_CHAIN_SYNC);
+    }
+
     private void onBalanceChange(BigDecimal newBalance, Token t)
     {
         boolean balanceChange = !newBalance.equals(t.balance);
@@ -741,16 +910,26 @@ public class TokensService
         if (newBalance.equals(BigDecimal.valueOf(-2)))
         {
             //token deleted
+            portfolio.remove(portfolioKey(t));
             return;
         }
 
+        if (balanceChange)
+        {
+            updatePortfolio(newBalance, t);
+        }
+
         if (balanceChange && BuildConfig.DEBUG)
         {
             Timber.tag(TAG).d("Change Registered: * %s", t.getFullName());
         }
 
         //update check time
-        pendingTokenMap.put(databaseKey(t), System.currentTimeMillis());
+        balanceUpdateQueue.markChecked(databaseKey(t), System.currentTimeMillis());
+        if (balanceChange && (t.balance.signum() > 0) != (newBalance.signum() > 0))
+        {
+            balanceUpdateQueue.invalidate(); //update frequency depends on a positive balance
+        }
 
         //Switch this token chain on
         if (t.isEthereum() && newBalance.compareTo(BigDecimal.ZERO) > 0)
@@ -777,6 +956,7 @@ public class TokensService
             networkFilter.add(t.tokenInfo.chainId);
             //now update the default filters
             ethereumNetworkRepository.setFilterNetworkList(networkFilter.toArray(new Long[0]));
+            balanceUpdateQueue.invalidate();
         }
     }
 
@@ -788,6 +968,7 @@ public class TokensService
             if (currentTime > pendingChainMap.get(chainId))
             {
                 pendingChainMap.remove(chainId);
+                balanceUpdateQueue.reschedule(currentTime);
             }
         }
     }
@@ -981,11 +1162,50 @@ public class TokensService
     public void markChainPending(long chainId)
     {
         pendingChainMap.put(chainId, System.currentTimeMillis() + PENDING_TIME_LIMIT);
+        onUpdateWeightingChanged();
     }
 
+    /**
+     * Total fiat value and 24h-ago value of the current wallet. Only the first call for a wallet reads the database,
+     * after that the value is maintained incrementally from balance and ticker changes.
+     */
     public Single<Pair<Double, Double>> getFiatValuePair()
     {
-        return tokenRepository.getTotalValue(currentAddress, EthereumNetworkBase.getAllMainNetworks());
+        final String walletAddress = currentAddress;
+        if (portfolio.isCurrent(walletAddress))
+        {
+            return Single.fromCallable(portfolio::getValue);
+        }
+
+        return tokenRepository.fetchFiatHoldings(walletAddress, EthereumNetworkBase.getAllMainNetworks())
+                .map(holdings -> portfolio.reset(walletAddress, holdings));
+    }
+
+    /**
+     * @return stream of wallet fiat value changes; call getFiatValuePair() to start tracking the current wallet
+     */
+    public Observable<Pair<Double, Double>> getFiatValueUpdates()
+    {
+        return portfolio.valueUpdates();
+    }
+
+    private void updatePortfolio(BigDecimal newBalance, Token t)
+    {
+        //NFT value is not currently added to the wallet total
+        if (t.isNonFungible() || t.group == TokenGroup.NFT || t.group == TokenGroup.SPAM
+                || !EthereumNetworkBase.getAllMainNetworks().contains(t.tokenInfo.chainId))
+        {
+            return;
+        }
+
+        String key = portfolioKey(t);
+        TokenTicker ticker = portfolio.isTracked(key) ? null : getTokenTicker(t); //first sight of this token: price it
+        portfolio.onBalanceChange(t.getWallet(), key, TokensRealmSource.correctBalance(newBalance, t.tokenInfo.decimals), ticker);
+    }
+
+    private static String portfolioKey(Token t)
+    {
+        return databaseKey(t.tokenInfo.chainId, t.isEthereum() ? "eth" : t.getAddress().toLowerCase());
     }
 
     public Single<List<String>> getTickerUpdateList()
@@ -1017,88 +1237,138 @@ public class TokensService
         return fiatValue.doubleValue();
     }
 
+    /**
+     * Fiat value of a token for display, from the values precomputed off the main thread.
+     * Falls back to reading the token and ticker if the value hasn't been computed yet.
+     */
+    public double getCachedFiatValue(long chainId, String address)
+    {
+        Double value = tokenFiatValues.get(databaseKey(chainId, address));
+        if (value == null)
+        {
+            value = getTokenFiatValue(chainId, address);
+            tokenFiatValues.put(databaseKey(chainId, address), value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Compute the fiat values of these tokens ahead of display; call from a background thread
+     */
+    public TokenCardMeta[] precomputeFiatValues(TokenCardMeta[] metas)
+    {
+        for (TokenCardMeta meta : metas)
+        {
+            tokenFiatValues.put(databaseKey(meta.getChain(), meta.getAddress()), getTokenFiatValue(meta.getChain(), meta.getAddress()));
+        }
+
+        return metas;
+    }
+
+    /**
+     * Recompute the fiat values of tokens whose tickers have changed; call from a background thread
+     */
+    public List<String> refreshFiatValues(List<String> updatedContracts)
+    {
+        Set<String> contracts = new HashSet<>();
+        for (String address : updatedContracts) contracts.add(address.toLowerCase());
+
+        for (String key : tokenFiatValues.keySet())
+        {
+            int index = key.indexOf('-');
+            long chainId = Long.parseLong(key.substring(index + 1));
+            String address = key.substring(0, index);
+            if (contracts.contains(address))
+            {
+                tokenFiatValues.put(key, getTokenFiatValue(chainId, address));
+            }
+        }
+
+        return updatedContracts;
+    }
+
     ///////////////////////////////////////////
     // Update Heuristics - timings and weightings for token updates
     // Fine tune how and when tokens are updated here
 
     /**
-     * Token update heuristic - calculates which token should be updated next
-     * @return Token that needs updating
+     * Tokens which jump the balance update queue: chains being checked for a balance and newly stored tokens
+     * @return Token that needs updating, or null
      */
+    private Token getNextPriorityCheck()
+    {
+        Token storeToken = pendingBaseCheck();
+        if (storeToken == null) { storeToken = tokenStoreList.poll(); }
+        return storeToken;
+    }
 
+    /**
+     * Token update heuristic - calculates when each token is eligible for an update and its importance once eligible
+     */
     //TODO: Integrate the transfer check update time into the priority calculation
     //TODO: If we have done a transfer check recently then we don't need to check balance here
-    public Token getNextInBalanceUpdateQueue()
+    private class UpdateWeighting implements BalanceUpdateQueue.Weighting
     {
-        //pull all tokens from this wallet out of DB
-        TokenCardMeta[] tokenList = buildUpdateMap();
+        @Override
+        public long updateInterval(TokenCardMeta check, long currentTime)
+        {
+            long lastUpdateDiff = check.lastTxUpdate > 0 ? currentTime - check.lastTxUpdate : 0;
+            long cutoffCheck = check.calculateUpdateFrequency(); //normal minimum update frequency for token 30 seconds, 5 minutes for hidden token
 
-        //calculate update based on last update time & importance
-        float highestWeighting = 0;
-        long currentTime = System.currentTimeMillis();
-        Token storeToken = pendingBaseCheck();
-        if (storeToken == null) { storeToken = tokenStoreList.poll(); }
-        if (storeToken != null) { return storeToken; }
+            if (!check.isEthereum() && lastUpdateDiff > DateUtils.DAY_IN_MILLIS)
+            {
+                cutoffCheck = 120*DateUtils.SECOND_IN_MILLIS;
+            }
 
-        TokenCardMeta highestToken = null;
+            if (isFocusToken(check) || (check.isEthereum() && pendingChainMap.containsKey(check.getChain())))
+            {
+                cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS; //focus token can be checked every 15 seconds - focus token when erc20 or chain clicked on in wallet
+            }
+            else if (check.isEthereum())
+            {
+                cutoffCheck = 20*DateUtils.SECOND_IN_MILLIS; //update check limit for base chains is 20 seconds
+            }
+            else if (focusToken != null)
+            {
+                cutoffCheck = 60*DateUtils.SECOND_IN_MILLIS; //when looking at token in detail view (ERC20TokenDetail) update other tokens at 1 minute cycle
+            }
 
-        //this list will be in order of update.
-        for (TokenCardMeta check : tokenList)
+            return cutoffCheck;
+        }
+
+        @Override
+        public float updateFactor(TokenCardMeta check, long currentTime)
         {
+            if ((!check.isEnabled || check.isNFT()) && !isSynced()) return 0; //don't start looking at NFT balances until we sync the chain/ERC20 tokens
+            if (!isSynced() && check.lastUpdate > syncStart) return 0; //don't start updating already updated tokens until all ERC20 are checked
+            if (!appHasFocus && (!check.isEthereum() && !isFocusToken(check))) return 0; //only check chains when wallet out of focus
+
             long lastCheckDiff = currentTime - check.lastUpdate;
             long lastUpdateDiff = check.lastTxUpdate > 0 ? currentTime - check.lastTxUpdate : 0;
 
-            float weighting = check.calculateBalanceUpdateWeight();
-
-            if ((!check.isEnabled || check.isNFT()) && !isSynced()) continue; //don't start looking at NFT balances until we sync the chain/ERC20 tokens
-            if (!isSynced() && check.lastUpdate > syncStart) continue; //don't start updating already updated tokens until all ERC20 are checked
-            if (!appHasFocus && (!check.isEthereum() && !isFocusToken(check))) continue; //only check chains when wallet out of focus
-
             //simply multiply the weighting by the last diff.
-            float updateFactor = weighting * (float) lastCheckDiff * (check.isEnabled ? 1 : 0.25f);
-            long cutoffCheck = check.calculateUpdateFrequency(); //normal minimum update frequency for token 30 seconds, 5 minutes for hidden token
+            float updateFactor = check.calculateBalanceUpdateWeight() * (float) lastCheckDiff * (check.isEnabled ? 1 : 0.25f);
 
             if (!check.isEthereum() && lastUpdateDiff > DateUtils.DAY_IN_MILLIS)
             {
-                cutoffCheck = 120*DateUtils.SECOND_IN_MILLIS;
                 updateFactor = 0.5f * updateFactor;
             }
 
             if (isFocusToken(check))
             {
                 updateFactor = 3.0f * (float) lastCheckDiff;
-                cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS; //focus token can be checked every 15 seconds - focus token when erc20 or chain clicked on in wallet
             }
             else if (check.isEthereum() && pendingChainMap.containsKey(check.getChain())) //higher priority for checking balance of pending chain
             {
-                cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS;
                 updateFactor = 4.0f * (float) lastCheckDiff; //chain has a recent transaction
             }
-            else if (check.isEthereum())
-            {
-                cutoffCheck = 20*DateUtils.SECOND_IN_MILLIS; //update check limit for base chains is 20 seconds
-            }
-            else if (focusToken != null)
+            else if (focusToken != null && !check.isEthereum())
             {
                 updateFactor = 0.1f * (float) lastCheckDiff;
-                cutoffCheck = 60*DateUtils.SECOND_IN_MILLIS; //when looking at token in detail view (ERC20TokenDetail) update other tokens at 1 minute cycle
-            }
-
-            if (updateFactor > highestWeighting && (lastCheckDiff > (float)cutoffCheck))
-            {
-                highestWeighting = updateFactor;
-                highestToken = check;
             }
-        }
 
-        if (highestToken != null)
-        {
-            pendingTokenMap.put(databaseKey(highestToken.getChain(), highestToken.getAddress()), System.currentTimeMillis());
-            return getToken(highestToken.getChain(), highestToken.getAddress());
-        }
-        else
-        {
-            return null;
+            return updateFactor;
         }
     }
 
@@ -1193,6 +1463,9 @@ public class TokensService
         {
             if (t != null) tokenStoreList.addFirst(t);
         }
+
+        balanceUpdateQueue.invalidate();
+        wakeBalanceCheck();
     }
 
     //Add in any tokens required to be shown - mainly used by forks for always showing a specific token
@@ -1227,8 +1500,7 @@ public class TokensService
     public void walletInFocus()
     {
         appHasFocus = true;
-
-        //running or not?
+        wakeBalanceCheck();
     }
 
     public void walletOutOfFocus()
@@ -1325,6 +1597,7 @@ public class TokensService
         }
 
         tokenStoreList.add(token);
+        wakeBalanceCheck();
     }
 
     private Token createCurrencyToken(NetworkInfo network, Wallet wallet)
@@ -1354,6 +1627,7 @@ public class TokensService
         syncCount = sync;
         completionCallback = cb;
         syncTimer = System.currentTimeMillis();
+        balanceUpdateQueue.invalidate();
 
         if (sync > 0)
         {
@@ -1378,6 +1652,7 @@ public class TokensService
         if (BuildConfig.DEBUG && !done) //Ensure release build never deletes all the tickers
         {
             done = true;
+            portfolio.invalidate();
             Single.fromCallable(() -> {
                 tickerService.deleteTickers();
                 return true;
@@ -1413,7 +1688,7 @@ public class TokensService
             tokenRepository.deleteRealmTokens(new Wallet(currentAddress), metasToDelete);
             for (TokenCardMeta tcm : metasToDelete)
             {
-                pendingTokenMap.remove(databaseKey(tcm.getChain(), tcm.getAddress()));
+                balanceUpdateQueue.remove(databaseKey(tcm.getChain(), tcm.getAddress()));
             }
             return true;
         });
@@ -8,6 +8,7 @@ import android.util.Pair;
 import androidx.annotation.Nullable;
 
 import com.alphawallet.app.BuildConfig;
+import com.alphawallet.app.entity.LogFetchEngine;
 import com.alphawallet.app.entity.NetworkInfo;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.TransactionMeta;
@@ -505,6 +506,7 @@ public class TransactionsService
 
     public void changeWallet(Wallet newWallet)
     {
+        LogFetchEngine.retainWallet(newWallet.address);
         if (!newWallet.address.equalsIgnoreCase(tokensService.getCurrentAddress()))
         {
             stopAllChainUpdate();
@@ -0,0 +1,264 @@
+package com.alphawallet.app.service;
+
+import com.alphawallet.app.C;
+import com.alphawallet.app.entity.NetworkInfo;
+import com.alphawallet.app.repository.EthereumNetworkBase;
+import com.alphawallet.app.repository.KeyProviderFactory;
+
+import org.web3j.protocol.Web3j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Process wide node transport. All Web3j services share one connection pool and dispatcher, so TLS sessions and
+ * HTTP/2 connections to the RPC nodes are reused across callers instead of being rebuilt for every request.
+ *
+ * Web3j instances are cached per chain and timeout profile, and rebuilt if the chain's RPC URLs change.
+ */
+public class TransportRegistry
+{
+    public enum Profile
+    {
+        STANDARD(C.CONNECT_TIMEOUT, C.READ_TIMEOUT * 3),
+        EVENTS(C.CONNECT_TIMEOUT * 3, C.READ_TIMEOUT * 3), //event reads can take longer
+        LONG(C.CONNECT_TIMEOUT * 4, C.READ_TIMEOUT * 4);
+
+        final long connectTimeout;
+        final long readTimeout;
+
+        Profile(long connectTimeout, long readTimeout)
+        {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+        }
+    }
+
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 64;
+    private static final int MAX_REQUESTS_PER_HOST = 16;
+
+    private static final Metrics metrics = new Metrics();
+    private static final ConnectionPool connectionPool = new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+    private static final Map<Profile, OkHttpClient> clients = new EnumMap<>(Profile.class);
+    private static final Map<String, ServiceEntry> services = new ConcurrentHashMap<>();
+    private static OkHttpClient baseClient;
+
+    private static class ServiceEntry
+    {
+        final String[] rpcUrls;
+        final Web3j web3j;
+
+        ServiceEntry(String[] rpcUrls, Web3j web3j)
+        {
+            this.rpcUrls = rpcUrls;
+            this.web3j = web3j;
+        }
+    }
+
+    /**
+     * @return shared Web3j for this chain, rebuilt if the chain's RPC URLs have changed since it was created
+     */
+    public static Web3j getWeb3j(long chainId, Profile profile)
+    {
+        NetworkInfo info = EthereumNetworkBase.getNetwork(chainId);
+        String key = chainId + "-" + profile.name();
+        ServiceEntry entry = services.get(key);
+        if (entry != null && Arrays.equals(entry.rpcUrls, info.rpcUrls))
+        {
+            metrics.serviceHits.incrementAndGet();
+            return entry.web3j;
+        }
+
+        synchronized (services)
+        {
+            entry = services.get(key);
+            if (entry == null || !Arrays.equals(entry.rpcUrls, info.rpcUrls))
+            {
+                AWHttpServiceWaterfall nodeService = new AWHttpServiceWaterfall(info.rpcUrls, chainId, getClient(profile),
+                        KeyProviderFactory.get().getInfuraKey(), KeyProviderFactory.get().getInfuraSecret(),
+                        KeyProviderFactory.get().getKlaytnKey(), false);
+                entry = new ServiceEntry(info.rpcUrls.clone(), Web3j.build(nodeService));
+                services.put(key, entry);
+                metrics.serviceBuilds.incrementAndGet();
+            }
+
+            return entry.web3j;
+        }
+    }
+
+    /**
+     * @return client with the timeouts of this profile which shares the common connection pool and dispatcher
+     */
+    public static synchronized OkHttpClient getClient(Profile profile)
+    {
+        OkHttpClient client = clients.get(profile);
+        if (client == null)
+        {
+            client = getBaseClient().newBuilder()
+                    .connectTimeout(profile.connectTimeout, TimeUnit.SECONDS)
+                    .readTimeout(profile.readTimeout, TimeUnit.SECONDS)
+                    .build();
+            clients.put(profile, client);
+        }
+
+        return client;
+    }
+
+    /**
+     * Drop the cached services for a chain, eg after its RPC settings are edited
+     */
+    public static void invalidate(long chainId)
+    {
+        services.keySet().removeIf(key -> key.startsWith(chainId + "-"));
+    }
+
+    public static Metrics getMetrics()
+    {
+        return metrics;
+    }
+
+    private static synchronized OkHttpClient getBaseClient()
+    {
+        if (baseClient == null)
+        {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(MAX_REQUESTS);
+            dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+            baseClient = new OkHttpClient.Builder()
+                    .connectionPool(connectionPool)
+                    .dispatcher(dispatcher)
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .writeTimeout(C.LONG_WRITE_TIMEOUT, TimeUnit.SECONDS)
+                    .retryOnConnectionFailure(true)
+                    .eventListenerFactory(call -> new MetricsListener())
+                    .build();
+        }
+
+        return baseClient;
+    }
+
+    /**
+     * Connection reuse and TLS handshake counters for the shared transport
+     */
+    public static class Metrics
+    {
+        private final AtomicLong connectionsAcquired = new AtomicLong();
+        private final AtomicLong connectionsOpened = new AtomicLong();
+        private final AtomicLong connectFailures = new AtomicLong();
+        private final AtomicLong handshakes = new AtomicLong();
+        private final AtomicLong handshakeNanos = new AtomicLong();
+        private final AtomicLong serviceHits = new AtomicLong();
+        private final AtomicLong serviceBuilds = new AtomicLong();
+
+        public int getPooledConnections()
+        {
+            return connectionPool.connectionCount();
+        }
+
+        public int getIdleConnections()
+        {
+            return connectionPool.idleConnectionCount();
+        }
+
+        public long getConnectionsAcquired()
+        {
+            return connectionsAcquired.get();
+        }
+
+        public long getConnectionsOpened()
+        {
+            return connectionsOpened.get();
+        }
+
+        public long getConnectFailures()
+        {
+            return connectFailures.get();
+        }
+
+        public long getHandshakes()
+        {
+            return handshakes.get();
+        }
+
+        public long getAverageHandshakeMillis()
+        {
+            long count = handshakes.get();
+            return count > 0 ? TimeUnit.NANOSECONDS.toMillis(handshakeNanos.get() / count) : 0;
+        }
+
+        public long getServiceHits()
+        {
+            return serviceHits.get();
+        }
+
+        public long getServiceBuilds()
+        {
+            return serviceBuilds.get();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "pool=" + getPooledConnections() + " idle=" + getIdleConnections()
+                    + " acquired=" + getConnectionsAcquired() + " opened=" + getConnectionsOpened()
+                    + " failed=" + getConnectFailures() + " handshakes=" + getHandshakes()
+                    + " avgHandshake=" + getAverageHandshakeMillis() + "ms"
+                    + " services=" + getServiceBuilds() + "/" + (getServiceBuilds() + getServiceHits());
+        }
+    }
+
+    private static class MetricsListener extends EventListener
+    {
+        private long handshakeStart;
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy)
+        {
+            metrics.connectionsOpened.incrementAndGet();
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe)
+        {
+            metrics.connectFailures.incrementAndGet();
+        }
+
+        @Override
+        public void secureConnectStart(Call call)
+        {
+            handshakeStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake)
+        {
+            metrics.handshakes.incrementAndGet();
+            metrics.handshakeNanos.addAndGet(System.nanoTime() - handshakeStart);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection)
+        {
+            metrics.connectionsAcquired.incrementAndGet();
+        }
+    }
+}
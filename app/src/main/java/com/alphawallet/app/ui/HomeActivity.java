@@ -63,6 +63,7 @@ import com.alphawallet.app.entity.WalletType;
 import com.alphawallet.app.entity.attestation.AttestationImportInterface;
 import com.alphawallet.app.entity.attestation.SmartPassReturn;
 import com.alphawallet.app.entity.tokens.TokenCardMeta;
+import com.alphawallet.app.repository.RealmWriteQueue;
 import com.alphawallet.app.router.ImportTokenRouter;
 import com.alphawallet.app.service.DeepLinkService;
 import com.alphawallet.app.service.GasService;
@@ -214,6 +215,7 @@ public class HomeActivity extends BaseNavigationActivity implements View.OnClick
             case ON_RESUME:
                 break;
             case ON_PAUSE:
+                RealmWriteQueue.flushAll();
                 break;
             case ON_STOP:
                 Timber.tag("LIFE").d("AlphaWallet into background");
@@ -412,6 +412,7 @@ public class WalletFragment extends BaseFragment implements
         {
             //now refresh the tokens to pick up any new ticker updates
             viewModel.getTokensService().getTickerUpdateList()
+                    .map(viewModel.getTokensService()::refreshFiatValues)
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(adapter::notifyTickerUpdate)
@@ -41,7 +41,9 @@ import com.alphawallet.app.ui.widget.holder.TransferHolder;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import timber.log.Timber;
 
@@ -95,6 +97,7 @@ public class ActivityAdapter extends RecyclerView.Adapter<BinderViewHolder<?>> i
     private int itemLimit = 0;
     private int lastItemPos = 0;
     private boolean pendingReset = false;
+    private final Map<String, Long> shownItems = new HashMap<>(); //row key -> content version of the rows in the list
 
     public ActivityAdapter(TokensService service, FetchTransactionsInteract fetchTransactionsInteract,
                            AssetDefinitionService svs, ActivityDataInteract dataInteract) {
@@ -228,6 +231,10 @@ public class ActivityAdapter extends RecyclerView.Adapter<BinderViewHolder<?>> i
         }
     }
 
+    /**
+     * Merge rows into the list. Rows already shown with the same content are skipped, so a refresh which re-reads
+     * the feed only touches the rows that are new or have changed (eg a pending transaction which has been mined).
+     */
     public void updateActivityItems(ActivityMeta[] activityItems)
     {
         if (activityItems.length == 0) return ;
@@ -240,6 +247,9 @@ public class ActivityAdapter extends RecyclerView.Adapter<BinderViewHolder<?>> i
 
         for (ActivityMeta item : activityItems)
         {
+            Long shownVersion = shownItems.put(itemKey(item), itemVersion(item));
+            if (shownVersion != null && shownVersion == itemVersion(item)) continue;
+
             if (item instanceof TransactionMeta)
             {
                 TransactionSortedItem sortedItem = new TransactionSortedItem(TransactionHolder.VIEW_TYPE, (TransactionMeta)item, TimestampSortedItem.DESC);
@@ -265,9 +275,48 @@ public class ActivityAdapter extends RecyclerView.Adapter<BinderViewHolder<?>> i
 
     public void clear() {
         items.clear();
+        shownItems.clear();
         notifyDataSetChanged();
     }
 
+    private static String itemKey(ActivityMeta item)
+    {
+        if (item instanceof TransactionMeta)
+        {
+            return "t-" + ((TransactionMeta) item).chainId + "-" + item.hash;
+        }
+        else if (item instanceof EventMeta)
+        {
+            return "e-" + item.hash + "-" + ((EventMeta) item).eventName;
+        }
+        else if (item instanceof TokenTransferData)
+        {
+            TokenTransferData ttd = (TokenTransferData) item;
+            return "x-" + item.hash + "-" + ttd.tokenAddress + "-" + ttd.eventName + "-" + item.getTimeStamp();
+        }
+        else
+        {
+            return item.getClass().getSimpleName() + "-" + item.hash;
+        }
+    }
+
+    private static long itemVersion(ActivityMeta item)
+    {
+        if (item instanceof TransactionMeta)
+        {
+            return item.getTimeStamp() * 2 + (((TransactionMeta) item).isPending ? 1 : 0);
+        }
+        else if (item instanceof TokenTransferData)
+        {
+            String detail = ((TokenTransferData) item).transferDetail;
+            return detail != null ? detail.hashCode() : 0;
+        }
+        else
+        {
+            return item.getTimeStamp();
+        }
+    }
+
     private void applyItemLimit()
     {
         if (itemLimit == 0) return;
@@ -296,6 +345,7 @@ public class ActivityAdapter extends RecyclerView.Adapter<BinderViewHolder<?>> i
         for (SortedItem sortedItem : removalObjects)
         {
             items.remove(sortedItem);
+            if (sortedItem.value instanceof ActivityMeta) shownItems.remove(itemKey((ActivityMeta) sortedItem.value));
         }
     }
 
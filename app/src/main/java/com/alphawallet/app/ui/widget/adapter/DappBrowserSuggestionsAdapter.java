@@ -22,6 +22,7 @@ import com.alphawallet.app.entity.DApp;
 import com.alphawallet.app.ui.widget.entity.ItemClickListener;
 import com.alphawallet.app.ui.widget.entity.SuggestionsFilter;
 import com.alphawallet.app.util.DappBrowserUtils;
+import com.alphawallet.app.util.DappHistoryStore;
 import com.alphawallet.app.util.Utils;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.DataSource;
@@ -31,10 +32,14 @@ import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class DappBrowserSuggestionsAdapter extends ArrayAdapter<DApp> implements Filterable {
     private final List<DApp> suggestions;
+    private final Set<String> suggestionUrls = new HashSet<>();
+    private final DappHistoryStore historyStore;
     public List<DApp> filteredSuggestions;
     private final ItemClickListener listener;
     private final Vibrator vibrate;
@@ -49,12 +54,13 @@ public class DappBrowserSuggestionsAdapter extends ArrayAdapter<DApp> implements
         this.vibrate = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
         //this.text = "";
 
-        // Append browser history to known DApps list during initialisation
-        addSuggestions(DappBrowserUtils.getBrowserHistory(context));
+        // Browser history is searched through its index when filtering rather than copied in here
+        this.historyStore = DappHistoryStore.getInstance(context);
+        for (DApp d : suggestions) suggestionUrls.add(d.getUrl());
     }
 
     public void addSuggestion(DApp dapp) {
-        if (!suggestions.contains(dapp)) {
+        if (suggestionUrls.add(dapp.getUrl())) {
             suggestions.add(dapp);
             notifyDataSetChanged();
         }
@@ -62,7 +68,7 @@ public class DappBrowserSuggestionsAdapter extends ArrayAdapter<DApp> implements
 
     public void addSuggestions(List<DApp> dapps) {
         for (DApp d : dapps) {
-            if (!suggestions.contains(d)) {
+            if (suggestionUrls.add(d.getUrl())) {
                 suggestions.add(d);
             }
         }
@@ -71,6 +77,7 @@ public class DappBrowserSuggestionsAdapter extends ArrayAdapter<DApp> implements
 
     public void removeSuggestion(String dappUrl)
     {
+        suggestionUrls.remove(dappUrl);
         filterList(suggestions, dappUrl);
         filterList(filteredSuggestions, dappUrl);
     }
@@ -110,7 +117,7 @@ public class DappBrowserSuggestionsAdapter extends ArrayAdapter<DApp> implements
     @NonNull
     @Override
     public Filter getFilter() {
-        return new SuggestionsFilter(this, suggestions);
+        return new SuggestionsFilter(this, suggestions, historyStore);
     }
 
     @NonNull
@@ -10,6 +10,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.alphawallet.app.R;
@@ -32,10 +33,13 @@ import java.util.Map;
 
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 
 public class NFTAssetsAdapter extends RecyclerView.Adapter<NFTAssetsAdapter.ViewHolder>
 {
+    private static final int PREFETCH_COUNT = 10;
+
     private final Activity activity;
     private final OnAssetClickListener listener;
     private final Token token;
@@ -45,6 +49,9 @@ public class NFTAssetsAdapter extends RecyclerView.Adapter<NFTAssetsAdapter.View
     private final List<Pair<BigInteger, NFTAsset>> actualData;
     private final List<Pair<BigInteger, NFTAsset>> displayData;
     private String lastFilter;
+    private int prefetchedTo = -1;
+    @Nullable
+    private Disposable prefetchDisposable;
 
     public NFTAssetsAdapter(Activity activity, Token token, OnAssetClickListener listener, OpenSeaService openSeaSvs, boolean isGrid)
     {
@@ -119,6 +126,36 @@ public class NFTAssetsAdapter extends RecyclerView.Adapter<NFTAssetsAdapter.View
         {
             fetchAsset(holder, pair);
         }
+
+        prefetchMetadata(position);
+    }
+
+    /**
+     * Warm the metadata cache for the next items below the scroll position, so they bind from cache
+     */
+    private void prefetchMetadata(int position)
+    {
+        if (EthereumNetworkBase.hasOpenseaAPI(token.tokenInfo.chainId)
+                || position + PREFETCH_COUNT / 2 < prefetchedTo
+                || (prefetchDisposable != null && !prefetchDisposable.isDisposed()))
+        {
+            return;
+        }
+
+        int end = Math.min(displayData.size(), position + 1 + PREFETCH_COUNT);
+        List<BigInteger> tokenIds = new ArrayList<>();
+        for (int i = Math.max(position + 1, prefetchedTo + 1); i < end; i++)
+        {
+            NFTAsset asset = displayData.get(i).second;
+            if (asset != null && asset.requiresReplacement()) tokenIds.add(displayData.get(i).first);
+        }
+
+        prefetchedTo = end - 1;
+        if (tokenIds.isEmpty()) return;
+
+        prefetchDisposable = token.prefetchTokenMetadata(tokenIds)
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> { }, e -> { });
     }
 
     private void displayAsset(@NotNull ViewHolder holder, NFTAsset asset, BigInteger tokenId)
@@ -241,6 +278,7 @@ public class NFTAssetsAdapter extends RecyclerView.Adapter<NFTAssetsAdapter.View
 
     public void updateList(List<Pair<BigInteger, NFTAsset>> list)
     {
+        prefetchedTo = -1;
         displayData.clear();
         displayData.addAll(list);
         sortData();
@@ -286,6 +324,11 @@ public class NFTAssetsAdapter extends RecyclerView.Adapter<NFTAssetsAdapter.View
 
     public void onDestroy()
     {
+        if (prefetchDisposable != null && !prefetchDisposable.isDisposed())
+        {
+            prefetchDisposable.dispose();
+        }
+
         //clear all loaders
         for (Pair<BigInteger, NFTAsset> assetPair : displayData)
         {
@@ -13,6 +13,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.alphawallet.app.R;
 import com.alphawallet.app.repository.EthereumNetworkBase;
 import com.alphawallet.app.repository.TokenRepository;
+import com.alphawallet.app.service.RpcEndpointRouter;
 import com.alphawallet.app.widget.TokenIcon;
 import com.alphawallet.ethereum.NetworkInfo;
 
@@ -67,7 +68,7 @@ public class NodeStatusAdapter extends RecyclerView.Adapter<NodeStatusAdapter.Vi
             {
                 holder.status.setBackgroundResource(R.drawable.ic_node_strong);
             }
-            else if (nodeStatus == NodeStatus.MEDIUM)
+            else if (nodeStatus == NodeStatus.MEDIUM || nodeStatus == NodeStatus.WEAK)
             {
                 holder.status.setBackgroundResource(R.drawable.ic_node_medium);
             }
@@ -105,6 +106,7 @@ public class NodeStatusAdapter extends RecyclerView.Adapter<NodeStatusAdapter.Vi
             long endTime = System.currentTimeMillis();
             long latency = endTime - startTime;
             status = latency < 1000 ? NodeStatus.STRONG : NodeStatus.MEDIUM;
+            status = statusFromEndpointHealth(chainId, status);
         }
         catch (Exception e)
         {
@@ -114,6 +116,36 @@ public class NodeStatusAdapter extends RecyclerView.Adapter<NodeStatusAdapter.Vi
         return status;
     }
 
+    /**
+     * Use the routing statistics gathered from normal RPC traffic, which give a better picture than a single ping
+     */
+    private NodeStatus statusFromEndpointHealth(long chainId, NodeStatus pingStatus)
+    {
+        List<RpcEndpointRouter.EndpointStats> stats = RpcEndpointRouter.getChainStats(chainId);
+        if (stats.isEmpty() || !stats.get(0).hasData()) return pingStatus;
+
+        RpcEndpointRouter.EndpointStats best = stats.get(0);
+        Timber.d("Node stats: chain %s: %s latency %sms p95 %sms errors %s 429 %s", chainId, best.url,
+                (long) best.latency, best.p95Latency, best.errorRate, best.rateLimitRate);
+
+        if (best.circuitOpen)
+        {
+            return NodeStatus.NOT_RESPONDING;
+        }
+        else if (best.latency < 1000 && best.errorRate < 0.1)
+        {
+            return NodeStatus.STRONG;
+        }
+        else if (best.latency < 3000 && best.errorRate < 0.5)
+        {
+            return NodeStatus.MEDIUM;
+        }
+        else
+        {
+            return NodeStatus.WEAK;
+        }
+    }
+
     private void updateStatus(long chainId, NodeStatus status)
     {
         statusMap.put(chainId, status);
@@ -1,6 +1,7 @@
 package com.alphawallet.app.ui.widget.adapter;
 
 import android.content.Intent;
+import android.view.Choreographer;
 import android.view.ViewGroup;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -46,8 +47,13 @@ import com.alphawallet.token.entity.ViewType;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
 {
@@ -115,6 +121,17 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
     private boolean searchBarAdded;
     private boolean manageTokenLayoutAdded;
 
+    //token rows by tokenId; SortedList can then find a row by binary search instead of scanning
+    private final Map<String, TokenSortedItem> tokenIndex = new HashMap<>();
+    //the same rows by contract address, for ticker updates which arrive per contract
+    private final Map<String, Map<String, TokenSortedItem>> addressIndex = new HashMap<>();
+
+    //balance and ticker updates arriving between frames are applied together in one batched pass
+    private final Map<String, TokenCardMeta> pendingMetas = new LinkedHashMap<>();
+    private final Set<String> pendingTickers = new HashSet<>();
+    private boolean frameScheduled;
+    private final Choreographer.FrameCallback applyPendingUpdates = frameTimeNanos -> applyPendingUpdates();
+
     public TokensAdapter(TokensAdapterCallback tokensAdapterCallback, AssetDefinitionService aService, TokensService tService,
                          ActivityResultLauncher<Intent> launcher)
     {
@@ -265,12 +282,21 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
 
     public void setTokens(TokenCardMeta[] tokens)
     {
+        cancelPendingUpdates(); //superseded by the full token list
         populateTokens(tokens, true);
     }
 
+    /**
+     * Queue balance updates; all updates received before the next frame are applied in one batched pass
+     */
     public void updateTokenMetas(TokenCardMeta[] tokens)
     {
-        populateTokens(tokens, false);
+        for (TokenCardMeta token : tokens)
+        {
+            pendingMetas.put(token.tokenId.toLowerCase(Locale.ROOT), token);
+        }
+
+        scheduleFrame();
     }
 
     /**
@@ -286,15 +312,17 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
             removeMatchingTokenDifferentWeight(token);
             if (gridFlag)
             {
-                items.add(new TokenSortedItem(TokenGridHolder.VIEW_TYPE, token, token.getNameWeight()));
+                TokenSortedItem gridItem = new TokenSortedItem(TokenGridHolder.VIEW_TYPE, token, token.getNameWeight());
+                items.add(gridItem);
+                indexToken(gridItem);
                 return;
             }
 
             TokenSortedItem tsi = new TokenSortedItem(TokenHolder.VIEW_TYPE, token, token.getNameWeight());
-            tsi.setFiatValue(tokensService.getTokenFiatValue(token.getChain(), token.getAddress()));
+            tsi.setFiatValue(tokensService.getCachedFiatValue(token.getChain(), token.getAddress()));
             if (debugView) tsi.debug();
-            int index = findItem(tsi);
-            if (index > -1)
+            int index = findToken(token);
+            if (index > -1 && items.get(index).viewType == tsi.viewType)
             {
                 items.updateItemAt(index, tsi);
             }
@@ -310,6 +338,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
                     items.add(chainItem);
                 }
             }
+            indexToken(tsi);
         }
         else
         {
@@ -319,7 +348,61 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
 
     private boolean doesNotExist(SortedItem<?> token)
     {
-        return findItem(token) == -1;
+        return items.indexOf(token) == SortedList.INVALID_POSITION && findItem(token) == -1;
+    }
+
+    /**
+     * @return row of the token, found through the index, or -1
+     */
+    private int findToken(TokenCardMeta token)
+    {
+        String key = indexKey(token);
+        TokenSortedItem indexed = tokenIndex.get(key);
+        if (indexed == null) return -1;
+
+        int index = items.indexOf(indexed);
+        if (index == SortedList.INVALID_POSITION)
+        {
+            //sort position moved under the item (eg fiat value changed in place); fall back to a scan
+            index = findItem(indexed);
+            if (index == -1) unindexToken(indexed.value); //removed by a path that doesn't maintain the index
+        }
+
+        return index;
+    }
+
+    private static String indexKey(TokenCardMeta token)
+    {
+        return token.tokenId.toLowerCase(Locale.ROOT);
+    }
+
+    private void indexToken(TokenSortedItem tsi)
+    {
+        String key = indexKey(tsi.value);
+        tokenIndex.put(key, tsi);
+        String address = tsi.value.getAddress().toLowerCase(Locale.ROOT);
+        Map<String, TokenSortedItem> rows = addressIndex.get(address);
+        if (rows == null)
+        {
+            rows = new HashMap<>();
+            addressIndex.put(address, rows);
+        }
+        rows.put(key, tsi);
+    }
+
+    private void unindexToken(TokenCardMeta token)
+    {
+        String key = indexKey(token);
+        tokenIndex.remove(key);
+        String address = token.getAddress().toLowerCase(Locale.ROOT);
+        Map<String, TokenSortedItem> rows = addressIndex.get(address);
+        if (rows != null && rows.remove(key) != null && rows.isEmpty()) addressIndex.remove(address);
+    }
+
+    private void clearIndex()
+    {
+        tokenIndex.clear();
+        addressIndex.clear();
     }
 
     private int findItem(SortedItem<?> tsi)
@@ -336,36 +419,22 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
 
     private void removeMatchingTokenDifferentWeight(TokenCardMeta token)
     {
-        for (int i = 0; i < items.size(); i++)
+        int index = findToken(token);
+        if (index > -1 && ((TokenSortedItem) items.get(index)).value.getNameWeight() != token.getNameWeight())
         {
-            if (items.get(i) instanceof TokenSortedItem tsi)
-            {
-                if (tsi.value.equals(token))
-                {
-                    if (tsi.value.getNameWeight() != token.getNameWeight())
-                    {
-                        items.removeItemAt(i);
-                        break;
-                    }
-                }
-            }
+            items.removeItemAt(index);
+            unindexToken(token);
         }
     }
 
     public void removeToken(TokenCardMeta token)
     {
-        for (int i = 0; i < items.size(); i++)
+        if (token == null || token.tokenId == null) return;
+        int index = findToken(token);
+        if (index > -1)
         {
-            Object si = items.get(i);
-            if (si instanceof TokenSortedItem tsi && tsi.value.tokenId != null)
-            {
-                TokenCardMeta thisToken = tsi.value;
-                if (thisToken.tokenId.equalsIgnoreCase(token.tokenId))
-                {
-                    items.remove(tsi);
-                    break;
-                }
-            }
+            items.removeItemAt(index);
+            unindexToken(token);
         }
     }
 
@@ -379,6 +448,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
                 if (tsi.value.tokenId.toLowerCase(Locale.ROOT).startsWith(removalKey))
                 {
                     items.remove(tsi);
+                    unindexToken(tsi.value);
                     return tsi;
                 }
             }
@@ -398,6 +468,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
                 if (thisToken.tokenId.equals(tokenId))
                 {
                     items.remove(tsi);
+                    unindexToken(thisToken);
                     return tsi;
                 }
             }
@@ -417,6 +488,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
                 if (thisToken.tokenId.toLowerCase(Locale.ROOT).startsWith(tokenKey))
                 {
                     items.remove(tsi);
+                    unindexToken(thisToken);
                     return tsi;
                 }
             }
@@ -477,6 +549,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
         if (clear)
         {
             items.clear();
+            clearIndex();
             searchBarAdded = false;
             manageTokenLayoutAdded = false;
         }
@@ -542,8 +615,10 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
 
     public void clear()
     {
+        cancelPendingUpdates();
         items.beginBatchedUpdates();
         items.clear();
+        clearIndex();
         items.endBatchedUpdates();
     }
 
@@ -581,7 +656,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
 
     public void onDestroy(RecyclerView recyclerView)
     {
-
+        cancelPendingUpdates();
     }
 
     public void setDebug()
@@ -589,23 +664,88 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
         debugView = true;
     }
 
+    /**
+     * Queue a ticker refresh for these contracts; applied with any balance updates on the next frame
+     */
     public void notifyTickerUpdate(List<String> updatedContracts)
     {
-        //check through tokens; refresh relevant tickers
-        for (int i = 0; i < items.size(); i++)
+        for (String address : updatedContracts)
         {
-            Object si = items.get(i);
-            if (si instanceof TokenSortedItem)
+            pendingTickers.add(address.toLowerCase(Locale.ROOT));
+        }
+
+        scheduleFrame();
+    }
+
+    private void scheduleFrame()
+    {
+        if (!frameScheduled)
+        {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(applyPendingUpdates);
+        }
+    }
+
+    private void cancelPendingUpdates()
+    {
+        if (frameScheduled)
+        {
+            Choreographer.getInstance().removeFrameCallback(applyPendingUpdates);
+            frameScheduled = false;
+        }
+        pendingMetas.clear();
+        pendingTickers.clear();
+    }
+
+    private void applyPendingUpdates()
+    {
+        frameScheduled = false;
+        if (!pendingMetas.isEmpty())
+        {
+            TokenCardMeta[] metas = pendingMetas.values().toArray(new TokenCardMeta[0]);
+            pendingMetas.clear();
+            populateTokens(metas, false);
+        }
+
+        if (!pendingTickers.isEmpty())
+        {
+            applyTickerUpdates(pendingTickers);
+            pendingTickers.clear();
+        }
+    }
+
+    private void applyTickerUpdates(Set<String> updatedContracts)
+    {
+        List<TokenSortedItem> updated = new ArrayList<>();
+        for (String address : updatedContracts)
+        {
+            Map<String, TokenSortedItem> rows = addressIndex.get(address);
+            if (rows == null) continue;
+            for (TokenSortedItem tsi : rows.values())
             {
-                TokenCardMeta tcm = ((TokenSortedItem) si).value;
-                if (updatedContracts.contains(tcm.getAddress()))
-                {
-                    TokenSortedItem tsi = (TokenSortedItem) si;
-                    tsi.setFiatValue(tokensService.getTokenFiatValue(tcm.getChain(), tcm.getAddress()));
-                    notifyItemChanged(i); //optimise update - no need to update elements without tickers
-                }
+                if (tsi.viewType == TokenHolder.VIEW_TYPE) updated.add(tsi);
             }
         }
+
+        if (updated.isEmpty()) return;
+
+        items.beginBatchedUpdates();
+        for (TokenSortedItem tsi : updated)
+        {
+            int index = items.indexOf(tsi); //found by the old fiat value, before it changes
+            if (index == SortedList.INVALID_POSITION) index = findItem(tsi);
+            if (index == -1) continue;
+            tsi.setFiatValue(tokensService.getCachedFiatValue(tsi.value.getChain(), tsi.value.getAddress()));
+            items.recalculatePositionOfItemAt(index); //fiat value is part of the sort order
+        }
+        items.endBatchedUpdates();
+
+        //recalculatePositionOfItemAt only moves the row; redraw the new value wherever it ended up
+        for (TokenSortedItem tsi : updated)
+        {
+            int index = items.indexOf(tsi);
+            if (index != SortedList.INVALID_POSITION) notifyItemChanged(index);
+        }
     }
 
     public List<TokenCardMeta> getSelected()
@@ -644,6 +784,7 @@ public class TokensAdapter extends RecyclerView.Adapter<BinderViewHolder>
     public void addToken(SortedItem<TokenCardMeta> token)
     {
         items.add(token);
+        if (token instanceof TokenSortedItem tsi) indexToken(tsi);
     }
 
     public void checkWalletConnect()
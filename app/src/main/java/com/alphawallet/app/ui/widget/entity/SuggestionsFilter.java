@@ -3,21 +3,28 @@ package com.alphawallet.app.ui.widget.entity;
 import android.widget.Filter;
 
 import com.alphawallet.app.ui.widget.adapter.DappBrowserSuggestionsAdapter;
+import com.alphawallet.app.util.DappHistoryStore;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.alphawallet.app.entity.DApp;
 
 public class SuggestionsFilter extends Filter {
+    private static final int MAX_HISTORY_SUGGESTIONS = 20;
+
     private final DappBrowserSuggestionsAdapter adapter;
     private final List<DApp> originalList;
+    private final DappHistoryStore historyStore;
     private final List<DApp> filteredList;
 
-    public SuggestionsFilter(DappBrowserSuggestionsAdapter adapter, List<DApp> originalList) {
+    public SuggestionsFilter(DappBrowserSuggestionsAdapter adapter, List<DApp> originalList, DappHistoryStore historyStore) {
         super();
         this.adapter = adapter;
         this.originalList = originalList;
+        this.historyStore = historyStore;
         this.filteredList = new ArrayList<>();
     }
 
@@ -25,14 +32,19 @@ public class SuggestionsFilter extends Filter {
     protected FilterResults performFiltering(CharSequence constraint) {
         filteredList.clear();
         final FilterResults results = new FilterResults();
+        final Set<String> added = new HashSet<>();
 
         if (constraint == null || constraint.length() == 0) {
-            filteredList.addAll(originalList);
+            addAll(originalList, added);
+            addAll(historyStore.getHistory(), added);
         } else {
             final String filterPattern = constraint.toString().toLowerCase().trim();
 
+            //visited pages matching the start of the url or title, most recent first
+            addAll(historyStore.search(filterPattern, MAX_HISTORY_SUGGESTIONS), added);
+
             for (final DApp dapp : originalList) {
-                if (dapp.getName().toLowerCase().contains(filterPattern)) {
+                if (dapp.getName().toLowerCase().contains(filterPattern) && added.add(dapp.getUrl())) {
                     filteredList.add(dapp);
                 }
             }
@@ -42,6 +54,12 @@ public class SuggestionsFilter extends Filter {
         return results;
     }
 
+    private void addAll(List<DApp> dapps, Set<String> added) {
+        for (DApp dapp : dapps) {
+            if (added.add(dapp.getUrl())) filteredList.add(dapp);
+        }
+    }
+
     @Override
     protected void publishResults(CharSequence constraint, FilterResults results) {
         adapter.filteredSuggestions.clear();
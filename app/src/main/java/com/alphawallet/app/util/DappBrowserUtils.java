@@ -11,7 +11,6 @@ import android.text.TextUtils;
 
 import androidx.preference.PreferenceManager;
 
-import com.alphawallet.app.C;
 import com.alphawallet.app.entity.DApp;
 import com.google.android.gms.common.util.HttpUtils;
 import com.google.gson.Gson;
@@ -27,17 +26,20 @@ import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class DappBrowserUtils
 {
     private static final String DAPPS_LIST_FILENAME = "dapps_list.json";
     private static final String MY_DAPPS_FILE = "mydapps";
-    private static final String DAPPS_HISTORY_FILE = "dappshistory";
     private static final String DEFAULT_HOMEPAGE = "https://ramestta.com";
     private static final String POLYGON_HOMEPAGE = "https://alphawallet.com/browser-item-category/polygon/";
 
+    private static Set<String> knownDappDomains;
+
     //TODO: Move to database
     public static void saveToPrefs(Context context, List<DApp> myDapps)
     {
@@ -86,66 +88,10 @@ public class DappBrowserUtils
         return dapps;
     }
 
-    //TODO: Remove this from prefs, add to database
     public static List<DApp> getBrowserHistory(Context context)
     {
         if (context == null) return new ArrayList<>();
-        String historyJson = loadJsonData(DAPPS_HISTORY_FILE, context);
-        if (TextUtils.isEmpty(historyJson)) blankPrefEntry(context, C.DAPP_BROWSER_HISTORY); //blank legacy
-
-        List<DApp> history;
-        if (historyJson.isEmpty())
-        {
-            history = new ArrayList<>();
-        }
-        else
-        {
-            history = new Gson().fromJson(historyJson, new TypeToken<ArrayList<DApp>>()
-            {
-            }.getType());
-        }
-
-        int historyLen = history.size();
-
-        history = parseDappHistory(history);
-
-        if (historyLen != history.size())
-        {
-            String dappHistory = new Gson().toJson(history);
-            storeJsonData(DAPPS_HISTORY_FILE, dappHistory, context);
-        }
-
-        return history;
-    }
-
-    private static List<DApp> parseDappHistory(List<DApp> history)
-    {
-        boolean requireRefresh = false;
-        List<DApp> recodeHistory = new ArrayList<>();
-        for (DApp dapp : history)
-        {
-            if (TextUtils.isEmpty(dapp.getUrl()))
-            {
-                continue;
-            }
-            if (isValidUrl(dapp.getUrl()))
-            {
-                recodeHistory.add(dapp);
-            }
-            else
-            {
-                requireRefresh = true;
-            }
-        }
-
-        if (requireRefresh)
-        {
-            return recodeHistory;
-        }
-        else
-        {
-            return history;
-        }
+        return DappHistoryStore.getInstance(context).getHistory();
     }
 
     private static void storeJsonData(String fName, String json, Context context)
@@ -190,53 +136,20 @@ public class DappBrowserUtils
     {
         if (context != null)
         {
-            storeJsonData(DAPPS_HISTORY_FILE, "", context);
+            DappHistoryStore.getInstance(context).clear();
         }
     }
 
     public static void addToHistory(Context context, DApp dapp)
     {
-        if (dapp == null || isWithinHomePage(dapp.getUrl())) return;
-        List<DApp> history = new ArrayList<>(Collections.singletonList(dapp));
-        history.addAll(getBrowserHistory(context));
-        if (history.size() > 1)
-        {
-            for (int i = 1; i < history.size(); i++)
-            {
-                if (history.get(i).getUrl().equals(dapp.getUrl()))
-                {
-                    history.remove(i); //remove older item
-                    break;
-                }
-            }
-        }
-
-        saveHistory(context, history);
+        if (context == null || dapp == null || isWithinHomePage(dapp.getUrl())) return;
+        DappHistoryStore.getInstance(context).add(dapp);
     }
 
     public static void removeFromHistory(Context context, String url)
     {
-        List<DApp> history = getBrowserHistory(context);
-
-        List<Integer> removeList = new ArrayList<>();
-
-        for (int i = 0; i < history.size(); i++)
-        {
-            if (history.get(i).getUrl().equals(url))
-            {
-                removeList.add(i);
-            }
-        }
-
-        removeList.sort((d1, d2) -> Integer.compare(d2, d1));
-
-        //remove in reverse order
-        for (Integer i : removeList)
-        {
-            history.remove((int)i);
-        }
-
-        saveHistory(context, history);
+        if (context == null) return;
+        DappHistoryStore.getInstance(context).remove(url);
     }
 
     public static String getIconUrl(String url)
@@ -256,28 +169,30 @@ public class DappBrowserUtils
 
     public static boolean isInDappsList(Context context, String candidateURL)
     {
-        List<DApp> knownDapps = getDappsList(context);
         //strip the URL to get only the domain
-        String candidateDomain = Utils.getDomainName(candidateURL);
-        
-        for (DApp dapp : knownDapps)
-        {
-            String thisDomain = Utils.getDomainName(dapp.getUrl());
-            if (candidateDomain.equals(thisDomain))
-            {
-                return true;
-            }
-        }
-        return false;
+        return getKnownDappDomains(context).contains(Utils.getDomainName(candidateURL));
     }
 
-    private static void saveHistory(Context context, List<DApp> history)
+    /**
+     * @return domains of the bundled dapp list; the asset is only parsed once
+     */
+    private static synchronized Set<String> getKnownDappDomains(Context context)
     {
-        if (context != null)
+        if (knownDappDomains == null)
         {
-            String dappHistory = new Gson().toJson(history);
-            storeJsonData(DAPPS_HISTORY_FILE, dappHistory, context);
+            Set<String> domains = new HashSet<>();
+            List<DApp> knownDapps = getDappsList(context);
+            if (knownDapps != null)
+            {
+                for (DApp dapp : knownDapps)
+                {
+                    domains.add(Utils.getDomainName(dapp.getUrl()));
+                }
+            }
+            knownDappDomains = Collections.unmodifiableSet(domains);
         }
+
+        return knownDappDomains;
     }
 
     //Legacy data, blanked after first restore. TODO: Remove after a few version updates
@@ -0,0 +1,312 @@
+package com.alphawallet.app.util;
+
+import static com.alphawallet.app.util.Utils.isValidUrl;
+
+import android.content.Context;
+
+import com.alphawallet.app.entity.DApp;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import timber.log.Timber;
+
+/**
+ * Dapp browser history, held in memory in visit order with a prefix index over URLs and titles.
+ *
+ * Visits are persisted as lines appended to a log file, so recording a page load costs the same however long the
+ * history is. The log is rewritten with only the live entries once it has grown to twice their number.
+ * The JSON history file used by earlier versions is imported on first load. Entries whose URL is not valid are
+ * dropped, as the JSON history did.
+ */
+public class DappHistoryStore
+{
+    private static final String HISTORY_LOG = "dappshistory.log";
+    private static final String LEGACY_HISTORY = "dappshistory";
+    private static final int COMPACT_MIN_LINES = 256;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static DappHistoryStore instance;
+
+    private final File logFile;
+    private final Gson gson = new Gson();
+    private final TreeMap<Long, DApp> entries = new TreeMap<>(); //visit sequence -> dapp, oldest visit first
+    private final Map<String, Long> visits = new HashMap<>(); //url -> visit sequence
+    private final TreeSet<String> prefixIndex = new TreeSet<>(); //normalised url or title + separator + url
+    private int logLines;
+    private long nextVisit;
+
+    private static class Record
+    {
+        final String op;
+        final String name;
+        final String url;
+
+        Record(String op, String name, String url)
+        {
+            this.op = op;
+            this.name = name;
+            this.url = url;
+        }
+    }
+
+    public static synchronized DappHistoryStore getInstance(Context context)
+    {
+        if (instance == null)
+        {
+            File dir = context.getFilesDir();
+            instance = new DappHistoryStore(new File(dir, HISTORY_LOG), new File(dir, LEGACY_HISTORY));
+        }
+
+        return instance;
+    }
+
+    DappHistoryStore(File logFile, File legacyFile)
+    {
+        this.logFile = logFile;
+        if (logFile.exists())
+        {
+            load();
+        }
+        else if (legacyFile.exists())
+        {
+            importLegacy(legacyFile);
+        }
+    }
+
+    /**
+     * Record a visit; a URL already in the history moves to the front
+     */
+    public synchronized void add(DApp dapp)
+    {
+        if (dapp == null || !isValidUrl(dapp.getUrl())) return;
+        put(dapp.getName(), dapp.getUrl());
+        append(new Record("add", dapp.getName(), dapp.getUrl()));
+    }
+
+    public synchronized void remove(String url)
+    {
+        if (url == null || !visits.containsKey(url)) return;
+        delete(url);
+        append(new Record("del", null, url));
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        visits.clear();
+        prefixIndex.clear();
+        rewrite();
+    }
+
+    /**
+     * @return history, most recent visit first
+     */
+    public synchronized List<DApp> getHistory()
+    {
+        return new ArrayList<>(entries.descendingMap().values());
+    }
+
+    /**
+     * @param prefix start of a URL (with or without scheme and www.) or of the page title
+     * @return matching history, most recent visit first
+     */
+    public synchronized List<DApp> search(String prefix, int limit)
+    {
+        String term = normalise(prefix);
+        if (term.isEmpty()) return Collections.emptyList();
+
+        Set<String> urls = new HashSet<>();
+        for (String key : prefixIndex.subSet(term, term + Character.MAX_VALUE))
+        {
+            urls.add(key.substring(key.indexOf(KEY_SEPARATOR) + 1));
+        }
+
+        if (urls.isEmpty()) return Collections.emptyList();
+
+        List<DApp> matches = new ArrayList<>();
+        for (DApp dapp : entries.descendingMap().values())
+        {
+            if (matches.size() >= limit) break;
+            if (urls.contains(dapp.getUrl())) matches.add(dapp);
+        }
+
+        return matches;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private void put(String name, String url)
+    {
+        delete(url);
+        DApp dapp = new DApp(name, url);
+        long visit = nextVisit++;
+        entries.put(visit, dapp);
+        visits.put(url, visit);
+        for (String key : indexKeys(dapp)) prefixIndex.add(key);
+    }
+
+    private void delete(String url)
+    {
+        Long visit = visits.remove(url);
+        DApp previous = visit != null ? entries.remove(visit) : null;
+        if (previous != null)
+        {
+            for (String key : indexKeys(previous)) prefixIndex.remove(key);
+        }
+    }
+
+    private static List<String> indexKeys(DApp dapp)
+    {
+        List<String> keys = new ArrayList<>(2);
+        keys.add(stripUrl(dapp.getUrl()) + KEY_SEPARATOR + dapp.getUrl());
+        String name = normalise(dapp.getName());
+        if (!name.isEmpty()) keys.add(name + KEY_SEPARATOR + dapp.getUrl());
+        return keys;
+    }
+
+    private static String stripUrl(String url)
+    {
+        String stripped = normalise(url);
+        int schemeEnd = stripped.indexOf("://");
+        if (schemeEnd >= 0) stripped = stripped.substring(schemeEnd + 3);
+        return stripped.startsWith("www.") ? stripped.substring(4) : stripped;
+    }
+
+    private static String normalise(String text)
+    {
+        return text != null ? text.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private void load()
+    {
+        boolean dropped = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                logLines++;
+                Record record = parse(line);
+                if (record == null || record.url == null) continue; //eg a line cut short by the app being killed
+                if (record.op.equals("add") && isValidUrl(record.url)) put(record.name, record.url);
+                else if (record.op.equals("del")) delete(record.url);
+                else dropped = true;
+            }
+        }
+        catch (IOException e)
+        {
+            Timber.w(e);
+            return;
+        }
+
+        if (dropped) rewrite();
+    }
+
+    private void importLegacy(File legacyFile)
+    {
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(legacyFile), StandardCharsets.UTF_8))
+        {
+            List<DApp> history = gson.fromJson(reader, new TypeToken<ArrayList<DApp>>() {}.getType());
+            if (history != null)
+            {
+                //legacy file is most recent first
+                for (int i = history.size() - 1; i >= 0; i--)
+                {
+                    DApp dapp = history.get(i);
+                    if (dapp != null && isValidUrl(dapp.getUrl())) put(dapp.getName(), dapp.getUrl());
+                }
+            }
+        }
+        catch (IOException | JsonSyntaxException e)
+        {
+            Timber.w(e);
+        }
+
+        rewrite();
+        legacyFile.delete();
+    }
+
+    private Record parse(String line)
+    {
+        try
+        {
+            Record record = gson.fromJson(line, Record.class);
+            return record != null && record.op != null ? record : null;
+        }
+        catch (JsonSyntaxException e)
+        {
+            return null;
+        }
+    }
+
+    private void append(Record record)
+    {
+        if (logLines >= COMPACT_MIN_LINES && logLines >= entries.size() * 2)
+        {
+            rewrite();
+            return;
+        }
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8)))
+        {
+            writer.write(gson.toJson(record));
+            writer.write('\n');
+            logLines++;
+        }
+        catch (IOException e)
+        {
+            Timber.w(e);
+        }
+    }
+
+    /**
+     * Replace the log with one line per live entry
+     */
+    private void rewrite()
+    {
+        File tmp = new File(logFile.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)))
+        {
+            for (DApp dapp : entries.values())
+            {
+                writer.write(gson.toJson(new Record("add", dapp.getName(), dapp.getUrl())));
+                writer.write('\n');
+            }
+        }
+        catch (IOException e)
+        {
+            Timber.w(e);
+            return;
+        }
+
+        if (tmp.renameTo(logFile))
+        {
+            logLines = entries.size();
+        }
+    }
+}
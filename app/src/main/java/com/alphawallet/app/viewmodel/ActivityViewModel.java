@@ -5,6 +5,7 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.interact.FetchTransactionsInteract;
@@ -30,7 +31,7 @@ import io.realm.Realm;
 @HiltViewModel
 public class ActivityViewModel extends BaseViewModel
 {
-    private final int TRANSACTION_FETCH_LIMIT = 150;
+    private final int TRANSACTION_PAGE_SIZE = 150;
 
     private final MutableLiveData<Wallet> wallet = new MutableLiveData<>();
     private final MutableLiveData<ActivityMeta[]> activityItems = new MutableLiveData<>();
@@ -48,6 +49,9 @@ public class ActivityViewModel extends BaseViewModel
     @Nullable
     private Disposable fetchTransactions;
 
+    @Nullable
+    private ActivityPage.Cursor nextPage; //null once all stored transactions have been read
+
     public LiveData<Wallet> defaultWallet() {
         return wallet;
     }
@@ -82,15 +86,16 @@ public class ActivityViewModel extends BaseViewModel
     {
         wallet.postValue(defaultWallet);
         disposable =
-                fetchTransactionsInteract.fetchTransactionMetas(defaultWallet, tokensService.getNetworkFilters(), 0, TRANSACTION_FETCH_LIMIT)
+                fetchTransactionsInteract.fetchActivityPage(defaultWallet, tokensService.getNetworkFilters(), null, TRANSACTION_PAGE_SIZE)
                         .subscribeOn(Schedulers.io())
                         .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(this::onActivityMetas, this::onError);
+                        .subscribe(this::onFirstPage, this::onError);
     }
 
-    private void onActivityMetas(ActivityMeta[] metas)
+    private void onFirstPage(ActivityPage page)
     {
-        activityItems.postValue(metas);
+        nextPage = page.next;
+        activityItems.postValue(page.metas);
         disposable =
                 fetchTransactionsInteract.fetchEventMetas(wallet.getValue(), tokensService.getNetworkFilters())
                         .subscribeOn(Schedulers.io())
@@ -98,13 +103,27 @@ public class ActivityViewModel extends BaseViewModel
                         .subscribe(activityItems::postValue, this::onError);
     }
 
+    /**
+     * Load the next page of stored activity; once that's exhausted, fetch older transactions from the network
+     *
+     * @param startTime time of the oldest item shown
+     */
     public void fetchMoreTransactions(long startTime)
     {
+        if (nextPage == null)
+        {
+            onMoreActivityMetas(new ActivityMeta[0], startTime);
+            return;
+        }
+
         disposable =
-                fetchTransactionsInteract.fetchTransactionMetas(wallet.getValue(), tokensService.getNetworkFilters(), startTime, TRANSACTION_FETCH_LIMIT)
+                fetchTransactionsInteract.fetchActivityPage(wallet.getValue(), tokensService.getNetworkFilters(), nextPage, TRANSACTION_PAGE_SIZE)
                         .subscribeOn(Schedulers.io())
                         .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(metas -> onMoreActivityMetas(metas, startTime), this::onError);
+                        .subscribe(page -> {
+                            nextPage = page.next;
+                            onMoreActivityMetas(page.metas, startTime);
+                        }, this::onError);
     }
 
     /**
@@ -116,6 +116,8 @@ public class WalletViewModel extends BaseViewModel
     private final AWWalletConnectClient awWalletConnectClient;
     @Nullable
     private Disposable balanceUpdateCheck;
+    @Nullable
+    private Disposable fiatValueListener;
 
     @Inject
     WalletViewModel(
@@ -226,6 +228,7 @@ public class WalletViewModel extends BaseViewModel
     {
         disposable =
                 fetchTokensInteract.fetchTokenMetas(wallet, tokensService.getNetworkFilters(), assetDefinitionService)
+                        .map(tokensService::precomputeFiatValues)
                         .subscribeOn(Schedulers.io())
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribe(this::onTokenMetas, this::onError);
@@ -254,6 +257,14 @@ public class WalletViewModel extends BaseViewModel
             balanceUpdateCheck = Observable.interval(2, 2, TimeUnit.SECONDS) //check every 2 seconds for new tokens
                     .doOnNext(l -> checkTokenUpdates()).subscribe();
         }
+
+        if (fiatValueListener == null || fiatValueListener.isDisposed())
+        {
+            //wallet value is maintained incrementally by TokensService; just pass each change to the header
+            fiatValueListener = tokensService.getFiatValueUpdates()
+                    .throttleLatest(500, TimeUnit.MILLISECONDS)
+                    .subscribe(fiatValues::postValue, this::onError);
+        }
     }
 
     public void stopUpdateListener()
@@ -263,6 +274,12 @@ public class WalletViewModel extends BaseViewModel
             balanceUpdateCheck.dispose();
             balanceUpdateCheck = null;
         }
+
+        if (fiatValueListener != null && !fiatValueListener.isDisposed())
+        {
+            fiatValueListener.dispose();
+            fiatValueListener = null;
+        }
     }
 
     private void checkTokenUpdates()
@@ -270,6 +287,7 @@ public class WalletViewModel extends BaseViewModel
         if (defaultWallet.getValue() == null) return;
 
         disposable = getUpdatedTokenMetas()
+                .map(tokensService::precomputeFiatValues) //keep the Realm reads and fiat maths off the main thread
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(updatedTokens::postValue, this::onError);
@@ -47,10 +47,16 @@ import org.web3j.crypto.Keys;
 import org.web3j.crypto.Sign;
 import org.web3j.utils.Numeric;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -61,6 +67,7 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
 import dagger.hilt.android.qualifiers.ApplicationContext;
 import io.reactivex.Completable;
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
@@ -71,6 +78,7 @@ import timber.log.Timber;
 public class WalletsViewModel extends BaseViewModel implements ServiceSyncCallback
 {
     private static final int BALANCE_CHECK_INTERVAL_SECONDS = 30;
+    private static final long BALANCE_REFRESH_MS = 500;
     private final SetDefaultWalletInteract setDefaultWalletInteract;
     private final FetchWalletsInteract fetchWalletsInteract;
     private final GenericWalletInteract genericWalletInteract;
@@ -111,6 +119,9 @@ public class WalletsViewModel extends BaseViewModel implements ServiceSyncCallba
     @Nullable
     private Disposable walletBalanceUpdate;
 
+    @Nullable
+    private Disposable walletBalanceSync;
+
     @Nullable
     private Disposable ensCheck;
 
@@ -287,6 +298,8 @@ public class WalletsViewModel extends BaseViewModel implements ServiceSyncCallba
 
     private void startFullWalletSync(Wallet[] items)
     {
+        syncAllWalletBalances(items);
+
         walletUpdate.clear();
         for (Wallet w : items)
         {
@@ -308,6 +321,58 @@ public class WalletsViewModel extends BaseViewModel implements ServiceSyncCallba
         }
     }
 
+    /**
+     * Refresh the chain balances of every wallet, watch wallets included. Each chain is fetched for all wallets at once;
+     * as chains report, each wallet read in that time has its value recomputed, at most once per refresh window.
+     * Watch wallets are complete after this; the others go on to the full token sync.
+     */
+    private void syncAllWalletBalances(Wallet[] items)
+    {
+        if (walletBalanceSync != null && !walletBalanceSync.isDisposed()) walletBalanceSync.dispose();
+
+        Map<String, Wallet> walletMap = new HashMap<>();
+        for (Wallet w : items)
+        {
+            if (w.type == WalletType.WATCH) syncCallback.syncStarted(w.address.toLowerCase(), null);
+            walletMap.put(w.address.toLowerCase(), w);
+        }
+
+        Observable<Map<String, BigDecimal>> balances = tokensService.syncWalletBalances(new ArrayList<>(walletMap.keySet()), tokensService.getNetworkFilters());
+        walletBalanceSync = balanceRefreshes(balances, Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(wallets -> {
+                    for (String address : wallets)
+                    {
+                        Wallet w = walletMap.get(address);
+                        if (w != null) syncFromDBOnly(w, false);
+                    }
+                }, Timber::w, () -> {
+                    for (Wallet w : walletMap.values())
+                    {
+                        if (w.type == WalletType.WATCH) syncFromDBOnly(w, true);
+                    }
+                });
+    }
+
+    /**
+     * Wallets to recompute as chain balances arrive: every wallet whose balance was read, zero included, gathered
+     * over a short window so a wallet is recomputed once per window however many chains reported in it
+     */
+    static Observable<Set<String>> balanceRefreshes(Observable<Map<String, BigDecimal>> balances, Scheduler scheduler)
+    {
+        return balances
+                .buffer(BALANCE_REFRESH_MS, TimeUnit.MILLISECONDS, scheduler)
+                .map(chainBalances -> {
+                    Set<String> wallets = new HashSet<>();
+                    for (Map<String, BigDecimal> chain : chainBalances)
+                    {
+                        wallets.addAll(chain.keySet());
+                    }
+                    return wallets;
+                })
+                .filter(wallets -> !wallets.isEmpty());
+    }
+
     private void syncFromDBOnly(Wallet wallet, boolean complete)
     {
         tokenRepository.getTotalValue(wallet.address.toLowerCase(), EthereumNetworkBase.getAllMainNetworks())
@@ -457,18 +522,29 @@ public class WalletsViewModel extends BaseViewModel implements ServiceSyncCallba
     }
 
     /**
-     * Sequentially updates the wallet balances on the current network and stores to database if necessary
+     * Updates the wallet balances on the current network in one batched request and stores to database if necessary
      *
      * @param wallets - array of wallets
      */
     private void getWalletsBalance(Wallet[] wallets)
     {
-        //loop through wallets and update balance
-        disposable = Observable.fromArray(wallets)
-                .forEach(wallet -> walletBalanceUpdate = tokensService.getChainBalance(wallet.address.toLowerCase(), currentNetwork.chainId)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(newBalance -> genericWalletInteract.updateBalanceIfRequired(wallet, newBalance), e -> {}));
+        if (walletBalanceUpdate != null && !walletBalanceUpdate.isDisposed()) return; //previous check still running
+
+        List<String> addresses = new ArrayList<>();
+        for (Wallet wallet : wallets)
+        {
+            addresses.add(wallet.address.toLowerCase());
+        }
+
+        walletBalanceUpdate = tokensService.syncWalletBalances(addresses, Collections.singletonList(currentNetwork.chainId))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(balances -> {
+                    for (Wallet wallet : wallets)
+                    {
+                        BigDecimal newBalance = balances.get(wallet.address.toLowerCase());
+                        if (newBalance != null) genericWalletInteract.updateBalanceIfRequired(wallet, newBalance);
+                    }
+                }, e -> {});
         progress.postValue(false);
     }
 
@@ -498,6 +574,7 @@ public class WalletsViewModel extends BaseViewModel implements ServiceSyncCallba
         if (disposable != null && !disposable.isDisposed()) disposable.dispose();
         if (balanceTimerDisposable != null && !balanceTimerDisposable.isDisposed()) balanceTimerDisposable.dispose();
         if (walletBalanceUpdate != null && !walletBalanceUpdate.isDisposed()) walletBalanceUpdate.dispose();
+        if (walletBalanceSync != null && !walletBalanceSync.isDisposed()) walletBalanceSync.dispose();
         if (ensCheck != null && !ensCheck.isDisposed()) ensCheck.dispose();
         if (ensWrappingCheck != null && !ensWrappingCheck.isDisposed()) ensWrappingCheck.dispose();
     }
@@ -33,6 +33,16 @@ public class JsInjectorClient {
     private static final String DEFAULT_CHARSET = "utf-8";
     private static final String DEFAULT_MIME_TYPE = "text/html";
     private final static String JS_TAG_TEMPLATE = "<script type=\"text/javascript\">%1$s%2$s</script>";
+    private static final String TOKEN_CARD_PREFIX = "token-card-";
+    private static final String PAGE_HEAD = "<head><meta name=\"viewport\" content=\"width=device-width, initial-scale=1, maximum-scale=1, shrink-to-fit=no\" />";
+    private static final String PAGE_STYLE_END = ".token-card {\n" +
+            "padding: 0pt;\n" +
+            "margin: 0pt;\n" +
+            "}</style></head>" +
+            "<body>\n";
+    private static final String PAGE_END = "</div></body>";
+    private static final int PAGE_WRAP_OVERHEAD = 256; //head, style and body tags
+    private static final int TOKEN_INIT_OVERHEAD = 256; //script tags, library URL and card wrapper
     final String SCRIPT_TAG = "<script";
     final String CDATA_TAG = "<![cdata[";
 
@@ -82,16 +92,46 @@ public class JsInjectorClient {
 
     String injectWeb3TokenInit(Context ctx, String view, String tokenContent, BigInteger tokenId)
     {
-        String initSrc = loadFile(ctx, R.raw.init_token);
-        //put the view in here
-        String tokenIdWrapperName = "token-card-" + tokenId.toString(10);
-        initSrc = String.format(initSrc, tokenContent, walletAddress, rpcUrl, chainId, tokenIdWrapperName);
-        //now insert this source into the view
-        // note that the <div> is not closed because it is closed in injectStyleAndWrap().
-        String ethersMin = "<script>" + loadFile(ctx, R.raw.ethers_js_min) + "</script>";
-        String wrapper = "<div id=\"token-card-" + tokenId.toString(10) + "\" class=\"token-card\">";
-        initSrc = ethersMin + "<script>\n" + initSrc + "</script>\n" + wrapper;
-        return injectJS(view, initSrc);
+        if (TextUtils.isEmpty(view)) return view;
+        Object[] initArgs = tokenInitArgs(tokenContent, tokenId);
+        JsTemplate initSrc = TokenScriptAssets.getTemplate(ctx, R.raw.init_token);
+        StringBuilder page = new StringBuilder(view.length() + initSrc.length(initArgs) + TOKEN_INIT_OVERHEAD);
+        appendWeb3TokenInit(page, initSrc, initArgs, view);
+        return page.toString();
+    }
+
+    /**
+     * Assemble a complete token card page in one buffer: equivalent to injectStyleAndWrap(injectWeb3TokenInit(...))
+     */
+    String buildTokenPage(Context ctx, String view, String style, String tokenContent, BigInteger tokenId)
+    {
+        if (TextUtils.isEmpty(view)) return injectStyleAndWrap(view, style);
+        if (style == null) style = "";
+        Object[] initArgs = tokenInitArgs(tokenContent, tokenId);
+        JsTemplate initSrc = TokenScriptAssets.getTemplate(ctx, R.raw.init_token);
+        StringBuilder page = new StringBuilder(view.length() + style.length() + initSrc.length(initArgs) + TOKEN_INIT_OVERHEAD + PAGE_WRAP_OVERHEAD);
+        appendPageHead(page, style);
+        appendWeb3TokenInit(page, initSrc, initArgs, view);
+        return page.append(PAGE_END).toString();
+    }
+
+    private Object[] tokenInitArgs(String tokenContent, BigInteger tokenId)
+    {
+        return new Object[] { tokenContent, walletAddress, rpcUrl, chainId, TOKEN_CARD_PREFIX + tokenId.toString(10) };
+    }
+
+    private void appendWeb3TokenInit(StringBuilder page, JsTemplate initSrc, Object[] initArgs, String view)
+    {
+        //ethers is served to the view at a fixed URL rather than inlined, see TokenScriptAssets
+        int position = getInjectionPosition(view);
+        page.append(view, 0, position)
+                .append("<script src=\"").append(TokenScriptAssets.ETHERS_URL).append("\"></script>")
+                .append("<script>\n");
+        initSrc.appendTo(page, initArgs)
+                .append("</script>\n")
+                // note that the <div> is not closed because it is closed in injectStyleAndWrap().
+                .append("<div id=\"").append(initArgs[4]).append("\" class=\"token-card\">")
+                .append(view, position, view.length());
     }
 
     String injectJSAtEnd(String view, String newCode)
@@ -130,9 +170,8 @@ public class JsInjectorClient {
     }
 
     private int getInjectionPosition(String body) {
-        body = body.toLowerCase();
-        int ieDetectTagIndex = body.indexOf("<!--[if");
-        int scriptTagIndex = body.indexOf("<script");
+        int ieDetectTagIndex = indexOfIgnoreCase(body, "<!--[if");
+        int scriptTagIndex = indexOfIgnoreCase(body, "<script");
 
         int index;
         if (ieDetectTagIndex < 0) {
@@ -141,7 +180,7 @@ public class JsInjectorClient {
             index = Math.min(scriptTagIndex, ieDetectTagIndex);
         }
         if (index < 0) {
-            index = body.indexOf("</head");
+            index = indexOfIgnoreCase(body, "</head");
         }
         if (index < 0) {
             index = 0; //just wrap whole view
@@ -149,6 +188,16 @@ public class JsInjectorClient {
         return index;
     }
 
+    private static int indexOfIgnoreCase(String body, String tag)
+    {
+        for (int i = 0; i <= body.length() - tag.length(); i++)
+        {
+            if (body.regionMatches(true, i, tag, 0, tag.length())) return i;
+        }
+
+        return -1;
+    }
+
     private int getEndInjectionPosition(String body)
     {
         body = body.toLowerCase();
@@ -199,15 +248,18 @@ public class JsInjectorClient {
     String injectStyleAndWrap(String view, String style)
     {
         if (style == null) style = "";
-        //String injectHeader = "<head><meta name=\"viewport\" content=\"width=device-width, user-scalable=false\" /></head>";
-        String injectHeader = "<head><meta name=\"viewport\" content=\"width=device-width, initial-scale=1, maximum-scale=1, shrink-to-fit=no\" />"; //iOS uses these header settings
-        style = "<style type=\"text/css\">\n" + style + ".token-card {\n" +
-                "padding: 0pt;\n" +
-                "margin: 0pt;\n" +
-                "}</style></head>" +
-                "<body>\n";
+        StringBuilder page = new StringBuilder((view != null ? view.length() : 4) + style.length() + PAGE_WRAP_OVERHEAD);
+        appendPageHead(page, style);
         // the opening of the following </div> is in injectWeb3TokenInit();
-        return injectHeader + style + view + "</div></body>";
+        return page.append(view).append(PAGE_END).toString();
+    }
+
+    private void appendPageHead(StringBuilder page, String style)
+    {
+        page.append(PAGE_HEAD) //iOS uses these header settings
+                .append("<style type=\"text/css\">\n")
+                .append(style)
+                .append(PAGE_STYLE_END);
     }
 
     private String getMimeType(String contentType) {
@@ -0,0 +1,85 @@
+package com.alphawallet.app.web3;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A script template using positional String.format arguments (%1$s, %2$s ...), split into literal text and argument
+ * slots once so each render appends straight into the caller's buffer instead of re-scanning and copying the template.
+ */
+public class JsTemplate
+{
+    private final String[] literals; //literals[i] precedes argument slot i; the last literal ends the template
+    private final int[] slots;
+    private final int literalLength;
+
+    public JsTemplate(String template)
+    {
+        List<String> text = new ArrayList<>();
+        List<Integer> args = new ArrayList<>();
+        int length = 0;
+        int start = 0;
+        int index = template.indexOf('%');
+        while (index >= 0)
+        {
+            int argEnd = template.indexOf("$s", index);
+            int arg = argEnd > index + 1 ? parseArg(template, index + 1, argEnd) : -1;
+            if (arg < 0)
+            {
+                index = template.indexOf('%', index + 1);
+                continue;
+            }
+
+            text.add(template.substring(start, index));
+            args.add(arg);
+            length += index - start;
+            start = argEnd + 2;
+            index = template.indexOf('%', start);
+        }
+
+        text.add(template.substring(start));
+        length += template.length() - start;
+
+        literals = text.toArray(new String[0]);
+        slots = new int[args.size()];
+        for (int i = 0; i < slots.length; i++) slots[i] = args.get(i);
+        literalLength = length;
+    }
+
+    /**
+     * @return length of the rendered template for these arguments, for sizing the output buffer
+     */
+    public int length(Object... args)
+    {
+        int length = literalLength;
+        for (int slot : slots)
+        {
+            length += String.valueOf(args[slot]).length();
+        }
+
+        return length;
+    }
+
+    public StringBuilder appendTo(StringBuilder out, Object... args)
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            out.append(literals[i]).append(args[slots[i]]);
+        }
+
+        return out.append(literals[slots.length]);
+    }
+
+    private static int parseArg(String template, int start, int end)
+    {
+        int value = 0;
+        for (int i = start; i < end; i++)
+        {
+            char c = template.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+
+        return value - 1;
+    }
+}
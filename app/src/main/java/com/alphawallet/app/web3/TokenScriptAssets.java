@@ -0,0 +1,90 @@
+package com.alphawallet.app.web3;
+
+import android.content.Context;
+import android.net.Uri;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.RawRes;
+
+import com.alphawallet.app.BuildConfig;
+import com.alphawallet.app.R;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import timber.log.Timber;
+
+/**
+ * Scripts injected into TokenScript card views, read from raw resources once per process.
+ *
+ * Shared libraries (ethers) are not inlined into each card's HTML; cards reference them at a fixed URL which
+ * Web3TokenView serves from here via shouldInterceptRequest, straight from the in-memory copy, so building a card
+ * page no longer copies 500KB of JS into its HTML.
+ */
+public class TokenScriptAssets
+{
+    private static final String LIBRARY_HOST = "appassets.androidplatform.net"; //reserved for app served content, never reaches the network
+    private static final String ETHERS_PATH = "/tokenscript/ethers.min.js";
+    public static final String ETHERS_URL = "https://" + LIBRARY_HOST + ETHERS_PATH + "?v=" + BuildConfig.VERSION_CODE;
+
+    private static final Map<Integer, byte[]> rawCache = new ConcurrentHashMap<>();
+    private static final Map<Integer, JsTemplate> templateCache = new ConcurrentHashMap<>();
+
+    public static byte[] getRaw(Context context, @RawRes int rawRes)
+    {
+        return rawCache.computeIfAbsent(rawRes, res -> readRaw(context, res));
+    }
+
+    public static String getText(Context context, @RawRes int rawRes)
+    {
+        return new String(getRaw(context, rawRes), StandardCharsets.UTF_8);
+    }
+
+    public static JsTemplate getTemplate(Context context, @RawRes int rawRes)
+    {
+        return templateCache.computeIfAbsent(rawRes, res -> new JsTemplate(getText(context, res)));
+    }
+
+    /**
+     * @return the library at this URL, or null if it isn't one of ours
+     */
+    public static WebResourceResponse intercept(Context context, Uri url)
+    {
+        if (url == null || !LIBRARY_HOST.equals(url.getHost()) || !ETHERS_PATH.equals(url.getPath()))
+        {
+            return null;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Access-Control-Allow-Origin", "*"); //cards are data: URLs with an opaque origin
+        return new WebResourceResponse("text/javascript", "utf-8", 200, "OK", headers,
+                new ByteArrayInputStream(getRaw(context, R.raw.ethers_js_min)));
+    }
+
+    private static byte[] readRaw(Context context, @RawRes int rawRes)
+    {
+        try (InputStream in = context.getResources().openRawResource(rawRes))
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 8192));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+
+            return out.toByteArray();
+        }
+        catch (IOException e)
+        {
+            Timber.w(e);
+            return new byte[0];
+        }
+    }
+}
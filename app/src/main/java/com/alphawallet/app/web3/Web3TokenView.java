@@ -16,6 +16,7 @@ import android.webkit.JsResult;
 import android.webkit.SslErrorHandler;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -375,6 +376,13 @@ public class Web3TokenView extends WebView
             }
         }
 
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request)
+        {
+            WebResourceResponse library = TokenScriptAssets.intercept(view.getContext(), request.getUrl());
+            return library != null ? library : super.shouldInterceptRequest(view, request);
+        }
+
         @Override
         public void onReceivedSslError(WebView view, SslErrorHandler handler, SslError error)
         {
@@ -487,8 +495,7 @@ public class Web3TokenView extends WebView
             view = buildViewError(token, range, tokenView.getLabel());
         }
         String style = tokenView.getStyle();
-        unencodedPage = injectWeb3TokenInit(view, attrs.toString(), range.tokenIds.get(0));
-        unencodedPage = injectStyleAndWrapper(unencodedPage, style); //style injected last so it comes first
+        unencodedPage = jsInjectorClient.buildTokenPage(getContext(), view, style, attrs.toString(), range.tokenIds.get(0));
 
         String base64 = android.util.Base64.encodeToString(unencodedPage.getBytes(StandardCharsets.UTF_8), Base64.DEFAULT);
         loadData(base64 + (!Objects.equals(tokenView.getUrlFragment(), "") ? "#" + tokenView.getUrlFragment() : ""), "text/html; charset=utf-8", "base64");
@@ -10,20 +10,36 @@ import com.alphawallet.app.service.IPFSService;
 import com.alphawallet.app.service.IPFSServiceType;
 import com.alphawallet.app.util.Utils;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * Created by JB on 6/11/2022.
  */
 public class IPFSServiceTest
 {
+    private static final String CONTENT = "{\"name\":\"Raced\"}";
+    private static final String CID_URL = "ipfs://QmeSjSinHpPnmXmspMjwiXyN6zS4E9zccariGR3jxcaWtq/1.json";
+
     private final IPFSServiceType ipfsService;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     public IPFSServiceTest()
     {
         ipfsService = new IPFSService(
@@ -88,4 +104,121 @@ public class IPFSServiceTest
         assertFalse(Utils.shouldBeIPFS("eSjSinHpPnmXmspMjwiXyN6zS4E9zccariGR3jxcaWtdd"));
         assertFalse(Utils.isIPFS("ipff://QmeSjSinHpPnmXmspMjwiXyN6zS4E9zccariGR3jxcaWtq/uouo"));
     }
+
+    @Test
+    public void fastestGatewayWinsAndContentIsCached() throws Exception
+    {
+        AtomicInteger fastCalls = new AtomicInteger();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Request request = chain.request();
+                    if (request.url().host().equals("slow.gateway"))
+                    {
+                        Thread.sleep(2000);
+                    }
+                    else
+                    {
+                        fastCalls.incrementAndGet();
+                    }
+                    return fakeResponse(request, 200, CONTENT);
+                })
+                .build();
+
+        IPFSService service = new IPFSService(client, folder.getRoot());
+        service.setGateways(Arrays.asList("https://slow.gateway", "https://fast.gateway/"));
+
+        long startTime = System.currentTimeMillis();
+        QueryResponse response = service.performIO(CID_URL, null);
+        assertTrue(System.currentTimeMillis() - startTime < 1500);
+        assertEquals(CONTENT, response.body);
+        assertEquals(1, fastCalls.get());
+
+        //immutable content: served from disk with no further requests, including from a new instance
+        assertEquals(CONTENT, service.performIO(CID_URL, null).body);
+        assertEquals(CONTENT, new IPFSService(client, folder.getRoot()).performIO(CID_URL, null).body);
+        assertEquals(1, fastCalls.get());
+    }
+
+    @Test
+    public void failingGatewayIsBackedOff() throws Exception
+    {
+        AtomicInteger failingCalls = new AtomicInteger();
+        AtomicInteger spareCalls = new AtomicInteger();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Request request = chain.request();
+                    switch (request.url().host())
+                    {
+                        case "down.gateway":
+                            failingCalls.incrementAndGet();
+                            return fakeResponse(request, 502, "");
+                        case "spare.gateway":
+                            spareCalls.incrementAndGet();
+                            break;
+                        default:
+                            Thread.sleep(200); //ensure the failure is seen before this one wins
+                            break;
+                    }
+                    return fakeResponse(request, 200, CONTENT);
+                })
+                .build();
+
+        IPFSService service = new IPFSService(client, folder.getRoot());
+        service.setGateways(Arrays.asList("https://down.gateway", "https://up.gateway", "https://spare.gateway"));
+
+        assertTrue(service.performIO(CID_URL, null).isSuccessful());
+        assertEquals(1, failingCalls.get());
+        assertEquals(0, spareCalls.get());
+
+        //down gateway is now in backoff, so the next fetch races the next two in the pool
+        assertTrue(service.performIO(CID_URL.replace("1.json", "2.json"), null).isSuccessful());
+        assertEquals(1, failingCalls.get());
+        assertEquals(1, spareCalls.get());
+    }
+
+    @Test
+    public void largeContentIsStreamedFromTheCache() throws Exception
+    {
+        char[] filler = new char[2 * 1024 * 1024];
+        Arrays.fill(filler, 'a');
+        String large = new String(filler);
+        AtomicInteger calls = new AtomicInteger();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    calls.incrementAndGet();
+                    return fakeResponse(chain.request(), 200, large);
+                })
+                .build();
+
+        IPFSService service = new IPFSService(client, folder.getRoot());
+        service.setGateways(Arrays.asList("https://one.gateway"));
+
+        //too large to hand back as a String
+        QueryResponse response = service.performIO(CID_URL, null);
+        assertEquals(IPFSService.HTTP_TOO_LARGE, response.code);
+        assertEquals(null, response.body);
+
+        try (InputStream in = service.openStream(CID_URL))
+        {
+            long length = 0;
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer))
+            {
+                length += read;
+            }
+            assertEquals(large.length(), length);
+        }
+        assertEquals(1, calls.get()); //read from the cache file the first fetch wrote
+    }
+
+    private static Response fakeResponse(Request request, int code, String body)
+    {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(code == 200 ? "OK" : "Error")
+                .body(ResponseBody.create(body, MediaType.get("application/json")))
+                .build();
+    }
 }
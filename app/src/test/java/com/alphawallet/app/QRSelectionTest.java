@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import android.util.Pair;
 
 import com.alphawallet.app.entity.ActivityMeta;
+import com.alphawallet.app.entity.ActivityPage;
 import com.alphawallet.app.entity.ContractType;
 import com.alphawallet.app.entity.MessagePair;
 import com.alphawallet.app.entity.SignaturePair;
@@ -141,6 +142,12 @@ public class QRSelectionTest
                 return null;
             }
 
+            @Override
+            public Single<ActivityPage> fetchActivityPage(Wallet wallet, List<Long> networkFilters, ActivityPage.Cursor cursor, int pageSize)
+            {
+                return null;
+            }
+
             @Override
             public Realm getRealmInstance(Wallet wallet)
             {
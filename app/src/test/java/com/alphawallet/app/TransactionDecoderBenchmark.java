@@ -0,0 +1,93 @@
+package com.alphawallet.app;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import com.alphawallet.app.entity.TransactionDecoder;
+import com.alphawallet.app.entity.TransactionInput;
+
+import org.junit.Test;
+import org.web3j.utils.Numeric;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * JMH style microbenchmark of TransactionDecoder over the TransactionDecodingTest corpus. Each iteration decodes
+ * the whole corpus; after the warmup iterations the measured ones report mean ns/op and bytes allocated per op.
+ *
+ * Excluded from the normal unit test run; run it on its own with:
+ * ./gradlew testNoAnalyticsDebugUnitTest --tests com.alphawallet.app.TransactionDecoderBenchmark -Pbenchmark -i
+ */
+public class TransactionDecoderBenchmark
+{
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    private final TransactionDecoder decoder = new TransactionDecoder();
+    private final String[] corpus = new TransactionDecodingTest().inputTestList;
+    private long sink;
+
+    @Test
+    public void decodeHexString()
+    {
+        run("decodeInput(String)", () -> {
+            for (String input : corpus) consume(decoder.decodeInput(input));
+        });
+    }
+
+    @Test
+    public void decodeBytes()
+    {
+        byte[][] inputs = new byte[corpus.length][];
+        for (int i = 0; i < corpus.length; i++)
+        {
+            inputs[i] = Numeric.hexStringToByteArray(corpus[i]);
+        }
+
+        run("decodeInput(byte[])", () -> {
+            for (byte[] input : inputs) consume(decoder.decodeInput(input));
+        });
+    }
+
+    private void run(String name, Runnable iteration)
+    {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            iteration.run();
+        }
+
+        long[] nanos = new long[MEASURED_ITERATIONS];
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++)
+        {
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            iteration.run();
+            nanos[i] = System.nanoTime() - start;
+            allocated += allocatedBytes() - startBytes;
+        }
+
+        Arrays.sort(nanos);
+        long ops = (long) MEASURED_ITERATIONS * corpus.length;
+        System.out.printf("%-20s %d ops: mean %.1f ns/op, median %.1f ns/op, %d B/op%n", name, ops,
+                (double) Arrays.stream(nanos).sum() / ops, (double) nanos[MEASURED_ITERATIONS / 2] / corpus.length,
+                allocated / ops);
+        assertThat(sink > 0, equalTo(true));
+    }
+
+    private void consume(TransactionInput input)
+    {
+        sink += input.hexArgs.size() + input.functionData.functionName.length();
+    }
+
+    //allocation counter of the HotSpot ThreadMXBean; reports 0 on a runtime without it
+    private static long allocatedBytes()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+}
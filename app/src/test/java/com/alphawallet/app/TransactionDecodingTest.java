@@ -6,17 +6,24 @@ import static org.junit.Assert.assertEquals;
 
 import androidx.annotation.NonNull;
 
+import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.TransactionDecoder;
 import com.alphawallet.app.entity.TransactionInput;
 import com.alphawallet.app.entity.TransactionType;
 import com.google.common.io.Resources;
 
 import org.junit.Test;
+import org.web3j.utils.Numeric;
 
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by weiwu on 7/3/18.
@@ -100,6 +107,71 @@ public class TransactionDecodingTest
         assertThat(stringBuilder.toString(), equalTo(getBaseline()));
     }
 
+    /**
+     * One decoder shared by several threads, as Transaction.decoder is, decodes as separate decoders do
+     */
+    @Test
+    public void testSharedDecoderAcrossThreads() throws Exception
+    {
+        TransactionDecoder decoder = new TransactionDecoder();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            results.add(executor.submit(() -> decodeAll(decoder)));
+        }
+
+        String expected = decodeAll(new TransactionDecoder());
+        for (Future<String> result : results)
+        {
+            assertThat(result.get(), equalTo(expected));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDecodeBytesMatchesHex()
+    {
+        TransactionDecoder decoder = new TransactionDecoder();
+        for (String testInput : inputTestList)
+        {
+            TransactionInput fromHex = decoder.decodeInput(testInput);
+            TransactionInput fromBytes = decoder.decodeInput(Numeric.hexStringToByteArray(testInput));
+            assertThat(fromBytes.buildFunctionCallText(), equalTo(fromHex.buildFunctionCallText()));
+            assertThat(fromBytes.type, equalTo(fromHex.type));
+        }
+    }
+
+    @Test
+    public void testMemoizedInputIsCopiedPerCall()
+    {
+        String input = "0xa6fb475f000000000000000000000000951c19daead668bfa8391c94286f8ce7cbda2fe3000000000000000000000000879230570f360424bc5baa99906d5f640a75551e000000000000000000000000000000000000000000000000000000000000006000000000000000000000000000000000000000000000000000000000000000040000000000000000000000000000000000000000000000000000000000000001000000000000000000000000000000000000000000000000000000000000000200000000000000000000000000000000000000000000000000000000000000030000000000000000000000000000000000000000000000000000000000000004";
+        String wallet = "0x951c19daead668bfa8391c94286f8ce7cbda2fe3";
+        Transaction tx = new Transaction("0xabc", "0", "100", 0, 1, wallet, "0x879230570f360424bc5baa99906d5f640a75551e",
+                "0", "21000", "1", input, "21000", 1, false);
+        TransactionDecoder decoder = new TransactionDecoder();
+
+        TransactionInput first = decoder.decodeInput(tx, wallet);
+        first.addresses.clear();
+        first.type = TransactionType.UNKNOWN;
+
+        TransactionInput second = decoder.decodeInput(tx, wallet);
+        assertThat(second == first, equalTo(false));
+        assertThat(second.getDestinationAddress(), equalTo("0x879230570f360424bc5baa99906d5f640a75551e"));
+        assertThat(second.type == TransactionType.UNKNOWN, equalTo(false));
+    }
+
+    private String decodeAll(TransactionDecoder decoder)
+    {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (String testInput : inputTestList)
+        {
+            stringBuilder.append(decoder.decodeInput(testInput).buildFunctionCallText()).append(System.lineSeparator());
+        }
+
+        return stringBuilder.toString();
+    }
+
     @NonNull
     private String getBaseline() throws IOException
     {
@@ -0,0 +1,34 @@
+package com.alphawallet.app.entity;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ActivityPageTest
+{
+    @Test
+    public void cursorOrdersByTimestampThenHash()
+    {
+        ActivityPage.Cursor cursor = new ActivityPage.Cursor(1000, "0xbb");
+        assertTrue(cursor.isBefore(999, "0xff"));
+        assertTrue(cursor.isBefore(1000, "0xaa"));
+        assertFalse(cursor.isBefore(1000, "0xbb"));
+        assertFalse(cursor.isBefore(1000, "0xcc"));
+        assertFalse(cursor.isBefore(1001, "0x00"));
+
+        //no hash: every row at the timestamp is still to be read
+        assertTrue(new ActivityPage.Cursor(1000, null).isBefore(1000, "0xff"));
+    }
+
+    @Test
+    public void truncatedTimestampGroupIsLeftForNextPage()
+    {
+        assertThat(ActivityPage.completeGroups(new long[]{50, 40, 40, 30, 30}), equalTo(3));
+        assertThat(ActivityPage.completeGroups(new long[]{50, 40, 30}), equalTo(2));
+        assertThat(ActivityPage.completeGroups(new long[]{30, 30, 30}), equalTo(0));
+        assertThat(ActivityPage.completeGroups(new long[0]), equalTo(0));
+    }
+}
@@ -0,0 +1,209 @@
+package com.alphawallet.app.entity;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.alphawallet.app.entity.tokens.ERC721Token;
+import com.alphawallet.app.entity.tokens.Token;
+import com.alphawallet.app.entity.tokens.TokenInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LogFetchEngineTest
+{
+    private static final String WALLET = "0xa7e1e9b2a2a9d6ab0e53c7b7c3f4a4d1a7f0e0b1";
+    private static final String OTHER_WALLET = "0xb8f2f0c3b3b0e7bc1f64d8c8d4a5b5e2b8a1f1c2";
+    private static final String TOKEN_A = "0x1111111111111111111111111111111111111111";
+    private static final String TOKEN_B = "0x2222222222222222222222222222222222222222";
+
+    private final Event transferEvent = new Event("Transfer", Arrays.asList(
+            new TypeReference<Address>(true) {},
+            new TypeReference<Address>(true) {},
+            new TypeReference<Uint256>(true) {}));
+
+    private final List<EthFilter> requests = new ArrayList<>();
+    private final List<long[]> logBlocks = new ArrayList<>(); //address index, block number
+    private long overflowAbove = Long.MAX_VALUE;
+    private String overflowMessage = "query returned more than 10000 results";
+    private Web3j web3j;
+    private LogFetchEngine engine;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        web3j = mock(Web3j.class);
+        doAnswer(invocation -> {
+            EthFilter filter = invocation.getArgument(0);
+            requests.add(filter);
+            Request<?, EthLog> request = mock(Request.class);
+            EthLog response = respond(filter);
+            doAnswer(i -> response).when(request).send();
+            return request;
+        }).when(web3j).ethGetLogs(any(EthFilter.class));
+
+        engine = new LogFetchEngine(1)
+        {
+            @Override
+            boolean useBatchRequests()
+            {
+                return false;
+            }
+        };
+    }
+
+    @Test
+    public void tokensOnChainShareOneRead()
+    {
+        Token tokenA = createToken(TOKEN_A);
+        Token tokenB = createToken(TOKEN_B);
+        logBlocks.add(new long[]{0, 150});
+        logBlocks.add(new long[]{1, 160});
+        logBlocks.add(new long[]{1, 250});
+
+        //first pass registers both tokens
+        engine.getTxLogs(web3j, tokenA, transferEvent, 100, 200, null);
+        engine.getTxLogs(web3j, tokenB, transferEvent, 100, 200, null);
+        requests.clear();
+
+        //next pass: token A extends the combined read to the new block, token B is served from it
+        EthLog[] logsA = engine.getTxLogs(web3j, tokenA, transferEvent, 200, 300, null);
+        assertThat(requests.size(), equalTo(2)); //one receive and one send filter for both tokens
+        assertThat(requests.get(0).getAddress().size(), equalTo(2));
+        assertThat(logsA[0].getLogs().size(), equalTo(0));
+
+        EthLog[] logsB = engine.getTxLogs(web3j, tokenB, transferEvent, 200, 300, null);
+        assertThat(requests.size(), equalTo(2));
+        assertThat(engine.getCacheHits(), equalTo(1L));
+        assertThat(logsB[0].getLogs().size(), equalTo(1));
+        assertThat(((EthLog.LogObject) logsB[0].getLogs().get(0)).getBlockNumber().longValue(), equalTo(250L));
+    }
+
+    @Test
+    public void overflowingRangeIsSplit()
+    {
+        Token tokenA = createToken(TOKEN_A);
+        logBlocks.add(new long[]{0, 120});
+        logBlocks.add(new long[]{0, 190});
+        overflowAbove = 50;
+
+        EthLog[] logs = engine.getTxLogs(web3j, tokenA, transferEvent, 100, 200, null);
+        assertThat(logs[0].getLogs().size(), equalTo(2));
+
+        //every successful read is within the node's limit, and together they cover the range exactly once
+        long nextBlock = 100;
+        for (EthFilter filter : requests)
+        {
+            long from = Numeric.toBigInt(filter.getFromBlock().getValue()).longValue();
+            long to = Numeric.toBigInt(filter.getToBlock().getValue()).longValue();
+            if (to - from + 1 > overflowAbove || isSendFilter(filter)) continue;
+            assertThat(from, equalTo(nextBlock));
+            nextBlock = to + 1;
+        }
+        assertThat(nextBlock, equalTo(201L));
+    }
+
+    @Test
+    public void otherNodeErrorsAreNotSplit()
+    {
+        Token tokenA = createToken(TOKEN_A);
+        overflowAbove = 0;
+        overflowMessage = "daily request count exceeded, request rate limited";
+
+        //a rate limit is not a range problem: give up on the combined read rather than retry smaller ranges
+        assertThat(engine.getTxLogs(web3j, tokenA, transferEvent, 100, 200, null), nullValue());
+        assertThat(requests.size(), equalTo(1));
+    }
+
+    @Test
+    public void readsOfOtherWalletsAreDropped()
+    {
+        Token tokenA = createToken(TOKEN_A);
+        Token otherToken = createToken(TOKEN_A, OTHER_WALLET);
+        engine.getTxLogs(web3j, tokenA, transferEvent, 100, 200, null);
+        engine.getTxLogs(web3j, otherToken, transferEvent, 100, 200, null);
+
+        engine.removeOtherWallets(WALLET);
+        requests.clear();
+
+        engine.getTxLogs(web3j, tokenA, transferEvent, 100, 200, null);
+        assertThat(requests.size(), equalTo(0));
+        assertThat(engine.getCacheHits(), equalTo(1L));
+
+        engine.getTxLogs(web3j, otherToken, transferEvent, 100, 200, null);
+        assertThat(requests.size(), equalTo(2)); //read again from the node
+    }
+
+    private EthLog respond(EthFilter filter)
+    {
+        EthLog response = new EthLog();
+        long from = Numeric.toBigInt(filter.getFromBlock().getValue()).longValue();
+        long to = Numeric.toBigInt(filter.getToBlock().getValue()).longValue();
+        if (to - from + 1 > overflowAbove)
+        {
+            response.setError(new Response.Error(-32005, overflowMessage));
+            return response;
+        }
+
+        List<EthLog.LogResult> results = new ArrayList<>();
+        if (!isSendFilter(filter))
+        {
+            for (long[] log : logBlocks)
+            {
+                String address = log[0] == 0 ? TOKEN_A : TOKEN_B;
+                if (log[1] < from || log[1] > to || !filter.getAddress().contains(address)) continue;
+                results.add(new EthLog.LogObject(false, "0x0", "0x0", "0x" + Long.toHexString(log[1]), "0x0",
+                        Numeric.encodeQuantity(BigInteger.valueOf(log[1])), address, "0x", "mined",
+                        Arrays.asList(EventEncoder.encode(transferEvent), "0x0", walletTopic(), "0x1")));
+            }
+        }
+
+        response.setResult(results);
+        return response;
+    }
+
+    private static boolean isSendFilter(EthFilter filter)
+    {
+        return filter.getTopics().get(1).getValue() != null;
+    }
+
+    private static String walletTopic()
+    {
+        return "0x" + TypeEncoder.encode(new Address(WALLET));
+    }
+
+    private static Token createToken(String address)
+    {
+        return createToken(address, WALLET);
+    }
+
+    private static Token createToken(String address, String wallet)
+    {
+        TokenInfo info = new TokenInfo(address, "NFT", "NFT", 0, true, 1);
+        Token token = new ERC721Token(info, null, BigDecimal.ZERO, 0, "Ethereum", ContractType.ERC721);
+        token.setTokenWallet(wallet);
+        return token;
+    }
+}
@@ -0,0 +1,133 @@
+package com.alphawallet.app.entity.tokenscript;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.alphawallet.token.entity.FunctionDefinition;
+import com.alphawallet.token.entity.MethodArg;
+import com.alphawallet.token.entity.TokenscriptElement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class EthCallCacheTest
+{
+    private static final String WALLET = "0xa7e1e9b2a2a9d6ab0e53c7b7c3f4a4d1a7f0e0b1";
+    private static final String CONTRACT = "0x1111111111111111111111111111111111111111";
+
+    private Web3j web3j;
+    private long blockNumber = 100;
+    private int calls;
+    private DefaultBlockParameter lastBlock;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        web3j = mock(Web3j.class);
+        doAnswer(invocation -> {
+            Request<?, EthBlockNumber> request = mock(Request.class);
+            EthBlockNumber response = new EthBlockNumber();
+            response.setResult(Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+            doAnswer(i -> response).when(request).send();
+            return request;
+        }).when(web3j).ethBlockNumber();
+
+        doAnswer(invocation -> {
+            calls++;
+            lastBlock = invocation.getArgument(1);
+            Request<?, EthCall> request = mock(Request.class);
+            EthCall response = new EthCall();
+            response.setResult(Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+            doAnswer(i -> response).when(request).send();
+            return request;
+        }).when(web3j).ethCall(any(Transaction.class), any(DefaultBlockParameter.class));
+    }
+
+    @Test
+    public void resultIsReusedUntilBlockTipMoves() throws Exception
+    {
+        EthCallCache cache = new EthCallCache(0); //re-read the tip on every call
+
+        assertThat(cache.call(web3j, 1, WALLET, CONTRACT, "0x70a08231"), equalTo("0x64"));
+        assertThat(cache.call(web3j, 1, WALLET, CONTRACT, "0x70a08231"), equalTo("0x64"));
+        assertThat(calls, equalTo(1));
+        assertThat(cache.getHits(), equalTo(1L));
+
+        //different call data or chain is a different entry
+        cache.call(web3j, 2, WALLET, CONTRACT, "0x70a08231");
+        cache.call(web3j, 1, WALLET, CONTRACT, "0x6352211e");
+        assertThat(calls, equalTo(3));
+
+        blockNumber = 101;
+        assertThat(cache.call(web3j, 1, WALLET, CONTRACT, "0x70a08231"), equalTo("0x65"));
+        assertThat(calls, equalTo(4));
+        assertThat(cache.getMisses(), equalTo(4L));
+    }
+
+    @Test
+    public void callIsMadeAtTheCachedTip() throws Exception
+    {
+        EthCallCache cache = new EthCallCache(60000);
+        cache.call(web3j, 1, WALLET, CONTRACT, "0x70a08231");
+
+        blockNumber = 101; //tip not re-read yet, so the call must still run at block 100
+        cache.call(web3j, 1, WALLET, CONTRACT, "0x6352211e");
+        assertThat(lastBlock.getValue(), equalTo(Numeric.encodeQuantity(BigInteger.valueOf(100))));
+    }
+
+    @Test
+    public void walletCallsAreNotBatched()
+    {
+        EthCallCache cache = new EthCallCache(0);
+        cache.prefetch(web3j, 1, WALLET, Arrays.asList(new EthCallCache.Call(CONTRACT, "0x6352211e"),
+                new EthCallCache.Call(CONTRACT, "0x70a08231")));
+
+        assertThat(calls, equalTo(0));
+        assertThat(EthCallCache.canPrefetch(WALLET), equalTo(false));
+        assertThat(EthCallCache.canPrefetch(null), equalTo(true));
+        assertThat(EthCallCache.canPrefetch("0x0000000000000000000000000000000000000000"), equalTo(true));
+    }
+
+    @Test
+    public void tokenIdViewsAreCalledWithoutASender()
+    {
+        //eg tokenURI(tokenId) or getLevel(tokenId, 2): batched and shared between wallets
+        assertThat(TokenscriptFunction.isSenderIndependent(function(arg("tokenId", null))), equalTo(true));
+        assertThat(TokenscriptFunction.isSenderIndependent(function(arg("tokenId", null), arg(null, "2"))), equalTo(true));
+
+        //anything resolved from a reference may depend on the wallet, so keeps it as sender
+        assertThat(TokenscriptFunction.isSenderIndependent(function(arg("ownerAddress", null), arg("tokenId", null))), equalTo(false));
+        assertThat(TokenscriptFunction.isSenderIndependent(function(arg("tokenId", null), arg("level", null))), equalTo(false));
+        assertThat(TokenscriptFunction.isSenderIndependent(function()), equalTo(false));
+    }
+
+    private static FunctionDefinition function(MethodArg... args)
+    {
+        FunctionDefinition function = new FunctionDefinition();
+        function.parameters.addAll(Arrays.asList(args));
+        return function;
+    }
+
+    private static MethodArg arg(String ref, String value)
+    {
+        MethodArg arg = new MethodArg();
+        arg.parameterType = "uint256";
+        arg.element = new TokenscriptElement();
+        arg.element.ref = ref;
+        arg.element.value = value;
+        return arg;
+    }
+}
@@ -0,0 +1,119 @@
+package com.alphawallet.app.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+import org.web3j.protocol.Service;
+import org.web3j.protocol.Web3j;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class MulticallBalanceEngineTest
+{
+    private static String word(long value)
+    {
+        return String.format("%064x", value);
+    }
+
+    @Test
+    public void decodeAggregate3Results()
+    {
+        // (bool success, bytes returnData)[] with one successful balanceOf and one reverted call
+        String response = "0x"
+                + word(0x20)            // offset to array
+                + word(2)               // array length
+                + word(0x40)            // offset of element 0
+                + word(0xc0)            // offset of element 1
+                + word(1)               // element 0: success
+                + word(0x40)            // element 0: offset to bytes
+                + word(32)              // element 0: bytes length
+                + word(12345)           // element 0: balance
+                + word(0)               // element 1: failure
+                + word(0x40)            // element 1: offset to bytes
+                + word(0);              // element 1: empty bytes
+
+        List<MulticallBalanceEngine.CallResult> results = MulticallBalanceEngine.decodeAggregate3(response);
+
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(0).success, equalTo(true));
+        assertThat(new BigInteger(1, results.get(0).returnData), equalTo(BigInteger.valueOf(12345)));
+        assertThat(results.get(1).success, equalTo(false));
+        assertThat(results.get(1).returnData.length, equalTo(0));
+    }
+
+    @Test
+    public void unsupportedChainIsRemembered()
+    {
+        long chainId = 999999999L;
+        assertThat(MulticallBalanceEngine.isSupported(chainId), equalTo(true));
+        MulticallBalanceEngine.setUnsupported(chainId);
+        assertThat(MulticallBalanceEngine.isSupported(chainId), equalTo(false));
+    }
+
+    @Test
+    public void nativeBalancesOfAllWalletsInOneCall()
+    {
+        String result = "0x"
+                + word(0x20) + word(2) + word(0x40) + word(0xc0)
+                + word(1) + word(0x40) + word(32) + word(1000)
+                + word(1) + word(0x40) + word(32) + word(0);
+
+        int[] requests = new int[1];
+        Web3j web3j = Web3j.build(new Service(false)
+        {
+            @Override
+            protected InputStream performIO(String payload)
+            {
+                requests[0]++;
+                String response = "{\"jsonrpc\":\"2.0\",\"id\":" + payload.replaceAll(".*\"id\":(\\d+).*", "$1") + ",\"result\":\"" + result + "\"}";
+                return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+
+        Map<String, BigDecimal> balances = MulticallBalanceEngine.fetchNativeBalances(web3j, 999999998L,
+                Arrays.asList("0xAbC0000000000000000000000000000000000001", "0x0000000000000000000000000000000000000002"));
+
+        assertThat(requests[0], equalTo(1));
+        assertThat(balances.get("0xabc0000000000000000000000000000000000001"), equalTo(BigDecimal.valueOf(1000)));
+        assertThat(balances.get("0x0000000000000000000000000000000000000002"), equalTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void failedAggregateLeavesBalancesUnknown()
+    {
+        Web3j web3j = Web3j.build(new Service(false)
+        {
+            @Override
+            protected InputStream performIO(String payload)
+            {
+                String response = "{\"jsonrpc\":\"2.0\",\"id\":" + payload.replaceAll(".*\"id\":(\\d+).*", "$1") + ",\"error\":{\"code\":-32000,\"message\":\"header not found\"}}";
+                return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+
+        //no -1 placeholders: the caller must see these as missing so it falls back to single calls
+        assertThat(MulticallBalanceEngine.fetchNativeBalances(web3j, 999999997L,
+                Arrays.asList("0x0000000000000000000000000000000000000001")), equalTo(null));
+        assertThat(MulticallBalanceEngine.fetchBalances(web3j, 999999997L, "0x0000000000000000000000000000000000000001",
+                Arrays.asList("0x1111111111111111111111111111111111111111"), true), equalTo(null));
+        assertThat(MulticallBalanceEngine.isSupported(999999997L), equalTo(true));
+    }
+}
@@ -0,0 +1,134 @@
+package com.alphawallet.app.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RealmWriteQueueTest
+{
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<String>> commits = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> applied = new ArrayList<>();
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    private RealmWriteQueue createQueue(int maxPending, long flushDelay, CountDownLatch committed)
+    {
+        return new RealmWriteQueue(writes -> {
+            applied.clear();
+            for (RealmWriteQueue.Write write : writes) write.apply(null);
+            commits.add(new ArrayList<>(applied));
+            if (committed != null) committed.countDown();
+        }, maxPending, flushDelay, executor);
+    }
+
+    private RealmWriteQueue.Write write(String value)
+    {
+        return realm -> applied.add(value);
+    }
+
+    @Test
+    public void writesAreMergedByKey()
+    {
+        RealmWriteQueue queue = createQueue(100, 60000, null);
+        queue.enqueue("ticker-1", write("price 1"));
+        queue.enqueue("ticker-1", write("price 2")); //newer ticker replaces the queued one
+        queue.append("token-1", write("balance"));
+        queue.append("token-1", write("assets")); //partial writes run in order
+        queue.enqueue("ticker-2", write("price 3"));
+        queue.flush();
+
+        assertThat(commits.size(), equalTo(1));
+        assertThat(commits.get(0), equalTo(Arrays.asList("price 2", "balance", "assets", "price 3")));
+        assertThat(queue.getMergedWrites(), equalTo(2L));
+        assertThat(queue.getCommittedWrites(), equalTo(3L));
+        assertThat(queue.getPendingCount(), equalTo(0));
+    }
+
+    @Test
+    public void queueCommitsWhenFull() throws InterruptedException
+    {
+        CountDownLatch committed = new CountDownLatch(1);
+        RealmWriteQueue queue = createQueue(3, 60000, committed);
+        queue.enqueue("a", write("a"));
+        queue.enqueue("b", write("b"));
+        queue.enqueue("a", write("a2")); //merged, doesn't count towards the limit
+        assertThat(commits.size(), equalTo(0));
+        queue.enqueue("c", write("c"));
+
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        assertThat(commits.get(0), equalTo(Arrays.asList("a2", "b", "c")));
+    }
+
+    @Test
+    public void queueCommitsAfterDelay() throws InterruptedException
+    {
+        CountDownLatch committed = new CountDownLatch(1);
+        RealmWriteQueue queue = createQueue(100, 20, committed);
+        queue.append("a", write("a"));
+        queue.append("b", write("b"));
+
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        assertThat(commits.size(), equalTo(1));
+        assertThat(queue.getCommits(), equalTo(1L));
+    }
+
+    @Test
+    public void flushIfPendingOnlyCommitsForQueuedKey()
+    {
+        RealmWriteQueue queue = createQueue(100, 60000, null);
+        queue.append("token-1", write("balance"));
+
+        queue.flushIfPending("token-2");
+        assertThat(commits.size(), equalTo(0));
+
+        queue.flushIfPending("token-1");
+        assertThat(commits, equalTo(Collections.singletonList(Collections.singletonList("balance"))));
+    }
+
+    @Test
+    public void flushCommitsOnTheFlushThread()
+    {
+        List<Thread> commitThreads = new ArrayList<>();
+        RealmWriteQueue queue = new RealmWriteQueue(writes -> commitThreads.add(Thread.currentThread()), 100, 60000, executor);
+        queue.append("token-1", write("balance"));
+        queue.flushIfPending("token-1");
+
+        assertThat(commitThreads.size(), equalTo(1));
+        assertThat(commitThreads.get(0) != Thread.currentThread(), equalTo(true));
+    }
+
+    @Test
+    public void afterCommitRunsOnceQueuedWritesAreCommitted() throws InterruptedException
+    {
+        CountDownLatch done = new CountDownLatch(1);
+        List<Integer> commitsSeen = new ArrayList<>();
+        RealmWriteQueue queue = createQueue(100, 60000, null);
+        queue.enqueue("ticker-1", write("price"));
+        queue.afterCommit(() -> {
+            commitsSeen.add(commits.size());
+            queue.flush(); //safe on the flush thread
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertThat(commitsSeen, equalTo(Collections.singletonList(1)));
+        assertThat(commits.get(0), equalTo(Collections.singletonList("price")));
+    }
+}
@@ -0,0 +1,94 @@
+package com.alphawallet.app.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.alphawallet.app.entity.tokendata.TokenGroup;
+import com.alphawallet.token.entity.ContractAddress;
+
+import org.junit.Test;
+import org.web3j.utils.Numeric;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+public class TokenMappingTableTest
+{
+    private static final String BASE = "0x0a00000000000000000000000000000000000001";
+    private static final String MIRROR = "0xb9ef770b6a5e12e45983c5d80545258aa38f3b78";
+
+    // records must be in address then chainId order, as written by the compileTokenMappings build task
+    private static TokenMappingTable table() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(TokenMappingTable.HEADER_SIZE + 3 * TokenMappingTable.RECORD_SIZE);
+        buffer.putInt(TokenMappingTable.MAGIC).putInt(3);
+        putRecord(buffer, BASE, 1, TokenGroup.DEFI, -1);
+        putRecord(buffer, MIRROR, 1, TokenGroup.SPAM, -1);
+        putRecord(buffer, MIRROR, 137, TokenGroup.GOVERNANCE, 0);
+        buffer.flip();
+        return new TokenMappingTable(buffer);
+    }
+
+    private static void putRecord(ByteBuffer buffer, String address, long chainId, TokenGroup group, int base)
+    {
+        buffer.put(Numeric.hexStringToByteArray(address)).putLong(chainId).put((byte) group.ordinal()).putInt(base);
+    }
+
+    @Test
+    public void lookupByAddressAndChain() throws IOException
+    {
+        TokenMappingTable table = table();
+
+        assertThat(table.size(), equalTo(3));
+        assertThat(table.getGroup(1, BASE), equalTo(TokenGroup.DEFI));
+        assertThat(table.getGroup(1, MIRROR), equalTo(TokenGroup.SPAM));
+        assertThat(table.getGroup(137, MIRROR.toUpperCase().replace("0X", "0x")), equalTo(TokenGroup.GOVERNANCE));
+        assertThat(table.getGroup(137, MIRROR.substring(2)), equalTo(TokenGroup.GOVERNANCE));
+        assertThat(table.getGroup(56, MIRROR), nullValue());
+        assertThat(table.getGroup(1, "0x0a00000000000000000000000000000000000002"), nullValue());
+        assertThat(table.getGroup(1, "not an address"), nullValue());
+    }
+
+    @Test
+    public void baseTokenOfMirroredContract() throws IOException
+    {
+        TokenMappingTable table = table();
+
+        ContractAddress base = table.getBase(137, MIRROR);
+        assertThat(base.chainId, equalTo(1L));
+        assertThat(base.address, equalTo(BASE));
+        assertThat(table.getBase(1, MIRROR), nullValue());
+    }
+
+    @Test
+    public void compiledTokenMappings() throws IOException
+    {
+        //built from src/main/tokenmapping/tokens.json by the compileTokenMappings task before the tests run
+        File compiled = new File(System.getProperty("tokenMappingTable", "build/generated/tokenmapping/tokens.bin"));
+        assertThat(compiled.exists(), equalTo(true));
+        TokenMappingTable table = new TokenMappingTable(ByteBuffer.wrap(Files.readAllBytes(compiled.toPath())));
+
+        assertThat(table.getGroup(1, "0xb9ef770b6a5e12e45983c5d80545258aa38f3b78"), equalTo(TokenGroup.ASSET));
+        assertThat(table.getGroup(1, "0xe41d2489571d322189246dafa5ebde1f4699f498"), equalTo(TokenGroup.GOVERNANCE));
+        assertThat(table.getGroup(1, "0xb8c3b7a2a618c552c23b1e4701109a9e756bab67"), equalTo(TokenGroup.DEFI));
+        assertThat(table.getGroup(1, "0x89E642e9BDB2c3d2fA03B600d8922cFc0800fdDB"), equalTo(TokenGroup.SPAM));
+        assertThat(table.getGroup(56, "0xb9ef770b6a5e12e45983c5d80545258aa38f3b78"), nullValue());
+
+        //later contracts of an entry map to the first one
+        ContractAddress base = table.getBase(137, "0x8bb30e0e67b11b978a5040144c410e1ccddcba30");
+        assertThat(base.chainId, equalTo(1L));
+        assertThat(base.address, equalTo("0xb9ef770b6a5e12e45983c5d80545258aa38f3b78"));
+        base = table.getBase(43114, "0x596fa47043f99a4e0f122243b841e55375cde0d2");
+        assertThat(base.address, equalTo("0xe41d2489571d322189246dafa5ebde1f4699f498"));
+        assertThat(table.getBase(1, "0xb9ef770b6a5e12e45983c5d80545258aa38f3b78"), nullValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherData() throws IOException
+    {
+        new TokenMappingTable(ByteBuffer.wrap("[{\"contracts\":[]}]".getBytes()));
+    }
+}
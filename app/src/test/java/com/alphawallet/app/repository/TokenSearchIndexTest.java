@@ -0,0 +1,62 @@
+package com.alphawallet.app.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TokenSearchIndexTest
+{
+    private static final String USDC = "0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48-1";
+    private static final String USDT = "0xdac17f958d2ee523a2206206994597c13d831ec7-1";
+    private static final String USDC_POLYGON = "0x2791bca1f2de4661ed88a30c99a7a9449aa84174-137";
+    private static final String DAI = "0x6b175474e89094c44da98b954eedeac495271d0f-1";
+
+    private final TokenSearchIndex index = new TokenSearchIndex();
+
+    @Before
+    public void setUp()
+    {
+        index.put(USDC, 1, "USD Coin", "USDC", null);
+        index.put(USDT, 1, "Tether USD", "USDT", null);
+        index.put(USDC_POLYGON, 137, "USD Coin (PoS)", "USDC", null);
+        index.put(DAI, 1, "Dai Stablecoin", "DAI", null);
+    }
+
+    @Test
+    public void resultsAreRankedAndFiltered()
+    {
+        //symbol matches come before name matches
+        assertThat(index.search("usd", Collections.emptyList()), equalTo(Arrays.asList(USDC_POLYGON, USDC, USDT)));
+        assertThat(index.search("usdc", Collections.singletonList(137L)), equalTo(Collections.singletonList(USDC_POLYGON)));
+        assertThat(index.search("stable", Collections.emptyList()), equalTo(Collections.singletonList(DAI)));
+        assertThat(index.search("0xdac17f", Collections.emptyList()), equalTo(Collections.singletonList(USDT)));
+        assertThat(index.search("da", Collections.emptyList()), equalTo(Arrays.asList(DAI, USDT))); //short term: symbol, then address
+    }
+
+    @Test
+    public void typosFallBackToFuzzyMatches()
+    {
+        List<String> results = index.search("tehter", Collections.emptyList());
+        assertThat(results.isEmpty(), equalTo(true)); //too far from any trigram set
+
+        assertThat(index.search("stablecion", Collections.emptyList()), equalTo(Collections.singletonList(DAI)));
+    }
+
+    @Test
+    public void updatesAreIncremental()
+    {
+        index.put(DAI, 1, "Maker Dai", "DAI", null);
+        assertThat(index.search("stable", Collections.emptyList()).isEmpty(), equalTo(true));
+        assertThat(index.search("maker", Collections.emptyList()), equalTo(Collections.singletonList(DAI)));
+
+        index.remove(USDT);
+        assertThat(index.search("tether", Collections.emptyList()).isEmpty(), equalTo(true));
+        assertThat(index.size(), equalTo(3));
+    }
+}
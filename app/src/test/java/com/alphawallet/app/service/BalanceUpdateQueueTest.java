@@ -0,0 +1,187 @@
+package com.alphawallet.app.service;
+
+import static com.alphawallet.app.repository.TokensRealmSource.databaseKey;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.alphawallet.app.entity.ContractType;
+import com.alphawallet.app.entity.tokendata.TokenGroup;
+import com.alphawallet.app.entity.tokens.TokenCardMeta;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BalanceUpdateQueueTest
+{
+    private static final long INTERVAL = 30 * 1000;
+    private static final long START = 1000000;
+
+    private final Map<String, Float> factors = new HashMap<>();
+    private final Map<String, Long> intervals = new HashMap<>();
+    private BalanceUpdateQueue queue;
+
+    //update weighting supplied by the test: each token's interval and priority can be set directly
+    private final BalanceUpdateQueue.Weighting weighting = new BalanceUpdateQueue.Weighting()
+    {
+        @Override
+        public long updateInterval(TokenCardMeta meta, long currentTime)
+        {
+            Long interval = intervals.get(key(meta));
+            return interval != null ? interval : INTERVAL;
+        }
+
+        @Override
+        public float updateFactor(TokenCardMeta meta, long currentTime)
+        {
+            Float factor = factors.get(key(meta));
+            return factor != null ? factor : 1.0f;
+        }
+    };
+
+    private static TokenCardMeta token(long chainId, String address, long lastUpdate)
+    {
+        return new TokenCardMeta(chainId, address, "1", lastUpdate, 0, ContractType.ERC20, TokenGroup.ASSET);
+    }
+
+    private static String key(TokenCardMeta meta)
+    {
+        return databaseKey(meta.getChain(), meta.getAddress());
+    }
+
+    @Before
+    public void setUp()
+    {
+        queue = new BalanceUpdateQueue(weighting);
+    }
+
+    @Test
+    public void dueTokensOnOneChainAreCoalescedIntoOneBatch()
+    {
+        queue.load(new TokenCardMeta[] {
+                token(1, "0x01", START),
+                token(1, "0x02", START),
+                token(1, "0x03", START),
+                token(137, "0x04", START) }, START);
+        factors.put(databaseKey(1, "0x01"), 2.0f);
+
+        long due = START + INTERVAL + 1;
+        List<TokenCardMeta> batch = queue.pollDue(due, 2);
+        assertThat(batch.size(), equalTo(2)); //capped at maxBatch
+        assertThat(key(batch.get(0)), equalTo(databaseKey(1, "0x01")));
+        assertThat(batch.get(1).getChain(), equalTo(1L));
+
+        //the tokens left out are still due, and the other chain gets its own batch
+        List<TokenCardMeta> next = queue.pollDue(due, 10);
+        assertThat(next.size(), equalTo(1));
+        assertThat(queue.pollDue(due, 10).size(), equalTo(1));
+        assertThat(queue.pollDue(due, 10).size(), equalTo(0));
+    }
+
+    @Test
+    public void repeatedSchedulingKeepsOneEntryPerToken()
+    {
+        TokenCardMeta meta = token(1, "0x01", START);
+        queue.load(new TokenCardMeta[] { meta }, START);
+
+        //each reschedule supersedes the previous entry rather than adding to it
+        queue.reschedule(START);
+        queue.reschedule(START);
+        queue.requeue(meta, START);
+
+        long due = START + INTERVAL + 1;
+        assertThat(queue.pollDue(due, 10).size(), equalTo(1));
+        assertThat(queue.pollDue(due, 10).size(), equalTo(0));
+    }
+
+    @Test
+    public void highestPriorityTokenIsPolledFirst()
+    {
+        queue.load(new TokenCardMeta[] {
+                token(1, "0x01", START),
+                token(137, "0x02", START),
+                token(56, "0x03", START - 5000) }, START);
+
+        factors.put(databaseKey(137, "0x02"), 5.0f);
+        long due = START + INTERVAL + 1;
+
+        assertThat(queue.nextDueTime(), equalTo(START - 5000 + INTERVAL + 1)); //earliest due time, not highest priority
+        assertThat(queue.pollDue(due, 10).get(0).getChain(), equalTo(137L));
+        assertThat(queue.pollDue(due, 10).get(0).getChain(), equalTo(56L)); //equal priority: earliest due first
+        assertThat(queue.pollDue(due, 10).get(0).getChain(), equalTo(1L));
+    }
+
+    @Test
+    public void tokensAreNotReturnedBeforeTheyAreDue()
+    {
+        queue.load(new TokenCardMeta[] { token(1, "0x01", START) }, START);
+
+        assertThat(queue.pollDue(START + INTERVAL, 10).size(), equalTo(0));
+        assertThat(queue.pollDue(START + INTERVAL + 1, 10).size(), equalTo(1));
+    }
+
+    @Test
+    public void checkedTokenIsScheduledFromItsCheckTime()
+    {
+        TokenCardMeta meta = token(1, "0x01", START);
+        queue.load(new TokenCardMeta[] { meta }, START);
+
+        long due = START + INTERVAL + 1;
+        assertThat(queue.pollDue(due, 10).size(), equalTo(1));
+        queue.markChecked(key(meta), due);
+
+        assertThat(queue.nextDueTime(), equalTo(due + INTERVAL + 1));
+        assertThat(queue.pollDue(due + INTERVAL, 10).size(), equalTo(0));
+
+        //check time survives a reload of the token list from the database
+        queue.load(new TokenCardMeta[] { token(1, "0x01", START) }, due);
+        assertThat(queue.nextDueTime(), equalTo(due + INTERVAL + 1));
+    }
+
+    @Test
+    public void rescheduleBringsATokenForwardOnDemand()
+    {
+        TokenCardMeta meta = token(1, "0x01", START);
+        queue.load(new TokenCardMeta[] { meta }, START);
+        assertThat(queue.pollDue(START + 1000, 10).size(), equalTo(0));
+
+        //eg the token gained focus: a shorter interval makes it due straight away
+        intervals.put(key(meta), 0L);
+        queue.reschedule(START + 1000);
+
+        List<TokenCardMeta> batch = queue.pollDue(START + 1000, 10);
+        assertThat(batch.size(), equalTo(1));
+        assertThat(key(batch.get(0)), equalTo(key(meta)));
+    }
+
+    @Test
+    public void skippedTokenIsRetriedLater()
+    {
+        TokenCardMeta meta = token(1, "0x01", START);
+        queue.load(new TokenCardMeta[] { meta }, START);
+        factors.put(key(meta), 0.0f);
+
+        long due = START + INTERVAL + 1;
+        assertThat(queue.pollDue(due, 10).size(), equalTo(0));
+        assertThat(queue.nextDueTime() > due, equalTo(true));
+
+        factors.remove(key(meta));
+        assertThat(queue.pollDue(queue.nextDueTime(), 10).size(), equalTo(1));
+    }
+
+    @Test
+    public void invalidateForcesAReload()
+    {
+        queue.load(new TokenCardMeta[] { token(1, "0x01", START) }, START);
+        assertThat(queue.needsReload(START), equalTo(false));
+
+        queue.invalidate();
+        assertThat(queue.needsReload(START), equalTo(true));
+
+        queue.remove(databaseKey(1, "0x01"));
+        assertThat(queue.nextDueTime(), equalTo(Long.MAX_VALUE));
+    }
+}
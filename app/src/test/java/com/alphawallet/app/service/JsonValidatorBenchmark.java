@@ -0,0 +1,67 @@
+package com.alphawallet.app.service;
+
+import static com.alphawallet.app.service.JsonValidatorTest.body;
+import static com.alphawallet.app.service.JsonValidatorTest.drain;
+import static com.alphawallet.app.service.JsonValidatorTest.largeLogsResponse;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Peak allocation per RPC response for the buffered (tee) validation path versus the streaming (peek) path.
+ * The response body is already in memory in both cases, so the difference is the copies made to validate it.
+ *
+ * Excluded from the normal unit test run; run it on its own with:
+ * ./gradlew testNoAnalyticsDebugUnitTest --tests com.alphawallet.app.service.JsonValidatorBenchmark -Pbenchmark -i
+ */
+public class JsonValidatorBenchmark
+{
+    private static final int WARMUP_ITERATIONS = 5;
+
+    @Test
+    public void streamingAllocatesLessThanBuffered() throws IOException
+    {
+        String json = largeLogsResponse(20000);
+        long size = json.getBytes(StandardCharsets.UTF_8).length;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            drain(JsonValidator.validateAndGetStream(body(json)));
+            drain(JsonValidator.peekValidateAndGetStream(body(json)));
+        }
+
+        ResponseBody bufferedBody = body(json);
+        long start = allocatedBytes();
+        drain(JsonValidator.validateAndGetStream(bufferedBody));
+        long buffered = allocatedBytes() - start;
+
+        ResponseBody streamedBody = body(json);
+        start = allocatedBytes();
+        drain(JsonValidator.peekValidateAndGetStream(streamedBody));
+        long streamed = allocatedBytes() - start;
+
+        System.out.printf("Response %d bytes: buffered path allocated %d bytes, streaming path allocated %d bytes%n", size, buffered, streamed);
+        if (buffered > 0)
+        {
+            assertThat(buffered > size, equalTo(true));
+            assertThat(streamed < size / 4, equalTo(true));
+        }
+    }
+
+    //allocation counter of the HotSpot ThreadMXBean; reports 0 on a runtime without it
+    private static long allocatedBytes()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+}
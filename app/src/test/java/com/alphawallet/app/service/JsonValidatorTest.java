@@ -0,0 +1,145 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+public class JsonValidatorTest
+{
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final String LOG_ENTRY = "{\"address\":\"0x6b175474e89094c44da98b954eedeac495271d0f\",\"topics\":[\"0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef\"],\"data\":\"0x0000000000000000000000000000000000000000000000000de0b6b3a7640000\",\"blockNumber\":\"0x10d4f\",\"logIndex\":\"0x1\"}";
+
+    static ResponseBody body(String json)
+    {
+        return ResponseBody.create(json, JSON);
+    }
+
+    static String largeLogsResponse(int entries)
+    {
+        StringBuilder sb = new StringBuilder("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[");
+        for (int i = 0; i < entries; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(LOG_ENTRY);
+        }
+        return sb.append("]}").toString();
+    }
+
+    static long drain(InputStream stream) throws IOException
+    {
+        byte[] chunk = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = stream.read(chunk)) != -1) total += read;
+        stream.close();
+        return total;
+    }
+
+    /**
+     * Response body which records how much of it has been read from the network, and whether it was closed
+     */
+    private static class TrackedSource extends ForwardingSource
+    {
+        long bytesRead;
+        boolean closed;
+
+        TrackedSource(String json)
+        {
+            super(new Buffer().writeUtf8(json));
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException
+        {
+            long read = super.read(sink, byteCount);
+            if (read > 0) bytesRead += read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            closed = true;
+            super.close();
+        }
+
+        ResponseBody body()
+        {
+            return ResponseBody.create(Okio.buffer(this), JSON, -1);
+        }
+    }
+
+    @Test
+    public void errorEnvelopesAreRejected()
+    {
+        assertThrows(IOException.class, () -> JsonValidator.peekValidateAndGetStream(
+                body("{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32000,\"message\":\"Unauthorized\"}}")));
+        assertThrows(IOException.class, () -> JsonValidator.peekValidateAndGetStream(
+                body("{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32005,\"message\":\"daily request limit exceeded\"}}")));
+        assertThrows(IOException.class, () -> JsonValidator.peekValidateAndGetStream(body("<html>Bad Gateway</html>")));
+    }
+
+    @Test
+    public void smallBatchResponseIsAccepted() throws IOException
+    {
+        String batch = "[{\"jsonrpc\":\"2.0\",\"id\":0,\"result\":\"0x1\"},{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x2\"}]";
+        assertThat(drain(JsonValidator.peekValidateAndGetStream(body(batch))), equalTo((long) batch.length()));
+        assertThrows(IOException.class, () -> JsonValidator.peekValidateAndGetStream(
+                body("[{\"jsonrpc\":\"2.0\",\"id\":0,\"result\":\"0x1\"},{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":\"unauthorized\"}]")));
+    }
+
+    @Test
+    public void largeResponseIsStreamedIntact() throws IOException
+    {
+        String json = largeLogsResponse(5000);
+        InputStream stream = JsonValidator.peekValidateAndGetStream(body(json));
+        assertThat(drain(stream), equalTo((long) json.getBytes(StandardCharsets.UTF_8).length));
+        assertThat(JsonValidator.isValidHead("  {\"jsonrpc\":\"2.0\",\"error\":{\"message\":\"internal error\"}"), equalTo(false));
+    }
+
+    @Test
+    public void rejectedBodyIsClosed()
+    {
+        TrackedSource small = new TrackedSource("{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32000,\"message\":\"internal error\"}}");
+        assertThrows(IOException.class, () -> JsonValidator.peekValidateAndGetStream(small.body()));
+        assertThat(small.closed, equalTo(true));
+
+        TrackedSource large = new TrackedSource("<html>" + largeLogsResponse(100) + "</html>");
+        assertThrows(IOException.class, () -> JsonValidator.peekValidateAndGetStream(large.body()));
+        assertThat(large.closed, equalTo(true));
+    }
+
+    /**
+     * The buffered (tee) path reads the whole body before handing it on; the streaming path only reads the head
+     */
+    @Test
+    public void streamingReadsOnlyTheHead() throws IOException
+    {
+        String json = largeLogsResponse(20000);
+        long size = json.getBytes(StandardCharsets.UTF_8).length;
+
+        TrackedSource buffered = new TrackedSource(json);
+        InputStream bufferedStream = JsonValidator.validateAndGetStream(buffered.body());
+        assertThat(buffered.bytesRead, equalTo(size));
+
+        TrackedSource streamed = new TrackedSource(json);
+        InputStream stream = JsonValidator.peekValidateAndGetStream(streamed.body());
+        assertThat(streamed.bytesRead < size / 4, equalTo(true));
+        assertThat(streamed.closed, equalTo(false));
+
+        assertThat(drain(bufferedStream), equalTo(size));
+        assertThat(drain(stream), equalTo(size));
+    }
+}
@@ -0,0 +1,113 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.alphawallet.app.entity.QueryResponse;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NFTMetadataCacheTest
+{
+    private static final String CONTRACT = "0x495f947276749Ce646f68AC8c248420045cb7b5e";
+    private static final String TOKEN_URI = "https://api.example.com/token/1";
+    private static final String METADATA = "{\"name\":\"Token 1\",\"image\":\"https://api.example.com/token/1.png\"}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger uriCalls = new AtomicInteger();
+    private final AtomicInteger fetchCalls = new AtomicInteger();
+
+    private final IPFSServiceType client = new IPFSServiceType()
+    {
+        @Override
+        public String getContent(String url)
+        {
+            return METADATA;
+        }
+
+        @Override
+        public QueryResponse performIO(String url, String[] headers) throws IOException
+        {
+            fetchCalls.incrementAndGet();
+            return new QueryResponse(200, METADATA, "\"etag-1\"");
+        }
+
+        @Override
+        public InputStream openStream(String url)
+        {
+            return new ByteArrayInputStream(METADATA.getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    private String tokenUri()
+    {
+        uriCalls.incrementAndGet();
+        return TOKEN_URI;
+    }
+
+    @Test
+    public void metadataIsServedFromMemoryThenDisk()
+    {
+        NFTMetadataCache cache = new NFTMetadataCache(folder.getRoot());
+        assertThat(cache.getMetadata(1, CONTRACT, BigInteger.ONE, this::tokenUri, client), equalTo(METADATA));
+        assertThat(cache.getMetadata(1, CONTRACT, BigInteger.ONE, this::tokenUri, client), equalTo(METADATA));
+        assertThat(uriCalls.get(), equalTo(1));
+        assertThat(fetchCalls.get(), equalTo(1));
+
+        //new instance, e.g. after an app restart
+        NFTMetadataCache restarted = new NFTMetadataCache(folder.getRoot());
+        assertThat(restarted.hasFreshEntry(1, CONTRACT.toLowerCase(), BigInteger.ONE), equalTo(true));
+        assertThat(restarted.getMetadata(1, CONTRACT, BigInteger.ONE, this::tokenUri, client), equalTo(METADATA));
+        assertThat(fetchCalls.get(), equalTo(1));
+    }
+
+    @Test
+    public void concurrentRequestsAreCoalesced() throws InterruptedException
+    {
+        NFTMetadataCache cache = new NFTMetadataCache(null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        NFTMetadataCache.TokenURILoader slowLoader = () -> {
+            uriCalls.incrementAndGet();
+            started.countDown();
+            try
+            {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return TOKEN_URI;
+        };
+
+        Thread first = new Thread(() -> cache.getMetadata(1, CONTRACT, BigInteger.TEN, slowLoader, client));
+        first.start();
+        started.await(5, TimeUnit.SECONDS);
+
+        String[] second = new String[1];
+        Thread waiter = new Thread(() -> second[0] = cache.getMetadata(1, CONTRACT, BigInteger.TEN, slowLoader, client));
+        waiter.start();
+        Thread.sleep(100);
+        release.countDown();
+        first.join();
+        waiter.join();
+
+        assertThat(second[0], equalTo(METADATA));
+        assertThat(uriCalls.get(), equalTo(1));
+        assertThat(fetchCalls.get(), equalTo(1));
+    }
+}
@@ -0,0 +1,95 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+
+import android.util.Pair;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.alphawallet.app.entity.tokendata.TokenTicker;
+import com.alphawallet.shadows.ShadowApp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(AndroidJUnit4.class)
+@Config(shadows = {ShadowApp.class})
+public class PortfolioAggregatorTest
+{
+    private static final String WALLET = "0xa7e1e9b2a2a9d6ab0e53c7b7c3f4a4d1a7f0e0b1";
+    private static final String ETH = "1-eth";
+    private static final String USDC = "1-0xa0b86991c6218b36c1d19d4a2e9eb0ce3606eb48";
+    private static final String OTHER = "137-0x2791bca1f2de4661ed88a30c99a7a9449aa84174";
+
+    private PortfolioAggregator portfolio;
+
+    @Before
+    public void setUp()
+    {
+        portfolio = new PortfolioAggregator();
+        portfolio.reset(WALLET, Arrays.asList(
+                new PortfolioAggregator.Holding(ETH, BigDecimal.valueOf(2), ticker("1000", "10")),
+                new PortfolioAggregator.Holding(USDC, BigDecimal.valueOf(500), ticker("1", "0"))));
+    }
+
+    @Test
+    public void totalsAreTheSumOfHoldings()
+    {
+        assertTotals(2500.0, 2000.0 * 0.9 + 500.0);
+
+        portfolio.onBalanceChange(WALLET, USDC, BigDecimal.valueOf(100), null);
+        assertTotals(2100.0, 1800.0 + 100.0);
+
+        portfolio.remove(ETH);
+        assertTotals(100.0, 100.0);
+    }
+
+    @Test
+    public void tickerUpdatesRepriceHeldTokensOnly()
+    {
+        Map<String, TokenTicker> tickers = new HashMap<>();
+        tickers.put(ETH, ticker("1500", "0"));
+        tickers.put(OTHER, ticker("1", "0")); //priced, but not held by the wallet
+        portfolio.onTickerUpdate(tickers);
+
+        assertTotals(3500.0, 3500.0);
+        assertThat(portfolio.isTracked(OTHER), equalTo(false));
+
+        //a token gaining a balance is priced by the ticker supplied with it
+        portfolio.onBalanceChange(WALLET, OTHER, BigDecimal.valueOf(10), ticker("2", "0"));
+        assertTotals(3520.0, 3520.0);
+    }
+
+    @Test
+    public void updatesForAnotherWalletAreIgnored()
+    {
+        portfolio.onBalanceChange("0xb8f2f0c3b3b0e7bc1f64d8c8d4a5b5e2b8a1f1c2", ETH, BigDecimal.TEN, null);
+        assertTotals(2500.0, 2300.0);
+
+        portfolio.invalidate();
+        portfolio.onTickerUpdate(Collections.singletonMap(ETH, ticker("5000", "0")));
+        assertTotals(0.0, 0.0);
+    }
+
+    private void assertTotals(double total, double historical)
+    {
+        Pair<Double, Double> value = portfolio.getValue();
+        assertThat(value.first, closeTo(total, 1e-6));
+        assertThat(value.second, closeTo(historical, 1e-6));
+    }
+
+    private static TokenTicker ticker(String price, String change24h)
+    {
+        return new TokenTicker(price, change24h, "USD", "", System.currentTimeMillis());
+    }
+}
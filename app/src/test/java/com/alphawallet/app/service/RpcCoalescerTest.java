@@ -0,0 +1,220 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okio.Okio;
+
+public class RpcCoalescerTest
+{
+    private static final String SLOW = "0x5104"; //requests for this param wait for the release latch
+    private static final String BATCH_REJECTED = "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"batch requests are not supported\"}}";
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    private static String request(int id, String method, String param)
+    {
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":[\"" + param + "\",\"latest\"],\"id\":" + id + "}";
+    }
+
+    private InputStream node(String payload, boolean acceptBatch, CountDownLatch release) throws IOException
+    {
+        return node(payload, acceptBatch ? null : BATCH_REJECTED, release);
+    }
+
+    //echoes the first param back as the result, for single requests and batches; batchReply replaces the batch answer
+    private InputStream node(String payload, String batchReply, CountDownLatch release) throws IOException
+    {
+        sent.add(payload);
+        try
+        {
+            if (release != null && payload.contains(SLOW)) release.await(5, TimeUnit.SECONDS);
+            String response;
+            if (payload.startsWith("[") && batchReply != null)
+            {
+                response = batchReply;
+            }
+            else if (payload.startsWith("["))
+            {
+                JSONArray batch = new JSONArray(payload);
+                JSONArray results = new JSONArray();
+                for (int i = batch.length() - 1; i >= 0; i--) //nodes may answer out of order
+                {
+                    results.put(reply(batch.getJSONObject(i)));
+                }
+                response = results.toString();
+            }
+            else
+            {
+                response = reply(new JSONObject(payload)).toString();
+            }
+            return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (Exception e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    //holds one read in flight so that the requests which follow form a batch
+    private static Future<JSONObject> holdInFlight(RpcCoalescer coalescer, ExecutorService executor) throws Exception
+    {
+        Future<JSONObject> held = executor.submit(() -> read(coalescer.execute(request(99, "eth_getBalance", SLOW))));
+        while (coalescer.getActiveCount() == 0) Thread.sleep(5);
+        return held;
+    }
+
+    private List<Future<JSONObject>> sendCalls(RpcCoalescer coalescer, ExecutorService executor, int count)
+    {
+        List<Future<JSONObject>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            int id = i;
+            results.add(executor.submit(() -> read(coalescer.execute(request(id, "eth_call", "0x" + id)))));
+        }
+        return results;
+    }
+
+    private static JSONObject reply(JSONObject request) throws Exception
+    {
+        return new JSONObject().put("jsonrpc", "2.0").put("id", request.get("id"))
+                .put("result", request.getJSONArray("params").getString(0));
+    }
+
+    private static JSONObject read(InputStream stream) throws Exception
+    {
+        return new JSONObject(Okio.buffer(Okio.source(stream)).readUtf8());
+    }
+
+    @Test
+    public void identicalReadsShareOneRequest() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        RpcCoalescer coalescer = new RpcCoalescer(1, 0, payload -> node(payload, true, release));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<JSONObject>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            int id = i + 10;
+            results.add(executor.submit(() -> read(coalescer.execute(request(id, "eth_getBalance", SLOW)))));
+        }
+
+        while (coalescer.getCoalescedCount() < 3) Thread.sleep(5);
+        release.countDown();
+
+        for (int i = 0; i < 4; i++)
+        {
+            JSONObject response = results.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(response.getInt("id"), equalTo(i + 10));
+            assertThat(response.getString("result"), equalTo(SLOW));
+        }
+        assertThat(sent.size(), equalTo(1));
+        executor.shutdown();
+    }
+
+    @Test
+    public void concurrentReadsAreBatched() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        RpcCoalescer coalescer = new RpcCoalescer(2, 3, 5000, payload -> node(payload, true, release));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<JSONObject> held = holdInFlight(coalescer, executor);
+        List<Future<JSONObject>> results = sendCalls(coalescer, executor, 3);
+
+        for (int i = 0; i < 3; i++)
+        {
+            JSONObject response = results.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(response.getInt("id"), equalTo(i));
+            assertThat(response.getString("result"), equalTo("0x" + i));
+        }
+        release.countDown();
+        held.get(5, TimeUnit.SECONDS);
+
+        assertThat(sent.size(), equalTo(2)); //the batch was full, so it went without waiting out the window
+        assertThat(coalescer.getBatchedCount(), equalTo(3L));
+        executor.shutdown();
+    }
+
+    @Test
+    public void loneReadDoesNotWaitForABatch() throws Exception
+    {
+        RpcCoalescer coalescer = new RpcCoalescer(5, 3, 5000, payload -> node(payload, true, null));
+        long startTime = System.currentTimeMillis();
+        assertThat(read(coalescer.execute(request(1, "eth_call", "0x1"))).getString("result"), equalTo("0x1"));
+        assertThat(System.currentTimeMillis() - startTime < 2500, equalTo(true));
+        assertThat(sent.size(), equalTo(1));
+    }
+
+    @Test
+    public void rejectedBatchFallsBackAndDisablesBatching() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        RpcCoalescer coalescer = new RpcCoalescer(3, 3, 5000, payload -> node(payload, false, release));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<JSONObject> held = holdInFlight(coalescer, executor);
+        List<Future<JSONObject>> results = sendCalls(coalescer, executor, 3);
+
+        for (int i = 0; i < 3; i++)
+        {
+            assertThat(results.get(i).get(5, TimeUnit.SECONDS).getString("result"), equalTo("0x" + i));
+        }
+        release.countDown();
+        held.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(sent.size(), equalTo(5)); //held read, failed batch, then each request on its own
+        assertThat(RpcCoalescer.isBatchRejected(3, ""), equalTo(true));
+        assertThat(RpcCoalescer.isBatchRejected(3, "https://other.node"), equalTo(false));
+    }
+
+    @Test
+    public void failedBatchDoesNotDisableBatching() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        RpcCoalescer coalescer = new RpcCoalescer(6, 3, 5000, payload -> {
+            if (payload.startsWith("[")) throw new IOException("timeout");
+            return node(payload, true, release);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<JSONObject> held = holdInFlight(coalescer, executor);
+        List<Future<JSONObject>> results = sendCalls(coalescer, executor, 3);
+
+        for (int i = 0; i < 3; i++)
+        {
+            assertThat(results.get(i).get(5, TimeUnit.SECONDS).getString("result"), equalTo("0x" + i));
+        }
+        release.countDown();
+        held.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(RpcCoalescer.isBatchRejected(6, ""), equalTo(false));
+    }
+
+    @Test
+    public void writesPassStraightThrough() throws Exception
+    {
+        RpcCoalescer coalescer = new RpcCoalescer(4, 3, payload -> node(payload, true, null));
+        String raw = request(7, "eth_sendRawTransaction", "0xf86c");
+        coalescer.execute(raw).close();
+        coalescer.execute(raw).close();
+        assertThat(sent.size(), equalTo(2));
+        assertThat(sent.get(0), equalTo(raw));
+    }
+}
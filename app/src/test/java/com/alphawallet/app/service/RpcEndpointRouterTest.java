@@ -0,0 +1,59 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class RpcEndpointRouterTest
+{
+    private static final String FAST_NODE = "https://fast.example";
+    private static final String SLOW_NODE = "https://slow.example";
+    private static final String LIMITED_NODE = "https://limited.example";
+
+    @Test
+    public void fasterNodeIsPreferred()
+    {
+        long chainId = 900001;
+        for (int i = 0; i < 10; i++)
+        {
+            RpcEndpointRouter.recordSuccess(chainId, FAST_NODE, 100);
+            RpcEndpointRouter.recordSuccess(chainId, SLOW_NODE, 2000);
+        }
+
+        List<String> order = RpcEndpointRouter.orderEndpoints(chainId, new String[]{SLOW_NODE, FAST_NODE});
+        assertThat(order.get(0), equalTo(FAST_NODE));
+        assertThat(order.get(1), equalTo(SLOW_NODE));
+    }
+
+    @Test
+    public void rateLimitedNodeOpensCircuit()
+    {
+        long chainId = 900002;
+        RpcEndpointRouter.recordSuccess(chainId, LIMITED_NODE, 50);
+        RpcEndpointRouter.recordSuccess(chainId, SLOW_NODE, 2000);
+        RpcEndpointRouter.recordFailure(chainId, LIMITED_NODE, 50, true);
+
+        List<String> order = RpcEndpointRouter.orderEndpoints(chainId, new String[]{LIMITED_NODE, SLOW_NODE});
+        assertThat(order.get(0), equalTo(SLOW_NODE));
+        assertThat(order.get(1), equalTo(LIMITED_NODE)); //still available as a last resort
+
+        List<RpcEndpointRouter.EndpointStats> stats = RpcEndpointRouter.getChainStats(chainId);
+        assertThat(stats.get(1).circuitOpen, equalTo(true));
+    }
+
+    @Test
+    public void hedgeDelayRequiresHistory()
+    {
+        long chainId = 900003;
+        assertThat(RpcEndpointRouter.getHedgeDelay(chainId, FAST_NODE), equalTo(0L));
+        for (int i = 0; i < 20; i++)
+        {
+            RpcEndpointRouter.recordSuccess(chainId, FAST_NODE, 300 + i * 10);
+        }
+
+        assertThat(RpcEndpointRouter.getHedgeDelay(chainId, FAST_NODE) >= 450, equalTo(true));
+    }
+}
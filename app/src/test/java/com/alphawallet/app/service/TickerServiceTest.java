@@ -0,0 +1,197 @@
+package com.alphawallet.app.service;
+
+import static com.alphawallet.ethereum.EthereumNetworkBase.MAINNET_ID;
+import static com.alphawallet.ethereum.EthereumNetworkBase.POLYGON_ID;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.alphawallet.app.entity.ContractType;
+import com.alphawallet.app.entity.tokendata.TokenGroup;
+import com.alphawallet.app.entity.tokens.TokenCardMeta;
+import com.alphawallet.app.repository.PreferenceRepositoryType;
+import com.alphawallet.app.repository.TokenLocalSource;
+import com.alphawallet.shadows.ShadowApp;
+import com.alphawallet.shadows.ShadowKeyProviderFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+@RunWith(AndroidJUnit4.class)
+@Config(shadows = {ShadowApp.class, ShadowKeyProviderFactory.class})
+public class TickerServiceTest
+{
+    private static final int MAX_BATCH = 10;
+    private static final int CALLS_PER_MINUTE = 20;
+
+    private final List<HttpUrl> calls = Collections.synchronizedList(new ArrayList<>());
+    private int responseCode = 200;
+    private TickerService tickerService;
+
+    @Before
+    public void setUp()
+    {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Request request = chain.request();
+                    calls.add(request.url());
+                    return response(request, responseCode, responseCode == 200 ? priceAll(request.url()) : "");
+                })
+                .build();
+
+        PreferenceRepositoryType prefs = mock(PreferenceRepositoryType.class);
+        when(prefs.getDefaultCurrency()).thenReturn("USD");
+        when(prefs.getDefaultCurrencySymbol()).thenReturn("$");
+        TokenLocalSource localSource = mock(TokenLocalSource.class);
+        when(localSource.getTickerTimeMap(anyLong(), any())).thenReturn(Collections.emptyMap());
+
+        tickerService = new TickerService(client, prefs, localSource);
+    }
+
+    @Test
+    public void queuedTokensAreFetchedInSingleChainBatches()
+    {
+        List<TokenCardMeta> mainnet = tokens(MAINNET_ID, 0, 12);
+        List<TokenCardMeta> polygon = tokens(POLYGON_ID, 100, 3);
+        Set<String> mainnetAddresses = new HashSet<>();
+        for (TokenCardMeta tcm : mainnet) mainnetAddresses.add(tcm.getAddress());
+        List<TokenCardMeta> queued = new ArrayList<>();
+        for (int i = 0; i < mainnet.size(); i++)
+        {
+            queued.add(mainnet.get(i));
+            if (i < polygon.size()) queued.add(polygon.get(i));
+        }
+        queue(queued);
+
+        for (int i = 0; i < 3; i++)
+        {
+            assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.COMPLETE));
+        }
+        assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.COMPLETE)); //queue is empty
+
+        //12 mainnet tokens split 10 + 2, the 3 polygon tokens in one call; nothing left for token discovery
+        assertThat(calls.size(), equalTo(3));
+        Set<String> requested = new HashSet<>();
+        for (HttpUrl call : calls)
+        {
+            String platform = call.pathSegments().get(call.pathSegments().size() - 1);
+            String[] addresses = call.queryParameter("contract_addresses").split(",");
+            assertThat(addresses.length <= MAX_BATCH, equalTo(true));
+            for (String address : addresses)
+            {
+                assertThat(platform, equalTo(mainnetAddresses.contains(address) ? "ethereum" : "polygon-pos"));
+                requested.add(address);
+            }
+        }
+
+        assertThat(requested.size(), equalTo(15));
+        assertThat(batchSizes(), equalTo(Arrays.asList(10, 3, 2)));
+    }
+
+    @Test
+    public void callsAreSkippedOnceTheBudgetIsUsed()
+    {
+        queue(tokens(MAINNET_ID, 0, (CALLS_PER_MINUTE + 2) * MAX_BATCH));
+
+        for (int i = 0; i < CALLS_PER_MINUTE; i++)
+        {
+            assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.COMPLETE));
+        }
+        assertThat(calls.size(), equalTo(CALLS_PER_MINUTE));
+
+        //budget for this minute is used: no call is made and the batch stays queued
+        assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.RATE_LIMITED));
+        assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.RATE_LIMITED));
+        assertThat(calls.size(), equalTo(CALLS_PER_MINUTE));
+    }
+
+    @Test
+    public void rateLimitedBatchIsRequeued()
+    {
+        queue(tokens(MAINNET_ID, 0, 4));
+        responseCode = 429;
+
+        assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.RATE_LIMITED));
+        assertThat(calls.size(), equalTo(1)); //no fallback to token discovery for a rate limited batch
+
+        responseCode = 200;
+        assertThat(tickerService.checkTickerBatch(), equalTo(TickerService.BatchResult.COMPLETE));
+        assertThat(calls.size(), equalTo(2));
+        assertThat(calls.get(1).queryParameter("contract_addresses").split(",").length, equalTo(4));
+    }
+
+    private void queue(List<TokenCardMeta> tokens)
+    {
+        //queues the tokens without starting the background check; batches are run directly by the tests
+        tickerService.syncERC20Tickers(tokens.get(0).getChain(), tokens);
+    }
+
+    private List<Integer> batchSizes()
+    {
+        List<Integer> sizes = new ArrayList<>();
+        for (HttpUrl call : calls) sizes.add(call.queryParameter("contract_addresses").split(",").length);
+        return sizes;
+    }
+
+    private static List<TokenCardMeta> tokens(long chainId, int first, int count)
+    {
+        List<TokenCardMeta> tokens = new ArrayList<>();
+        for (int i = first; i < first + count; i++)
+        {
+            tokens.add(new TokenCardMeta(chainId, String.format(Locale.ROOT, "0x%040x", i), "1", 0, 0, ContractType.ERC20, TokenGroup.ASSET));
+        }
+
+        return tokens;
+    }
+
+    //CoinGecko token_price response with a price for every requested contract
+    private static String priceAll(HttpUrl url)
+    {
+        StringBuilder sb = new StringBuilder("{");
+        String addresses = url.queryParameter("contract_addresses");
+        if (addresses != null)
+        {
+            for (String address : addresses.split(","))
+            {
+                if (sb.length() > 1) sb.append(',');
+                sb.append('"').append(address).append("\":{\"usd\":1.5,\"usd_24h_change\":\"0.25\"}");
+            }
+        }
+
+        return sb.append('}').toString();
+    }
+
+    private static Response response(Request request, int code, String body)
+    {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(code == 200 ? "OK" : "Error")
+                .body(ResponseBody.create(body, MediaType.get("application/json")))
+                .build();
+    }
+}
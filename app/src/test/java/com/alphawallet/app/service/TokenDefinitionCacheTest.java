@@ -0,0 +1,45 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.alphawallet.token.tools.TokenDefinition;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+public class TokenDefinitionCacheTest
+{
+    @Test
+    public void definitionsAreKeyedByHashAndLocale()
+    {
+        TokenDefinitionCache cache = new TokenDefinitionCache(null);
+        TokenDefinition english = new TokenDefinition();
+        cache.put("abc123", Locale.ENGLISH, english);
+
+        assertThat(cache.get("abc123", Locale.ENGLISH), sameInstance(english));
+        assertThat(cache.get("abc123", Locale.FRENCH), nullValue());
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(cache.getMisses(), equalTo(1L));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted()
+    {
+        TokenDefinitionCache cache = new TokenDefinitionCache(null);
+        for (int i = 0; i < 8; i++)
+        {
+            cache.put("hash" + i, Locale.ENGLISH, new TokenDefinition());
+        }
+
+        cache.get("hash0", Locale.ENGLISH); //hash0 is now most recently used
+        cache.put("hash8", Locale.ENGLISH, new TokenDefinition());
+
+        assertThat(cache.get("hash1", Locale.ENGLISH), nullValue());
+        assertThat(cache.get("hash0", Locale.ENGLISH) != null, equalTo(true));
+        assertThat(cache.get("hash8", Locale.ENGLISH) != null, equalTo(true));
+    }
+}
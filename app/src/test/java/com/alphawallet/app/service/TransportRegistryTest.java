@@ -0,0 +1,28 @@
+package com.alphawallet.app.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.alphawallet.app.C;
+
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+
+public class TransportRegistryTest
+{
+    @Test
+    public void profilesShareOneConnectionPool()
+    {
+        OkHttpClient standard = TransportRegistry.getClient(TransportRegistry.Profile.STANDARD);
+        OkHttpClient events = TransportRegistry.getClient(TransportRegistry.Profile.EVENTS);
+
+        assertThat(TransportRegistry.getClient(TransportRegistry.Profile.STANDARD), sameInstance(standard));
+        assertThat(events.connectionPool(), sameInstance(standard.connectionPool()));
+        assertThat(events.dispatcher(), sameInstance(standard.dispatcher()));
+        assertThat((long) standard.connectTimeoutMillis(), equalTo(C.CONNECT_TIMEOUT * 1000));
+        assertThat((long) events.connectTimeoutMillis(), equalTo(C.CONNECT_TIMEOUT * 3 * 1000));
+        assertThat((long) events.readTimeoutMillis(), equalTo(C.READ_TIMEOUT * 3 * 1000));
+    }
+}
@@ -0,0 +1,123 @@
+package com.alphawallet.app.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.alphawallet.app.entity.DApp;
+import com.alphawallet.shadows.ShadowApp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+@Config(shadows = {ShadowApp.class})
+public class DappHistoryStoreTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DappHistoryStore open() throws IOException
+    {
+        return new DappHistoryStore(new File(folder.getRoot(), "history.log"), new File(folder.getRoot(), "legacy"));
+    }
+
+    private static List<String> urls(List<DApp> dapps)
+    {
+        List<String> urls = new ArrayList<>();
+        for (DApp dapp : dapps) urls.add(dapp.getUrl());
+        return urls;
+    }
+
+    @Test
+    public void historyIsDeduplicatedAndPersisted() throws IOException
+    {
+        DappHistoryStore store = open();
+        store.add(new DApp("Uniswap", "https://app.uniswap.org/"));
+        store.add(new DApp("OpenSea", "https://opensea.io/"));
+        store.add(new DApp("Uniswap Swap", "https://app.uniswap.org/")); //revisit moves to the front
+        store.add(new DApp("Aave", "https://app.aave.com/"));
+        store.remove("https://opensea.io/");
+
+        assertThat(urls(store.getHistory()), equalTo(Arrays.asList("https://app.aave.com/", "https://app.uniswap.org/")));
+
+        DappHistoryStore reopened = open();
+        assertThat(urls(reopened.getHistory()), equalTo(Arrays.asList("https://app.aave.com/", "https://app.uniswap.org/")));
+        assertThat(reopened.getHistory().get(1).getName(), equalTo("Uniswap Swap"));
+    }
+
+    @Test
+    public void searchMatchesUrlAndTitlePrefix() throws IOException
+    {
+        DappHistoryStore store = open();
+        store.add(new DApp("Uniswap", "https://app.uniswap.org/"));
+        store.add(new DApp("Aave", "https://www.aave.com/"));
+        store.add(new DApp("App Store", "https://apps.example.com/"));
+
+        assertThat(urls(store.search("app", 10)), equalTo(Arrays.asList("https://apps.example.com/", "https://app.uniswap.org/")));
+        assertThat(urls(store.search("aave.c", 10)), equalTo(Arrays.asList("https://www.aave.com/"))); //scheme and www. ignored
+        assertThat(urls(store.search("UNI", 10)), equalTo(Arrays.asList("https://app.uniswap.org/")));
+        assertThat(store.search("app", 1).size(), equalTo(1));
+        assertThat(store.search("swap", 10).size(), equalTo(0));
+    }
+
+    @Test
+    public void logIsCompacted() throws IOException
+    {
+        File log = new File(folder.getRoot(), "history.log");
+        DappHistoryStore store = open();
+        for (int i = 0; i < 1000; i++)
+        {
+            store.add(new DApp("Page " + (i % 10), "https://example.com/" + (i % 10)));
+        }
+
+        assertThat(store.size(), equalTo(10));
+        assertThat(Files.readAllLines(log.toPath()).size() < 300, equalTo(true));
+        assertThat(urls(open().getHistory()).get(0), equalTo("https://example.com/9"));
+    }
+
+    @Test
+    public void legacyHistoryIsImported() throws IOException
+    {
+        File legacy = new File(folder.getRoot(), "legacy");
+        try (FileWriter writer = new FileWriter(legacy))
+        {
+            writer.write("[{\"name\":\"Newest\",\"url\":\"https://new.example.com/\"},{\"name\":\"Oldest\",\"url\":\"https://old.example.com/\"}]");
+        }
+
+        DappHistoryStore store = open();
+        assertThat(urls(store.getHistory()), equalTo(Arrays.asList("https://new.example.com/", "https://old.example.com/")));
+        assertFalse(legacy.exists());
+        assertThat(urls(open().getHistory()), equalTo(Arrays.asList("https://new.example.com/", "https://old.example.com/")));
+    }
+
+    @Test
+    public void invalidUrlsAreDropped() throws IOException
+    {
+        File log = new File(folder.getRoot(), "history.log");
+        try (FileWriter writer = new FileWriter(log))
+        {
+            writer.write("{\"op\":\"add\",\"name\":\"Uniswap\",\"url\":\"https://app.uniswap.org/\"}\n");
+            writer.write("{\"op\":\"add\",\"name\":\"Broken\",\"url\":\"not a url\"}\n");
+        }
+
+        DappHistoryStore store = open();
+        store.add(new DApp("Also broken", "https://"));
+        assertThat(urls(store.getHistory()), equalTo(Arrays.asList("https://app.uniswap.org/")));
+        assertThat(store.search("not", 10).size(), equalTo(0));
+        assertThat(Files.readAllLines(log.toPath()).size(), equalTo(1)); //log rewritten without the bad entry
+    }
+}
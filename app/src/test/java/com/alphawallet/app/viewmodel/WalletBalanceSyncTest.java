@@ -0,0 +1,103 @@
+package com.alphawallet.app.viewmodel;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+
+public class WalletBalanceSyncTest
+{
+    private static final String WALLET_A = "0xa7e1e9b2a2a9d6ab0e53c7b7c3f4a4d1a7f0e0b1";
+    private static final String WALLET_B = "0xb8f2f0c3b3b0e7bc1f64d8c8d4a5b5e2b8a1f1c2";
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final PublishSubject<Map<String, BigDecimal>> chainBalances = PublishSubject.create();
+    private TestObserver<Set<String>> refreshes;
+
+    @Before
+    public void setUp()
+    {
+        refreshes = WalletsViewModel.balanceRefreshes(chainBalances, scheduler).test();
+    }
+
+    @Test
+    public void chainsReportingTogetherRecomputeEachWalletOnce()
+    {
+        chainBalances.onNext(balances(WALLET_A, "1.5", WALLET_B, "2"));
+        chainBalances.onNext(balances(WALLET_A, "3"));
+        chainBalances.onNext(balances(WALLET_B, "4"));
+        refreshes.assertNoValues();
+
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        refreshes.assertValueCount(1);
+        assertThat(refreshes.values().get(0), equalTo(wallets(WALLET_A, WALLET_B)));
+    }
+
+    @Test
+    public void progressIsReportedAsChainsArrive()
+    {
+        chainBalances.onNext(balances(WALLET_A, "1"));
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        refreshes.assertValueCount(1);
+
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS); //nothing read: no refresh
+        refreshes.assertValueCount(1);
+
+        chainBalances.onNext(balances(WALLET_B, "2"));
+        chainBalances.onComplete();
+        refreshes.assertComplete();
+        refreshes.assertValueCount(2);
+        assertThat(refreshes.values().get(1), equalTo(wallets(WALLET_B)));
+    }
+
+    @Test
+    public void walletWithZeroBalanceIsRecomputed()
+    {
+        //a balance which has fallen to zero must still replace the stored value
+        chainBalances.onNext(balances(WALLET_A, "0"));
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+
+        refreshes.assertValueCount(1);
+        assertThat(refreshes.values().get(0), equalTo(wallets(WALLET_A)));
+    }
+
+    @Test
+    public void chainWithNoReadsRecomputesNothing()
+    {
+        //every read on the chain failed, so the stored values stand
+        chainBalances.onNext(new HashMap<>());
+        chainBalances.onComplete();
+
+        refreshes.assertComplete();
+        refreshes.assertNoValues();
+    }
+
+    private static Map<String, BigDecimal> balances(String... walletValues)
+    {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        for (int i = 0; i < walletValues.length; i += 2)
+        {
+            balances.put(walletValues[i], new BigDecimal(walletValues[i + 1]));
+        }
+
+        return balances;
+    }
+
+    private static Set<String> wallets(String... addresses)
+    {
+        return new HashSet<>(Arrays.asList(addresses));
+    }
+}
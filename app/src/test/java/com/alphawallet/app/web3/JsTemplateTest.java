@@ -0,0 +1,36 @@
+package com.alphawallet.app.web3;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+public class JsTemplateTest
+{
+    private static final String TEMPLATE = "const currentTokenInstance = {\n%1$s\n}\n"
+            + "const walletAddress = '%2$s'\nconst addressHex = \"%2$s\";\nconst chainID = \"%4$s\";\n"
+            + "const rpcURL = \"%3$s\"; // 100% width\nweb3.tokens.dataChanged('test', web3.tokens.data, '%5$s')\n";
+
+    @Test
+    public void rendersLikeStringFormat()
+    {
+        Object[] args = { "name: \"Ticket 50%\",", "0xabc", null, 137L, "token-card-1" };
+        String expected = String.format(TEMPLATE.replace("100%", "100%%"), args);
+
+        JsTemplate template = new JsTemplate(TEMPLATE);
+        String rendered = template.appendTo(new StringBuilder(), args).toString();
+
+        assertThat(rendered, equalTo(expected));
+        assertThat(template.length(args), equalTo(expected.length()));
+    }
+
+    @Test
+    public void appendsIntoExistingBuffer()
+    {
+        JsTemplate template = new JsTemplate("<div id=\"%1$s\">");
+        StringBuilder page = new StringBuilder("<body>");
+        template.appendTo(page, "card").append("</div>");
+
+        assertThat(page.toString(), equalTo("<body><div id=\"card\"></div>"));
+    }
+}
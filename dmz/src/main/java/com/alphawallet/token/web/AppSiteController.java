@@ -19,7 +19,10 @@ import com.alphawallet.token.tools.TokenDefinition;
 import com.alphawallet.token.web.Ethereum.TokenscriptFunction;
 import com.alphawallet.token.web.Ethereum.TransactionHandler;
 import com.alphawallet.token.web.Service.CryptoFunctions;
+import com.alphawallet.token.web.Service.EthRPCNodes;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -35,6 +38,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 import org.xml.sax.SAXException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -53,7 +57,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -64,9 +75,26 @@ import javax.servlet.http.HttpServletRequest;
 @RequestMapping("/")
 public class AppSiteController implements AttributeInterface
 {
+    private static final Logger log = LoggerFactory.getLogger(AppSiteController.class);
     private static CryptoFunctions cryptoFunctions = new CryptoFunctions();
+    private static final ParseMagicLink parser = new ParseMagicLink(cryptoFunctions, null);
     private static Map<Long, Map<String, File>> addresses;
     private static Map<Long, Map<String, Map<BigInteger, CachedResult>>> transactionResults = new ConcurrentHashMap<>();  //optimisation results
+    private static final Map<File, CachedDefinition> definitions = new ConcurrentHashMap<>();
+    private static final Map<String, String> templates = new ConcurrentHashMap<>();
+
+    //a popular magic link is opened many times a minute; its page only needs to be rendered once in a while
+    private static final int RENDERED_PAGE_CACHE_SIZE = 256;
+    private static final long RENDERED_PAGE_TTL_MS = 30 * 1000;
+    private static final RenderedPageCache renderedPages = new RenderedPageCache(RENDERED_PAGE_CACHE_SIZE, RENDERED_PAGE_TTL_MS);
+
+    private static final int CHAIN_READ_THREADS = 32;
+    private static final long REQUEST_DEADLINE_MS = 10 * 1000;
+    private static final ExecutorService chainReads = Executors.newFixedThreadPool(CHAIN_READ_THREADS, r -> {
+        Thread thread = new Thread(r, "chain-read");
+        thread.setDaemon(true);
+        return thread;
+    });
     private static final String appleAssociationConfig = "{\n" +
             "  \"applinks\": {\n" +
             "    \"apps\": [],\n" +
@@ -129,67 +157,79 @@ public class AppSiteController implements AttributeInterface
         {
             return "If you are using AlphaWallet with WalletConnect and facing issues please take the following steps:<br/><br/>\nTry using WalletConnect V2 (or latest version)<br/>\nTry launching the application from within AlphaWallet app's Browser tab.<br/>";
         }
-        String domain = request.getServerName();
-        ParseMagicLink parser = new ParseMagicLink(cryptoFunctions, null);
-        MagicLinkData data;
+        long chainId = MagicLinkInfo.getNetworkIdFromDomain(request.getServerName());
         model.addAttribute("base64", universalLink);
+        model.addAttribute("domain", MagicLinkInfo.getMagicLinkDomainFromNetworkId(chainId));
 
         try
         {
-            data = parser.parseUniversalLink(universalLink);
-            data.chainId = MagicLinkInfo.getNetworkIdFromDomain(domain);
-            model.addAttribute("domain", MagicLinkInfo.getMagicLinkDomainFromNetworkId(data.chainId));
+            return renderedPages.get(chainId + "/" + universalLink, () -> renderUniversalLink(chainId, universalLink));
+        }
+        catch (IOException | SAXException | NoHandlerFoundException | RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    private RenderedPageCache.Page renderUniversalLink(long chainId, String universalLink) throws IOException, SAXException, NoHandlerFoundException
+    {
+        MagicLinkData data;
+        try
+        {
+            data = parseServedLink(chainId, universalLink);
         }
         catch (SalesOrderMalformed e)
         {
-            return "error: " + e;
+            return new RenderedPageCache.Page("error: " + e, true);
         }
         parser.getOwnerKey(data);
         return handleTokenLink(data, universalLink);
     }
 
-    private String handleTokenLink(MagicLinkData data, String universalLink
+    /**
+     * @param chainId network of the domain the link was served on
+     * @param path link data, ie the link without the domain prefix
+     */
+    static MagicLinkData parseServedLink(long chainId, String path) throws SalesOrderMalformed
+    {
+        //the parser expects the whole link as issued for this domain
+        MagicLinkData data = parser.parseUniversalLink(MagicLinkInfo.generatePrefix(chainId) + path);
+        data.chainId = chainId;
+        return data;
+    }
+
+    private RenderedPageCache.Page handleTokenLink(MagicLinkData data, String universalLink
     ) throws IOException, SAXException, NoHandlerFoundException
     {
-        TokenDefinition definition = getTokenDefinition(data.chainId, data.contractAddress);
+        CachedDefinition cached = getTokenDefinition(data.chainId, data.contractAddress);
 
-        if (definition == null)
+        if (cached == null)
         {
             return renderTokenWithoutTokenScript(data, universalLink);
         }
-        String available = "available";
-        try
-        {
-            if(data.contractType == normal)
-            {
-                checkTokensOwnedByMagicLinkCreator(data, definition);
-            }
-            else
-            {
-                checkTokensClaimableSpawnable(data);
-            }
-        }
-        catch (Exception e)
-        {
-            //if the tokens are not available, an exception will be thrown and therefore the tokens are not available
-            available = "unavailable";
-        }
 
-        //get attributes
-        BigInteger firstTokenId = BigInteger.ZERO;
+        //attribute resolution writes into the definition, so each request parses one of its own
+        TokenDefinition definition = cached.newDefinition();
+        String view = definition.getCardData("view");
+        String style = definition.getCardData("style");
 
-        if (data.tokenIds != null && data.tokenIds.size() > 0)
-        {
-            firstTokenId = data.tokenIds.get(0);
-        }
-        System.out.println(firstTokenId.toString(16));
-        ContractAddress cAddr = new ContractAddress(data.chainId, data.contractAddress);
-        StringBuilder tokenData = new StringBuilder();
+        //name and symbol are independent of the ownership check, which must run before the attributes
+        //as it establishes the token id they are resolved for
+        PageReads reads = new PageReads();
         TransactionHandler txHandler = new TransactionHandler(data.chainId);
+        Future<String> nameRead = reads.submit(() -> txHandler.getNameOnly(data.contractAddress));
+        Future<String> symbolRead = reads.submit(() -> txHandler.getSymbolOnly(data.contractAddress));
+        Future<TokenState> stateRead = reads.submit(() -> readTokenState(data, definition));
 
-        String tokenName = txHandler.getNameOnly(data.contractAddress);
-        String symbol = txHandler.getSymbolOnly(data.contractAddress);
+        String tokenName = reads.await(nameRead, "");
+        String symbol = reads.await(symbolRead, "");
+        TokenState state = reads.await(stateRead, new TokenState("unavailable", ""));
 
+        StringBuilder tokenData = new StringBuilder();
         try
         {
             TokenScriptResult.addPair(tokenData, "name", tokenName);
@@ -200,39 +240,28 @@ public class AppSiteController implements AttributeInterface
         {
             e.printStackTrace();
         }
+        tokenData.append(state.attrs);
 
-        tokenscriptFunction.resolveAttributes(ZERO_ADDRESS, firstTokenId, this, cAddr, definition)
-                .forEach(attr -> TokenScriptResult.addPair(tokenData, attr.id, attr.text))
-                .isDisposed();
-
+        String available = state.available;
         if (Calendar.getInstance().getTime().after(new Date(data.expiry*1000)))
         {
             available = "expired";
         }
 
-        String view = definition.getCardData("view");
-        String style = definition.getCardData("style");
-
         String scriptData = loadFile("templates/token_inject.js.tokenscript");
         String tokenView = String.format(scriptData, tokenData.toString(), view);
 
-        return formWebPage(txHandler, data, universalLink, available, style, tokenView);
+        return reads.page(formWebPage(data, universalLink, tokenName, symbol, available, style, tokenView), available);
     }
 
-    private String renderTokenWithoutTokenScript(MagicLinkData data, String universalLink)
+    private TokenState readTokenState(MagicLinkData data, TokenDefinition definition)
     {
-        TransactionHandler txHandler = new TransactionHandler(data.chainId);
         String available = "available";
-
-        if (Calendar.getInstance().getTime().after(new Date(data.expiry*1000)))
-        {
-            available = "expired";
-        }
         try
         {
             if(data.contractType == normal)
             {
-                checkTokensOwnedByMagicLinkCreator(data);
+                checkTokensOwnedByMagicLinkCreator(data, definition);
             }
             else
             {
@@ -241,24 +270,74 @@ public class AppSiteController implements AttributeInterface
         }
         catch (Exception e)
         {
-            //if exception is thrown, we assume it is not available due to balance call failing to match
+            //if the tokens are not available, an exception will be thrown and therefore the tokens are not available
             available = "unavailable";
         }
 
-        return formWebPage(txHandler, data, universalLink, available, "", "");
+        //get attributes
+        BigInteger firstTokenId = BigInteger.ZERO;
+
+        if (data.tokenIds != null && data.tokenIds.size() > 0)
+        {
+            firstTokenId = data.tokenIds.get(0);
+        }
+        ContractAddress cAddr = new ContractAddress(data.chainId, data.contractAddress);
+        StringBuilder attrs = new StringBuilder();
+        tokenscriptFunction.resolveAttributes(ZERO_ADDRESS, firstTokenId, this, cAddr, definition)
+                .forEach(attr -> TokenScriptResult.addPair(attrs, attr.id, attr.text))
+                .isDisposed();
+
+        return new TokenState(available, attrs.toString());
+    }
+
+    private RenderedPageCache.Page renderTokenWithoutTokenScript(MagicLinkData data, String universalLink)
+    {
+        PageReads reads = new PageReads();
+        TransactionHandler txHandler = new TransactionHandler(data.chainId);
+        Future<String> nameRead = reads.submit(() -> txHandler.getNameOnly(data.contractAddress));
+        Future<String> symbolRead = reads.submit(() -> txHandler.getSymbolOnly(data.contractAddress));
+        Future<String> availableRead = reads.submit(() -> {
+            try
+            {
+                if(data.contractType == normal)
+                {
+                    checkTokensOwnedByMagicLinkCreator(data);
+                }
+                else
+                {
+                    checkTokensClaimableSpawnable(data);
+                }
+                return "available";
+            }
+            catch (Exception e)
+            {
+                //if exception is thrown, we assume it is not available due to balance call failing to match
+                return "unavailable";
+            }
+        });
+
+        String tokenName = reads.await(nameRead, "");
+        String symbol = reads.await(symbolRead, "");
+        String available = reads.await(availableRead, "unavailable");
+
+        if (Calendar.getInstance().getTime().after(new Date(data.expiry*1000)))
+        {
+            available = "expired";
+        }
+
+        return reads.page(formWebPage(data, universalLink, tokenName, symbol, available, "", ""), available);
     }
 
     private String formWebPage(
-            TransactionHandler txHandler,
             MagicLinkData data,
             String universalLink,
+            String tokenName,
+            String symbol,
             String available,
             String style,
             String tokenView
     )
     {
-        String tokenName = txHandler.getName(data.contractAddress);
-        String symbol = txHandler.getSymbolOnly(data.contractAddress);
         String nameWithSymbol = tokenName + "(" + symbol + ")";
 
         String price = getEthString(data.price) + " " + MagicLinkInfo.getNetworkNameById(data.chainId);
@@ -298,10 +377,10 @@ public class AppSiteController implements AttributeInterface
         );
     }
 
-    private TokenDefinition getTokenDefinition(long chainId, String contractAddress) throws IOException, SAXException, NoHandlerFoundException
+    private CachedDefinition getTokenDefinition(long chainId, String contractAddress) throws IOException, SAXException, NoHandlerFoundException
     {
         File xml = null;
-        TokenDefinition definition = null;
+        CachedDefinition cached = null;
         if (addresses.containsKey(chainId) && addresses.get(chainId).containsKey(contractAddress))
         {
             xml = addresses.get(chainId).get(contractAddress);
@@ -309,13 +388,18 @@ public class AppSiteController implements AttributeInterface
                 /* this is impossible to happen, because at least 1 xml should present or main() bails out */
                 throw new NoHandlerFoundException("GET", "/" + contractAddress, new HttpHeaders());
             }
-            try(FileInputStream in = new FileInputStream(xml)) {
-                // TODO: give more detail in the error
-                // TODO: reflect on this: should the page bail out for contracts with completely no matching XML?
-                definition = new TokenDefinition(in, new Locale("en"), null);
+            long lastModified = xml.lastModified();
+            cached = definitions.get(xml);
+            if (cached != null && cached.lastModified == lastModified)
+            {
+                return cached;
             }
+            // TODO: give more detail in the error
+            // TODO: reflect on this: should the page bail out for contracts with completely no matching XML?
+            cached = new CachedDefinition(xml, lastModified);
+            definitions.put(xml, cached);
         }
-        return definition;
+        return cached;
     }
 
     private void checkTokensClaimableSpawnable(MagicLinkData data) throws Exception {
@@ -392,6 +476,11 @@ public class AppSiteController implements AttributeInterface
         repoDir = Paths.get(value);
     }
 
+    @Value("${rpc.url:}")
+    public void setRpcUrl(String value) {
+        EthRPCNodes.setNodeOverride(value);
+    }
+
     public static void main(String[] args) throws IOException { // TODO: should run System.exit() if IOException
         addresses = new HashMap<Long, Map<String, File>>();
         SpringApplication.run(AppSiteController.class, args);
@@ -467,19 +556,24 @@ public class AppSiteController implements AttributeInterface
     }
 
     private String loadFile(String fileName) {
-        byte[] buffer = new byte[0];
-        try {
-            InputStream in = getClass()
-                    .getClassLoader().getResourceAsStream(fileName);
-            buffer = new byte[in.available()];
+        String template = templates.computeIfAbsent(fileName, this::readFile);
+        return template != null ? template : "";
+    }
+
+    // null if the file can't be read, so that it isn't cached and is tried again next time
+    private String readFile(String fileName) {
+        try (InputStream in = getClass()
+                .getClassLoader().getResourceAsStream(fileName)) {
+            byte[] buffer = new byte[in.available()];
             int len = in.read(buffer);
             if (len < 1) {
                 throw new IOException("Nothing is read.");
             }
+            return new String(buffer);
         } catch (Exception ex) {
             ex.printStackTrace();
+            return null;
         }
-        return new String(buffer);
     }
 
     //These functions are for caching and restoring results for optimsation.
@@ -510,11 +604,10 @@ public class AppSiteController implements AttributeInterface
     public TransactionResult storeAuxData(String wAddress, TransactionResult tResult)
     {
         String addressFunctionKey = tResult.contractAddress + "-" + tResult.attrId;
-        if (!transactionResults.containsKey(tResult.contractChainId)) transactionResults.put(tResult.contractChainId, new HashMap<>());
-        if (!transactionResults.get(tResult.contractChainId).containsKey(addressFunctionKey)) transactionResults.get(tResult.contractChainId).put(addressFunctionKey, new HashMap<>());
-        Map<BigInteger, CachedResult> tokenResultMap = transactionResults.get(tResult.contractChainId).get(addressFunctionKey);
+        Map<BigInteger, CachedResult> tokenResultMap = transactionResults
+                .computeIfAbsent(tResult.contractChainId, chain -> new ConcurrentHashMap<>())
+                .computeIfAbsent(addressFunctionKey, key -> new ConcurrentHashMap<>());
         tokenResultMap.put(tResult.tokenId, new CachedResult(tResult.resultTime, tResult.result));
-        transactionResults.get(tResult.contractChainId).put(addressFunctionKey, tokenResultMap);
 
         return tResult;
     }
@@ -547,6 +640,91 @@ public class AppSiteController implements AttributeInterface
         }
     }
 
+    /**
+     * Contents of one TokenScript file, read once. Resolving attributes writes into a definition, so only the
+     * immutable script is shared and each request parses a definition of its own from it.
+     */
+    private static class CachedDefinition
+    {
+        final long lastModified;
+        private final byte[] script;
+
+        CachedDefinition(File xml, long lastModified) throws IOException
+        {
+            this.lastModified = lastModified;
+            this.script = Files.readAllBytes(xml.toPath());
+        }
+
+        TokenDefinition newDefinition() throws IOException, SAXException
+        {
+            return new TokenDefinition(new ByteArrayInputStream(script), new Locale("en"), null);
+        }
+    }
+
+    /**
+     * The chain reads for one page. They share a deadline; when it passes, the node calls still running are
+     * cancelled, and a page built from any fallback value is not cached.
+     */
+    private static class PageReads
+    {
+        private final long deadline = System.currentTimeMillis() + REQUEST_DEADLINE_MS;
+        private final EthRPCNodes.ReadScope scope = new EthRPCNodes.ReadScope();
+        private boolean degraded;
+
+        <T> Future<T> submit(Callable<T> read)
+        {
+            return chainReads.submit(scope.wrap(read));
+        }
+
+        /**
+         * Wait for a chain read until the deadline; a node that hasn't answered by then doesn't hold up the page
+         */
+        <T> T await(Future<T> read, T fallback)
+        {
+            try
+            {
+                return read.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                scope.cancel();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                scope.cancel();
+            }
+            catch (ExecutionException e)
+            {
+                log.warn("Chain read failed", e.getCause());
+            }
+
+            read.cancel(true);
+            degraded = true;
+            return fallback;
+        }
+
+        /**
+         * An unavailable result may be a node error the read couldn't tell apart from a sold token, so it isn't cached
+         */
+        RenderedPageCache.Page page(String html, String available)
+        {
+            return new RenderedPageCache.Page(html, !degraded && !"unavailable".equals(available));
+        }
+    }
+
+    private static class TokenState
+    {
+        final String available;
+        final String attrs;
+
+        TokenState(String available, String attrs)
+        {
+            this.available = available;
+            this.attrs = attrs;
+        }
+    }
+
     private static void loadInfuraKey()
     {
         try (InputStream input = new FileInputStream("../gradle.properties")) {
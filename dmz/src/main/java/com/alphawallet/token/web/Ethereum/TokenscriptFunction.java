@@ -124,7 +124,6 @@ import org.web3j.abi.datatypes.generated.Uint96;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthCall;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Bytes;
 import org.web3j.utils.Numeric;
 
@@ -136,10 +135,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
-import okhttp3.OkHttpClient;
 
 /**
  * Created by James on 13/06/2019.
@@ -719,17 +716,8 @@ public abstract class TokenscriptFunction
 
             // 1: create transaction call
             org.web3j.abi.datatypes.Function transaction = generateTransactionFunction(walletAddress, tokenId, definition, attr.function, attrIf);
-            // 2: create web3 connection
-            OkHttpClient okClient = new OkHttpClient.Builder()
-                    .connectTimeout(5, TimeUnit.SECONDS)
-                    .readTimeout(5, TimeUnit.SECONDS)
-                    .writeTimeout(5, TimeUnit.SECONDS)
-                    .retryOnConnectionFailure(false)
-                    .build();
-
-            HttpService nodeService = new HttpService(EthRPCNodes.getNodeURLByNetworkId(contractAddress.chainId), okClient, false);
-
-            Web3j web3j = Web3j.build(nodeService);
+            // 2: get web3 connection
+            Web3j web3j = EthRPCNodes.getWeb3j(contractAddress.chainId);
 
             //now push the transaction
             String result;
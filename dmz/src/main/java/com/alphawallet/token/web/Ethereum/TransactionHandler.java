@@ -12,43 +12,24 @@ import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.Transaction;
-import org.web3j.protocol.core.methods.response.Web3ClientVersion;
-import org.web3j.protocol.http.HttpService;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import com.alphawallet.token.entity.BadContract;
 import org.web3j.utils.Numeric;
 import com.alphawallet.token.web.Service.EthRPCNodes;
 
-import okhttp3.OkHttpClient;
-
 public class TransactionHandler
 {
-    private static Web3j mWeb3;
+    private final Web3j mWeb3;
 
     public TransactionHandler(long networkId)
     {
-        String nodeURL = EthRPCNodes.getNodeURLByNetworkId(networkId);
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.connectTimeout(20, TimeUnit.SECONDS);
-        builder.readTimeout(20, TimeUnit.SECONDS);
-        HttpService service = new HttpService(nodeURL, builder.build(), false);
-        mWeb3 = Web3j.build(service);
-        try
-        {
-            Web3ClientVersion web3ClientVersion = mWeb3.web3ClientVersion().sendAsync().get();
-            System.out.println(web3ClientVersion.getWeb3ClientVersion());
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-        }
+        mWeb3 = EthRPCNodes.getWeb3j(networkId);
     }
 
     public List<BigInteger> getBalanceArray(String address, String contractAddress) throws Exception
@@ -162,11 +143,12 @@ public class TransactionHandler
                         .createEthCallTransaction(null, contractAddress, encodedFunction));
     }
 
-    private String makeEthCall(Transaction transaction) throws ExecutionException, InterruptedException
+    //sent on the calling thread so that the caller's EthRPCNodes.ReadScope can cancel it
+    private String makeEthCall(Transaction transaction) throws IOException
     {
         org.web3j.protocol.core.methods.response.EthCall ethCall = mWeb3.ethCall(transaction,
                 DefaultBlockParameterName.LATEST)
-                .sendAsync().get();
+                .send();
         return ethCall.getValue();
     }
 
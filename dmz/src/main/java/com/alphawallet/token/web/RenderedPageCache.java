@@ -0,0 +1,128 @@
+package com.alphawallet.token.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Short lived cache of rendered magic link pages.
+ *
+ * A shared link can be opened thousands of times a minute; within the TTL every hit after the first is served
+ * without touching the chain, and concurrent misses for the same link wait for the one render already in progress.
+ * A page the renderer marks as uncacheable (eg built from fallbacks because a node didn't answer) is only served to
+ * the requests already waiting for it.
+ */
+public class RenderedPageCache
+{
+    public interface Renderer
+    {
+        Page render() throws Exception;
+    }
+
+    public static class Page
+    {
+        final String html;
+        final boolean cacheable;
+
+        public Page(String html, boolean cacheable)
+        {
+            this.html = html;
+            this.cacheable = cacheable;
+        }
+    }
+
+    private static class Entry
+    {
+        final String page;
+        final long expiry;
+
+        Entry(String page, long expiry)
+        {
+            this.page = page;
+            this.expiry = expiry;
+        }
+    }
+
+    private final long ttl;
+    private final Map<String, Entry> pages;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public RenderedPageCache(final int maxEntries, long ttlMillis)
+    {
+        this.ttl = ttlMillis;
+        this.pages = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public String get(String key, Renderer renderer) throws Exception
+    {
+        String page = lookup(key);
+        if (page != null) return page;
+
+        CompletableFuture<String> render = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, render);
+        if (existing != null) return await(existing);
+
+        try
+        {
+            Page rendered = renderer.render();
+            if (rendered.cacheable) store(key, rendered.html);
+            render.complete(rendered.html);
+            return rendered.html;
+        }
+        catch (Exception e)
+        {
+            render.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            inFlight.remove(key, render);
+        }
+    }
+
+    public synchronized int size()
+    {
+        return pages.size();
+    }
+
+    private synchronized String lookup(String key)
+    {
+        Entry entry = pages.get(key);
+        if (entry == null) return null;
+        if (entry.expiry < System.currentTimeMillis())
+        {
+            pages.remove(key);
+            return null;
+        }
+
+        return entry.page;
+    }
+
+    private synchronized void store(String key, String page)
+    {
+        pages.put(key, new Entry(page, System.currentTimeMillis() + ttl));
+    }
+
+    private static String await(CompletableFuture<String> render) throws Exception
+    {
+        try
+        {
+            return render.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+}
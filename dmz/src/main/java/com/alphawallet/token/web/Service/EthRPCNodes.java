@@ -2,6 +2,21 @@ package com.alphawallet.token.web.Service;
 
 import com.alphawallet.ethereum.EthereumNetworkBase;
 
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
 import static com.alphawallet.token.web.AppSiteController.getInfuraKey;
 
 public class EthRPCNodes
@@ -11,8 +26,93 @@ public class EthRPCNodes
     private static final String XDAI_RPC_URL = EthereumNetworkBase.XDAI_RPC_URL;
     private static final String GOERLI_RPC_URL = "https://goerli.infura.io/v3/" + getInfuraKey();
 
+    private static final Map<Long, Web3j> nodes = new ConcurrentHashMap<>();
+    private static final ThreadLocal<ReadScope> currentScope = new ThreadLocal<>();
+    private static final OkHttpClient httpClient = new OkHttpClient.Builder()
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .writeTimeout(10, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(false)
+            .addInterceptor(chain -> {
+                ReadScope scope = currentScope.get();
+                return scope != null ? scope.proceed(chain) : chain.proceed(chain.request());
+            })
+            .build();
+
+    /**
+     * Node calls made by a group of reads, so they can be abandoned together. Interrupting a read thread doesn't
+     * stop a blocking OkHttp call; cancelling the Call does.
+     */
+    public static class ReadScope
+    {
+        private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        /**
+         * @return the read, with node calls made on its thread tracked by this scope
+         */
+        public <T> Callable<T> wrap(Callable<T> read)
+        {
+            return () -> {
+                currentScope.set(this);
+                try
+                {
+                    return read.call();
+                }
+                finally
+                {
+                    currentScope.remove();
+                }
+            };
+        }
+
+        public void cancel()
+        {
+            cancelled = true;
+            for (Call call : calls)
+            {
+                call.cancel();
+            }
+        }
+
+        private Response proceed(Interceptor.Chain chain) throws IOException
+        {
+            Call call = chain.call();
+            calls.add(call);
+            try
+            {
+                if (cancelled) call.cancel(); //scope was cancelled before this call was registered
+                return chain.proceed(chain.request());
+            }
+            finally
+            {
+                calls.remove(call);
+            }
+        }
+    }
+
+    private static volatile String nodeOverride;
+
+    /**
+     * Node connection for the network, shared by every request so connections and web3j's threads are reused
+     */
+    public static Web3j getWeb3j(long networkId)
+    {
+        return nodes.computeIfAbsent(networkId, id -> Web3j.build(new HttpService(getNodeURLByNetworkId(id), httpClient, false)));
+    }
+
+
+    /**
+     * Route every network to one node, eg a local stub for testing; null or empty restores the public nodes
+     */
+    public static void setNodeOverride(String url)
+    {
+        nodeOverride = (url == null || url.isEmpty()) ? null : url;
+        nodes.clear();
+    }
 
     public static String getNodeURLByNetworkId(long networkId) {
+        if (nodeOverride != null) return nodeOverride;
         switch ((int)networkId) {
             case (int)EthereumNetworkBase.MAINNET_ID:
                 return MAINNET_RPC_URL;
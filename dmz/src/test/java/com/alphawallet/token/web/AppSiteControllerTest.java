@@ -0,0 +1,32 @@
+package com.alphawallet.token.web;
+
+import static org.junit.Assert.assertEquals;
+
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.tools.ParseMagicLink;
+import com.alphawallet.token.web.Service.CryptoFunctions;
+
+import org.junit.Test;
+
+public class AppSiteControllerTest
+{
+    //recorded mainnet link from UniversalLinkTest
+    private static final String LINK = "https://aw.app/AAAAAFroO8yg2x-t8XoYKvHWEk8mRcRZuarNIgwNDg9OYA205_-QZURILYlNp6astOo-RkQMSSefIzMWHKdjcGsc3kAaHfHYi7rrLTgmUfAMaQjFB_u8G0EbB8HewJwDAA==";
+    private static final long MAINNET_ID = 1;
+
+    @Test
+    public void servedPathIsParsedAsTheLinkForItsDomain() throws SalesOrderMalformed
+    {
+        String path = LINK.substring(MagicLinkInfo.generatePrefix(MAINNET_ID).length());
+
+        MagicLinkData served = AppSiteController.parseServedLink(MAINNET_ID, path);
+        MagicLinkData direct = new ParseMagicLink(new CryptoFunctions(), null).parseUniversalLink(LINK);
+
+        assertEquals(MAINNET_ID, served.chainId);
+        assertEquals(direct.contractAddress, served.contractAddress);
+        assertEquals(direct.expiry, served.expiry);
+        assertEquals(direct.ticketCount, served.ticketCount);
+    }
+}
@@ -0,0 +1,120 @@
+package com.alphawallet.token.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RenderedPageCacheTest
+{
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private RenderedPageCache.Page render(String html, boolean cacheable)
+    {
+        renders.incrementAndGet();
+        return new RenderedPageCache.Page(html, cacheable);
+    }
+
+    @Test
+    public void pageIsServedFromCacheUntilItExpires() throws Exception
+    {
+        RenderedPageCache cache = new RenderedPageCache(16, 50);
+
+        assertEquals("page", cache.get("link", () -> render("page", true)));
+        assertEquals("page", cache.get("link", () -> render("other", true)));
+        assertEquals(1, renders.get());
+
+        Thread.sleep(100);
+        assertEquals("new page", cache.get("link", () -> render("new page", true)));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    public void uncacheablePageIsRenderedEveryTime() throws Exception
+    {
+        RenderedPageCache cache = new RenderedPageCache(16, 60000);
+
+        assertEquals("degraded", cache.get("link", () -> render("degraded", false)));
+        assertEquals("full", cache.get("link", () -> render("full", true)));
+        assertEquals("full", cache.get("link", () -> render("unused", true)));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    public void concurrentMissesShareOneRender() throws Exception
+    {
+        RenderedPageCache cache = new RenderedPageCache(16, 60000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        Future<String> first = executor.submit(() -> cache.get("link", () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return render("page", true);
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        List<Future<String>> waiting = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            waiting.add(executor.submit(() -> cache.get("link", () -> render("duplicate", true))));
+        }
+        Thread.sleep(50); //let the waiters reach the in-flight render
+        release.countDown();
+
+        assertEquals("page", first.get(5, TimeUnit.SECONDS));
+        for (Future<String> page : waiting)
+        {
+            assertEquals("page", page.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, renders.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void failedRenderIsNotCached() throws Exception
+    {
+        RenderedPageCache cache = new RenderedPageCache(16, 60000);
+        try
+        {
+            cache.get("link", () -> {
+                throw new IllegalStateException("node down");
+            });
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("node down", e.getMessage());
+        }
+
+        assertEquals("page", cache.get("link", () -> render("page", true)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedPageIsEvicted() throws Exception
+    {
+        RenderedPageCache cache = new RenderedPageCache(2, 60000);
+        cache.get("a", () -> render("a", true));
+        cache.get("b", () -> render("b", true));
+        cache.get("a", () -> render("a", true)); //touch a, so b is the eldest
+        cache.get("c", () -> render("c", true));
+
+        assertEquals(2, cache.size());
+        assertEquals(3, renders.get());
+        cache.get("a", () -> render("a", true));
+        assertEquals(3, renders.get());
+        cache.get("b", () -> render("b", true));
+        assertEquals(4, renders.get());
+    }
+}
@@ -0,0 +1,199 @@
+package com.alphawallet.token.web.loadtest;
+
+import com.alphawallet.token.web.AppSiteController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for the universal link endpoint. Starts the server against LoadTestRpcStub, replays the
+ * LoadTestCorpus links and reports throughput and latency percentiles for each link type. Runs offline.
+ *
+ *   ./gradlew :dmz:loadTest -Dloadtest.latencyMs=80 -Dloadtest.links=1000
+ *
+ * Options (system properties):
+ *   loadtest.latencyMs    delay of every stub RPC response, default 50
+ *   loadtest.concurrency  parallel clients, default 16
+ *   loadtest.requests     measured requests per link type, default 1000
+ *   loadtest.warmup       unmeasured requests per link type, default 100
+ *   loadtest.links        distinct links per link type, default 32; make it at least loadtest.requests
+ *                         to measure without the rendered page cache
+ */
+public class LoadTest
+{
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 60000;
+
+    private final int port;
+    private final int concurrency;
+    private final LoadTestRpcStub stub;
+
+    private LoadTest(int port, int concurrency, LoadTestRpcStub stub)
+    {
+        this.port = port;
+        this.concurrency = concurrency;
+        this.stub = stub;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        long latencyMs = Long.getLong("loadtest.latencyMs", 50);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int requests = Integer.getInteger("loadtest.requests", 1000);
+        int warmup = Integer.getInteger("loadtest.warmup", 100);
+        int links = Integer.getInteger("loadtest.links", 32);
+
+        LoadTestRpcStub stub = new LoadTestRpcStub(latencyMs);
+        stub.start();
+
+        int port = freePort();
+        AppSiteController.main(new String[] {
+                "--server.port=" + port,
+                "--repository.dir=" + repositoryDir(),
+                "--rpc.url=" + stub.getUrl()
+        });
+
+        Map<String, List<String>> corpus = new LoadTestCorpus().build(links);
+        LoadTest loadTest = new LoadTest(port, concurrency, stub);
+
+        System.out.println();
+        System.out.printf("RPC latency %dms, %d clients, %d requests per type over %d links%n", latencyMs, concurrency, requests, links);
+        System.out.printf("%-10s %8s %7s %9s %9s %9s %9s %8s%n", "type", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "rpc/req");
+        for (Map.Entry<String, List<String>> entry : corpus.entrySet())
+        {
+            loadTest.run(entry.getValue(), warmup);
+            Result result = loadTest.run(entry.getValue(), requests);
+            System.out.printf("%-10s %8d %7d %9.1f %9.1f %9.1f %9.1f %8.1f%n", entry.getKey(), requests, result.errors,
+                    result.throughput(), result.percentile(50), result.percentile(95), result.percentile(99),
+                    (double) result.rpcCalls / requests);
+        }
+
+        stub.stop();
+        System.exit(0); //the server has no shutdown hook to call
+    }
+
+    private Result run(List<String> links, int requests) throws InterruptedException
+    {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+
+        long rpcStart = stub.getCallCount();
+        long start = System.nanoTime();
+        for (int c = 0; c < concurrency; c++)
+        {
+            clients.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests)
+                {
+                    long requestStart = System.nanoTime();
+                    if (!fetch(links.get(i % links.size()))) errors.incrementAndGet();
+                    latencies[i] = System.nanoTime() - requestStart;
+                }
+            });
+        }
+
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.HOURS);
+
+        return new Result(latencies, System.nanoTime() - start, errors.get(), stub.getCallCount() - rpcStart);
+    }
+
+    /**
+     * @return true if the page rendered
+     */
+    private boolean fetch(String link)
+    {
+        HttpURLConnection connection = null;
+        try
+        {
+            connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/" + link).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            int status = connection.getResponseCode();
+            String body = read(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status == 200 && !body.startsWith("error:");
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+        finally
+        {
+            if (connection != null) connection.disconnect();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException
+    {
+        if (in == null) return "";
+        try (InputStream stream = in)
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int freePort() throws IOException
+    {
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String repositoryDir() throws Exception
+    {
+        return new File(LoadTest.class.getResource("/loadtest/repo").toURI()).getAbsolutePath();
+    }
+
+    private static class Result
+    {
+        final long[] latencies;
+        final long elapsed;
+        final int errors;
+        final long rpcCalls;
+
+        Result(long[] latencies, long elapsed, int errors, long rpcCalls)
+        {
+            this.latencies = latencies;
+            this.elapsed = elapsed;
+            this.errors = errors;
+            this.rpcCalls = rpcCalls;
+            Arrays.sort(latencies);
+        }
+
+        double throughput()
+        {
+            return latencies.length / (elapsed / 1e9);
+        }
+
+        double percentile(int percent)
+        {
+            if (latencies.length == 0) return 0;
+            int index = (int) Math.ceil(percent / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.alphawallet.token.web.loadtest;
+
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.tools.Convert;
+import com.alphawallet.token.tools.ParseMagicLink;
+import com.alphawallet.token.web.Service.CryptoFunctions;
+
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Magic links replayed by the load test, by link type. Each is the link path as served on mainnet (aw.app).
+ *
+ * Normal links start with the recorded vectors from UniversalLinkTest, whose contracts have no TokenScript here,
+ * then links for the TokenScript contract in loadtest/repo. Spawnable and currency links are generated the way
+ * UniversalLinkTypeTest and SpawnableLinkGenerator build them, signed with the same test key.
+ */
+public class LoadTestCorpus
+{
+    public static final String NORMAL = "normal";
+    public static final String SPAWNABLE = "spawnable";
+    public static final String CURRENCY = "currency";
+
+    //contracts covered by loadtest/repo/LoadTestToken.tsml
+    static final String TOKENSCRIPT_CONTRACT = "0xbc9a1026a4bc6f0ba8bbe486d1d09da5732b39e4";
+    static final String CURRENCY_CONTRACT = "0x4e4a970a03d0b24877244ac0b233575c201d3f44";
+
+    private static final String[] VECTORS = {
+            "https://aw.app/AAAAAFroO8yg2x-t8XoYKvHWEk8mRcRZuarNIgwNDg9OYA205_-QZURILYlNp6astOo-RkQMSSefIzMWHKdjcGsc3kAaHfHYi7rrLTgmUfAMaQjFB_u8G0EbB8HewJwDAA==",
+            "https://aw.app/AB6EgFroX2xm8IymiSAXpF2m-3kqjpRvy-PYZRQVFhcYAlMtOEau6TvoUT-lN5HoxjxlErC2T0LJ-1u4DmORCdoVs-UNTIL33W_OJ6jGJy2ocqEyWBmV-RiYPIzQlHq0mwE=",
+            "https://aw.app/ABLEsFsIA6hOusrp6ZAfDlACatAh6lurgkAr9zc4OTo7SZscuiiYYTfr1VhZ2Kv6NhZqf4dHGhZC5bkclppyAXpnk6SL1teCB_DB-6VKoJZGJj5jZ1Axc1RQ5B2uWojAOgA=",
+            "https://aw.app/AAAD6FroYRBOusrp6ZAfDlACatAh6lurgkAr924oOHKrWrHlBwhDtjCJW8mdFWhcAB2aD_VXigLtQcr4UHROYOjloqnrWnqUXBbCHhG2PPQ2w72ggu5yN4rxrRCRAA==",
+            "https://aw.app/AAAAAFr-ylTBVepdO7lE0GIfuVnycUI0dQHIahcYeCym0Gr-SNCJ-y69sl54rkw5UNWxlKfpdgmyz3iWEbguAQa215Zzg4kiJ8mPLT8Yz3tSbDk7o_SpmrrRrnmfSQE="
+    };
+
+    private static final long CHAIN_ID = 1;
+    private static final BigInteger PRICE = Convert.toWei("0.1", Convert.Unit.ETHER).toBigInteger();
+    private static final BigDecimal DROP_VALUE = Convert.toWei("0.01", Convert.Unit.ETHER);
+
+    private final ParseMagicLink parser = new ParseMagicLink(new CryptoFunctions(), null);
+    private final ECKeyPair testKey = ECKeyPair.create("Test Key".getBytes());
+    private final long expiry = System.currentTimeMillis() / 1000 + 60 * 60 * 24;
+
+    /**
+     * @param linksPerType distinct links of each type; the rendered page cache only helps on repeats
+     */
+    public Map<String, List<String>> build(int linksPerType) throws SalesOrderMalformed
+    {
+        Map<String, List<String>> corpus = new LinkedHashMap<>();
+        corpus.put(NORMAL, normalLinks(linksPerType));
+        corpus.put(SPAWNABLE, spawnableLinks(linksPerType));
+        corpus.put(CURRENCY, currencyLinks(linksPerType));
+        return corpus;
+    }
+
+    private List<String> normalLinks(int count) throws SalesOrderMalformed
+    {
+        List<String> links = new ArrayList<>();
+        for (int i = 0; i < count && i < VECTORS.length; i++)
+        {
+            links.add(path(VECTORS[i]));
+        }
+
+        for (int i = links.size(); i < count; i++)
+        {
+            int[] indices = { i % LoadTestRpcStub.BALANCE_SIZE, (i + 1) % LoadTestRpcStub.BALANCE_SIZE };
+            long linkExpiry = expiry + i; //distinct links for the same tokens
+            byte[] tradeBytes = parser.getTradeBytes(indices, TOKENSCRIPT_CONTRACT, PRICE, linkExpiry);
+            links.add(path(parser.generateUniversalLink(indices, TOKENSCRIPT_CONTRACT, PRICE, linkExpiry, sign(tradeBytes), CHAIN_ID)));
+        }
+
+        return links;
+    }
+
+    private List<String> spawnableLinks(int count) throws SalesOrderMalformed
+    {
+        List<String> links = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            List<BigInteger> tokenIds = Arrays.asList(
+                    BigInteger.valueOf(i % LoadTestRpcStub.BALANCE_SIZE + 1),
+                    BigInteger.valueOf((i + 1) % LoadTestRpcStub.BALANCE_SIZE + 1));
+            long linkExpiry = expiry + i;
+            byte[] message = parser.getSpawnableBytes(tokenIds, TOKENSCRIPT_CONTRACT, BigInteger.ZERO, linkExpiry);
+            byte[] linkData = ParseMagicLink.generateSpawnableLeadingLinkBytes(tokenIds, TOKENSCRIPT_CONTRACT, BigInteger.ZERO, linkExpiry);
+            links.add(path(parser.completeUniversalLink(CHAIN_ID, linkData, sign(message))));
+        }
+
+        return links;
+    }
+
+    private List<String> currencyLinks(int count) throws SalesOrderMalformed
+    {
+        BigInteger szaboAmount = Convert.fromWei(DROP_VALUE, Convert.Unit.SZABO).abs().toBigInteger();
+        List<String> links = new ArrayList<>();
+        for (int nonce = 0; nonce < count; nonce++)
+        {
+            byte[] tradeBytes = parser.getCurrencyBytes(CURRENCY_CONTRACT, szaboAmount, expiry, nonce);
+            byte[] linkMessage = ParseMagicLink.generateCurrencyLink(tradeBytes);
+            links.add(path(parser.completeUniversalLink(CHAIN_ID, linkMessage, sign(tradeBytes))));
+        }
+
+        return links;
+    }
+
+    private byte[] sign(byte[] message) throws SalesOrderMalformed
+    {
+        Sign.SignatureData sigData = Sign.signMessage(message, testKey);
+        byte[] sig = new byte[65];
+        try
+        {
+            System.arraycopy(sigData.getR(), 0, sig, 0, 32);
+            System.arraycopy(sigData.getS(), 0, sig, 32, 32);
+            System.arraycopy(sigData.getV(), 0, sig, 64, 1);
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            throw new SalesOrderMalformed("Signature shorter than expected 256");
+        }
+
+        return sig;
+    }
+
+    private static String path(String link)
+    {
+        return link.substring(MagicLinkInfo.generatePrefix(CHAIN_ID).length());
+    }
+}
@@ -0,0 +1,169 @@
+package com.alphawallet.token.web.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local JSON-RPC node for the load test. Answers eth_call with canned results chosen by function selector,
+ * after a fixed delay standing in for the round trip to a real node.
+ */
+public class LoadTestRpcStub
+{
+    public static final int BALANCE_SIZE = 128; //every owner holds token ids 1..BALANCE_SIZE
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMs;
+    private final Map<String, String> results = new HashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+
+    public LoadTestRpcStub(long latencyMs) throws IOException
+    {
+        this.latencyMs = latencyMs;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "rpc-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+
+        List<Uint256> balance = new ArrayList<>();
+        for (int i = 1; i <= BALANCE_SIZE; i++) balance.add(new Uint256(BigInteger.valueOf(i)));
+
+        answer("name()", new Utf8String("Load Test Token"));
+        answer("symbol()", new Utf8String("LTT"));
+        answer("balanceOf(address)", new DynamicArray<>(Uint256.class, balance));
+        answer("getBalances(address)", new DynamicArray<>(Uint256.class, balance));
+        answer("ownerOf(uint256)", new Address(BigInteger.ZERO));
+        answer("getLocality(uint256)", new Utf8String("Sydney"));
+        answer("isExpired(uint256)", new Bool(false));
+    }
+
+    public void start()
+    {
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl()
+    {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return number of JSON-RPC calls answered so far
+     */
+    public long getCallCount()
+    {
+        return calls.get();
+    }
+
+    private void answer(String signature, Type result)
+    {
+        results.put(Hash.sha3String(signature).substring(0, 10), "0x" + FunctionEncoder.encodeConstructor(Collections.singletonList(result)));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try (InputStream in = exchange.getRequestBody())
+        {
+            JsonNode request = mapper.readTree(in);
+            JsonNode response;
+            if (request.isArray())
+            {
+                ArrayNode batch = mapper.createArrayNode();
+                request.forEach(call -> batch.add(respond(call)));
+                response = batch;
+            }
+            else
+            {
+                response = respond(request);
+            }
+
+            if (latencyMs > 0) Thread.sleep(latencyMs);
+
+            byte[] body = mapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody())
+            {
+                out.write(body);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private ObjectNode respond(JsonNode call)
+    {
+        calls.incrementAndGet();
+        ObjectNode response = mapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", call.get("id"));
+        response.put("result", result(call.path("method").asText(), call.path("params")));
+        return response;
+    }
+
+    private String result(String method, JsonNode params)
+    {
+        switch (method)
+        {
+            case "eth_call":
+                JsonNode tx = params.path(0);
+                String data = tx.hasNonNull("data") ? tx.get("data").asText() : tx.path("input").asText();
+                String selector = data.length() >= 10 ? data.substring(0, 10) : data;
+                return results.getOrDefault(selector, "0x");
+            case "eth_chainId":
+            case "eth_blockNumber":
+                return "0x1";
+            case "net_version":
+                return "1";
+            default:
+                return "0x";
+        }
+    }
+}